@@ -0,0 +1,644 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Item counter that holds at most a fixed number of items, evicting items to make room for new ones.
+ * Useful for counting recent or frequent items from an unbounded key space in bounded memory.
+ *
+ * <p>The {@link Eviction} policy chooses which item is dropped.
+ * Dropped items and their counts are passed to the {@link EvictionListener}, if any, for example to add them to a downstream store,
+ * and are tallied by {@link #evictedItems()} and {@link #evictedMass()}.
+ * {@link #increment(Object)} takes constant time for every policy.</p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class BoundedItemCounter<K> extends ItemCounter<K> {
+
+	/**
+	 * Chooses the item to drop when a new item would exceed the capacity.
+	 */
+	public enum Eviction {
+		/** Drop the least recently counted item. */
+		LRU,
+		/**
+		 * Always admit the new item, and drop the item with the smallest count among the items held before it,
+		 * the least recently counted of those if there is a tie.
+		 * The dropped item can have a higher count than the new one, so a stream of one-off items keeps replacing the least frequent held items;
+		 * use {@link #TINY_LFU} to admit new items only when they are more frequent than the item they would replace.
+		 */
+		LFU,
+		/**
+		 * Window TinyLFU: new items enter a small LRU window, about 1% of the capacity.
+		 * An item leaving the window only replaces the least recently counted item of the main region if it has been seen more often,
+		 * according to a compact frequency sketch that also remembers dropped items and is periodically aged.
+		 * Resists one-off items flushing out frequent ones, while still letting new frequent items in.
+		 */
+		TINY_LFU
+	}
+
+
+	/**
+	 * Receives the items that a {@link BoundedItemCounter} drops.
+	 * @param <K> the type of object being counted
+	 */
+	public interface EvictionListener<K> {
+		/**
+		 * Called after an item has been removed to make room for another.
+		 * @param item the dropped item
+		 * @param count the item's count when it was dropped
+		 */
+		void evicted(K item, int count);
+	}
+
+
+	private final int capacity;
+	private final Map<K, Node<K>> nodes;
+	private final Policy<K> policy;
+	private EvictionListener<? super K> evictionListener;
+	private long evictedItems;
+	private long evictedMass;
+
+
+	/**
+	 * Constructor.
+	 * @param capacity maximum number of items held
+	 * @param eviction policy that chooses the item to drop
+	 */
+	public BoundedItemCounter(int capacity, Eviction eviction) {
+		this(capacity, eviction, new HashMap<K, Node<K>>((int)Math.min(initialTableCapacity(capacity, 0.75f), 1 << 30)));
+	}
+
+
+	private BoundedItemCounter(int capacity, Eviction eviction, Map<K, Node<K>> nodes) {
+		super(new Index<K>(nodes), false);
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.nodes = nodes;
+		switch(eviction) {
+		case LRU:
+			policy = new LruPolicy<K>();
+			break;
+		case LFU:
+			policy = new LfuPolicy<K>();
+			break;
+		case TINY_LFU:
+			policy = new TinyLfuPolicy<K>(capacity);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown eviction policy " + eviction);
+		}
+	}
+
+
+	/**
+	 * Set the listener that receives dropped items.
+	 * @param evictionListener receives dropped items and their counts, or null to discard them
+	 */
+	public void setEvictionListener(EvictionListener<? super K> evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+
+	/**
+	 * @return the maximum number of items held
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+
+	/**
+	 * Get the number of items that have been dropped.
+	 * An item that was dropped and later counted again is counted once per drop.
+	 * @return the number of items dropped so far
+	 */
+	public long evictedItems() {
+		return evictedItems;
+	}
+
+
+	/**
+	 * Get the total count of the items that have been dropped, which is the amount by which {@link #sum()} falls short of the number of increments.
+	 * @return the sum of the counts of the dropped items
+	 */
+	public long evictedMass() {
+		return evictedMass;
+	}
+
+
+	@Override
+	public Integer get(K item) {
+		listener.onGet();
+		Node<K> n = nodes.get(item);
+		return n == null ? 0 : n.count;
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		checkRankable(item);
+		Node<K> n = nodes.get(item);
+		if(n == null) {
+			if(count != 0) {
+				add(item, count);
+			}
+		} else if(count == 0) {
+			nodes.remove(item);
+			policy.remove(n);
+			countChanged(item, n.count, 0);
+		} else {
+			int c = n.count;
+			n.count = count;
+			policy.counted(n, c);
+			countChanged(item, c, count);
+		}
+	}
+
+
+	/** Removals go through {@link #set(Object, int)} so that the eviction policy drops the removed items. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(K item) {
+		listener.onIncrement();
+		checkRankable(item);
+		Node<K> n = nodes.get(item);
+		if(n == null) {
+			add(item, 1);
+			return 1;
+		}
+		int c = n.count = incrementedCount(n.count);
+		policy.counted(n, c - 1);
+		countChanged(item, c - 1, c);
+		return c;
+	}
+
+
+	/** Adds a new item, then drops an item if the capacity is exceeded; the dropped item may be the new one. */
+	private void add(K item, int count) {
+		Node<K> n = new Node<K>(item, count);
+		nodes.put(item, n);
+		policy.add(n);
+		countChanged(item, 0, count);
+		if(nodes.size() > capacity) {
+			Node<K> victim = policy.victim(n);
+			nodes.remove(victim.key);
+			evictedItems++;
+			evictedMass += victim.count;
+			countChanged(victim.key, victim.count, 0);
+			if(evictionListener != null) {
+				evictionListener.evicted(victim.key, victim.count);
+			}
+		}
+	}
+
+
+	@Override
+	public int size() {
+		return nodes.size();
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		// HashMap table and entry, plus a 40-byte node per item
+		return 16 + 4 * initialTableCapacity(capacity, 0.75f) + 72L * nodes.size() + policy.estimatedBytes();
+	}
+
+
+	/** Item and its count, linked into the policy's lists. */
+	private static final class Node<K> implements Map.Entry<K, Integer> {
+		final K key;
+		int count;
+		Node<K> prev;
+		Node<K> next;
+		/** LFU: the list of items with this count; TinyLFU: the list, window or main, that holds the item. */
+		NodeList<K> list;
+
+		Node(K key, int count) {
+			this.key = key;
+			this.count = count;
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public Integer getValue() {
+			return count;
+		}
+
+		@Override
+		public Integer setValue(Integer value) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/** Doubly-linked list of nodes, least recent first; the LFU policy also links the lists themselves in ascending count order. */
+	private static final class NodeList<K> {
+		final int count;
+		int size;
+		Node<K> head;
+		Node<K> tail;
+		NodeList<K> prev;
+		NodeList<K> next;
+
+		NodeList(int count) {
+			this.count = count;
+		}
+
+		void addLast(Node<K> n) {
+			n.list = this;
+			n.prev = tail;
+			n.next = null;
+			if(tail == null) {
+				head = n;
+			} else {
+				tail.next = n;
+			}
+			tail = n;
+			size++;
+		}
+
+		void unlink(Node<K> n) {
+			if(n.prev == null) {
+				head = n.next;
+			} else {
+				n.prev.next = n.next;
+			}
+			if(n.next == null) {
+				tail = n.prev;
+			} else {
+				n.next.prev = n.prev;
+			}
+			n.prev = null;
+			n.next = null;
+			n.list = null;
+			size--;
+		}
+	}
+
+
+	private static abstract class Policy<K> {
+		/** Link a new item. */
+		abstract void add(Node<K> n);
+
+		/** The item was counted, or its count set, and its count is no longer the old count. */
+		abstract void counted(Node<K> n, int oldCount);
+
+		/** Unlink an item that is being removed. */
+		abstract void remove(Node<K> n);
+
+		/** Choose and unlink the item to drop, just after the given item was added. */
+		abstract Node<K> victim(Node<K> added);
+
+		long estimatedBytes() {
+			return 0;
+		}
+	}
+
+
+	private static final class LruPolicy<K> extends Policy<K> {
+		private final NodeList<K> list = new NodeList<K>(0);
+
+		@Override
+		void add(Node<K> n) {
+			list.addLast(n);
+		}
+
+		@Override
+		void counted(Node<K> n, int oldCount) {
+			list.unlink(n);
+			list.addLast(n);
+		}
+
+		@Override
+		void remove(Node<K> n) {
+			list.unlink(n);
+		}
+
+		@Override
+		Node<K> victim(Node<K> added) {
+			Node<K> v = list.head;
+			list.unlink(v);
+			return v;
+		}
+	}
+
+
+	/**
+	 * Constant-time LFU: one list of items per distinct count, with the lists linked in ascending count order.
+	 * An increment moves an item to the next list, creating it if needed; setting an arbitrary count walks the lists.
+	 */
+	private static final class LfuPolicy<K> extends Policy<K> {
+		/** Sentinel before the list with the smallest count. */
+		private final NodeList<K> first = new NodeList<K>(Integer.MIN_VALUE);
+		private int lists;
+
+		@Override
+		void add(Node<K> n) {
+			moveTo(n, first);
+		}
+
+		@Override
+		void counted(Node<K> n, int oldCount) {
+			NodeList<K> from = n.list;
+			NodeList<K> start = from.prev;
+			from.unlink(n);
+			if(from.size == 0) {
+				removeList(from);
+			}
+			while(start != first && start.count >= n.count) {
+				start = start.prev;
+			}
+			moveTo(n, start);
+		}
+
+		/** Link the node into the list for its count, searching forward from the given list, whose count is smaller. */
+		private void moveTo(Node<K> n, NodeList<K> from) {
+			NodeList<K> l = from;
+			while(l.next != null && l.next.count < n.count) {
+				l = l.next;
+			}
+			if(l.next == null || l.next.count != n.count) {
+				NodeList<K> nl = new NodeList<K>(n.count);
+				nl.prev = l;
+				nl.next = l.next;
+				if(l.next != null) {
+					l.next.prev = nl;
+				}
+				l.next = nl;
+				lists++;
+			}
+			l.next.addLast(n);
+		}
+
+		private void removeList(NodeList<K> l) {
+			l.prev.next = l.next;
+			if(l.next != null) {
+				l.next.prev = l.prev;
+			}
+			lists--;
+		}
+
+		@Override
+		void remove(Node<K> n) {
+			NodeList<K> l = n.list;
+			l.unlink(n);
+			if(l.size == 0) {
+				removeList(l);
+			}
+		}
+
+		@Override
+		Node<K> victim(Node<K> added) {
+			Node<K> v = first.next.head;
+			if(v == added) {
+				// The new item is alone with the smallest count; it is always admitted, so drop the least frequent of the items held before it
+				v = first.next.next.head;
+			}
+			remove(v);
+			return v;
+		}
+
+		@Override
+		long estimatedBytes() {
+			return 40L * lists;
+		}
+	}
+
+
+	/**
+	 * W-TinyLFU admission over an LRU window and an LRU main region.
+	 * Differs from the published design in using a plain LRU, rather than a segmented LRU, for the main region.
+	 */
+	private static final class TinyLfuPolicy<K> extends Policy<K> {
+		private final NodeList<K> window = new NodeList<K>(0);
+		private final NodeList<K> main = new NodeList<K>(0);
+		private final int windowCapacity;
+		private final int mainCapacity;
+		private final FrequencySketch sketch;
+
+		TinyLfuPolicy(int capacity) {
+			windowCapacity = Math.max(1, capacity / 100);
+			mainCapacity = capacity - windowCapacity;
+			sketch = new FrequencySketch(capacity);
+		}
+
+		@Override
+		void add(Node<K> n) {
+			sketch.increment(n.key);
+			window.addLast(n);
+			while(window.size > windowCapacity && main.size < mainCapacity) {
+				Node<K> m = window.head;
+				window.unlink(m);
+				main.addLast(m);
+			}
+		}
+
+		@Override
+		void counted(Node<K> n, int oldCount) {
+			if(n.count > oldCount) {
+				sketch.increment(n.key);
+			}
+			NodeList<K> l = n.list;
+			l.unlink(n);
+			l.addLast(n);
+		}
+
+		@Override
+		void remove(Node<K> n) {
+			n.list.unlink(n);
+		}
+
+		@Override
+		Node<K> victim(Node<K> added) {
+			Node<K> candidate = window.head;
+			window.unlink(candidate);
+			Node<K> v = main.head;
+			if(v == null) {
+				return candidate;
+			}
+			if(sketch.frequency(candidate.key) > sketch.frequency(v.key)) {
+				main.unlink(v);
+				main.addLast(candidate);
+				return v;
+			}
+			return candidate;
+		}
+
+		@Override
+		long estimatedBytes() {
+			return sketch.estimatedBytes();
+		}
+	}
+
+
+	/**
+	 * Count-min sketch of recent item frequencies with four rows of 4-bit counters.
+	 * After ten increments per counted item, every counter is halved so that old popularity fades.
+	 */
+	private static final class FrequencySketch {
+		private static final int[] SEEDS = {0x97cb3127, 0xb3f6bd5d, 0x2c1b3c6d, 0x9e3779b9};
+		private final long[] table;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int capacity) {
+			// About eight counters per item in each row keeps collisions well below the count of a frequent item
+			int width = 64;
+			while(width < 8L * capacity && width < (1 << 26)) {
+				width <<= 1;
+			}
+			// Each long holds sixteen counters; each row needs width counters
+			table = new long[width / 4];
+			mask = width - 1;
+			sampleSize = (int)Math.min(10L * capacity, Integer.MAX_VALUE);
+		}
+
+		private static int spread(int h, int seed) {
+			h *= seed;
+			return h ^ (h >>> 17);
+		}
+
+		int frequency(Object key) {
+			int h = key == null ? 0 : key.hashCode();
+			int f = 15;
+			for(int row = 0; row < 4; row++) {
+				int i = (spread(h, SEEDS[row]) & mask) + row * (mask + 1);
+				f = Math.min(f, (int)((table[i >>> 4] >>> ((i & 15) << 2)) & 15L));
+			}
+			return f;
+		}
+
+		void increment(Object key) {
+			int h = key == null ? 0 : key.hashCode();
+			for(int row = 0; row < 4; row++) {
+				int i = (spread(h, SEEDS[row]) & mask) + row * (mask + 1);
+				int shift = (i & 15) << 2;
+				if(((table[i >>> 4] >>> shift) & 15L) < 15L) {
+					table[i >>> 4] += 1L << shift;
+				}
+			}
+			if(++additions >= sampleSize) {
+				additions /= 2;
+				for(int i = 0; i < table.length; i++) {
+					table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+				}
+			}
+		}
+
+		long estimatedBytes() {
+			return 16 + 8L * table.length;
+		}
+	}
+
+
+	/** Read-only map from each item to its count, for the inherited methods. */
+	private static final class Index<K> extends AbstractMap<K, Integer> {
+		private final Map<K, Node<K>> nodes;
+
+		Index(Map<K, Node<K>> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			Node<K> n = nodes.get(key);
+			return n == null ? null : n.count;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return nodes.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return nodes.size();
+		}
+
+		@Override
+		public Set<Entry<K, Integer>> entrySet() {
+			return new AbstractSet<Entry<K,Integer>>() {
+				@Override
+				public Iterator<Entry<K, Integer>> iterator() {
+					final Iterator<Node<K>> it = nodes.values().iterator();
+					return new Iterator<Entry<K,Integer>>() {
+						@Override
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+
+						@Override
+						public Entry<K, Integer> next() {
+							return it.next();
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return nodes.size();
+				}
+			};
+		}
+	}
+}
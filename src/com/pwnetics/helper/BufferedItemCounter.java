@@ -0,0 +1,336 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Thread-safe front end that lets many threads count into one shared {@link ItemCounter} without contending on it.
+ *
+ * <p>Each thread counts into its own small buffer.
+ * A buffer is added to the shared counter when it holds the configured number of distinct items, when its thread reads through {@link #get(Object)},
+ * or, at the latest, about the configured maximum lag after its oldest unflushed increment, by a background timer.
+ * The shared counter therefore lags the increments by at most the maximum lag, plus the time to flush.</p>
+ *
+ * <p>A buffer whose thread has ended is flushed and dropped by the next {@link #flush()} or timer pass.
+ * A thread from a pool, which may outlive its use of this counter, can instead call {@link #release()} when it is done.</p>
+ *
+ * <p>If the shared counter is a {@link ConcurrentItemCounter}, buffers are added to it with atomic adds;
+ * otherwise flushes lock the shared counter, and anyone else using the shared counter directly must lock it too.</p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class BufferedItemCounter<K> implements Closeable {
+
+	private final ItemCounter<K> shared;
+	private final int bufferSize;
+	private final long maxLagNanos;
+	private final CopyOnWriteArrayList<Buffer<K>> buffers = new CopyOnWriteArrayList<Buffer<K>>();
+	private final ThreadLocal<Buffer<K>> local = new ThreadLocal<Buffer<K>>() {
+		@Override
+		protected Buffer<K> initialValue() {
+			Buffer<K> b = new Buffer<K>(bufferSize, Thread.currentThread());
+			buffers.add(b);
+			return b;
+		}
+	};
+	private final Timer timer;
+
+
+	/**
+	 * Constructor; starts a daemon timer thread that flushes stale buffers.
+	 * @param shared the counter that receives the buffered counts, for example a {@link ConcurrentItemCounter}
+	 * @param bufferSize number of distinct items each thread buffers before flushing
+	 * @param maxLagMillis longest time that an increment waits in a buffer
+	 */
+	public BufferedItemCounter(ItemCounter<K> shared, int bufferSize, long maxLagMillis) {
+		if(bufferSize < 1) {
+			throw new IllegalArgumentException("buffer size must be positive");
+		}
+		if(maxLagMillis < 1) {
+			throw new IllegalArgumentException("maximum lag must be positive");
+		}
+		this.shared = shared;
+		this.bufferSize = bufferSize;
+		this.maxLagNanos = maxLagMillis * 1000000L;
+		long period = Math.max(1, maxLagMillis / 2);
+		timer = new Timer("BufferedItemCounter", true);
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				flushStale();
+			}
+		}, period, period);
+	}
+
+
+	/**
+	 * Increment the count on an item in the calling thread's buffer.
+	 * @param item item whose count to increment
+	 */
+	public void increment(K item) {
+		add(item, 1);
+	}
+
+
+	/**
+	 * Add to the count on an item in the calling thread's buffer.
+	 * @param item item whose count to increase
+	 * @param delta non-negative amount to add
+	 */
+	public void add(K item, int delta) {
+		if(delta < 0) {
+			throw new IllegalArgumentException("delta must be non-negative");
+		}
+		Buffer<K> b = local.get();
+		synchronized(b) {
+			if(!b.add(item, delta)) {
+				flush(b);
+				b.add(item, delta);
+			}
+		}
+	}
+
+
+	/**
+	 * Get the count of an item from the shared counter, after flushing the calling thread's buffer.
+	 * Includes all of this thread's increments, and those of other threads up to the maximum lag.
+	 * @param item the item whose count will be returned
+	 * @return the item's count
+	 */
+	public int get(K item) {
+		Buffer<K> b = local.get();
+		synchronized(b) {
+			flush(b);
+		}
+		if(shared instanceof ConcurrentItemCounter<?>) {
+			return shared.get(item);
+		}
+		synchronized(shared) {
+			return shared.get(item);
+		}
+	}
+
+
+	/**
+	 * Add every thread's buffered counts to the shared counter, and drop the buffers of threads that have ended.
+	 */
+	public void flush() {
+		List<Buffer<K>> dead = null;
+		for(Buffer<K> b : buffers) {
+			// Checked before flushing, so that a dead owner cannot have added to the buffer since
+			boolean isAlive = b.isOwnerAlive();
+			synchronized(b) {
+				flush(b);
+			}
+			if(!isAlive) {
+				if(dead == null) {
+					dead = new ArrayList<Buffer<K>>();
+				}
+				dead.add(b);
+			}
+		}
+		if(dead != null) {
+			buffers.removeAll(dead);
+		}
+	}
+
+
+	/**
+	 * Flush the calling thread's buffer and drop it.
+	 * The thread may keep counting afterward, which gives it a new buffer.
+	 */
+	public void release() {
+		Buffer<K> b = local.get();
+		synchronized(b) {
+			flush(b);
+		}
+		buffers.remove(b);
+		local.remove();
+	}
+
+
+	/**
+	 * Get the number of per-thread buffers currently held.
+	 * @return the number of buffers
+	 */
+	public int bufferCount() {
+		return buffers.size();
+	}
+
+
+	/**
+	 * Get the shared counter; lock it while reading unless it is a {@link ConcurrentItemCounter}.
+	 * Call {@link #flush()} first to include all buffered counts.
+	 * @return the counter that receives the buffered counts
+	 */
+	public ItemCounter<K> shared() {
+		return shared;
+	}
+
+
+	/**
+	 * Stop the timer and flush every buffer.
+	 */
+	@Override
+	public void close() {
+		timer.cancel();
+		flush();
+	}
+
+
+	private void flushStale() {
+		long now = System.nanoTime();
+		List<Buffer<K>> dead = null;
+		for(Buffer<K> b : buffers) {
+			boolean isAlive = b.isOwnerAlive();
+			synchronized(b) {
+				// Flush at half the lag, since the timer runs at that period
+				if(b.size > 0 && (!isAlive || now - b.firstNanos >= maxLagNanos / 2)) {
+					flush(b);
+				}
+			}
+			if(!isAlive) {
+				if(dead == null) {
+					dead = new ArrayList<Buffer<K>>();
+				}
+				dead.add(b);
+			}
+		}
+		if(dead != null) {
+			buffers.removeAll(dead);
+		}
+	}
+
+
+	/** Adds a buffer's counts to the shared counter and empties it; the caller holds the buffer's lock. */
+	@SuppressWarnings("unchecked")
+	private void flush(Buffer<K> b) {
+		if(b.size == 0) {
+			return;
+		}
+		if(shared instanceof ConcurrentItemCounter<?>) {
+			ConcurrentItemCounter<K> c = (ConcurrentItemCounter<K>)shared;
+			for(int i = 0; i < b.keys.length; i++) {
+				if(b.counts[i] != 0) {
+					c.add((K)b.keys[i], b.counts[i]);
+				}
+			}
+		} else {
+			synchronized(shared) {
+				for(int i = 0; i < b.keys.length; i++) {
+					if(b.counts[i] != 0) {
+						K k = (K)b.keys[i];
+						shared.set(k, shared.get(k) + b.counts[i]);
+					}
+				}
+			}
+		}
+		b.clear();
+	}
+
+
+	/** Open-addressed table of one thread's unflushed counts; a zero count marks an empty slot. */
+	private static final class Buffer<K> {
+		final Object[] keys;
+		final int[] counts;
+		final int maxSize;
+		int size;
+		long firstNanos;
+
+		/** Weak so that a buffer does not keep its ended thread reachable. */
+		private final WeakReference<Thread> owner;
+
+		Buffer(int maxSize, Thread owner) {
+			int capacity = 4;
+			while(capacity < 2L * maxSize) {
+				capacity <<= 1;
+			}
+			keys = new Object[capacity];
+			counts = new int[capacity];
+			this.maxSize = maxSize;
+			this.owner = new WeakReference<Thread>(owner);
+		}
+
+		/** Once false, the owner can no longer add to this buffer. */
+		boolean isOwnerAlive() {
+			Thread t = owner.get();
+			return t != null && t.isAlive();
+		}
+
+		/** @return false if the item is new and the buffer is full */
+		boolean add(Object key, int delta) {
+			int h = key == null ? 0 : key.hashCode();
+			h ^= h >>> 16;
+			int mask = keys.length - 1;
+			int i = h & mask;
+			while(counts[i] != 0) {
+				if(keys[i] == key || (key != null && key.equals(keys[i]))) {
+					long c = (long)counts[i] + delta;
+					if(c > Integer.MAX_VALUE) {
+						return false;
+					}
+					counts[i] = (int)c;
+					return true;
+				}
+				i = (i + 1) & mask;
+			}
+			if(delta == 0) {
+				return true;
+			}
+			if(size == maxSize) {
+				return false;
+			}
+			if(size == 0) {
+				firstNanos = System.nanoTime();
+			}
+			keys[i] = key;
+			counts[i] = delta;
+			size++;
+			return true;
+		}
+
+		void clear() {
+			Arrays.fill(keys, null);
+			Arrays.fill(counts, 0);
+			size = 0;
+		}
+	}
+}
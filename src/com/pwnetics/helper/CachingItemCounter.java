@@ -86,6 +86,17 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 		invalidate();
 	}
 
+	/**
+	 * Constructor.
+	 * Sizes the backing map so that it can hold the expected number of distinct items without rehashing.
+	 * @param expectedSize number of distinct items that can be counted before the map has to grow
+	 * @param loadFactor load factor of the backing map
+	 */
+	public CachingItemCounter(int expectedSize, float loadFactor) {
+		super(expectedSize, loadFactor);
+		invalidate();
+	}
+
 	protected CachingItemCounter(Map<K, Integer> count, boolean isCopyingCount) {
 		super(count, isCopyingCount);
 		invalidate();
@@ -135,6 +146,13 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 		super.set(item, count);
 	}
 
+
+	/** Removals go through {@link #set(Object, int)} so that the cached statistics are invalidated. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
 	@Override
 	public int increment(K item) {
 		if(isSomethingCached) {
@@ -146,8 +164,11 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 	@Override
 	public long sum() {
 		if(sum < 0) {
+			listener.onCacheMiss();
 			sum = super.sum();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return sum;
 	}
@@ -155,8 +176,11 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 	@Override
 	public KeyValuePair min() {
 		if(min == null) {
+			listener.onCacheMiss();
 			min = super.min();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return min;
 	}
@@ -164,8 +188,11 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 	@Override
 	public KeyValuePair max() {
 		if(max == null) {
+			listener.onCacheMiss();
 			max = super.max();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return max;
 	}
@@ -173,8 +200,11 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 	@Override
 	public double mean() {
 		if(mean < 0) {
+			listener.onCacheMiss();
 			mean = super.mean();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return mean;
 	}
@@ -182,8 +212,11 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 	@Override
 	public double variance() {
 		if(variance < 0) {
+			listener.onCacheMiss();
 			variance = super.variance();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return variance;
 	}
@@ -191,8 +224,11 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 	@Override
 	public double variancePopulation() {
 		if(variancePopulation < 0) {
+			listener.onCacheMiss();
 			variancePopulation = super.variancePopulation();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return variancePopulation;
 	}
@@ -207,8 +243,12 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 	 * @author romanows
 	 */
 	protected class UnmodifiableCachingItemCounter extends CachingItemCounter<K> {
+		/** The wrapped counter, whose count distribution is current; null if the counts were copied. */
+		private final CachingItemCounter<K> itemCounter;
+
 		public UnmodifiableCachingItemCounter(CachingItemCounter<K> itemCounter, boolean isCopyingCount) {
 			super(itemCounter.count, isCopyingCount);
+			this.itemCounter = isCopyingCount ? null : itemCounter;
 			sum = itemCounter.sum;
 			min = itemCounter.min;
 			max = itemCounter.max;
@@ -217,6 +257,38 @@ public class CachingItemCounter<K> extends ItemCounter<K> {
 			variancePopulation = itemCounter.variancePopulation;
 		}
 
+		@Override
+		public double quantile(double q) {
+			if(itemCounter != null) {
+				return itemCounter.quantile(q);
+			}
+			return super.quantile(q);
+		}
+
+		@Override
+		public int rank(K item) {
+			if(itemCounter != null) {
+				return itemCounter.rank(item);
+			}
+			return super.rank(item);
+		}
+
+		@Override
+		public K itemAtRank(int rank) {
+			if(itemCounter != null) {
+				return itemCounter.itemAtRank(rank);
+			}
+			return super.itemAtRank(rank);
+		}
+
+		@Override
+		public int countItemsInRange(int lo, int hi) {
+			if(itemCounter != null) {
+				return itemCounter.countItemsInRange(lo, hi);
+			}
+			return super.countItemsInRange(lo, hi);
+		}
+
 		@Override
 		public void set(K item, int count) {
 			throw new UnsupportedOperationException();
@@ -153,8 +153,11 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 	@Override
 	public Double sum() {
 		if(sum == null) {
+			listener.onCacheMiss();
 			sum = super.sum();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return sum;
 	}
@@ -162,8 +165,11 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 	@Override
 	public KeyValuePair min() {
 		if(min == null) {
+			listener.onCacheMiss();
 			min = super.min();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return min;
 	}
@@ -171,8 +177,11 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 	@Override
 	public KeyValuePair max() {
 		if(max == null) {
+			listener.onCacheMiss();
 			max = super.max();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return max;
 	}
@@ -180,8 +189,11 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 	@Override
 	public Double mean() {
 		if(mean == null) {
+			listener.onCacheMiss();
 			mean = super.mean();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return mean;
 	}
@@ -189,8 +201,11 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 	@Override
 	public Double variance() {
 		if(variance == null) {
+			listener.onCacheMiss();
 			variance = super.variance();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return variance;
 	}
@@ -198,8 +213,11 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 	@Override
 	public Double variancePopulation() {
 		if(variancePopulation == null) {
+			listener.onCacheMiss();
 			variancePopulation = super.variancePopulation();
 			isSomethingCached = true;
+		} else {
+			listener.onCacheHit();
 		}
 		return variancePopulation;
 	}
@@ -214,8 +232,12 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 	 * @author romanows
 	 */
 	protected class UnmodifiableCachingItemDoubleAccumulator extends CachingItemDoubleAccumulator<K> {
+		/** The wrapped accumulator, whose value distribution is current; null if the values were copied. */
+		private final CachingItemDoubleAccumulator<K> accumulator;
+
 		public UnmodifiableCachingItemDoubleAccumulator(CachingItemDoubleAccumulator<K> a, boolean isCopying) {
 			super(a.acc, isCopying);
+			this.accumulator = isCopying ? null : a;
 			sum = a.sum;
 			min = a.min;
 			max = a.max;
@@ -224,6 +246,14 @@ public class CachingItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> {
 			variancePopulation = a.variancePopulation;
 		}
 
+		@Override
+		public Double quantile(double q) {
+			if(accumulator != null) {
+				return accumulator.quantile(q);
+			}
+			return super.quantile(q);
+		}
+
 		@Override
 		public void set(K item, double value) {
 			throw new UnsupportedOperationException();
@@ -0,0 +1,127 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.Arrays;
+
+
+/**
+ * Items whose counts or values changed, with their new values and the amount of the change.
+ * Created by {@link ItemCounter#drainChanges()} and {@link ItemDoubleAccumulator#drainChanges()}, and written to a {@link CounterSink}.
+ * Stored as parallel arrays; values are doubles for both counters and accumulators, which is exact for any int count.
+ *
+ * @author romanows
+ *
+ * @param <K> the type of the changed items
+ */
+public class ChangeBatch<K> {
+	private Object[] items;
+	private double[] values;
+	private double[] deltas;
+	private int size;
+
+
+	/**
+	 * Constructor.
+	 * @param expectedSize number of changes that can be added before the arrays have to grow
+	 */
+	public ChangeBatch(int expectedSize) {
+		int n = Math.max(expectedSize, 1);
+		items = new Object[n];
+		values = new double[n];
+		deltas = new double[n];
+	}
+
+
+	/**
+	 * Add a change.
+	 * @param item the changed item
+	 * @param value the item's new value, zero if it was removed
+	 * @param delta the new value minus the old value
+	 */
+	public void add(K item, double value, double delta) {
+		if(size == items.length) {
+			int n = size * 2;
+			items = Arrays.copyOf(items, n);
+			values = Arrays.copyOf(values, n);
+			deltas = Arrays.copyOf(deltas, n);
+		}
+		items[size] = item;
+		values[size] = value;
+		deltas[size] = delta;
+		size++;
+	}
+
+
+	/**
+	 * @return the number of changed items
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * @param i index of a change, from zero to one less than {@link #size()}
+	 * @return the changed item
+	 */
+	@SuppressWarnings("unchecked")
+	public K item(int i) {
+		checkIndex(i);
+		return (K)items[i];
+	}
+
+
+	/**
+	 * @param i index of a change, from zero to one less than {@link #size()}
+	 * @return the item's new value, zero if it was removed
+	 */
+	public double value(int i) {
+		checkIndex(i);
+		return values[i];
+	}
+
+
+	/**
+	 * @param i index of a change, from zero to one less than {@link #size()}
+	 * @return the new value minus the old value
+	 */
+	public double delta(int i) {
+		checkIndex(i);
+		return deltas[i];
+	}
+
+
+	private void checkIndex(int i) {
+		if(i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+		}
+	}
+}
@@ -0,0 +1,559 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Item counter that stores each count in the narrowest of 8, 16, 32, or 64 bits that holds it, for the skewed counts of natural data.
+ *
+ * <p>In a word count most items occur once or a handful of times, so a boxed Integer and a map entry per item spend far more memory on the count than it needs.
+ * This counter keeps its keys in an open-addressing table with linear probing, and the counts in parallel segments of 64 slots.
+ * Every segment starts with one byte per count and is widened to 16, 32, and then 64 bits the first time one of its counts does not fit.
+ * A resize, or {@link #trimToSize()}, places the items in new segments that are only as wide as their counts need.
+ * </p>
+ *
+ * <p>Counts can grow beyond {@link Integer#MAX_VALUE}; use {@link #getLong(Object)}, {@link #add(Object, long)}, and {@link #sum()} to see them exactly.
+ * Methods of {@link ItemCounter} that report an int count report such counts as {@link Integer#MAX_VALUE}.
+ * An increment beyond {@link Long#MAX_VALUE} throws an {@link ArithmeticException}.
+ * </p>
+ *
+ * <p>The map returned by {@link #getMap()} does not support removal through its iterators.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class CompactItemCounter<K> extends ItemCounter<K> {
+
+	/** Open-addressing table handed to {@link ItemCounter} as its map so the inherited methods see the same counts. */
+	private final Table<K> table;
+
+
+	/**
+	 * Constructor.
+	 */
+	public CompactItemCounter() {
+		this(12, 0.75f);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param expectedSize number of distinct items that can be counted before the table has to grow
+	 * @param loadFactor ratio of items to slots at which the table grows; linear probing slows down sharply above 0.8
+	 */
+	public CompactItemCounter(int expectedSize, float loadFactor) {
+		this(new Table<K>(expectedSize, loadFactor));
+	}
+
+
+	private CompactItemCounter(Table<K> table) {
+		super(table, false);
+		this.table = table;
+	}
+
+
+	@Override
+	public Integer get(K item) {
+		listener.onGet();
+		int slot = table.find(item);
+		return slot < 0 ? 0 : saturated(table.count(slot));
+	}
+
+
+	/**
+	 * Get the exact count of an item, which may exceed {@link Integer#MAX_VALUE}.
+	 * @param item an item
+	 * @return the item's count, zero if it has not been counted
+	 */
+	public long getLong(K item) {
+		listener.onGet();
+		int slot = table.find(item);
+		return slot < 0 ? 0L : table.count(slot);
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		checkRankable(item);
+		long c = table.put(item, count);
+		countChanged(item, saturated(c), count);
+	}
+
+
+	/** The table does not support removal through its iterator. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(K item) {
+		listener.onIncrement();
+		return saturated(addCount(item, 1L));
+	}
+
+
+	/**
+	 * Add to the count of an item.
+	 * @param item item whose count to increase
+	 * @param delta non-negative amount to add
+	 * @return the new count of the item
+	 * @throws ArithmeticException if the count would overflow a long
+	 */
+	public long add(K item, long delta) {
+		if(delta < 0) {
+			throw new IllegalArgumentException("delta must be non-negative");
+		}
+		listener.onIncrement();
+		return addCount(item, delta);
+	}
+
+
+	private long addCount(K item, long delta) {
+		checkRankable(item);
+		int slot = table.find(item);
+		long c = slot < 0 ? 0L : table.count(slot);
+		if(c > Long.MAX_VALUE - delta) {
+			throw new ArithmeticException("count overflow");
+		}
+		if(delta == 0) {
+			return c;
+		}
+		if(slot < 0) {
+			table.insert(item, ~slot, delta);
+		} else {
+			table.setCount(slot, c + delta);
+		}
+		countChanged(item, saturated(c), saturated(c + delta));
+		return c + delta;
+	}
+
+
+	private static int saturated(long count) {
+		return count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+	}
+
+
+	/** Exact, even for counts beyond {@link Integer#MAX_VALUE}. */
+	@Override
+	public long sum() {
+		long sum = 0L;
+		for(int slot = 0; slot < table.keys.length; slot++) {
+			if(table.keys[slot] != null) {
+				sum += table.count(slot);
+			}
+		}
+		return sum;
+	}
+
+
+	@Override
+	public int size() {
+		return table.size;
+	}
+
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(ItemCountVisitor<? super K> visitor) {
+		final Object[] keys = table.keys;
+		for(int slot = 0; slot < keys.length; slot++) {
+			if(keys[slot] != null) {
+				visitor.visit((K)unmaskNull(keys[slot]), saturated(table.count(slot)));
+			}
+		}
+	}
+
+
+	/** Rehashes into the smallest table that holds the items, which also narrows every segment to the width its counts need. */
+	@Override
+	public void trimToSize() {
+		long start = System.nanoTime();
+		int fromCapacity = table.keys.length;
+		table.rehash(Table.capacityFor(table.size, table.loadFactor));
+		listener.onResize(fromCapacity, table.keys.length, System.nanoTime() - start);
+	}
+
+
+	@Override
+	public void setListener(CounterListener listener) {
+		super.setListener(listener);
+		table.listener = this.listener;
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		long bytes = 64 + 4L * table.keys.length + table.widths.length + 4L * table.segments.length;
+		for(byte width : table.widths) {
+			bytes += 16 + ((long)Table.SEGMENT_SIZE << width);
+		}
+		return bytes;
+	}
+
+
+	/**
+	 * Get the number of bits currently used per count, averaged over all slots of the table.
+	 * @return 8 if every segment still holds byte counts, up to 64 if every segment has been widened to longs
+	 */
+	public double bitsPerCount() {
+		long bits = 0L;
+		for(byte width : table.widths) {
+			bits += 8L << width;
+		}
+		return table.widths.length == 0 ? 8.0 : (double)bits / table.widths.length;
+	}
+
+
+	/** Stands in for the null key, since null marks an empty slot. */
+	private static final Object NULL_KEY = new Object();
+
+
+	private static Object maskNull(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+
+
+	private static Object unmaskNull(Object key) {
+		return key == NULL_KEY ? null : key;
+	}
+
+
+	/**
+	 * Keys in an open-addressing table with linear probing, and counts in segments of variable width.
+	 * Removal shifts later keys of the same probe run back into the hole, so no tombstones are needed.
+	 */
+	private static final class Table<K> extends AbstractMap<K, Integer> {
+		static final int SEGMENT_BITS = 6;
+		static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+		private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+		/** Widths, as the log2 of the number of bytes per count. */
+		private static final byte BYTE = 0;
+		private static final byte SHORT = 1;
+		private static final byte INT = 2;
+		private static final byte LONG = 3;
+
+		private final float loadFactor;
+		private CounterListener listener = CounterListener.NONE;
+
+		private Object[] keys;
+		private byte[] widths;
+		private Object[] segments;
+		private int shift;
+		private int size;
+		private int threshold;
+
+		Table(int expectedSize, float loadFactor) {
+			if(!(loadFactor > 0 && loadFactor < 1)) {
+				throw new IllegalArgumentException("load factor must be between 0 and 1");
+			}
+			this.loadFactor = loadFactor;
+			allocate(capacityFor(expectedSize, loadFactor));
+		}
+
+		static int capacityFor(int size, float loadFactor) {
+			return Math.max(SEGMENT_SIZE, (int)Math.min(initialTableCapacity(size, loadFactor), 1 << 30));
+		}
+
+		private void allocate(int capacity) {
+			keys = new Object[capacity];
+			widths = new byte[capacity >> SEGMENT_BITS];
+			segments = new Object[widths.length];
+			for(int s = 0; s < segments.length; s++) {
+				segments[s] = new byte[SEGMENT_SIZE];
+			}
+			shift = 32 - Integer.numberOfTrailingZeros(capacity);
+			threshold = (int)Math.min(capacity * loadFactor, capacity - 1);
+		}
+
+		private int home(Object maskedKey) {
+			// Fibonacci hashing spreads the hash codes of similar keys, such as consecutive integers, across the table
+			return (maskedKey.hashCode() * 0x9e3779b9) >>> shift;
+		}
+
+		/** @return the slot of the key, or the one's complement of the empty slot where it would be inserted */
+		int find(Object key) {
+			Object k = maskNull(key);
+			int mask = keys.length - 1;
+			for(int slot = home(k); ; slot = (slot + 1) & mask) {
+				Object candidate = keys[slot];
+				if(candidate == null) {
+					return ~slot;
+				}
+				if(candidate == k || candidate.equals(k)) {
+					return slot;
+				}
+			}
+		}
+
+		long count(int slot) {
+			return count(widths, segments, slot);
+		}
+
+		private static long count(byte[] widths, Object[] segments, int slot) {
+			Object segment = segments[slot >>> SEGMENT_BITS];
+			int i = slot & SEGMENT_MASK;
+			switch(widths[slot >>> SEGMENT_BITS]) {
+			case BYTE:
+				return ((byte[])segment)[i] & 0xff;
+			case SHORT:
+				return ((short[])segment)[i] & 0xffff;
+			case INT:
+				return ((int[])segment)[i] & 0xffffffffL;
+			default:
+				return ((long[])segment)[i];
+			}
+		}
+
+		void setCount(int slot, long count) {
+			int s = slot >>> SEGMENT_BITS;
+			int i = slot & SEGMENT_MASK;
+			byte width = widthOf(count);
+			if(width > widths[s]) {
+				widen(s, width);
+			}
+			Object segment = segments[s];
+			switch(widths[s]) {
+			case BYTE:
+				((byte[])segment)[i] = (byte)count;
+				break;
+			case SHORT:
+				((short[])segment)[i] = (short)count;
+				break;
+			case INT:
+				((int[])segment)[i] = (int)count;
+				break;
+			default:
+				((long[])segment)[i] = count;
+			}
+		}
+
+		private static byte widthOf(long count) {
+			if(count <= 0xffL) {
+				return BYTE;
+			} else if(count <= 0xffffL) {
+				return SHORT;
+			} else if(count <= 0xffffffffL) {
+				return INT;
+			}
+			return LONG;
+		}
+
+		/** Copies a segment's counts into a wider array. */
+		private void widen(int s, byte width) {
+			int base = s << SEGMENT_BITS;
+			long[] counts = new long[SEGMENT_SIZE];
+			for(int i = 0; i < SEGMENT_SIZE; i++) {
+				counts[i] = count(base + i);
+			}
+			switch(width) {
+			case SHORT:
+				segments[s] = new short[SEGMENT_SIZE];
+				break;
+			case INT:
+				segments[s] = new int[SEGMENT_SIZE];
+				break;
+			default:
+				segments[s] = new long[SEGMENT_SIZE];
+			}
+			widths[s] = width;
+			for(int i = 0; i < SEGMENT_SIZE; i++) {
+				setCount(base + i, counts[i]);
+			}
+		}
+
+		/** Adds a key that the caller knows is absent, at the slot returned by {@link #find(Object)}. */
+		void insert(K key, int slot, long count) {
+			if(size + 1 > threshold && keys.length < (1 << 30)) {
+				long start = System.nanoTime();
+				int fromCapacity = keys.length;
+				rehash(keys.length * 2);
+				listener.onResize(fromCapacity, keys.length, System.nanoTime() - start);
+				slot = ~find(key);
+			}
+			keys[slot] = maskNull(key);
+			setCount(slot, count);
+			size++;
+		}
+
+		/** Removes the key at a slot, shifting back later keys of the probe run that may not skip over the hole. */
+		void removeAt(int slot) {
+			int mask = keys.length - 1;
+			int hole = slot;
+			for(int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+				int home = home(keys[i]);
+				// Move the key unless its home lies cyclically after the hole, up to where it is now
+				if(((i - home) & mask) >= ((i - hole) & mask)) {
+					keys[hole] = keys[i];
+					setCount(hole, count(i));
+					hole = i;
+				}
+			}
+			keys[hole] = null;
+			setCount(hole, 0L);
+			size--;
+		}
+
+		void rehash(int capacity) {
+			Object[] oldKeys = keys;
+			byte[] oldWidths = widths;
+			Object[] oldSegments = segments;
+			allocate(capacity);
+			int mask = capacity - 1;
+			for(int slot = 0; slot < oldKeys.length; slot++) {
+				Object k = oldKeys[slot];
+				if(k != null) {
+					long c = count(oldWidths, oldSegments, slot);
+					int i = home(k);
+					while(keys[i] != null) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = k;
+					setCount(i, c);
+				}
+			}
+		}
+
+		/** @return the old count, zero if the key was absent */
+		long put(K key, int count) {
+			int slot = find(key);
+			if(slot < 0) {
+				if(count != 0) {
+					insert(key, ~slot, count);
+				}
+				return 0L;
+			}
+			long c = count(slot);
+			if(count == 0) {
+				removeAt(slot);
+			} else {
+				setCount(slot, count);
+			}
+			return c;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			int slot = find(key);
+			return slot < 0 ? null : saturated(count(slot));
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return find(key) >= 0;
+		}
+
+		@Override
+		public Integer put(K key, Integer value) {
+			if(value < 0) {
+				throw new IllegalArgumentException("count must be non-negative");
+			}
+			long c = put(key, value.intValue());
+			return c == 0 ? null : saturated(c);
+		}
+
+		@Override
+		public Integer remove(Object key) {
+			int slot = find(key);
+			if(slot < 0) {
+				return null;
+			}
+			long c = count(slot);
+			removeAt(slot);
+			return saturated(c);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Set<Entry<K, Integer>> entrySet() {
+			return new AbstractSet<Entry<K,Integer>>() {
+				@Override
+				public Iterator<Entry<K, Integer>> iterator() {
+					return new SlotIterator();
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		private class SlotIterator implements Iterator<Entry<K, Integer>> {
+			private int next = advance(0);
+
+			private int advance(int slot) {
+				while(slot < keys.length && keys[slot] == null) {
+					slot++;
+				}
+				return slot;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < keys.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Entry<K, Integer> next() {
+				if(next >= keys.length) {
+					throw new NoSuchElementException();
+				}
+				int slot = next;
+				next = advance(slot + 1);
+				return new SimpleImmutableEntry<K, Integer>((K)unmaskNull(keys[slot]), saturated(count(slot)));
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+}
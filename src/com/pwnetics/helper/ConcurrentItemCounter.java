@@ -0,0 +1,210 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Item counter that can be incremented from many threads at once.
+ * Backed by a {@link ConcurrentHashMap}; increments are lock-free compare-and-set loops on the item's entry.
+ * Items may not be null.
+ *
+ * <p>Statistics such as {@link #sum()} and {@link #max()} are computed from a weakly-consistent scan, so they reflect some but not necessarily all concurrent updates.
+ * {@link #quantile(double)} and the rank queries are computed from a copy of the counts, and the count distribution and rank index cannot be maintained incrementally,
+ * see {@link #setMaintainingCountOfCounts(boolean)} and {@link #setMaintainingRanks(boolean)}.
+ * Resizes of the concurrent map are not reported to the listener.</p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class ConcurrentItemCounter<K> extends ItemCounter<K> {
+
+	private final ConcurrentMap<K, Integer> map;
+
+
+	/**
+	 * Constructor.
+	 */
+	public ConcurrentItemCounter() {
+		this(12, 0.75f);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param expectedSize number of distinct items that can be counted before the map has to grow
+	 * @param loadFactor load factor of the backing {@link ConcurrentHashMap}
+	 */
+	public ConcurrentItemCounter(int expectedSize, float loadFactor) {
+		this(new ConcurrentHashMap<K, Integer>((int)Math.min(initialTableCapacity(expectedSize, loadFactor), 1 << 30), loadFactor));
+	}
+
+
+	private ConcurrentItemCounter(ConcurrentMap<K, Integer> map) {
+		super(map, false);
+		this.map = map;
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		if(count == 0) {
+			map.remove(item);
+		} else {
+			map.put(item, count);
+		}
+	}
+
+
+	/** Removals go through {@link #set(Object, int)} so that each is a single atomic map update. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(K item) {
+		listener.onIncrement();
+		return addCount(item, 1);
+	}
+
+
+	/**
+	 * Atomically add to the count of an item.
+	 * @param item item whose count to change
+	 * @param delta amount to add, which may be negative as long as the count does not go below zero
+	 * @return the new count of the given item
+	 * @throws IllegalArgumentException if the count would become negative
+	 */
+	public int add(K item, int delta) {
+		listener.onIncrement();
+		return addCount(item, delta);
+	}
+
+
+	private int addCount(K item, int delta) {
+		for(;;) {
+			Integer c = map.get(item);
+			int old = (c == null) ? 0 : c;
+			long n = (long)old + delta;
+			if(n < 0) {
+				throw new IllegalArgumentException("count must be non-negative");
+			}
+			if(n > Integer.MAX_VALUE) {
+				throw new ArithmeticException("count overflow");
+			}
+			if(c == null) {
+				if(n == 0 || map.putIfAbsent(item, (int)n) == null) {
+					return (int)n;
+				}
+			} else if(n == 0) {
+				if(map.remove(item, c)) {
+					return 0;
+				}
+			} else if(map.replace(item, c, (int)n)) {
+				return (int)n;
+			}
+		}
+	}
+
+
+	/**
+	 * Computed from a copy of the current counts.
+	 */
+	@Override
+	public double quantile(double q) {
+		return new ItemCounter<K>(count, true).quantile(q);
+	}
+
+
+	/** Computed from a copy of the counts, so it takes O(N log N) time. */
+	@Override
+	public int rank(K item) {
+		return new ItemCounter<K>(count, true).rank(item);
+	}
+
+
+	/** Computed from a copy of the counts, so it takes O(N log N) time. */
+	@Override
+	public K itemAtRank(int rank) {
+		return new ItemCounter<K>(count, true).itemAtRank(rank);
+	}
+
+
+	/** Computed from a copy of the counts. */
+	@Override
+	public int countItemsInRange(int lo, int hi) {
+		return new ItemCounter<K>(count, true).countItemsInRange(lo, hi);
+	}
+
+
+	/**
+	 * Changes cannot be recorded consistently under concurrent updates without locking every increment.
+	 * @throws UnsupportedOperationException if asked to track changes
+	 */
+	@Override
+	public void setTrackingChanges(boolean isTracking) {
+		if(isTracking) {
+			throw new UnsupportedOperationException("cannot track the changes of a concurrent counter");
+		}
+	}
+
+
+	/**
+	 * The count distribution cannot be kept consistent under concurrent updates without locking every increment.
+	 * @throws UnsupportedOperationException if asked to maintain the count of counts
+	 */
+	@Override
+	public void setMaintainingCountOfCounts(boolean isMaintaining) {
+		if(isMaintaining) {
+			throw new UnsupportedOperationException("cannot maintain the count of counts of a concurrent counter");
+		}
+	}
+
+
+	/**
+	 * The rank index cannot be kept consistent under concurrent updates without locking every increment.
+	 * @throws UnsupportedOperationException if asked to maintain the rank index
+	 */
+	@Override
+	public void setMaintainingRanks(boolean isMaintaining) {
+		if(isMaintaining) {
+			throw new UnsupportedOperationException("cannot maintain the ranks of a concurrent counter");
+		}
+	}
+}
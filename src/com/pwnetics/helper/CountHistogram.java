@@ -0,0 +1,295 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+/**
+ * A multiset of long values that answers order-statistic queries, used to maintain the distribution of the counts (or accumulated values) of the items in a counter.
+ *
+ * <p>Implemented as a treap keyed by value, where each node holds the number of items having that value and the total for its subtree.
+ * Updates and queries take expected O(log d) time, where d is the number of distinct values; for counts of natural data, d is far smaller than the number of items.
+ * </p>
+ *
+ * <p>Double values are stored through {@link #sortable(double)}, which maps them to longs with the same ordering.
+ * </p>
+ *
+ * @author romanows
+ */
+class CountHistogram {
+
+	private static class Node {
+		final long value;
+		final int priority;
+		long items;
+		long subtreeItems;
+		Node left;
+		Node right;
+
+		Node(long value, long items, int priority) {
+			this.value = value;
+			this.items = items;
+			this.subtreeItems = items;
+			this.priority = priority;
+		}
+	}
+
+
+	private Node root;
+	private int distinctValues;
+	private int seed = 0x2545f491;
+
+
+	/**
+	 * Map a double to a long such that the longs compare the way the doubles do (with -0.0 below 0.0 and NaN above infinity).
+	 * The mapping is its own inverse, see {@link #fromSortable(long)}.
+	 */
+	static long sortable(double value) {
+		long bits = Double.doubleToLongBits(value);
+		return bits ^ ((bits >> 63) & 0x7fffffffffffffffL);
+	}
+
+
+	/** Inverse of {@link #sortable(double)}. */
+	static double fromSortable(long value) {
+		return Double.longBitsToDouble(value ^ ((value >> 63) & 0x7fffffffffffffffL));
+	}
+
+
+	/** @return the total number of items */
+	long total() {
+		return root == null ? 0L : root.subtreeItems;
+	}
+
+
+	/** @return the number of distinct values having at least one item */
+	int distinctValues() {
+		return distinctValues;
+	}
+
+
+	/**
+	 * Change the number of items having the given value.
+	 * @param value the value
+	 * @param delta items to add, or remove if negative
+	 * @throws IllegalStateException if more items would be removed than exist
+	 */
+	void add(long value, long delta) {
+		if(delta != 0) {
+			root = add(root, value, delta);
+		}
+	}
+
+
+	/** Move one item from one value to another; does nothing if the values are equal. */
+	void move(long fromValue, long toValue) {
+		if(fromValue != toValue) {
+			add(fromValue, -1);
+			add(toValue, 1);
+		}
+	}
+
+
+	/**
+	 * Get the value of the item at the given position in ascending order.
+	 * @param rank zero-based position, less than {@link #total()}
+	 * @return the value at that position
+	 */
+	long select(long rank) {
+		if(rank < 0 || rank >= total()) {
+			throw new IndexOutOfBoundsException("rank " + rank + " of " + total());
+		}
+		Node n = root;
+		while(true) {
+			long leftItems = subtreeItems(n.left);
+			if(rank < leftItems) {
+				n = n.left;
+			} else if(rank < leftItems + n.items) {
+				return n.value;
+			} else {
+				rank -= leftItems + n.items;
+				n = n.right;
+			}
+		}
+	}
+
+
+	/** @return the number of items with a value strictly less than the given value */
+	long countLessThan(long value) {
+		long c = 0L;
+		Node n = root;
+		while(n != null) {
+			if(value <= n.value) {
+				n = n.left;
+			} else {
+				c += subtreeItems(n.left) + n.items;
+				n = n.right;
+			}
+		}
+		return c;
+	}
+
+
+	/** @return the number of items having exactly the given value */
+	long itemsWithValue(long value) {
+		Node n = root;
+		while(n != null) {
+			if(value < n.value) {
+				n = n.left;
+			} else if(value > n.value) {
+				n = n.right;
+			} else {
+				return n.items;
+			}
+		}
+		return 0L;
+	}
+
+
+	/** Receives the values in ascending order, see {@link CountHistogram#visit(ValueVisitor)}. */
+	interface ValueVisitor {
+		void visit(long value, long items);
+	}
+
+
+	/** Pass each distinct value and its number of items to the visitor, in ascending order of value. */
+	void visit(ValueVisitor visitor) {
+		visit(root, visitor);
+	}
+
+
+	private static void visit(Node n, ValueVisitor visitor) {
+		if(n != null) {
+			visit(n.left, visitor);
+			visitor.visit(n.value, n.items);
+			visit(n.right, visitor);
+		}
+	}
+
+
+	/** Remove all items. */
+	void clear() {
+		root = null;
+		distinctValues = 0;
+	}
+
+
+	private int nextPriority() {
+		// xorshift; deterministic so behavior is reproducible
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	}
+
+
+	private static long subtreeItems(Node n) {
+		return n == null ? 0L : n.subtreeItems;
+	}
+
+
+	private static void update(Node n) {
+		n.subtreeItems = subtreeItems(n.left) + n.items + subtreeItems(n.right);
+	}
+
+
+	private Node add(Node n, long value, long delta) {
+		if(n == null) {
+			if(delta < 0) {
+				throw new IllegalStateException("no items with value " + value);
+			}
+			distinctValues++;
+			return new Node(value, delta, nextPriority());
+		}
+		if(value < n.value) {
+			n.left = add(n.left, value, delta);
+			update(n);
+			if(n.left != null && n.left.priority > n.priority) {
+				return rotateRight(n);
+			}
+		} else if(value > n.value) {
+			n.right = add(n.right, value, delta);
+			update(n);
+			if(n.right != null && n.right.priority > n.priority) {
+				return rotateLeft(n);
+			}
+		} else {
+			n.items += delta;
+			if(n.items < 0) {
+				n.items -= delta;
+				throw new IllegalStateException("not enough items with value " + value);
+			}
+			if(n.items == 0) {
+				distinctValues--;
+				return merge(n.left, n.right);
+			}
+			update(n);
+		}
+		return n;
+	}
+
+
+	private static Node rotateRight(Node n) {
+		Node l = n.left;
+		n.left = l.right;
+		update(n);
+		l.right = n;
+		update(l);
+		return l;
+	}
+
+
+	private static Node rotateLeft(Node n) {
+		Node r = n.right;
+		n.right = r.left;
+		update(n);
+		r.left = n;
+		update(r);
+		return r;
+	}
+
+
+	private static Node merge(Node a, Node b) {
+		if(a == null) {
+			return b;
+		}
+		if(b == null) {
+			return a;
+		}
+		if(a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			update(a);
+			return a;
+		} else {
+			b.left = merge(a, b.left);
+			update(b);
+			return b;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Writes the changes of counters and accumulators to a {@link CounterSink} from a background thread.
+ *
+ * <p>The thread that owns a counter calls {@link #flush(ItemCounter)} now and then.
+ * That drains the counter's recorded changes, see {@link ItemCounter#setTrackingChanges(boolean)}, and queues them for the sink,
+ * so the cost of a flush is proportional to what changed rather than to the size of the counter.
+ * The queue is bounded: {@link #flush(ItemCounter)} waits for room when the sink falls behind,
+ * while {@link #tryFlush(ItemCounter)} leaves the changes recorded in the counter, where later changes to the same items are merged with them.</p>
+ *
+ * <p>If the sink throws, the flusher stops writing and the failure is rethrown by the next flush or by {@link #close()}.</p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of the counted items
+ */
+public class CounterFlusher<K> implements Closeable {
+	/** Queued to stop the writer thread. */
+	private final ChangeBatch<K> stop = new ChangeBatch<K>(1);
+
+	private final CounterSink<K> sink;
+	private final BlockingQueue<ChangeBatch<K>> queue;
+	private final Thread writer;
+	private volatile Throwable failure;
+	private boolean isClosed;
+
+	/** Number of batches queued and number written or dropped after a failure; guarded by this. */
+	private long queued;
+	private long done;
+	private long itemsWritten;
+
+
+	/**
+	 * Constructor; starts the writer thread.
+	 * @param sink destination of the changes
+	 * @param maxQueuedBatches number of batches that can wait for the sink before flushes have to wait
+	 */
+	public CounterFlusher(CounterSink<K> sink, int maxQueuedBatches) {
+		if(maxQueuedBatches < 1) {
+			throw new IllegalArgumentException("queue size must be positive");
+		}
+		this.sink = sink;
+		queue = new ArrayBlockingQueue<ChangeBatch<K>>(maxQueuedBatches);
+		writer = new Thread("CounterFlusher") {
+			@Override
+			public void run() {
+				writeBatches();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	private void writeBatches() {
+		while(true) {
+			ChangeBatch<K> batch;
+			try {
+				batch = queue.take();
+			} catch(InterruptedException e) {
+				failure = e;
+				return;
+			}
+			if(batch == stop) {
+				return;
+			}
+			if(failure == null) {
+				try {
+					sink.write(batch);
+				} catch(Throwable t) {
+					failure = t;
+				}
+			}
+			synchronized(this) {
+				done++;
+				if(failure == null) {
+					itemsWritten += batch.size();
+				}
+				notifyAll();
+			}
+		}
+	}
+
+
+	/**
+	 * Drain the counter's changes and queue them for the sink, waiting for room in the queue if necessary.
+	 * Must be called from the thread that modifies the counter.
+	 * @param ic a counter that is tracking changes
+	 * @return the number of changed items queued
+	 * @throws IOException if an earlier batch could not be written, or if interrupted while waiting
+	 */
+	public int flush(ItemCounter<K> ic) throws IOException {
+		checkOpen();
+		return enqueue(ic.drainChanges());
+	}
+
+
+	/**
+	 * Drain the accumulator's changes and queue them for the sink, waiting for room in the queue if necessary.
+	 * Must be called from the thread that modifies the accumulator.
+	 * @param ida an accumulator that is tracking changes
+	 * @return the number of changed items queued
+	 * @throws IOException if an earlier batch could not be written, or if interrupted while waiting
+	 */
+	public int flush(ItemDoubleAccumulator<K> ida) throws IOException {
+		checkOpen();
+		return enqueue(ida.drainChanges());
+	}
+
+
+	/**
+	 * Like {@link #flush(ItemCounter)}, but if the queue is full, returns at once and leaves the changes recorded in the counter.
+	 * Must be called from the thread that modifies the counter, and should not be mixed with flushes of other counters from other threads.
+	 * @param ic a counter that is tracking changes
+	 * @return the number of changed items queued, or -1 if the queue was full
+	 * @throws IOException if an earlier batch could not be written
+	 */
+	public int tryFlush(ItemCounter<K> ic) throws IOException {
+		checkOpen();
+		if(queue.remainingCapacity() == 0) {
+			return -1;
+		}
+		return enqueue(ic.drainChanges());
+	}
+
+
+	/**
+	 * Like {@link #flush(ItemDoubleAccumulator)}, but if the queue is full, returns at once and leaves the changes recorded in the accumulator.
+	 * @param ida an accumulator that is tracking changes
+	 * @return the number of changed items queued, or -1 if the queue was full
+	 * @throws IOException if an earlier batch could not be written
+	 */
+	public int tryFlush(ItemDoubleAccumulator<K> ida) throws IOException {
+		checkOpen();
+		if(queue.remainingCapacity() == 0) {
+			return -1;
+		}
+		return enqueue(ida.drainChanges());
+	}
+
+
+	private int enqueue(ChangeBatch<K> batch) throws IOException {
+		if(batch.size() == 0) {
+			return 0;
+		}
+		synchronized(this) {
+			queued++;
+		}
+		try {
+			queue.put(batch);
+		} catch(InterruptedException e) {
+			synchronized(this) {
+				queued--;
+			}
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting to queue changes");
+		}
+		return batch.size();
+	}
+
+
+	/**
+	 * Wait until every queued batch has been written.
+	 * @throws IOException if a batch could not be written, or if interrupted while waiting
+	 */
+	public void sync() throws IOException {
+		synchronized(this) {
+			while(done < queued && writer.isAlive()) {
+				try {
+					wait(100);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while waiting for changes to be written");
+				}
+			}
+		}
+		checkFailure();
+	}
+
+
+	/**
+	 * @return the number of changed items written to the sink so far
+	 */
+	public synchronized long itemsWritten() {
+		return itemsWritten;
+	}
+
+
+	/**
+	 * @return the number of batches waiting for the sink
+	 */
+	public int queuedBatches() {
+		return queue.size();
+	}
+
+
+	/**
+	 * Write the queued batches and stop the writer thread.
+	 * Does not close the sink.
+	 * @throws IOException if a batch could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if(!isClosed) {
+			isClosed = true;
+			try {
+				queue.put(stop);
+				writer.join();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while waiting for changes to be written");
+			}
+		}
+		checkFailure();
+	}
+
+
+	private void checkOpen() throws IOException {
+		if(isClosed) {
+			throw new IllegalStateException("flusher is closed");
+		}
+		checkFailure();
+	}
+
+
+	private void checkFailure() throws IOException {
+		Throwable t = failure;
+		if(t != null) {
+			if(t instanceof IOException) {
+				throw new IOException("writing changes failed: " + t.getMessage(), t);
+			}
+			throw new IOException("writing changes failed", t);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+/**
+ * Receives notifications about the operations performed on an {@link ItemCounter} or {@link ItemDoubleAccumulator}, for instrumentation.
+ *
+ * <p>Every method does nothing by default, so a listener only needs to override the events it cares about.
+ * Counters start out with {@link #NONE}, whose empty methods the JIT inlines away, so an uninstrumented counter pays next to nothing.
+ * Listeners are called on the thread that performs the operation, so they should be quick.
+ * </p>
+ *
+ * @author romanows
+ * @see CounterMetrics
+ */
+public class CounterListener {
+
+	/** Listener that ignores every event; the default for all counters. */
+	public static final CounterListener NONE = new CounterListener();
+
+
+	/** Called when the listener is set on an item counter. */
+	public void attach(ItemCounter<?> counter) {
+		// Do nothing by default
+	}
+
+	/** Called when the listener is set on an item accumulator. */
+	public void attach(ItemDoubleAccumulator<?> accumulator) {
+		// Do nothing by default
+	}
+
+	/** Called for each item lookup. */
+	public void onGet() {
+		// Do nothing by default
+	}
+
+	/** Called for each item whose count or value is set. */
+	public void onSet() {
+		// Do nothing by default
+	}
+
+	/** Called for each item count that is incremented. */
+	public void onIncrement() {
+		// Do nothing by default
+	}
+
+	/** Called for each value that is added to an item's accumulated value. */
+	public void onAdd() {
+		// Do nothing by default
+	}
+
+	/**
+	 * Called after the backing table has grown.
+	 * For {@link java.util.HashMap}-backed counters the capacities are estimates, because the map does not expose them.
+	 * @param fromCapacity number of slots before the resize
+	 * @param toCapacity number of slots after the resize
+	 * @param nanos time taken by the operation that caused the resize
+	 */
+	public void onResize(long fromCapacity, long toCapacity, long nanos) {
+		// Do nothing by default
+	}
+
+	/** Called when a caching counter answers from its cache. */
+	public void onCacheHit() {
+		// Do nothing by default
+	}
+
+	/** Called when a caching counter has to compute a value. */
+	public void onCacheMiss() {
+		// Do nothing by default
+	}
+}
@@ -0,0 +1,234 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * A {@link CounterListener} that tallies operations, resizes, and cache hits, and can publish them as a JMX MBean.
+ *
+ * <p>Example:
+ * <pre>
+ *   ItemCounter&lt;String&gt; wordCount = new ItemCounter&lt;String&gt;();
+ *   CounterMetrics metrics = new CounterMetrics();
+ *   wordCount.setListener(metrics);
+ *   metrics.register("wordCount");  // visible in JConsole under com.pwnetics.helper
+ * </pre>
+ * </p>
+ *
+ * <p>The tallies may be read from any thread.
+ * </p>
+ *
+ * @author romanows
+ */
+public class CounterMetrics extends CounterListener implements CounterMetricsMBean {
+
+	private final AtomicLong gets = new AtomicLong();
+	private final AtomicLong sets = new AtomicLong();
+	private final AtomicLong increments = new AtomicLong();
+	private final AtomicLong adds = new AtomicLong();
+	private final AtomicLong resizes = new AtomicLong();
+	private final AtomicLong resizeNanos = new AtomicLong();
+	private final AtomicLong maxResizeNanos = new AtomicLong();
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+
+	private volatile ItemCounter<?> counter;
+	private volatile ItemDoubleAccumulator<?> accumulator;
+	private ObjectName objectName;
+
+
+	@Override
+	public void attach(ItemCounter<?> counter) {
+		this.counter = counter;
+		this.accumulator = null;
+	}
+
+	@Override
+	public void attach(ItemDoubleAccumulator<?> accumulator) {
+		this.accumulator = accumulator;
+		this.counter = null;
+	}
+
+	@Override
+	public void onGet() {
+		gets.incrementAndGet();
+	}
+
+	@Override
+	public void onSet() {
+		sets.incrementAndGet();
+	}
+
+	@Override
+	public void onIncrement() {
+		increments.incrementAndGet();
+	}
+
+	@Override
+	public void onAdd() {
+		adds.incrementAndGet();
+	}
+
+	@Override
+	public void onResize(long fromCapacity, long toCapacity, long nanos) {
+		resizes.incrementAndGet();
+		resizeNanos.addAndGet(nanos);
+		long max = maxResizeNanos.get();
+		while(nanos > max && !maxResizeNanos.compareAndSet(max, nanos)) {
+			max = maxResizeNanos.get();
+		}
+	}
+
+	@Override
+	public void onCacheHit() {
+		cacheHits.incrementAndGet();
+	}
+
+	@Override
+	public void onCacheMiss() {
+		cacheMisses.incrementAndGet();
+	}
+
+	@Override
+	public long getGets() {
+		return gets.get();
+	}
+
+	@Override
+	public long getSets() {
+		return sets.get();
+	}
+
+	@Override
+	public long getIncrements() {
+		return increments.get();
+	}
+
+	@Override
+	public long getAdds() {
+		return adds.get();
+	}
+
+	@Override
+	public long getResizes() {
+		return resizes.get();
+	}
+
+	@Override
+	public long getResizeNanos() {
+		return resizeNanos.get();
+	}
+
+	@Override
+	public long getMaxResizeNanos() {
+		return maxResizeNanos.get();
+	}
+
+	@Override
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		long hits = cacheHits.get();
+		long total = hits + cacheMisses.get();
+		return total == 0 ? 0.0 : hits / (double)total;
+	}
+
+	/**
+	 * The estimate is made on the calling thread while the counter may be changing, so treat it as approximate.
+	 */
+	@Override
+	public long getEstimatedRetainedBytes() {
+		ItemCounter<?> ic = counter;
+		if(ic != null) {
+			return ic.estimatedRetainedBytes();
+		}
+		ItemDoubleAccumulator<?> a = accumulator;
+		if(a != null) {
+			return a.estimatedRetainedBytes();
+		}
+		return 0L;
+	}
+
+	@Override
+	public void reset() {
+		gets.set(0L);
+		sets.set(0L);
+		increments.set(0L);
+		adds.set(0L);
+		resizes.set(0L);
+		resizeNanos.set(0L);
+		maxResizeNanos.set(0L);
+		cacheHits.set(0L);
+		cacheMisses.set(0L);
+	}
+
+	/**
+	 * Register these metrics with the platform MBean server as "com.pwnetics.helper:type=CounterMetrics,name=<i>name</i>".
+	 * @param name distinguishes these metrics from those of other counters
+	 * @return the name under which the MBean was registered
+	 * @throws JMException if the MBean could not be registered, for example because the name is already taken
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		if(objectName != null) {
+			throw new IllegalStateException("already registered as " + objectName);
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName on = new ObjectName("com.pwnetics.helper:type=CounterMetrics,name=" + ObjectName.quote(name));
+		server.registerMBean(this, on);
+		objectName = on;
+		return on;
+	}
+
+	/**
+	 * Remove these metrics from the platform MBean server, if registered.
+	 * @throws JMException if the MBean could not be unregistered
+	 */
+	public synchronized void unregister() throws JMException {
+		if(objectName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.Arrays;
+
+
+/**
+ * Bloom filter whose positions are small saturating counters, remembering approximately how many times a key has been seen;
+ * used by {@link DoorkeeperItemCounter} to hold items until they have occurred often enough to be worth a table entry.
+ *
+ * <p>Each key maps to a number of counter positions by double hashing of its remixed {@link Object#hashCode()}, and its estimate is the smallest of those counters.
+ * Adding a key raises only the counters that equal that minimum (the "conservative update"), which keeps collisions from inflating the estimates of other keys.
+ * An estimate is never lower than the number of times the key was added, up to the counter limit; it is higher only when all of the key's positions
+ * are shared with other keys, at a rate set by the number of counters per key.
+ * Counters are 1, 2, 4, or 8 bits wide, the narrowest that holds the largest count the caller needs; a 1-bit filter is an ordinary Bloom filter.
+ * Keys with equal hash codes are indistinguishable.
+ * </p>
+ *
+ * @author romanows
+ */
+class CountingBloomFilter {
+
+	private final long[] words;
+	private final long counterCount;
+	private final int hashCount;
+	private final int bits;
+	private final int wordShift;
+	private final int maxCount;
+
+
+	/**
+	 * Constructor.
+	 * Uses the optimal sizing for a Bloom filter: {@code -n ln(p) / ln(2)^2} counters and {@code ln(2)} times counters per key hash functions.
+	 * @param expectedKeys number of distinct keys at which the false positive rate should reach its target
+	 * @param falsePositiveRate probability that a key that was never added has a nonzero estimate once the expected number of keys were added
+	 * @param maxCount largest count that must be held; from 1 to 255
+	 */
+	CountingBloomFilter(long expectedKeys, double falsePositiveRate, int maxCount) {
+		if(expectedKeys <= 0) {
+			throw new IllegalArgumentException("expected number of keys must be positive");
+		}
+		if(!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("false positive rate must be between 0 and 1");
+		}
+		if(maxCount < 1 || maxCount > 255) {
+			throw new IllegalArgumentException("maximum count must be from 1 to 255");
+		}
+		int b = 1;
+		while((1 << b) - 1 < maxCount) {
+			b <<= 1;
+		}
+		bits = b;
+		wordShift = Integer.numberOfTrailingZeros(64 / b);
+		this.maxCount = (1 << b) - 1;
+		double m = Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		long words = ((long)m + (64 / b) - 1) >>> wordShift;
+		if(words << wordShift > 1L << 32) {
+			// Positions come from 32-bit hashes
+			throw new IllegalArgumentException("filter would be too large");
+		}
+		this.words = new long[(int)Math.max(1, words)];
+		counterCount = (long)this.words.length << wordShift;
+		hashCount = (int)Math.max(1, Math.min(16, Math.round(m / expectedKeys * Math.log(2))));
+	}
+
+
+	/**
+	 * Count one more occurrence of a key, unless its estimate has already reached the given limit.
+	 * @param key a key
+	 * @param limit estimate at which to stop counting; at most the maximum count given to the constructor
+	 * @return the key's estimate before this occurrence
+	 */
+	int add(Object key, int limit) {
+		long h = hash(key);
+		int h1 = h1(h);
+		int h2 = h2(h);
+		int min = min(h1, h2);
+		if(min < limit && min < maxCount) {
+			for(int i = 0; i < hashCount; i++) {
+				long index = index(h1 + i * h2);
+				if(counter(index) == min) {
+					int shift = (int)(index & ((1 << wordShift) - 1)) * bits;
+					words[(int)(index >>> wordShift)] += 1L << shift;
+				}
+			}
+		}
+		return min;
+	}
+
+
+	/**
+	 * @param key a key
+	 * @return the smallest count at the key's positions: at least the number of times it was added, up to the counter limit
+	 */
+	int estimate(Object key) {
+		long h = hash(key);
+		return min(h1(h), h2(h));
+	}
+
+
+	/** Set every counter to zero. */
+	void clear() {
+		Arrays.fill(words, 0L);
+	}
+
+
+	/**
+	 * Estimate the current false positive rate from the fraction of nonzero counters, which grows as distinct keys are added.
+	 * Takes time linear in the size of the filter.
+	 * @return the probability that a key that was never added has a nonzero estimate
+	 */
+	double falsePositiveRate() {
+		long nonzero = 0;
+		long mask = (1L << bits) - 1;
+		for(long w : words) {
+			for(int shift = 0; shift < 64 && w != 0; shift += bits) {
+				if(((w >>> shift) & mask) != 0) {
+					nonzero++;
+				}
+			}
+		}
+		return Math.pow((double)nonzero / counterCount, hashCount);
+	}
+
+
+	/** @return the number of counters */
+	long counters() {
+		return counterCount;
+	}
+
+
+	/** @return the number of counters each key maps to */
+	int hashCount() {
+		return hashCount;
+	}
+
+
+	/** @return the width of each counter in bits */
+	int bitsPerCounter() {
+		return bits;
+	}
+
+
+	/** @return the largest count a counter can hold */
+	int maxCount() {
+		return maxCount;
+	}
+
+
+	/** @return the number of bytes held by the counters */
+	long bytes() {
+		return 16 + 8L * words.length;
+	}
+
+
+	/** Smallest counter at the positions of the key with the given pair of hashes. */
+	private int min(int h1, int h2) {
+		int min = Integer.MAX_VALUE;
+		for(int i = 0; i < hashCount; i++) {
+			int c = counter(index(h1 + i * h2));
+			if(c < min) {
+				min = c;
+			}
+		}
+		return min;
+	}
+
+
+	private int counter(long index) {
+		int shift = (int)(index & ((1 << wordShift) - 1)) * bits;
+		return (int)(words[(int)(index >>> wordShift)] >>> shift) & maxCount;
+	}
+
+
+	/** Map a 32-bit hash onto the counters by multiplying rather than by a modulus. */
+	private long index(int h) {
+		return ((h & 0xffffffffL) * counterCount) >>> 32;
+	}
+
+
+	private static int h1(long h) {
+		return (int)h;
+	}
+
+
+	/** Odd, so that the hashes of a key step through all 32-bit values before repeating. */
+	private static int h2(long h) {
+		return (int)(h >>> 32) | 1;
+	}
+
+
+	/** Remix a key's hash code into 64 bits, as the two 32-bit hashes for double hashing. */
+	private static long hash(Object key) {
+		long h = (key == null ? 0 : key.hashCode()) + 0x9e3779b97f4a7c15L;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,430 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counts the tokens in large UTF-8 text files using several threads.
+ *
+ * <p>The files are cut into chunks of about {@link #setChunkSize(int)} bytes that end on line boundaries.
+ * Worker threads read whole chunks with positional {@link FileChannel} reads into a reusable buffer per worker,
+ * split them into lines, tokenize and normalize each line, and count the tokens in a {@link StringItemCounter} per worker.
+ * The per-worker counts are merged once all chunks are done.</p>
+ *
+ * <pre>
+ * CountingPipeline pipeline = new CountingPipeline();
+ * pipeline.setNormalizer(CountingPipeline.LOWER_CASE);
+ * ItemCounter&lt;String&gt; words = pipeline.count(new File("a.txt"), new File("b.txt"));
+ * System.out.println(pipeline.getMegabytesPerSecond() + " MB/s");
+ * </pre>
+ *
+ * @author romanows
+ */
+public class CountingPipeline {
+
+	/**
+	 * Splits a line into tokens.
+	 * Called concurrently from several worker threads, so implementations must be thread-safe.
+	 */
+	public interface Tokenizer {
+		/**
+		 * @param line a line of text, without its line terminator
+		 * @param tokens list to which the line's tokens are appended; empty on entry
+		 */
+		void tokenize(String line, List<String> tokens);
+	}
+
+
+	/**
+	 * Maps a token to the key under which it is counted.
+	 * Called concurrently from several worker threads, so implementations must be thread-safe.
+	 */
+	public interface Normalizer {
+		/**
+		 * @param token a token from the {@link Tokenizer}
+		 * @return the key to count, or null to skip the token
+		 */
+		String normalize(String token);
+	}
+
+
+	/** Splits on runs of whitespace, see {@link Character#isWhitespace(char)}. */
+	public static final Tokenizer WHITESPACE = new Tokenizer() {
+		@Override
+		public void tokenize(String line, List<String> tokens) {
+			int start = -1;
+			for(int i = 0; i < line.length(); i++) {
+				if(Character.isWhitespace(line.charAt(i))) {
+					if(start >= 0) {
+						tokens.add(line.substring(start, i));
+						start = -1;
+					}
+				} else if(start < 0) {
+					start = i;
+				}
+			}
+			if(start >= 0) {
+				tokens.add(line.substring(start));
+			}
+		}
+	};
+
+	/** Counts tokens as they are. */
+	public static final Normalizer IDENTITY = new Normalizer() {
+		@Override
+		public String normalize(String token) {
+			return token;
+		}
+	};
+
+	/** Counts tokens in lower case, using the root locale. */
+	public static final Normalizer LOWER_CASE = new Normalizer() {
+		@Override
+		public String normalize(String token) {
+			return token.toLowerCase(Locale.ROOT);
+		}
+	};
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int chunkSize = 8 << 20;
+	private Tokenizer tokenizer = WHITESPACE;
+	private Normalizer normalizer = IDENTITY;
+
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong tokens = new AtomicLong();
+	private long elapsedNanos;
+
+
+	/**
+	 * @param threads number of worker threads, by default the number of processors
+	 */
+	public void setThreads(int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("number of threads must be positive");
+		}
+		this.threads = threads;
+	}
+
+
+	/**
+	 * @param chunkSize approximate number of bytes a worker reads at once, 8 MiB by default; a chunk grows to hold a longer line
+	 */
+	public void setChunkSize(int chunkSize) {
+		if(chunkSize < 1) {
+			throw new IllegalArgumentException("chunk size must be positive");
+		}
+		this.chunkSize = chunkSize;
+	}
+
+
+	/**
+	 * @param tokenizer splits lines into tokens, {@link #WHITESPACE} by default
+	 */
+	public void setTokenizer(Tokenizer tokenizer) {
+		this.tokenizer = tokenizer;
+	}
+
+
+	/**
+	 * @param normalizer maps tokens to the counted keys, {@link #IDENTITY} by default
+	 */
+	public void setNormalizer(Normalizer normalizer) {
+		this.normalizer = normalizer;
+	}
+
+
+	/**
+	 * Count the tokens in the given files.
+	 * @param files UTF-8 text files
+	 * @return a new counter holding the count of every key
+	 * @throws IOException if a file could not be read
+	 * @throws ArithmeticException if a count would overflow an int; see {@link #count(ItemCounter, File...)}
+	 */
+	public ItemCounter<String> count(File... files) throws IOException {
+		List<StringItemCounter> counters = run(files);
+		StringItemCounter result = counters.get(0);
+		for(int i = 1; i < counters.size(); i++) {
+			merge(counters.get(i), result);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Count the tokens in the given files, adding the counts to an existing counter.
+	 * Pass a {@link CompactItemCounter} for counts that can grow beyond {@link Integer#MAX_VALUE}.
+	 * @param into receives the counts
+	 * @param files UTF-8 text files
+	 * @throws IOException if a file could not be read
+	 * @throws ArithmeticException if a count would overflow an int, unless the counter is a {@link CompactItemCounter}
+	 */
+	public void count(ItemCounter<String> into, File... files) throws IOException {
+		for(StringItemCounter c : run(files)) {
+			merge(c, into);
+		}
+	}
+
+
+	/**
+	 * Count the tokens in the given files, adding the counts to an accumulator.
+	 * @param into receives the counts
+	 * @param files UTF-8 text files
+	 * @throws IOException if a file could not be read
+	 */
+	public void count(final ItemDoubleAccumulator<String> into, File... files) throws IOException {
+		for(StringItemCounter c : run(files)) {
+			c.forEach(new ItemCountVisitor<String>() {
+				@Override
+				public void visit(String item, int count) {
+					into.add(item, count);
+				}
+			});
+		}
+	}
+
+
+	/** @throws ArithmeticException if a merged count would overflow an int, unless the target is a {@link CompactItemCounter} */
+	private static void merge(StringItemCounter from, final ItemCounter<String> into) {
+		if(into instanceof CompactItemCounter<?>) {
+			final CompactItemCounter<String> compact = (CompactItemCounter<String>)into;
+			from.forEach(new ItemCountVisitor<String>() {
+				@Override
+				public void visit(String item, int count) {
+					compact.add(item, count);
+				}
+			});
+			return;
+		}
+		from.forEach(new ItemCountVisitor<String>() {
+			@Override
+			public void visit(String item, int count) {
+				long c = (long)into.get(item) + count;
+				if(c > Integer.MAX_VALUE) {
+					throw new ArithmeticException("count overflow");
+				}
+				into.set(item, (int)c);
+			}
+		});
+	}
+
+
+	/**
+	 * @return the number of bytes read by the last run
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+
+	/**
+	 * @return the number of tokens counted by the last run, after normalization
+	 */
+	public long getTokens() {
+		return tokens.get();
+	}
+
+
+	/**
+	 * @return the wall-clock time of the last run, excluding the final merge, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+
+	/**
+	 * @return the throughput of the last run in megabytes (10^6 bytes) per second
+	 */
+	public double getMegabytesPerSecond() {
+		return elapsedNanos == 0 ? 0.0 : getBytesRead() * 1e3 / elapsedNanos;
+	}
+
+
+	/** A byte range of a file that starts at the beginning of a line and ends just after a line terminator or at the end of the file. */
+	private static final class Chunk {
+		final File file;
+		final long start;
+		final int length;
+
+		Chunk(File file, long start, int length) {
+			this.file = file;
+			this.start = start;
+			this.length = length;
+		}
+	}
+
+
+	private List<StringItemCounter> run(File[] files) throws IOException {
+		bytesRead.set(0);
+		tokens.set(0);
+		long start = System.nanoTime();
+		final ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<Chunk>(split(files));
+		int nWorkers = Math.max(1, Math.min(threads, chunks.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(nWorkers);
+		try {
+			List<Future<StringItemCounter>> futures = new ArrayList<Future<StringItemCounter>>();
+			for(int i = 0; i < nWorkers; i++) {
+				futures.add(executor.submit(new Callable<StringItemCounter>() {
+					@Override
+					public StringItemCounter call() throws IOException {
+						return work(chunks);
+					}
+				}));
+			}
+			List<StringItemCounter> counters = new ArrayList<StringItemCounter>();
+			for(Future<StringItemCounter> f : futures) {
+				try {
+					counters.add(f.get());
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while counting");
+				} catch(ExecutionException e) {
+					if(e.getCause() instanceof IOException) {
+						throw (IOException)e.getCause();
+					}
+					throw new IOException("counting failed", e.getCause());
+				}
+			}
+			return counters;
+		} finally {
+			executor.shutdownNow();
+			elapsedNanos = System.nanoTime() - start;
+		}
+	}
+
+
+	/** Cuts the files into chunks that end on line boundaries. */
+	private List<Chunk> split(File[] files) throws IOException {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		for(File file : files) {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				long size = channel.size();
+				long start = 0;
+				while(start < size) {
+					long end = Math.min(size, start + chunkSize);
+					// Extend the chunk to just past the next newline
+					while(end < size) {
+						probe.clear();
+						int n = channel.read(probe, end - 1);
+						int i = 0;
+						while(i < n && probe.get(i) != '\n') {
+							i++;
+						}
+						if(i < n) {
+							end = end + i;
+							break;
+						}
+						end = Math.min(size, end + n);
+					}
+					if(end - start > Integer.MAX_VALUE - 8) {
+						throw new IOException("line too long in " + file);
+					}
+					chunks.add(new Chunk(file, start, (int)(end - start)));
+					start = end;
+				}
+			} finally {
+				in.close();
+			}
+		}
+		return chunks;
+	}
+
+
+	/** Counts chunks from the queue until it is empty. */
+	private StringItemCounter work(ConcurrentLinkedQueue<Chunk> chunks) throws IOException {
+		StringItemCounter counter = new StringItemCounter(1024);
+		List<String> lineTokens = new ArrayList<String>();
+		ByteBuffer buffer = ByteBuffer.allocate(0);
+		long nTokens = 0;
+		for(Chunk chunk = chunks.poll(); chunk != null; chunk = chunks.poll()) {
+			if(buffer.capacity() < chunk.length) {
+				buffer = ByteBuffer.allocate(chunk.length);
+			}
+			buffer.clear();
+			buffer.limit(chunk.length);
+			FileInputStream in = new FileInputStream(chunk.file);
+			try {
+				FileChannel channel = in.getChannel();
+				while(buffer.hasRemaining()) {
+					if(channel.read(buffer, chunk.start + buffer.position()) < 0) {
+						throw new IOException(chunk.file + " was truncated while reading");
+					}
+				}
+			} finally {
+				in.close();
+			}
+			bytesRead.addAndGet(chunk.length);
+
+			byte[] bytes = buffer.array();
+			int lineStart = 0;
+			for(int i = 0; i <= chunk.length; i++) {
+				if(i == chunk.length || bytes[i] == '\n') {
+					int lineEnd = (i > lineStart && bytes[i - 1] == '\r') ? i - 1 : i;
+					if(lineEnd > lineStart) {
+						tokenizer.tokenize(new String(bytes, lineStart, lineEnd - lineStart, UTF8), lineTokens);
+						for(String token : lineTokens) {
+							String key = normalizer.normalize(token);
+							if(key != null) {
+								counter.increment(key);
+								nTokens++;
+							}
+						}
+						lineTokens.clear();
+					}
+					lineStart = i + 1;
+				}
+			}
+		}
+		tokens.addAndGet(nTokens);
+		return counter;
+	}
+}
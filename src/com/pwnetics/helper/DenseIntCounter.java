@@ -0,0 +1,508 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * An {@link ItemCounter} for small, dense, non-negative integer keys, such as histogram buckets, byte values, or the count values produced by {@link ItemCounter#countOfCounts()}.
+ *
+ * <p>Counts are stored in a growable int array that is indexed directly by key, so there is no hashing, boxing, or per-entry allocation on the
+ * {@link #increment(Integer)} path.
+ * The summary statistics are computed with simple loops over the whole array, which is cheap when the key range is not much larger than the number of distinct keys.
+ * Memory use is proportional to the largest key ever counted, so this class should not be used for sparse or unbounded keys.
+ * </p>
+ *
+ * <p>Negative keys cannot be counted; {@link #get(Integer)} reports zero for them and {@link #set(Integer, int)} and {@link #increment(Integer)} throw an {@link IllegalArgumentException}.
+ * </p>
+ *
+ * @author romanows
+ */
+public class DenseIntCounter extends ItemCounter<Integer> {
+
+	/** Array-backed map view handed to {@link ItemCounter} so the inherited methods see the same counts. */
+	private final Slots slots;
+
+
+	/**
+	 * Constructor.
+	 */
+	public DenseIntCounter() {
+		this(16);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param initialRange keys from zero up to (but not including) this value can be counted without growing the backing array
+	 */
+	public DenseIntCounter(int initialRange) {
+		this(new Slots(initialRange));
+	}
+
+
+	private DenseIntCounter(Slots slots) {
+		super(slots, false);
+		this.slots = slots;
+	}
+
+
+	@Override
+	public Integer get(Integer item) {
+		listener.onGet();
+		int k = item;
+		if(k < 0 || k >= slots.counts.length) {
+			return 0;
+		}
+		return slots.counts[k];
+	}
+
+
+	@Override
+	public void set(Integer item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		if(item >= slots.counts.length && count != 0) {
+			grow(item);
+		}
+		countChanged(item, slots.set(item, count), count);
+	}
+
+
+	@Override
+	public int increment(Integer item) {
+		listener.onIncrement();
+		int k = item;
+		if(k >= slots.counts.length || k < 0) {
+			grow(k);
+		}
+		int c = slots.counts[k];
+		int n = incrementedCount(c);
+		if(c == 0) {
+			slots.distinct++;
+			if(k >= slots.range) {
+				slots.range = k + 1;
+			}
+		}
+		slots.counts[k] = n;
+		countChanged(item, c, n);
+		return n;
+	}
+
+
+	private void grow(int key) {
+		long start = System.nanoTime();
+		int fromCapacity = slots.counts.length;
+		slots.grow(key);
+		listener.onResize(fromCapacity, slots.counts.length, System.nanoTime() - start);
+	}
+
+
+	@Override
+	public long sum() {
+		final int[] counts = slots.counts;
+		final int n = slots.range;
+		long sum = 0L;
+		for(int i = 0; i < n; i++) {
+			sum += counts[i];
+		}
+		return sum;
+	}
+
+
+	@Override
+	public KeyValuePair min() {
+		if(slots.distinct == 0) {
+			return new KeyValuePair(null,0);
+		}
+		final int[] counts = slots.counts;
+		int minKey = -1;
+		int minCount = Integer.MAX_VALUE;
+		for(int i = 0; i < slots.range; i++) {
+			int c = counts[i];
+			if(c != 0 && c < minCount) {
+				minKey = i;
+				minCount = c;
+			}
+		}
+		return new KeyValuePair(minKey, minCount);
+	}
+
+
+	@Override
+	public KeyValuePair max() {
+		if(slots.distinct == 0) {
+			return new KeyValuePair(null,0);
+		}
+		final int[] counts = slots.counts;
+		int maxKey = -1;
+		int maxCount = 0;
+		for(int i = 0; i < slots.range; i++) {
+			int c = counts[i];
+			if(c >= maxCount) {
+				maxKey = i;
+				maxCount = c;
+			}
+		}
+		return new KeyValuePair(maxKey, maxCount);
+	}
+
+
+	@Override
+	public double mean() {
+		if(slots.distinct == 0) {
+			return 0;
+		}
+		return sum()/(double)slots.distinct;
+	}
+
+
+	/**
+	 * Sum of the squared differences between each non-zero count and the mean.
+	 * Like {@link ItemCounter#variance()}, takes the mean first and then sums the squared differences, which avoids the cancellation of
+	 * sum(c^2) - sum(c) * mean when the counts are large and close together; empty slots are skipped in the second pass.
+	 */
+	private double sumSquaredDeviations() {
+		final int[] counts = slots.counts;
+		final int n = slots.range;
+		double mean = mean();
+		double ssd = 0.0;
+		for(int i = 0; i < n; i++) {
+			int c = counts[i];
+			if(c != 0) {
+				double d = c - mean;
+				ssd += d * d;
+			}
+		}
+		return ssd;
+	}
+
+
+	@Override
+	public double variance() {
+		if(slots.distinct < 2) {
+			return 0;
+		}
+		return sumSquaredDeviations() / (slots.distinct - 1);
+	}
+
+
+	@Override
+	public double variancePopulation() {
+		if(slots.distinct < 2) {
+			return 0;
+		}
+		return sumSquaredDeviations() / slots.distinct;
+	}
+
+
+	@Override
+	public int size() {
+		return slots.distinct;
+	}
+
+
+	@Override
+	public void forEach(ItemCountVisitor<? super Integer> visitor) {
+		final int[] counts = slots.counts;
+		final int n = slots.range;
+		for(int i = 0; i < n; i++) {
+			if(counts[i] != 0) {
+				visitor.visit(i, counts[i]);
+			}
+		}
+	}
+
+
+	@Override
+	public Cursor cursor() {
+		return new SlotCursor();
+	}
+
+
+	/** Zeroes the removed slots in a single pass over the array. */
+	@Override
+	public int removeIf(ItemCountPredicate<? super Integer> predicate) {
+		final int[] counts = slots.counts;
+		final int n = slots.range;
+		int removed = 0;
+		for(int i = 0; i < n; i++) {
+			int c = counts[i];
+			if(c != 0 && predicate.test(i, c)) {
+				slots.set(i, 0);
+				countChanged(i, c, 0);
+				removed++;
+			}
+		}
+		if(removed > 0) {
+			trimToSize();
+		}
+		return removed;
+	}
+
+
+	/** Shrinks the array to one past the largest counted key. */
+	@Override
+	public void trimToSize() {
+		long start = System.nanoTime();
+		int fromCapacity = slots.counts.length;
+		slots.trim();
+		if(slots.counts.length != fromCapacity) {
+			listener.onResize(fromCapacity, slots.counts.length, System.nanoTime() - start);
+		}
+	}
+
+
+	/** Cursor that walks the count array directly instead of creating map entries. */
+	private class SlotCursor extends Cursor {
+		private int i = -1;
+
+		@Override
+		public boolean next() {
+			final int[] counts = slots.counts;
+			final int n = slots.range;
+			if(i < n) {
+				i++;
+			}
+			while(i < n && counts[i] == 0) {
+				i++;
+			}
+			return i < n;
+		}
+
+		@Override
+		public Integer key() {
+			check();
+			return i;
+		}
+
+		@Override
+		public int intValue() {
+			check();
+			return slots.counts[i];
+		}
+
+		private void check() {
+			if(i < 0 || i >= slots.range) {
+				throw new IllegalStateException("cursor does not point at an item");
+			}
+		}
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		return 16 + 4L * slots.counts.length;
+	}
+
+
+	/**
+	 * Get one more than the largest key that has ever had a non-zero count.
+	 * Keys at or above this value all have zero count.
+	 * @return the exclusive upper bound of the counted keys
+	 */
+	public int range() {
+		return slots.range;
+	}
+
+
+	/**
+	 * Map from key to count backed directly by the count array.
+	 * Zero-count slots are treated as absent, in keeping with {@link ItemCounter}.
+	 */
+	private static class Slots extends AbstractMap<Integer, Integer> {
+		private int[] counts;
+		private int distinct;
+
+		/** One more than the largest key with a non-zero count, possibly stale after removals; bounds the scans. */
+		private int range;
+
+		Slots(int initialRange) {
+			if(initialRange < 0) {
+				throw new IllegalArgumentException("initial range must be non-negative");
+			}
+			counts = new int[initialRange];
+		}
+
+		void grow(int key) {
+			if(key < 0) {
+				throw new IllegalArgumentException("key must be non-negative");
+			}
+			int newLength = counts.length + (counts.length >> 1);
+			if(newLength <= key) {
+				newLength = key + 1;
+			}
+			int[] newCounts = new int[newLength];
+			System.arraycopy(counts, 0, newCounts, 0, range);
+			counts = newCounts;
+		}
+
+		void trim() {
+			while(range > 0 && counts[range - 1] == 0) {
+				range--;
+			}
+			if(range < counts.length) {
+				int[] newCounts = new int[range];
+				System.arraycopy(counts, 0, newCounts, 0, range);
+				counts = newCounts;
+			}
+		}
+
+		int set(int key, int count) {
+			if(key >= counts.length) {
+				if(count == 0) {
+					return 0;
+				}
+				grow(key);
+			} else if(key < 0) {
+				throw new IllegalArgumentException("key must be non-negative");
+			}
+			int c = counts[key];
+			if(c == 0 && count != 0) {
+				distinct++;
+				if(key >= range) {
+					range = key + 1;
+				}
+			} else if(c != 0 && count == 0) {
+				distinct--;
+			}
+			counts[key] = count;
+			return c;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			if(!(key instanceof Integer)) {
+				return null;
+			}
+			int k = (Integer)key;
+			if(k < 0 || k >= range || counts[k] == 0) {
+				return null;
+			}
+			return counts[k];
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Integer put(Integer key, Integer value) {
+			if(value < 0) {
+				throw new IllegalArgumentException("count must be non-negative");
+			}
+			int c = set(key, value);
+			return c == 0 ? null : c;
+		}
+
+		@Override
+		public Integer remove(Object key) {
+			Integer c = get(key);
+			if(c != null) {
+				set((Integer)key, 0);
+			}
+			return c;
+		}
+
+		@Override
+		public int size() {
+			return distinct;
+		}
+
+		@Override
+		public void clear() {
+			for(int i = 0; i < range; i++) {
+				counts[i] = 0;
+			}
+			distinct = 0;
+			range = 0;
+		}
+
+		@Override
+		public Set<Entry<Integer, Integer>> entrySet() {
+			return new AbstractSet<Entry<Integer,Integer>>() {
+				@Override
+				public Iterator<Entry<Integer, Integer>> iterator() {
+					return new SlotIterator();
+				}
+
+				@Override
+				public int size() {
+					return distinct;
+				}
+			};
+		}
+
+		/** Visits the non-zero slots in ascending key order. */
+		private class SlotIterator implements Iterator<Entry<Integer, Integer>> {
+			private int next = advance(0);
+			private int last = -1;
+
+			private int advance(int i) {
+				while(i < range && counts[i] == 0) {
+					i++;
+				}
+				return i;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < range;
+			}
+
+			@Override
+			public Entry<Integer, Integer> next() {
+				if(next >= range) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = advance(next + 1);
+				return new SimpleImmutableEntry<Integer, Integer>(last, counts[last]);
+			}
+
+			@Override
+			public void remove() {
+				if(last < 0) {
+					throw new IllegalStateException();
+				}
+				set(last, 0);
+				last = -1;
+			}
+		}
+	}
+}
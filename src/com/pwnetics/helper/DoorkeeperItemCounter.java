@@ -0,0 +1,158 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.HashMap;
+
+
+/**
+ * Item counter that keeps items out of its table until they have occurred a given number of times, so that the many items of a long-tailed
+ * stream that occur only once do not each cost a map entry.
+ *
+ * <p>A {@link CountingBloomFilter}, the "doorkeeper", absorbs the first occurrences of each item that {@link #increment(Object)} sees.
+ * On the occurrence that makes the threshold, the item is promoted into the table with that many occurrences as its count, and is counted there exactly from then on.
+ * Items still held by the doorkeeper have a count of zero and are not visible to any other method.
+ * The doorkeeper takes a few bits per distinct item, compared to roughly 50 bytes per entry of the table.
+ * </p>
+ *
+ * <p>The doorkeeper never undercounts, but it can overcount: an item whose filter positions are all shared with other items is promoted early,
+ * with up to threshold minus one occurrences too many.
+ * The filter is sized for an expected number of distinct items and a false positive rate, the probability that an item seen for the first time
+ * is mistaken for one that was seen before; past the expected number the rate climbs, see {@link #getDoorkeeperFalsePositiveRate()}.
+ * For streams without end, {@link #clearDoorkeeper()} forgets the held occurrences and starts over.
+ * </p>
+ *
+ * <p>Only {@link #increment(Object)} goes through the doorkeeper; {@link #set(Object, int)} and the other methods see only the table.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class DoorkeeperItemCounter<K> extends ItemCounter<K> {
+
+	private final CountingBloomFilter doorkeeper;
+	private final int threshold;
+	private long heldIncrements;
+
+
+	/**
+	 * Constructor.
+	 * @param threshold number of occurrences at which an item is promoted into the table, from 2 to 256; 2 drops the items that occur only once
+	 * @param expectedDistinctItems number of distinct items, including those that never reach the threshold, that the doorkeeper is sized for
+	 * @param falsePositiveRate target probability, once the expected number of items have been seen, that a new item is mistaken for one seen before
+	 */
+	public DoorkeeperItemCounter(int threshold, long expectedDistinctItems, double falsePositiveRate) {
+		super(new HashMap<K, Integer>(), false);
+		if(threshold < 2 || threshold > 256) {
+			throw new IllegalArgumentException("threshold must be from 2 to 256");
+		}
+		this.threshold = threshold;
+		doorkeeper = new CountingBloomFilter(expectedDistinctItems, falsePositiveRate, threshold - 1);
+	}
+
+
+	/**
+	 * Increment the count on an item that is already in the table, or count one more occurrence in the doorkeeper.
+	 * @param item item whose count to increment
+	 * @return the new count of the given item; zero if it is still held by the doorkeeper, the threshold if this occurrence promoted it
+	 */
+	@Override
+	public int increment(K item) {
+		Integer c = count.get(item);
+		if(c != null) {
+			listener.onIncrement();
+			int n = incrementedCount(c);
+			count.put(item, n);
+			countChanged(item, c, n);
+			return n;
+		}
+		if(doorkeeper.add(item, threshold - 1) < threshold - 1) {
+			listener.onIncrement();
+			heldIncrements++;
+			return 0;
+		}
+		super.set(item, threshold);
+		heldIncrements -= threshold - 1;
+		return threshold;
+	}
+
+
+	/**
+	 * Forget the occurrences held by the doorkeeper, for example periodically on a stream without end so that its false positive rate stays near its target.
+	 * Counts in the table are unaffected.
+	 */
+	public void clearDoorkeeper() {
+		doorkeeper.clear();
+		heldIncrements = 0;
+	}
+
+
+	/** @return the number of occurrences at which an item is promoted into the table */
+	public int getThreshold() {
+		return threshold;
+	}
+
+
+	/**
+	 * Get the number of increments held by the doorkeeper, for items that have not reached the threshold; these are not part of {@link #sum()}.
+	 * May be slightly low, because an item promoted early by a false positive is counted as if it had been held for the full threshold.
+	 * @return the number of increments since construction or the last {@link #clearDoorkeeper()} that did not reach the table
+	 */
+	public long getHeldIncrements() {
+		return heldIncrements;
+	}
+
+
+	/**
+	 * Estimate the doorkeeper's current false positive rate from how full its filter is.
+	 * Takes time linear in the size of the filter.
+	 * @return the probability that an item not yet seen would be taken for one that was
+	 */
+	public double getDoorkeeperFalsePositiveRate() {
+		return doorkeeper.falsePositiveRate();
+	}
+
+
+	/** @return the number of bytes held by the doorkeeper's filter */
+	public long getDoorkeeperBytes() {
+		return doorkeeper.bytes();
+	}
+
+
+	/**
+	 * Estimate the number of bytes held by this counter, including the doorkeeper, not counting the memory of the keys themselves.
+	 * @return the estimated retained size in bytes
+	 */
+	@Override
+	public long estimatedRetainedBytes() {
+		return super.estimatedRetainedBytes() + doorkeeper.bytes();
+	}
+}
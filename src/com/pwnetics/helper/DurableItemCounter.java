@@ -0,0 +1,170 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOError;
+import java.io.IOException;
+
+
+/**
+ * An {@link ItemCounter} whose mutations are recorded in a {@link WriteAheadLog}, so that its counts can be recovered after
+ * a crash.
+ *
+ * <p>Open a counter with {@link #open(File, OffHeapItemCounter.KeyCodec, WriteAheadLog.SyncPolicy)}, which rebuilds the counts
+ * from the directory's snapshot and log in a table pre-sized for the snapshot.
+ * Every {@link #increment(Object)} and {@link #set(Object, int)} is appended to the log's group commit buffer; only
+ * records that have been committed, by a full buffer, the commit interval, {@link #commit()}, {@link #snapshot()} or
+ * {@link #close()}, are guaranteed to be recovered.
+ * Because {@link ItemCounter}'s methods cannot throw {@link IOException}, a failure to write the log is thrown as an
+ * {@link IOError}.
+ * </p>
+ *
+ * <p>This class is not thread-safe.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class DurableItemCounter<K> extends ItemCounter<K> implements Closeable {
+
+	private final WriteAheadLog<K> log;
+	private boolean isReplaying;
+
+
+	/**
+	 * Open a durable counter, recovering any counts already in the directory.
+	 * @param directory directory holding the log and snapshot, created if it does not exist
+	 * @param codec serializes keys
+	 * @param syncPolicy whether commits force the log to the storage device
+	 * @return the recovered counter
+	 * @throws IOException if the directory could not be read or the log could not be opened
+	 */
+	public static <K> DurableItemCounter<K> open(File directory, OffHeapItemCounter.KeyCodec<K> codec, WriteAheadLog.SyncPolicy syncPolicy) throws IOException {
+		WriteAheadLog<K> log = new WriteAheadLog<K>(directory, codec, syncPolicy, false);
+		final DurableItemCounter<K> ic = new DurableItemCounter<K>(log, log.snapshotSize());
+		ic.isReplaying = true;
+		try {
+			log.recover(new WriteAheadLog.Replay<K>() {
+				@Override
+				public void replay(byte op, K key, double value) {
+					if(op == WriteAheadLog.OP_INCREMENT) {
+						ic.increment(key);
+					} else if(op == WriteAheadLog.OP_SET) {
+						ic.set(key, (int)value);
+					}
+				}
+			});
+		} finally {
+			ic.isReplaying = false;
+		}
+		return ic;
+	}
+
+
+	private DurableItemCounter(WriteAheadLog<K> log, int expectedSize) {
+		super(expectedSize, 0.75f);
+		this.log = log;
+	}
+
+
+	/** @return the log recording this counter's mutations, for configuring commit and snapshot thresholds */
+	public WriteAheadLog<K> getLog() {
+		return log;
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		super.set(item, count);
+		logged(WriteAheadLog.OP_SET, item, count);
+	}
+
+
+	/** Removals go through {@link #set(Object, int)} so that they are written to the log. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(K item) {
+		int c = super.increment(item);
+		logged(WriteAheadLog.OP_INCREMENT, item, 1);
+		return c;
+	}
+
+
+	/**
+	 * Commit all logged mutations.
+	 * @throws IOException if the log could not be written
+	 */
+	public void commit() throws IOException {
+		log.commit();
+	}
+
+
+	/**
+	 * Write a snapshot of all counts and truncate the log, which bounds the log's size and the time recovery takes.
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public void snapshot() throws IOException {
+		log.snapshot(count.entrySet());
+	}
+
+
+	/**
+	 * Commit all logged mutations and close the log.
+	 * The counts remain readable, but further mutations fail.
+	 * @throws IOException if the log could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		log.close();
+	}
+
+
+	private void logged(byte op, K item, int value) {
+		if(isReplaying) {
+			return;
+		}
+		try {
+			log.append(op, item, value);
+			if(log.isSnapshotDue()) {
+				snapshot();
+			}
+		} catch(IOException e) {
+			throw new IOError(e);
+		}
+	}
+}
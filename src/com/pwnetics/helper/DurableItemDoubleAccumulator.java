@@ -0,0 +1,158 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOError;
+import java.io.IOException;
+
+
+/**
+ * An {@link ItemDoubleAccumulator} whose mutations are recorded in a {@link WriteAheadLog}, so that its values can be
+ * recovered after a crash.
+ *
+ * <p>This is the accumulator counterpart of {@link DurableItemCounter}: {@link #set(Object, double)} and
+ * {@link #add(Object, double)} are logged, and a failure to write the log is thrown as an {@link IOError}.
+ * Values are replayed in their original order, so recovered sums are bit-for-bit identical.
+ * </p>
+ *
+ * <p>This class is not thread-safe.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being accumulated
+ */
+public class DurableItemDoubleAccumulator<K> extends ItemDoubleAccumulator<K> implements Closeable {
+
+	private final WriteAheadLog<K> log;
+	private boolean isReplaying;
+
+
+	/**
+	 * Open a durable accumulator, recovering any values already in the directory.
+	 * @param directory directory holding the log and snapshot, created if it does not exist
+	 * @param codec serializes keys
+	 * @param syncPolicy whether commits force the log to the storage device
+	 * @return the recovered accumulator
+	 * @throws IOException if the directory could not be read or the log could not be opened
+	 */
+	public static <K> DurableItemDoubleAccumulator<K> open(File directory, OffHeapItemCounter.KeyCodec<K> codec, WriteAheadLog.SyncPolicy syncPolicy) throws IOException {
+		WriteAheadLog<K> log = new WriteAheadLog<K>(directory, codec, syncPolicy, true);
+		final DurableItemDoubleAccumulator<K> ida = new DurableItemDoubleAccumulator<K>(log, log.snapshotSize());
+		ida.isReplaying = true;
+		try {
+			log.recover(new WriteAheadLog.Replay<K>() {
+				@Override
+				public void replay(byte op, K key, double value) {
+					if(op == WriteAheadLog.OP_ADD) {
+						ida.add(key, value);
+					} else if(op == WriteAheadLog.OP_SET_DOUBLE) {
+						ida.set(key, value);
+					}
+				}
+			});
+		} finally {
+			ida.isReplaying = false;
+		}
+		return ida;
+	}
+
+
+	private DurableItemDoubleAccumulator(WriteAheadLog<K> log, int expectedSize) {
+		super(expectedSize, 0.75f);
+		this.log = log;
+	}
+
+
+	/** @return the log recording this accumulator's mutations, for configuring commit and snapshot thresholds */
+	public WriteAheadLog<K> getLog() {
+		return log;
+	}
+
+
+	@Override
+	public void set(K item, double value) {
+		super.set(item, value);
+		logged(WriteAheadLog.OP_SET_DOUBLE, item, value);
+	}
+
+
+	@Override
+	public double add(K item, double value) {
+		double c = super.add(item, value);
+		logged(WriteAheadLog.OP_ADD, item, value);
+		return c;
+	}
+
+
+	/**
+	 * Commit all logged mutations.
+	 * @throws IOException if the log could not be written
+	 */
+	public void commit() throws IOException {
+		log.commit();
+	}
+
+
+	/**
+	 * Write a snapshot of all values and truncate the log.
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public void snapshot() throws IOException {
+		log.snapshot(acc.entrySet());
+	}
+
+
+	/**
+	 * Commit all logged mutations and close the log.
+	 * @throws IOException if the log could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		log.close();
+	}
+
+
+	private void logged(byte op, K item, double value) {
+		if(isReplaying) {
+			return;
+		}
+		try {
+			log.append(op, item, value);
+			if(log.isSnapshotDue()) {
+				snapshot();
+			}
+		} catch(IOException e) {
+			throw new IOError(e);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+
+/**
+ * Sink that appends changes to a UTF-8 text file, one "item\tvalue\tdelta" line per change, flushing the file after each batch.
+ * Values that are whole numbers, such as counts, are written without a decimal point.
+ * Replaying the file and keeping the last value of each item gives the current contents.
+ *
+ * @author romanows
+ *
+ * @param <K> the type of the changed items
+ */
+public class FileCounterSink<K> implements CounterSink<K>, Closeable {
+	private final Writer writer;
+
+
+	/**
+	 * Constructor.
+	 * @param file file to append to; created if it does not exist
+	 * @throws IOException if the file could not be opened
+	 */
+	public FileCounterSink(File file) throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+	}
+
+
+	@Override
+	public void write(ChangeBatch<K> batch) throws IOException {
+		for(int i = 0; i < batch.size(); i++) {
+			writer.write(String.valueOf(batch.item(i)));
+			writer.write('\t');
+			writer.write(format(batch.value(i)));
+			writer.write('\t');
+			writer.write(format(batch.delta(i)));
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+
+	private static String format(double d) {
+		if(d == Math.rint(d) && Math.abs(d) < 1e15) {
+			return Long.toString((long)d);
+		}
+		return Double.toString(d);
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,452 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * A read-optimized, immutable snapshot of an {@link ItemCounter}; see {@link ItemCounter#freeze()}.
+ *
+ * <p>Keys are indexed by a {@link MinimalPerfectHash}, so the counts and keys are packed into arrays with no empty slots or per-entry objects.
+ * A {@link #get(Object)} costs a couple of hash evaluations, a bit-rank lookup, and a single {@link Object#equals(Object)}.
+ * The sorted orders and all summary statistics are computed when the snapshot is built, so {@link #sortByValueKey(boolean)},
+ * {@link #min()}, {@link #max()}, {@link #sum()}, {@link #mean()}, and the variances return immediately,
+ * and the quantile, rank, and range queries are answered from the sorted list.
+ * No method changes the snapshot's state after construction, so it can be shared between threads once safely published.
+ * </p>
+ *
+ * <p>{@link #set(Object, int)} and {@link #increment(Object)} throw {@link UnsupportedOperationException}.
+ * Unlike {@link ItemCounter#asUnmodifiable()}, the snapshot does not change when the original counter changes.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class ImmutableItemCounter<K> extends ItemCounter<K> {
+
+	private final Frozen<K> frozen;
+	private final long sum;
+	private final double mean;
+	private final double variance;
+	private final double variancePopulation;
+	private final List<KeyValuePair> ascending;
+	private final List<KeyValuePair> descending;
+
+
+	/**
+	 * Constructor.
+	 * Consider using {@link ItemCounter#freeze()}, instead.
+	 * @param ic the counter to take a snapshot of
+	 */
+	public ImmutableItemCounter(ItemCounter<K> ic) {
+		this(new Frozen<K>(ic.count));
+	}
+
+
+	private ImmutableItemCounter(Frozen<K> frozen) {
+		super(frozen, false);
+		this.frozen = frozen;
+		this.sum = super.sum();
+		this.mean = super.mean();
+		this.variance = super.variance();
+		this.variancePopulation = super.variancePopulation();
+
+		List<KeyValuePair> sorted = new ArrayList<KeyValuePair>(super.sortByValueKey(true));
+		this.ascending = Collections.unmodifiableList(sorted);
+		List<KeyValuePair> reversed = new ArrayList<KeyValuePair>(sorted);
+		Collections.reverse(reversed);
+		this.descending = Collections.unmodifiableList(reversed);
+	}
+
+
+	@Override
+	public Integer get(K item) {
+		listener.onGet();
+		return frozen.count(item);
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		throw new UnsupportedOperationException();
+	}
+
+
+	/** Removals go through {@link #set(Object, int)}, which throws. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(K item) {
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public long sum() {
+		return sum;
+	}
+
+
+	@Override
+	public KeyValuePair min() {
+		return ascending.isEmpty() ? new KeyValuePair(null,0) : ascending.get(0);
+	}
+
+
+	@Override
+	public KeyValuePair max() {
+		return descending.isEmpty() ? new KeyValuePair(null,0) : descending.get(0);
+	}
+
+
+	@Override
+	public double mean() {
+		return mean;
+	}
+
+
+	@Override
+	public double variance() {
+		return variance;
+	}
+
+
+	@Override
+	public double variancePopulation() {
+		return variancePopulation;
+	}
+
+
+	/**
+	 * Returns the list sorted when this snapshot was built.
+	 * Keys that compare as equal keep the same relative order in every call, and the descending list is exactly the reverse of the ascending one.
+	 */
+	@Override
+	public List<KeyValuePair> sortByValueKey(boolean isAscending) {
+		return isAscending ? ascending : descending;
+	}
+
+
+	/**
+	 * Found by binary search in the sorted list, without building an index.
+	 * Unlike {@link ItemCounter#rank(Object)}, items need not be {@link Comparable}; such items are ranked by their position in {@link #sortByValueKey(boolean)}.
+	 */
+	@Override
+	public int rank(K item) {
+		int c = frozen.count(item);
+		if(c == 0) {
+			return -1;
+		}
+		if(item instanceof Comparable<?>) {
+			return Collections.binarySearch(descending, new KeyValuePair(item, c), new ValueKeyDescendingComparator());
+		}
+		// First item with this count, then a scan through the ties
+		int lo = 0;
+		int hi = descending.size();
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(descending.get(mid).getValue() > c) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		for(int i = lo; i < descending.size() && descending.get(i).getValue() == c; i++) {
+			if(item.equals(descending.get(i).getKey())) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("item missing from the sorted list: " + item);
+	}
+
+
+	@Override
+	public K itemAtRank(int rank) {
+		return descending.get(rank).getKey();
+	}
+
+
+	/**
+	 * Read from the sorted list in constant time.
+	 */
+	@Override
+	public double quantile(double q) {
+		if(!(q >= 0.0 && q <= 1.0)) {
+			throw new IllegalArgumentException("quantile must be between 0 and 1");
+		}
+		if(ascending.isEmpty()) {
+			return 0;
+		}
+		double position = (ascending.size() - 1) * q;
+		int lower = (int)position;
+		double value = ascending.get(lower).getValue();
+		if(position > lower) {
+			value += (position - lower) * (ascending.get(lower + 1).getValue() - value);
+		}
+		return value;
+	}
+
+
+	/**
+	 * Found by binary search in the sorted list.
+	 */
+	@Override
+	public int countItemsInRange(int lo, int hi) {
+		if(lo > hi || hi <= 0) {
+			return 0;
+		}
+		return countLessThan(hi + 1L) - countLessThan(lo);
+	}
+
+
+	/** @return the number of items whose count is less than the given value */
+	private int countLessThan(long value) {
+		int lo = 0;
+		int hi = ascending.size();
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(ascending.get(mid).getValue() < value) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+
+	/**
+	 * Quantiles and the count of counts need no maintenance in a snapshot.
+	 * @throws UnsupportedOperationException if asked to start maintaining, which would change the snapshot's state
+	 */
+	@Override
+	public void setMaintainingCountOfCounts(boolean isMaintaining) {
+		if(isMaintaining) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/**
+	 * Ranks need no index in a snapshot.
+	 * @throws UnsupportedOperationException if asked to start maintaining, which would change the snapshot's state
+	 */
+	@Override
+	public void setMaintainingRanks(boolean isMaintaining) {
+		if(isMaintaining) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/**
+	 * Iterates over the list sorted when this snapshot was built.
+	 */
+	@Override
+	public Iterable<KeyValuePair> sortedView(boolean isAscending) {
+		return sortByValueKey(isAscending);
+	}
+
+
+	@Override
+	public ImmutableItemCounter<K> freeze() {
+		return this;
+	}
+
+
+	@Override
+	public ItemCounter<K> asUnmodifiable() {
+		return this;
+	}
+
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(ItemCountVisitor<? super K> visitor) {
+		final Object[] keys = frozen.keys;
+		final int[] counts = frozen.counts;
+		for(int i = 0; i < keys.length; i++) {
+			visitor.visit((K)keys[i], counts[i]);
+		}
+	}
+
+
+	@Override
+	public Cursor cursor() {
+		return new ArrayCursor();
+	}
+
+
+	/** Cursor that walks the frozen key and count arrays directly. */
+	private class ArrayCursor extends Cursor {
+		private int i = -1;
+
+		@Override
+		public boolean next() {
+			if(i < frozen.keys.length) {
+				i++;
+			}
+			return i < frozen.keys.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public K key() {
+			check();
+			return (K)frozen.keys[i];
+		}
+
+		@Override
+		public int intValue() {
+			check();
+			return frozen.counts[i];
+		}
+
+		private void check() {
+			if(i < 0 || i >= frozen.keys.length) {
+				throw new IllegalStateException("cursor does not point at an item");
+			}
+		}
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		int n = frozen.keys.length;
+		// Key references and counts, the sorted lists of 16-byte pairs, and the perfect hash
+		return 32 + 8L * n + n * 2L * (4 + 16) + frozen.hash.estimatedBytes();
+	}
+
+
+	/** Keys and counts packed in minimal perfect hash order, exposed as a read-only map. */
+	private static class Frozen<K> extends AbstractMap<K, Integer> {
+		private final MinimalPerfectHash hash;
+		private final Object[] keys;
+		private final int[] counts;
+
+		Frozen(Map<K, Integer> count) {
+			Object[] unordered = new Object[count.size()];
+			int[] unorderedCounts = new int[unordered.length];
+			int i = 0;
+			for(Entry<K, Integer> entry : count.entrySet()) {
+				unordered[i] = entry.getKey();
+				unorderedCounts[i] = entry.getValue();
+				i++;
+			}
+			hash = new MinimalPerfectHash(unordered);
+			keys = new Object[unordered.length];
+			counts = new int[unordered.length];
+			for(i = 0; i < unordered.length; i++) {
+				int j = hash.index(unordered[i]);
+				keys[j] = unordered[i];
+				counts[j] = unorderedCounts[i];
+			}
+		}
+
+		int count(Object key) {
+			int i = hash.index(key);
+			if(i < 0) {
+				return 0;
+			}
+			Object k = keys[i];
+			if(k == key || (k != null && k.equals(key))) {
+				return counts[i];
+			}
+			return 0;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			int c = count(key);
+			return c == 0 ? null : c;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return count(key) != 0;
+		}
+
+		@Override
+		public int size() {
+			return keys.length;
+		}
+
+		@Override
+		public Set<Entry<K, Integer>> entrySet() {
+			return new AbstractSet<Entry<K,Integer>>() {
+				@Override
+				public Iterator<Entry<K, Integer>> iterator() {
+					return new Iterator<Entry<K,Integer>>() {
+						private int next = 0;
+
+						@Override
+						public boolean hasNext() {
+							return next < keys.length;
+						}
+
+						@SuppressWarnings("unchecked")
+						@Override
+						public Entry<K, Integer> next() {
+							if(next >= keys.length) {
+								throw new NoSuchElementException();
+							}
+							int i = next++;
+							return new SimpleImmutableEntry<K, Integer>((K)keys[i], counts[i]);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return keys.length;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Sink that keeps the latest value of every item it has been sent, for tests and as a reference implementation.
+ * Safe to read from any thread while a {@link CounterFlusher} writes to it.
+ *
+ * @author romanows
+ *
+ * @param <K> the type of the changed items
+ */
+public class InMemoryCounterSink<K> implements CounterSink<K> {
+	private final Map<K, Double> values = new HashMap<K, Double>();
+	private long batches;
+	private long changes;
+
+
+	@Override
+	public synchronized void write(ChangeBatch<K> batch) {
+		for(int i = 0; i < batch.size(); i++) {
+			if(batch.value(i) == 0.0) {
+				values.remove(batch.item(i));
+			} else {
+				values.put(batch.item(i), batch.value(i));
+			}
+		}
+		batches++;
+		changes += batch.size();
+	}
+
+
+	/**
+	 * @param item an item
+	 * @return the latest value written for the item, or zero if none
+	 */
+	public synchronized double get(K item) {
+		Double v = values.get(item);
+		return v == null ? 0.0 : v;
+	}
+
+
+	/**
+	 * @return a copy of the latest non-zero value of every item
+	 */
+	public synchronized Map<K, Double> getValues() {
+		return new HashMap<K, Double>(values);
+	}
+
+
+	/**
+	 * @return the number of batches written
+	 */
+	public synchronized long batches() {
+		return batches;
+	}
+
+
+	/**
+	 * @return the number of changes written, over all batches
+	 */
+	public synchronized long changes() {
+		return changes;
+	}
+}
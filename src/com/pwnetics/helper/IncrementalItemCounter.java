@@ -0,0 +1,531 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Item counter whose hash table grows incrementally, so no single operation pays for rehashing every item.
+ *
+ * <p>When a {@link java.util.HashMap}-backed counter crosses its resize threshold, the increment that crossed it moves every entry to a new table,
+ * which takes hundreds of milliseconds for tens of millions of items.
+ * Like the Redis dictionary, this counter instead allocates the larger table and then moves a few buckets from the old table on each later operation,
+ * looking items up in both tables until the move is done.
+ * The worst-case cost of an operation is then bounded by the rehash step rather than by the number of items.</p>
+ *
+ * <p>The time reported to {@link CounterListener#onResize(long, long, long)} covers allocating the new table; moving the entries is spread over later operations.</p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class IncrementalItemCounter<K> extends ItemCounter<K> {
+
+	/** Default number of non-empty buckets moved to the new table per operation during a resize. */
+	public static final int DEFAULT_REHASH_STEP = 4;
+
+	/** Hash table handed to {@link ItemCounter} as its map so the inherited methods see the same counts. */
+	private final Table<K> table;
+
+
+	/**
+	 * Constructor.
+	 */
+	public IncrementalItemCounter() {
+		this(12, 0.75f, DEFAULT_REHASH_STEP);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param expectedSize number of distinct items that can be counted before the table has to grow
+	 * @param loadFactor ratio of items to buckets at which the table starts to grow
+	 * @param rehashStep number of non-empty buckets moved per operation while the table grows; larger steps finish sooner but make each operation slower
+	 */
+	public IncrementalItemCounter(int expectedSize, float loadFactor, int rehashStep) {
+		this(new Table<K>(expectedSize, loadFactor, rehashStep));
+	}
+
+
+	private IncrementalItemCounter(Table<K> table) {
+		super(table, false);
+		this.table = table;
+	}
+
+
+	@Override
+	public Integer get(K item) {
+		listener.onGet();
+		Node<K> n = table.find(item, hash(item));
+		return n == null ? 0 : n.count;
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		checkRankable(item);
+		table.step();
+		int h = hash(item);
+		Node<K> n = table.find(item, h);
+		int c = n == null ? 0 : n.count;
+		if(count == 0) {
+			if(n != null) {
+				table.remove(item, h);
+			}
+		} else if(n == null) {
+			table.insert(item, h, count);
+		} else {
+			n.count = count;
+		}
+		countChanged(item, c, count);
+	}
+
+
+	@Override
+	public int increment(K item) {
+		listener.onIncrement();
+		checkRankable(item);
+		table.step();
+		int h = hash(item);
+		Node<K> n = table.find(item, h);
+		int c;
+		if(n == null) {
+			c = 1;
+			table.insert(item, h, c);
+		} else {
+			c = n.count = incrementedCount(n.count);
+		}
+		countChanged(item, c - 1, c);
+		return c;
+	}
+
+
+	/** Unlinks the removed nodes in a single pass over both tables, without moving any buckets. */
+	@Override
+	public int removeIf(ItemCountPredicate<? super K> predicate) {
+		int removed = removeIf(table.main, predicate);
+		if(table.next != null) {
+			removed += removeIf(table.next, predicate);
+		}
+		table.size -= removed;
+		if(removed > 0) {
+			trimToSize();
+		}
+		return removed;
+	}
+
+
+	private int removeIf(Node<K>[] t, ItemCountPredicate<? super K> predicate) {
+		int removed = 0;
+		for(int i = 0; i < t.length; i++) {
+			Node<K> prev = null;
+			for(Node<K> n = t[i]; n != null; n = n.next) {
+				if(predicate.test(n.key, n.count)) {
+					if(prev == null) {
+						t[i] = n.next;
+					} else {
+						prev.next = n.next;
+					}
+					countChanged(n.key, n.count, 0);
+					removed++;
+				} else {
+					prev = n;
+				}
+			}
+		}
+		return removed;
+	}
+
+
+	/**
+	 * Finishes any resize in progress, then rehashes into a smaller table if the items would fit in one.
+	 * Unlike growing, shrinking happens all at once, so this call takes O(N) time.
+	 */
+	@Override
+	public void trimToSize() {
+		table.trim();
+	}
+
+
+	@Override
+	public int size() {
+		return table.size;
+	}
+
+
+	@Override
+	public void setListener(CounterListener listener) {
+		super.setListener(listener);
+		table.listener = this.listener;
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		long buckets = table.main.length + (table.next == null ? 0 : table.next.length);
+		// Table of 4-byte references plus a 32-byte node and a 16-byte key reference share per item
+		return 48 + 4 * buckets + 32L * table.size;
+	}
+
+
+	/**
+	 * Check whether a resize is in progress, that is, whether some items are still in the old table.
+	 * @return true if later operations will move more buckets to the new table
+	 */
+	public boolean isResizing() {
+		return table.next != null;
+	}
+
+
+	private static int hash(Object key) {
+		int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+
+	/** Chained hash table entry; the count is updated in place. */
+	private static final class Node<K> implements Map.Entry<K, Integer> {
+		final K key;
+		final int hash;
+		int count;
+		Node<K> next;
+
+		Node(K key, int hash, int count, Node<K> next) {
+			this.key = key;
+			this.hash = hash;
+			this.count = count;
+			this.next = next;
+		}
+
+		boolean matches(Object k, int h) {
+			return hash == h && (key == k || (key != null && key.equals(k)));
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public Integer getValue() {
+			return count;
+		}
+
+		@Override
+		public Integer setValue(Integer value) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/**
+	 * Pair of chained hash tables.
+	 * Outside of a resize, all items are in main and next is null.
+	 * During a resize, buckets of main below rehashIndex have been emptied into next, and new items go into next.
+	 */
+	private static final class Table<K> extends AbstractMap<K, Integer> {
+		private final float loadFactor;
+		private final int rehashStep;
+		private CounterListener listener = CounterListener.NONE;
+
+		private Node<K>[] main;
+		private Node<K>[] next;
+		private int rehashIndex;
+		private int size;
+		private int threshold;
+
+		Table(int expectedSize, float loadFactor, int rehashStep) {
+			if(rehashStep < 1) {
+				throw new IllegalArgumentException("rehash step must be positive");
+			}
+			this.loadFactor = loadFactor;
+			this.rehashStep = rehashStep;
+			main = newTable(Math.max(4, (int)Math.min(initialTableCapacity(expectedSize, loadFactor), 1 << 30)));
+			threshold = (int)(main.length * loadFactor);
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private static <K> Node<K>[] newTable(int capacity) {
+			return new Node[capacity];
+		}
+
+		Node<K> find(Object key, int h) {
+			for(Node<K> n = main[h & (main.length - 1)]; n != null; n = n.next) {
+				if(n.matches(key, h)) {
+					return n;
+				}
+			}
+			if(next != null) {
+				for(Node<K> n = next[h & (next.length - 1)]; n != null; n = n.next) {
+					if(n.matches(key, h)) {
+						return n;
+					}
+				}
+			}
+			return null;
+		}
+
+		/** Adds an item that the caller knows is absent. */
+		void insert(K key, int h, int count) {
+			Node<K>[] t = next == null ? main : next;
+			int i = h & (t.length - 1);
+			t[i] = new Node<K>(key, h, count, t[i]);
+			size++;
+			if(next == null && size > threshold && main.length < (1 << 30)) {
+				startResize();
+			}
+		}
+
+		/** Removes an item that the caller knows is present. */
+		void remove(Object key, int h) {
+			if(!unlink(main, key, h)) {
+				unlink(next, key, h);
+			}
+			size--;
+		}
+
+		private static <K> boolean unlink(Node<K>[] t, Object key, int h) {
+			int i = h & (t.length - 1);
+			Node<K> prev = null;
+			for(Node<K> n = t[i]; n != null; prev = n, n = n.next) {
+				if(n.matches(key, h)) {
+					if(prev == null) {
+						t[i] = n.next;
+					} else {
+						prev.next = n.next;
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void startResize() {
+			long start = System.nanoTime();
+			next = newTable(main.length * 2);
+			rehashIndex = 0;
+			threshold = (int)(next.length * loadFactor);
+			listener.onResize(main.length, next.length, System.nanoTime() - start);
+		}
+
+		void trim() {
+			while(next != null) {
+				rehashStep();
+			}
+			int capacity = Math.max(4, (int)Math.min(initialTableCapacity(size, loadFactor), 1 << 30));
+			if(capacity >= main.length) {
+				return;
+			}
+			long start = System.nanoTime();
+			Node<K>[] t = newTable(capacity);
+			for(Node<K> head : main) {
+				for(Node<K> n = head; n != null; ) {
+					Node<K> following = n.next;
+					int i = n.hash & (capacity - 1);
+					n.next = t[i];
+					t[i] = n;
+					n = following;
+				}
+			}
+			int fromCapacity = main.length;
+			main = t;
+			threshold = (int)(capacity * loadFactor);
+			listener.onResize(fromCapacity, capacity, System.nanoTime() - start);
+		}
+
+		/**
+		 * Called by every mutating operation; lookups do not move buckets, so they are safe during iteration.
+		 */
+		void step() {
+			if(next != null) {
+				rehashStep();
+			}
+		}
+
+		/** Moves up to rehashStep non-empty buckets to the new table, visiting at most ten times as many empty ones. */
+		private void rehashStep() {
+			int moved = 0;
+			int emptyVisits = rehashStep * 10;
+			final Node<K>[] from = main;
+			final Node<K>[] to = next;
+			final int mask = to.length - 1;
+			while(moved < rehashStep && rehashIndex < from.length) {
+				Node<K> n = from[rehashIndex];
+				from[rehashIndex++] = null;
+				if(n == null) {
+					if(--emptyVisits == 0) {
+						break;
+					}
+					continue;
+				}
+				while(n != null) {
+					Node<K> following = n.next;
+					int i = n.hash & mask;
+					n.next = to[i];
+					to[i] = n;
+					n = following;
+				}
+				moved++;
+			}
+			if(rehashIndex >= from.length) {
+				main = to;
+				next = null;
+			}
+		}
+
+		@Override
+		public Integer get(Object key) {
+			Node<K> n = find(key, hash(key));
+			return n == null ? null : n.count;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return find(key, hash(key)) != null;
+		}
+
+		@Override
+		public Integer put(K key, Integer value) {
+			if(value < 0) {
+				throw new IllegalArgumentException("count must be non-negative");
+			}
+			step();
+			int h = hash(key);
+			Node<K> n = find(key, h);
+			if(n == null) {
+				if(value != 0) {
+					insert(key, h, value);
+				}
+				return null;
+			}
+			int c = n.count;
+			if(value == 0) {
+				remove(key, h);
+			} else {
+				n.count = value;
+			}
+			return c;
+		}
+
+		@Override
+		public Integer remove(Object key) {
+			step();
+			int h = hash(key);
+			Node<K> n = find(key, h);
+			if(n == null) {
+				return null;
+			}
+			remove(key, h);
+			return n.count;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Set<Entry<K, Integer>> entrySet() {
+			return new AbstractSet<Entry<K,Integer>>() {
+				@Override
+				public Iterator<Entry<K, Integer>> iterator() {
+					return new NodeIterator();
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		/** Visits the nodes of the old table and then those of the new one, without moving any buckets. */
+		private class NodeIterator implements Iterator<Entry<K, Integer>> {
+			private Node<K>[] t = main;
+			private int bucket = 0;
+			private Node<K> following;
+			private Node<K> last;
+
+			NodeIterator() {
+				advance();
+			}
+
+			private void advance() {
+				while(following == null) {
+					if(bucket >= t.length) {
+						if(t == main && next != null) {
+							t = next;
+							bucket = 0;
+						} else {
+							return;
+						}
+					} else {
+						following = t[bucket++];
+					}
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return following != null;
+			}
+
+			@Override
+			public Entry<K, Integer> next() {
+				if(following == null) {
+					throw new NoSuchElementException();
+				}
+				last = following;
+				following = following.next;
+				advance();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if(last == null) {
+					throw new IllegalStateException();
+				}
+				Table.this.remove(last.key, last.hash);
+				last = null;
+			}
+		}
+	}
+}
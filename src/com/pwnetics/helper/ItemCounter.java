@@ -34,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -67,6 +69,33 @@ public class ItemCounter<K extends Object> {
 	/** (item, count) */
 	protected final Map<K, Integer> count;
 
+	/** {@link #countOfCounts()} uses a {@link DenseIntCounter} when the largest count is below this, or is within a small multiple of the number of distinct items. */
+	protected static final int DENSE_COUNT_OF_COUNTS_RANGE = 1024;
+
+	/** Instrumentation; see {@link #setListener(CounterListener)}. */
+	protected CounterListener listener = CounterListener.NONE;
+
+	/** Estimated number of entries at which the backing {@link HashMap} will next resize; only maintained while a listener is set. */
+	private int resizeThreshold;
+
+	/** Load factor of the backing {@link HashMap}, used to infer its resizes. */
+	private float loadFactor = 0.75f;
+
+	/** Estimated table capacity of the backing {@link HashMap}; only maintained while a listener is set. */
+	private long tableCapacity = 16;
+
+	/**
+	 * Distribution of the counts, built by {@link #setMaintainingCountOfCounts(boolean)} and then kept up to date by {@link #countChanged(int, int)};
+	 * null unless maintained.
+	 */
+	private CountHistogram histogram;
+
+	/** Items in descending order of count, built by {@link #setMaintainingRanks(boolean)} and then kept up to date by {@link #countChanged(Object, int, int)}; null unless maintained. */
+	private RankIndex<K> ranks;
+
+	/** Each item changed since the last {@link #drainChanges()}, mapped to its count before the first of those changes; null unless tracking changes. */
+	private Map<K, Integer> changes;
+
 
 	/**  Holds key-value pairs for {@link ItemCounter#sortByValueKey(boolean)}. */
 	public class KeyValuePair {
@@ -140,6 +169,48 @@ public class ItemCounter<K extends Object> {
 	}
 
 
+	/**
+	 * Constructor.
+	 * Sizes the backing map so that it can hold the expected number of distinct items without rehashing.
+	 * See {@link #builder()} for other backends.
+	 * @param expectedSize number of distinct items that can be counted before the map has to grow
+	 * @param loadFactor load factor of the backing {@link HashMap}
+	 */
+	public ItemCounter(int expectedSize, float loadFactor) {
+		tableCapacity = initialTableCapacity(expectedSize, loadFactor);
+		this.loadFactor = loadFactor;
+		count = new HashMap<K, Integer>((int)Math.min(tableCapacity, 1 << 30), loadFactor);
+	}
+
+
+	/**
+	 * Get the power-of-two table capacity that holds the given number of entries at the given load factor without resizing.
+	 * @throws IllegalArgumentException if the size is negative or the load factor is not positive
+	 */
+	static long initialTableCapacity(int expectedSize, float loadFactor) {
+		if(expectedSize < 0) {
+			throw new IllegalArgumentException("expected size must be non-negative");
+		}
+		if(!(loadFactor > 0)) {
+			throw new IllegalArgumentException("load factor must be positive");
+		}
+		long capacity = 1;
+		while(capacity * loadFactor < expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+
+	/**
+	 * Get a builder that creates a counter with the given expected size, load factor, backend and instrumentation.
+	 * @return a new builder for a hash-backed counter
+	 */
+	public static <K> Builder<K> builder() {
+		return new Builder<K>();
+	}
+
+
 	/**
 	 * Constructor.
 	 * Allows use of an already-built map from keys to their count values.
@@ -165,6 +236,7 @@ public class ItemCounter<K extends Object> {
 	 * @return the item's count
 	 */
 	public Integer get(K item) {
+		listener.onGet();
 		Integer c = count.get(item);
 		if(c == null) {
 			return 0;
@@ -183,6 +255,8 @@ public class ItemCounter<K extends Object> {
 		if(count < 0) {
 			throw new IllegalArgumentException("count must be non-negative");
 		}
+		listener.onSet();
+		checkRankable(item);
 		Integer c = this.count.get(item);
 		if(count == 0) {
 			if(c != null) {
@@ -190,9 +264,12 @@ public class ItemCounter<K extends Object> {
 			} else {
 				// Do nothing; setting an item with zero count is the same as not adding it
 			}
+		} else if(c == null) {
+			put(item, count);
 		} else {
 			this.count.put(item,count);
 		}
+		countChanged(item, c == null ? 0 : c, count);
 	}
 
 
@@ -202,17 +279,353 @@ public class ItemCounter<K extends Object> {
 	 * @return the new count of the given item
 	 */
 	public int increment(K item) {
+		listener.onIncrement();
+		checkRankable(item);
 		Integer c = count.get(item);
 		if(c == null) {
 			c = 1;
+			put(item, c);
 		} else {
-			c += 1;
+			c = incrementedCount(c);
+			count.put(item, c);
 		}
-		count.put(item, c);
+		countChanged(item, c - 1, c);
 		return c;
 	}
 
 
+	/**
+	 * Remove every item for which the predicate returns true, for example to drop rare items from a vocabulary.
+	 * Items are removed through the map's iterator in a single pass unless {@link #isRemovingThroughSet()} is true, in which case they are
+	 * removed with {@link #set(Object, int)} after a pass to find them.
+	 * Afterward, {@link #trimToSize()} releases what memory the backing storage can.
+	 * @param predicate returns true for each item to remove; must not modify this counter
+	 * @return the number of items removed
+	 */
+	public int removeIf(final ItemCountPredicate<? super K> predicate) {
+		int removed = 0;
+		if(!isRemovingThroughSet()) {
+			Iterator<Entry<K, Integer>> it = count.entrySet().iterator();
+			while(it.hasNext()) {
+				Entry<K, Integer> entry = it.next();
+				int c = entry.getValue();
+				if(predicate.test(entry.getKey(), c)) {
+					it.remove();
+					countChanged(entry.getKey(), c, 0);
+					removed++;
+				}
+			}
+		} else {
+			final List<K> victims = new ArrayList<K>();
+			forEach(new ItemCountVisitor<K>() {
+				@Override
+				public void visit(K item, int count) {
+					if(predicate.test(item, count)) {
+						victims.add(item);
+					}
+				}
+			});
+			for(K item : victims) {
+				set(item, 0);
+			}
+			removed = victims.size();
+		}
+		if(removed > 0) {
+			trimToSize();
+		}
+		return removed;
+	}
+
+
+	/**
+	 * Whether {@link #removeIf(ItemCountPredicate)} must remove items with {@link #set(Object, int)} rather than through the map's iterator.
+	 * A subclass returns true if its {@link #set(Object, int)} does more than update the map, or if its map does not support removal through an iterator.
+	 * @return true if removals must go through {@link #set(Object, int)}; false for a plain counter
+	 */
+	protected boolean isRemovingThroughSet() {
+		return false;
+	}
+
+
+	/**
+	 * Keep only the k items that come first in the descending order of {@link #sortByValueKey(boolean)} and remove all others.
+	 * Finds the k-th largest count without sorting the items; only the items tied at that count are sorted, and only if some of them must go.
+	 * @param k number of items to keep
+	 * @return the number of items removed
+	 */
+	public int retainTop(int k) {
+		if(k < 0) {
+			throw new IllegalArgumentException("k must be non-negative");
+		}
+		int n = size();
+		if(k >= n) {
+			return 0;
+		}
+		if(k == 0) {
+			return removeIf(new ItemCountPredicate<K>() {
+				@Override
+				public boolean test(K item, int count) {
+					return true;
+				}
+			});
+		}
+
+		final int[] counts = new int[n];
+		final int[] i = new int[1];
+		forEach(new ItemCountVisitor<K>() {
+			@Override
+			public void visit(K item, int count) {
+				counts[i[0]++] = count;
+			}
+		});
+		final int threshold = selectDescending(counts, k - 1);
+
+		int greater = 0;
+		for(int c : counts) {
+			if(c > threshold) {
+				greater++;
+			}
+		}
+		final List<KeyValuePair> ties = new ArrayList<KeyValuePair>();
+		forEach(new ItemCountVisitor<K>() {
+			@Override
+			public void visit(K item, int count) {
+				if(count == threshold) {
+					ties.add(new KeyValuePair(item, count));
+				}
+			}
+		});
+		final Set<K> keptTies = new HashSet<K>();
+		int nKeptTies = k - greater;
+		if(nKeptTies < ties.size()) {
+			Collections.sort(ties, new ValueKeyDescendingComparator());
+		}
+		for(KeyValuePair pair : ties.subList(0, Math.min(nKeptTies, ties.size()))) {
+			keptTies.add(pair.getKey());
+		}
+		final boolean isKeepingAllTies = keptTies.size() == ties.size();
+		return removeIf(new ItemCountPredicate<K>() {
+			@Override
+			public boolean test(K item, int count) {
+				return count < threshold || (count == threshold && !isKeepingAllTies && !keptTies.contains(item));
+			}
+		});
+	}
+
+
+	/**
+	 * Quickselect; reorders the array.
+	 * @return the value that would be at the given index if the array were sorted in descending order
+	 */
+	private static int selectDescending(int[] a, int index) {
+		int lo = 0;
+		int hi = a.length - 1;
+		while(lo < hi) {
+			int pivot = a[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi;
+			while(i <= j) {
+				while(a[i] > pivot) {
+					i++;
+				}
+				while(a[j] < pivot) {
+					j--;
+				}
+				if(i <= j) {
+					int t = a[i];
+					a[i] = a[j];
+					a[j] = t;
+					i++;
+					j--;
+				}
+			}
+			if(index <= j) {
+				hi = j;
+			} else if(index >= i) {
+				lo = i;
+			} else {
+				return a[index];
+			}
+		}
+		return a[index];
+	}
+
+
+	/**
+	 * Release unused capacity of the backing storage, for example after removing many items.
+	 * The {@link HashMap} of a plain counter never shrinks, so this does nothing unless a subclass's storage can shrink.
+	 */
+	public void trimToSize() {
+		// A HashMap cannot release its table
+	}
+
+
+	/**
+	 * Add one to a count, for the increment methods of every backend.
+	 * @param c a count
+	 * @return the count plus one
+	 * @throws ArithmeticException if the count would overflow an int; see {@link CompactItemCounter} for counts beyond that
+	 */
+	static int incrementedCount(int c) {
+		if(c == Integer.MAX_VALUE) {
+			throw new ArithmeticException("count overflow");
+		}
+		return c + 1;
+	}
+
+
+	/**
+	 * Must be called by every method that can add an item, before it changes anything, so that an item the index of ranks cannot hold is rejected
+	 * without leaving the counts and the index inconsistent; see {@link #setMaintainingRanks(boolean)}.
+	 * @param item an item about to be counted
+	 * @throws UnsupportedOperationException if ranks are maintained and the item is not {@link Comparable}
+	 */
+	protected void checkRankable(K item) {
+		if(ranks != null && !(item instanceof Comparable<?>)) {
+			throw new UnsupportedOperationException("ranking needs Comparable items, not " + item);
+		}
+	}
+
+
+	/**
+	 * Must be called by every method that changes an item's count, so that the changes returned by {@link #drainChanges()}
+	 * and the count distribution used by {@link #quantile(double)} stay up to date.
+	 * @param item the item whose count changed
+	 * @param oldCount the item's count before the change, zero if it was absent
+	 * @param newCount the item's count after the change, zero if it was removed
+	 */
+	protected void countChanged(K item, int oldCount, int newCount) {
+		if(changes != null && oldCount != newCount && !changes.containsKey(item)) {
+			changes.put(item, oldCount);
+		}
+		if(ranks != null && oldCount != newCount) {
+			if(oldCount != 0) {
+				ranks.remove(item, oldCount);
+			}
+			if(newCount != 0) {
+				ranks.add(item, newCount);
+			}
+		}
+		countChanged(oldCount, newCount);
+	}
+
+
+	/**
+	 * Keeps the count distribution up to date; called by {@link #countChanged(Object, int, int)},
+	 * and directly by methods that change counts without recording the changed item.
+	 * @param oldCount the item's count before the change, zero if it was absent
+	 * @param newCount the item's count after the change, zero if it was removed
+	 */
+	protected void countChanged(int oldCount, int newCount) {
+		if(histogram != null && oldCount != newCount) {
+			if(oldCount == 0) {
+				histogram.add(newCount, 1);
+			} else if(newCount == 0) {
+				histogram.add(oldCount, -1);
+			} else {
+				histogram.move(oldCount, newCount);
+			}
+		}
+	}
+
+
+	/** Adds a new item to the count map, reporting the resize that the insertion is expected to cause, if any. */
+	private void put(K item, Integer c) {
+		if(listener != CounterListener.NONE && count.size() >= resizeThreshold && count instanceof HashMap<?, ?>) {
+			long start = System.nanoTime();
+			count.put(item, c);
+			long nanos = System.nanoTime() - start;
+			long capacity = tableCapacity;
+			tableCapacity = capacity * 2;
+			resizeThreshold = (int)(tableCapacity * loadFactor);
+			listener.onResize(capacity, tableCapacity, nanos);
+		} else {
+			count.put(item, c);
+		}
+	}
+
+
+	/**
+	 * Start or stop recording which items change, so that only the changes need to be sent on, see {@link #drainChanges()} and {@link CounterFlusher}.
+	 * Recording costs a map entry per changed item until the changes are drained.
+	 * @param isTracking true to start recording from now, false to stop and forget the recorded changes
+	 */
+	public void setTrackingChanges(boolean isTracking) {
+		if(!isTracking) {
+			changes = null;
+		} else if(changes == null) {
+			changes = new HashMap<K, Integer>();
+		}
+	}
+
+
+	/**
+	 * @return true if changed items are being recorded, see {@link #setTrackingChanges(boolean)}
+	 */
+	public boolean isTrackingChanges() {
+		return changes != null;
+	}
+
+
+	/**
+	 * Get the current count of every item that has changed since tracking started or since the last call, and start recording afresh.
+	 * Takes time proportional to the number of changed items, not to the size of the counter.
+	 * Items whose count changed and then changed back are left out; removed items are included with a count of zero.
+	 * @return the changed items with their current counts and the change in each count
+	 * @throws IllegalStateException if changes are not being tracked
+	 */
+	public ChangeBatch<K> drainChanges() {
+		if(changes == null) {
+			throw new IllegalStateException("not tracking changes");
+		}
+		ChangeBatch<K> batch = new ChangeBatch<K>(changes.size());
+		for(Entry<K, Integer> entry : changes.entrySet()) {
+			Integer c = count.get(entry.getKey());
+			int now = (c == null) ? 0 : c;
+			if(now != entry.getValue()) {
+				batch.add(entry.getKey(), now, now - entry.getValue());
+			}
+		}
+		changes = new HashMap<K, Integer>();
+		return batch;
+	}
+
+
+	/**
+	 * Set the listener that is notified of this counter's operations, for instrumentation.
+	 * See {@link CounterMetrics} for a listener that tallies operations and can be published through JMX.
+	 * @param listener receives the events, or null to stop instrumenting this counter
+	 */
+	public void setListener(CounterListener listener) {
+		this.listener = (listener == null) ? CounterListener.NONE : listener;
+		tableCapacity = tableCapacity(count.size());
+		resizeThreshold = (int)(tableCapacity * loadFactor);
+		this.listener.attach(this);
+	}
+
+
+	/**
+	 * Estimate the number of bytes held by this counter, not counting the memory of the keys themselves.
+	 * Assumes a 64-bit JVM with compressed object pointers.
+	 * @return the estimated retained size in bytes
+	 */
+	public long estimatedRetainedBytes() {
+		int n = count.size();
+		// Table of 4-byte references, plus a 32-byte map entry and a 16-byte Integer per item
+		return 16 + 4 * tableCapacity(n) + 48L * n;
+	}
+
+
+	/** Estimate the table capacity of the backing {@link HashMap} once it holds the given number of entries; tables only grow. */
+	private long tableCapacity(int size) {
+		long capacity = tableCapacity;
+		while(capacity * loadFactor < size) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+
 	/**
 	 * Get the sum of all item counts in this collection.
 	 * @return the total sum of all item counts, zero if empty.
@@ -236,19 +649,13 @@ public class ItemCounter<K extends Object> {
 		if(count.isEmpty()) {
 			return new KeyValuePair(null,0);
 		}
-		KeyValuePair pair = null;
-		ValueKeyAscendingComparator vc = new ValueKeyAscendingComparator();
+		Entry<K, Integer> min = null;
 		for(Entry<K, Integer> entry : count.entrySet()) {
-			KeyValuePair entryPair = new KeyValuePair(entry);
-			if(pair == null) {
-				pair = entryPair;
-			} else {
-				if(vc.compare(pair, entryPair) > 0) {
-					pair = entryPair;
-				}
+			if(min == null || compareValueKey(min, entry) > 0) {
+				min = entry;
 			}
 		}
-		return pair;
+		return new KeyValuePair(min);
 	}
 
 
@@ -262,19 +669,109 @@ public class ItemCounter<K extends Object> {
 		if(count.isEmpty()) {
 			return new KeyValuePair(null,0);
 		}
-		KeyValuePair pair = null;
-		ValueKeyDescendingComparator vc = new ValueKeyDescendingComparator();
+		Entry<K, Integer> max = null;
 		for(Entry<K, Integer> entry : count.entrySet()) {
-			KeyValuePair entryPair = new KeyValuePair(entry);
-			if(pair == null) {
-				pair = entryPair;
-			} else {
-				if(vc.compare(pair, entryPair) > 0) {
-					pair = entryPair;
-				}
+			if(max == null || compareValueKey(entry, max) > 0) {
+				max = entry;
+			}
+		}
+		return new KeyValuePair(max);
+	}
+
+
+	/**
+	 * Compares entries the same way as {@link ValueKeyAscendingComparator} without wrapping them in {@link KeyValuePair}s.
+	 */
+	private int compareValueKey(Entry<K, Integer> a, Entry<K, Integer> b) {
+		int c = a.getValue().compareTo(b.getValue());
+		if(c == 0 && a.getKey() instanceof Comparable<?>) {
+			@SuppressWarnings("unchecked")
+			Comparable<K> x = (Comparable<K>)a.getKey();
+			return x.compareTo(b.getKey());
+		}
+		return c;
+	}
+
+
+	/**
+	 * Calls the visitor once for every item and its count, in no particular order.
+	 * Unlike iterating over {@link #getItems()} and calling {@link #get(Object)}, this makes a single pass over the backing storage and does not allocate per item.
+	 * The counter must not be modified by the visitor.
+	 * @param visitor receives each item and its count
+	 */
+	public void forEach(ItemCountVisitor<? super K> visitor) {
+		for(Entry<K, Integer> entry : count.entrySet()) {
+			visitor.visit(entry.getKey(), entry.getValue());
+		}
+	}
+
+
+	/**
+	 * Get a cursor over the items and counts in this counter, in no particular order.
+	 * The same cursor object is advanced over every item, so a full scan allocates nothing per item.
+	 * The counter must not be modified while the cursor is in use.
+	 * @return a cursor positioned before the first item
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+
+	/**
+	 * Reusable, mutable position in an item counter.
+	 * Call {@link #next()} before reading the first item:
+	 * <pre>
+	 * ItemCounter&lt;String&gt;.Cursor c = counter.cursor();
+	 * while(c.next()) {
+	 *     use(c.key(), c.intValue());
+	 * }
+	 * </pre>
+	 * @author romanows
+	 */
+	public class Cursor {
+		private Iterator<Entry<K, Integer>> iterator;
+		private Entry<K, Integer> entry;
+
+		protected Cursor() {
+		}
+
+		/**
+		 * Advance to the next item.
+		 * @return true if the cursor now points at an item, false if there are no more items
+		 */
+		public boolean next() {
+			if(iterator == null) {
+				iterator = count.entrySet().iterator();
 			}
+			if(iterator.hasNext()) {
+				entry = iterator.next();
+				return true;
+			}
+			entry = null;
+			return false;
+		}
+
+		/**
+		 * @return the current item
+		 * @throws IllegalStateException if the cursor does not point at an item
+		 */
+		public K key() {
+			if(entry == null) {
+				throw new IllegalStateException("cursor does not point at an item");
+			}
+			return entry.getKey();
+		}
+
+		/**
+		 * @return the count of the current item
+		 * @throws IllegalStateException if the cursor does not point at an item
+		 */
+		public int intValue() {
+			if(entry == null) {
+				throw new IllegalStateException("cursor does not point at an item");
+			}
+			return entry.getValue();
 		}
-		return pair;
 	}
 
 
@@ -358,6 +855,77 @@ public class ItemCounter<K extends Object> {
 	}
 
 
+	/**
+	 * Get a quantile of the item counts in this collection, interpolating linearly between the two nearest counts.
+	 * For example, 0.5 gives the median and 1.0 gives the largest count.
+	 *
+	 * <p>Each call walks all item counts to build their distribution, unless the count of counts is being maintained
+	 * (see {@link #setMaintainingCountOfCounts(boolean)}), in which case the quantile is found in O(log d) time, where d is the number of distinct count values.
+	 * </p>
+	 *
+	 * @param q the quantile, from 0.0 to 1.0 inclusive
+	 * @return the quantile of all item counts, or zero if empty.
+	 */
+	public double quantile(double q) {
+		if(!(q >= 0.0 && q <= 1.0)) {
+			throw new IllegalArgumentException("quantile must be between 0 and 1");
+		}
+		if(size() == 0) {
+			return 0;
+		}
+		return quantile(histogram(), q);
+	}
+
+
+	private static double quantile(CountHistogram histogram, double q) {
+		double position = (histogram.total() - 1) * q;
+		long lower = (long)position;
+		double value = histogram.select(lower);
+		if(position > lower) {
+			value += (position - lower) * (histogram.select(lower + 1) - value);
+		}
+		return value;
+	}
+
+
+	/** @return the maintained count distribution, or else a new one that is not kept */
+	private CountHistogram histogram() {
+		return histogram != null ? histogram : buildHistogram();
+	}
+
+
+	private CountHistogram buildHistogram() {
+		CountHistogram h = new CountHistogram();
+		for(Integer c : count.values()) {
+			h.add(c, 1);
+		}
+		return h;
+	}
+
+
+	/**
+	 * Get the median of all item counts in this collection; see {@link #quantile(double)}.
+	 * @return the median of all item counts, or zero if empty.
+	 */
+	public double median() {
+		return quantile(0.5);
+	}
+
+
+	/**
+	 * Get several percentiles of the item counts in this collection; see {@link #quantile(double)}.
+	 * @param percents the percentiles, each from 0.0 to 100.0 inclusive
+	 * @return the corresponding percentiles of all item counts, all zero if empty.
+	 */
+	public double[] percentiles(double... percents) {
+		double[] result = new double[percents.length];
+		for(int i = 0; i < percents.length; i++) {
+			result[i] = quantile(percents[i] / 100.0);
+		}
+		return result;
+	}
+
+
 	/**
 	 * Returns a list of key-value pairs that is sorted first by item counts, then by item comparisons if those objects implement {@link Comparable}.
 	 * The returned list is not backed by the item counter, so consider it a snapshot of the item counts.
@@ -385,12 +953,213 @@ public class ItemCounter<K extends Object> {
 	}
 
 
+	/**
+	 * Choose whether this counter keeps its count of counts up to date as counts change.
+	 * While maintained, every {@link #increment(Object)} and {@link #set(Object, int)} moves one item between two count buckets, which costs O(log d)
+	 * where d is the number of distinct count values, and {@link #countOfCounts()} takes O(d) rather than O(N) time.
+	 * This is worthwhile when the count of counts is needed often, for example for Good-Turing smoothing after every batch of documents,
+	 * or when {@link #quantile(double)} or {@link #countItemsInRange(int, int)} are called often.
+	 *
+	 * <p>Only changes made through this object's methods are tracked.
+	 * </p>
+	 *
+	 * @param isMaintaining if true, builds the count of counts now and maintains it from then on; if false, discards it
+	 */
+	public void setMaintainingCountOfCounts(boolean isMaintaining) {
+		if(!isMaintaining) {
+			histogram = null;
+		} else if(histogram == null) {
+			histogram = buildHistogram();
+		}
+	}
+
+
+	/**
+	 * @return true if the count of counts is being kept up to date, see {@link #setMaintainingCountOfCounts(boolean)}
+	 */
+	public boolean isMaintainingCountOfCounts() {
+		return histogram != null;
+	}
+
+
+	/**
+	 * Get the position of an item in the descending order of {@link #sortByValueKey(boolean)}, without sorting.
+	 * Takes O(N) time, or O(log N) time while the index of ranks is maintained; see {@link #setMaintainingRanks(boolean)}.
+	 * @param item an item
+	 * @return the number of items ahead of the given item, so zero for the most frequent item, or -1 if the item has not been counted
+	 * @throws UnsupportedOperationException if the items are not {@link Comparable}, which is needed to order items with equal counts
+	 */
+	public int rank(K item) {
+		Integer c = get(item);
+		if(c == null || c == 0) {
+			return -1;
+		}
+		if(ranks != null) {
+			return ranks.rank(item, c);
+		}
+		if(!(item instanceof Comparable<?>)) {
+			throw new UnsupportedOperationException("ranking needs Comparable items, not " + item);
+		}
+		@SuppressWarnings("unchecked")
+		final Comparable<Object> key = (Comparable<Object>)item;
+		final int itemCount = c;
+		final int[] ahead = new int[1];
+		forEach(new ItemCountVisitor<K>() {
+			@Override
+			public void visit(K other, int count) {
+				if(count > itemCount || (count == itemCount && key.compareTo(other) < 0)) {
+					ahead[0]++;
+				}
+			}
+		});
+		return ahead[0];
+	}
+
+
+	/**
+	 * Get the item at a position in the descending order of {@link #sortByValueKey(boolean)}, without a full sort; see {@link #rank(Object)}.
+	 * Takes O(N + rank log N) time, or O(log N) time while the index of ranks is maintained.
+	 * @param rank zero-based position, less than {@link #size()}
+	 * @return the item at that position
+	 * @throws IndexOutOfBoundsException if there is no item at that position
+	 * @throws UnsupportedOperationException if the items are not {@link Comparable}
+	 */
+	public K itemAtRank(int rank) {
+		if(ranks != null) {
+			return ranks.select(rank);
+		}
+		if(rank < 0 || rank >= size()) {
+			throw new IndexOutOfBoundsException("rank " + rank + " of " + size() + " items");
+		}
+		Iterator<KeyValuePair> it = sortedView(false).iterator();
+		for(int i = 0; i < rank; i++) {
+			it.next();
+		}
+		K item = it.next().getKey();
+		if(!(item instanceof Comparable<?>)) {
+			throw new UnsupportedOperationException("ranking needs Comparable items, not " + item);
+		}
+		return item;
+	}
+
+
+	/**
+	 * Get the number of items whose count is between lo and hi, inclusive.
+	 * Takes O(N) time, or O(log d) time while the count of counts is maintained, where d is the number of distinct count values;
+	 * see {@link #setMaintainingCountOfCounts(boolean)}.
+	 * @param lo smallest count to include
+	 * @param hi largest count to include
+	 * @return number of items with lo &lt;= count &lt;= hi
+	 */
+	public int countItemsInRange(int lo, int hi) {
+		if(lo > hi || hi <= 0) {
+			return 0;
+		}
+		if(histogram != null) {
+			return (int)(histogram.countLessThan(hi + 1L) - histogram.countLessThan(lo));
+		}
+		int n = 0;
+		for(Integer c : count.values()) {
+			if(c >= lo && c <= hi) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+
+	/**
+	 * Choose whether this counter keeps its index of item ranks up to date as counts change, so that {@link #rank(Object)} and {@link #itemAtRank(int)}
+	 * take O(log N) rather than O(N) time.
+	 * While maintained, every {@link #increment(Object)} and {@link #set(Object, int)} costs an extra O(log N) and each item needs an index node,
+	 * and counting an item that is not {@link Comparable} throws an {@link UnsupportedOperationException} without changing its count.
+	 * Only changes made through this object's methods are tracked.
+	 * @param isMaintaining if true, builds the index now and maintains it from then on; if false, discards it
+	 * @throws UnsupportedOperationException if the items are not {@link Comparable}
+	 */
+	public void setMaintainingRanks(boolean isMaintaining) {
+		if(!isMaintaining) {
+			ranks = null;
+		} else if(ranks == null) {
+			ranks = buildRankIndex();
+		}
+	}
+
+
+	/**
+	 * @return true if the index of item ranks is being kept up to date, see {@link #setMaintainingRanks(boolean)}
+	 */
+	public boolean isMaintainingRanks() {
+		return ranks != null;
+	}
+
+
+	private RankIndex<K> buildRankIndex() {
+		final RankIndex<K> index = new RankIndex<K>();
+		forEach(new ItemCountVisitor<K>() {
+			@Override
+			public void visit(K item, int count) {
+				index.add(item, count);
+			}
+		});
+		return index;
+	}
+
+
+	/**
+	 * Returns the same sequence as {@link #sortByValueKey(boolean)}, but sorts lazily, only as far as the caller iterates.
+	 * Getting the first k pairs costs O(N + k log N) rather than the O(N log N) of a full sort, which makes this the better choice for "top k" queries.
+	 *
+	 * <p>Each call to the iterable's iterator() takes a snapshot of the item counts, so it is not affected by later changes to this counter.
+	 * </p>
+	 *
+	 * @param isAscending if true, will iterate in ascending value; if false, will iterate in descending value
+	 * @return an iterable over key-value pairs in sorted order
+	 */
+	public Iterable<KeyValuePair> sortedView(final boolean isAscending) {
+		return new Iterable<KeyValuePair>() {
+			@Override
+			public Iterator<KeyValuePair> iterator() {
+				@SuppressWarnings("unchecked")
+				KeyValuePair[] pairs = (KeyValuePair[])new ItemCounter<?>.KeyValuePair[count.size()];
+				int i = 0;
+				for(Entry<K, Integer> entry : count.entrySet()) {
+					pairs[i++] = new KeyValuePair(entry);
+				}
+				Comparator<KeyValuePair> vc = isAscending ? new ValueKeyAscendingComparator() : new ValueKeyDescendingComparator();
+				return new LazySortedIterator<KeyValuePair>(pairs, vc);
+			}
+		};
+	}
+
+
 	/**
 	 * Get the count of the different counts in this item counter.
+	 *
+	 * <p>The result is a new, modifiable counter.
+	 * If the count of counts is being maintained (see {@link #setMaintainingCountOfCounts(boolean)}), it is copied from the maintained count of counts
+	 * in O(d) time, where d is the number of distinct count values, without walking the items.
+	 * </p>
+	 *
+	 * <p>When the largest count is small relative to the number of distinct items, which is typical of natural language and other Zipfian data,
+	 * the returned counter is a {@link DenseIntCounter}.
+	 * </p>
+	 *
 	 * @return the count of counts in this item counter
 	 */
 	public ItemCounter<Integer> countOfCounts() {
-		ItemCounter<Integer> countOfCounts = new ItemCounter<Integer>();
+		if(histogram != null) {
+			return maintainedCountOfCounts();
+		}
+
+		int maxCount = 0;
+		for(Integer c : count.values()) {
+			if(c > maxCount) {
+				maxCount = c;
+			}
+		}
+
+		ItemCounter<Integer> countOfCounts = newCountOfCounts(maxCount, count.size());
 		for(Integer c : count.values()) {
 			countOfCounts.increment(c);
 		}
@@ -398,6 +1167,31 @@ public class ItemCounter<K extends Object> {
 	}
 
 
+	private ItemCounter<Integer> maintainedCountOfCounts() {
+		long maxCount = histogram.total() == 0 ? 0 : histogram.select(histogram.total() - 1);
+		// Sized by the number of distinct counts; a dense array only while it is small
+		final ItemCounter<Integer> countOfCounts = maxCount < DENSE_COUNT_OF_COUNTS_RANGE
+				? new DenseIntCounter((int)maxCount + 1)
+				: new ItemCounter<Integer>(histogram.distinctValues(), 0.75f);
+		histogram.visit(new CountHistogram.ValueVisitor() {
+			@Override
+			public void visit(long value, long items) {
+				countOfCounts.set((int)value, (int)items);
+			}
+		});
+		return countOfCounts;
+	}
+
+
+	private static ItemCounter<Integer> newCountOfCounts(int maxCount, int distinctItems) {
+		if(maxCount < DENSE_COUNT_OF_COUNTS_RANGE || maxCount / 4 < distinctItems) {
+			return new DenseIntCounter(maxCount + 1);
+		} else {
+			return new ItemCounter<Integer>();
+		}
+	}
+
+
 	/**
 	 * Get the number of distinct items with non-zero count.
 	 * @return the number of distinct items
@@ -442,10 +1236,10 @@ public class ItemCounter<K extends Object> {
 	 */
 	public String toCSV(String columnDelimiter, String rowDelimiter) {
 		StringBuilder sb = new StringBuilder();
-		for(K k : getItems()) {
-			sb.append(k);
+		for(Entry<K, Integer> entry : count.entrySet()) {
+			sb.append(entry.getKey());
 			sb.append(columnDelimiter);
-			sb.append(count.get(k));
+			sb.append(entry.getValue().intValue());
 			sb.append(rowDelimiter);
 		}
 		return sb.toString();
@@ -470,15 +1264,64 @@ public class ItemCounter<K extends Object> {
 	 * @throws IOException
 	 */
 	public void writeCSV(Writer writer, String columnDelimiter, String rowDelimiter) throws IOException {
-		for(K k : getItems()) {
-			writer.write(k.toString());
+		for(Entry<K, Integer> entry : count.entrySet()) {
+			writer.write(String.valueOf(entry.getKey()));
 			writer.write(columnDelimiter);
-			writer.write(count.get(k));
+			writer.write(Integer.toString(entry.getValue()));
 			writer.write(rowDelimiter);
 		}
 	}
 
 
+	/**
+	 * Get an immutable snapshot of this counter that is optimized for reading.
+	 * Building the snapshot sorts the items and computes all summary statistics once, so it suits counts that stop changing, for example after loading.
+	 * See {@link ImmutableItemCounter}.
+	 * @return an immutable copy of this counter
+	 */
+	public ImmutableItemCounter<K> freeze() {
+		return new ImmutableItemCounter<K>(this);
+	}
+
+
+	/**
+	 * Get a sampler that draws items with probability proportional to their counts.
+	 * @return a snapshot sampler over the current counts
+	 * @throws IllegalStateException if the counter is empty
+	 * @see #sampler(double)
+	 */
+	public ItemSampler<K> sampler() {
+		return sampler(1.0);
+	}
+
+
+	/**
+	 * Get a sampler that draws items with probability proportional to their counts raised to a power, in constant time per draw.
+	 * A power of 0.75 is the usual choice for negative sampling; a power of zero draws items uniformly.
+	 * The sampler is a snapshot, see {@link ItemSampler}.
+	 * @param power non-negative exponent applied to every count
+	 * @return a snapshot sampler over the current counts
+	 * @throws IllegalStateException if the counter is empty
+	 */
+	public ItemSampler<K> sampler(final double power) {
+		if(!(power >= 0.0) || Double.isInfinite(power)) {
+			throw new IllegalArgumentException("power must be non-negative and finite");
+		}
+		final Object[] items = new Object[size()];
+		final double[] weights = new double[items.length];
+		final int[] n = new int[1];
+		forEach(new ItemCountVisitor<K>() {
+			@Override
+			public void visit(K item, int count) {
+				items[n[0]] = item;
+				weights[n[0]] = power == 1.0 ? count : Math.pow(count, power);
+				n[0]++;
+			}
+		});
+		return new ItemSampler<K>(items, weights, n[0]);
+	}
+
+
 	/**
 	 * Get a view of this as an unmodifiable object.
 	 * Methods {@link #increment(Object)} and {@link #set(Object, int)} will throw {@link UnsupportedOperationException} if called.
@@ -496,8 +1339,44 @@ public class ItemCounter<K extends Object> {
 	 */
 	protected class UnmodifiableItemCounter extends ItemCounter<K> {
 
+		/** The wrapped counter, whose count distribution is current; null if the counts were copied. */
+		private final ItemCounter<K> itemCounter;
+
 		public UnmodifiableItemCounter(ItemCounter<K> itemCounter, boolean isCopyingCount) {
 			super(itemCounter.count, isCopyingCount);
+			this.itemCounter = isCopyingCount ? null : itemCounter;
+		}
+
+		@Override
+		public double quantile(double q) {
+			if(itemCounter != null) {
+				return itemCounter.quantile(q);
+			}
+			return super.quantile(q);
+		}
+
+		@Override
+		public int rank(K item) {
+			if(itemCounter != null) {
+				return itemCounter.rank(item);
+			}
+			return super.rank(item);
+		}
+
+		@Override
+		public K itemAtRank(int rank) {
+			if(itemCounter != null) {
+				return itemCounter.itemAtRank(rank);
+			}
+			return super.itemAtRank(rank);
+		}
+
+		@Override
+		public int countItemsInRange(int lo, int hi) {
+			if(itemCounter != null) {
+				return itemCounter.countItemsInRange(lo, hi);
+			}
+			return super.countItemsInRange(lo, hi);
 		}
 
 		@Override
@@ -505,9 +1384,189 @@ public class ItemCounter<K extends Object> {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		protected boolean isRemovingThroughSet() {
+			return true;
+		}
+
 		@Override
 		public int increment(K item) {
 			throw new UnsupportedOperationException();
 		}
 	}
-}
\ No newline at end of file
+
+
+	/**
+	 * Storage used by a counter created with {@link ItemCounter#builder()}.
+	 * @author romanows
+	 */
+	public enum Backend {
+		/** {@link HashMap} of boxed counts; {@link ItemCounter}, or {@link CachingItemCounter} when stats caching is enabled. */
+		HASH,
+		/** Primitive arrays; {@link DenseIntCounter} for small non-negative Integer keys or {@link StringItemCounter} for String keys. */
+		PRIMITIVE,
+		/** {@link ConcurrentItemCounter}, which can be incremented from many threads. */
+		CONCURRENT,
+		/** {@link OffHeapItemCounter}, which must be closed when no longer needed. */
+		OFF_HEAP,
+		/** {@link IncrementalItemCounter}, which spreads the cost of growing its table over many operations. */
+		INCREMENTAL,
+		/** {@link CompactItemCounter}, which stores each count in as few bytes as it needs and never overflows. */
+		COMPACT
+	}
+
+
+	/**
+	 * Configures and creates an item counter.
+	 * Pre-sizing a counter for its expected number of distinct items avoids the repeated rehashing, and the latency spikes and garbage that go with it, of a counter grown from the default size.
+	 * <pre>
+	 * ItemCounter&lt;String&gt; ic = ItemCounter.&lt;String&gt;builder().expectedSize(1000000).listener(metrics).build();
+	 * </pre>
+	 * @author romanows
+	 *
+	 * @param <K> the type of object being counted
+	 */
+	public static class Builder<K> {
+		private int expectedSize = -1;
+		private float loadFactor = 0.75f;
+		private Backend backend = Backend.HASH;
+		private boolean isCachingStats = false;
+		private Class<?> keyType;
+		private OffHeapItemCounter.KeyCodec<K> keyCodec;
+		private CounterListener listener;
+
+		protected Builder() {
+		}
+
+		/**
+		 * @param expectedSize number of distinct items that can be counted before the backing storage has to grow
+		 * @return this builder
+		 */
+		public Builder<K> expectedSize(int expectedSize) {
+			if(expectedSize < 0) {
+				throw new IllegalArgumentException("expected size must be non-negative");
+			}
+			this.expectedSize = expectedSize;
+			return this;
+		}
+
+		/**
+		 * Load factor of the hash table; used by the {@link Backend#HASH}, {@link Backend#CONCURRENT} and {@link Backend#INCREMENTAL} backends, the others use their own fixed load factors.
+		 * @param loadFactor a positive load factor, 0.75 by default
+		 * @return this builder
+		 */
+		public Builder<K> loadFactor(float loadFactor) {
+			if(!(loadFactor > 0)) {
+				throw new IllegalArgumentException("load factor must be positive");
+			}
+			this.loadFactor = loadFactor;
+			return this;
+		}
+
+		/**
+		 * @param backend storage used by the counter, {@link Backend#HASH} by default
+		 * @return this builder
+		 */
+		public Builder<K> backend(Backend backend) {
+			if(backend == null) {
+				throw new NullPointerException("backend");
+			}
+			this.backend = backend;
+			return this;
+		}
+
+		/**
+		 * Whether summary statistics are cached between modifications, see {@link CachingItemCounter}.
+		 * Only available with the {@link Backend#HASH} backend.
+		 * @param isCachingStats true to cache statistics, false by default
+		 * @return this builder
+		 */
+		public Builder<K> cachingStats(boolean isCachingStats) {
+			this.isCachingStats = isCachingStats;
+			return this;
+		}
+
+		/**
+		 * Type of the counted items, which selects the {@link Backend#PRIMITIVE} implementation and the default {@link Backend#OFF_HEAP} codec.
+		 * @param keyType Integer or String for those backends
+		 * @return this builder
+		 */
+		public Builder<K> keyType(Class<K> keyType) {
+			this.keyType = keyType;
+			return this;
+		}
+
+		/**
+		 * Serializes the items of an {@link Backend#OFF_HEAP} counter; not needed for String items.
+		 * @param keyCodec codec for the counted items
+		 * @return this builder
+		 */
+		public Builder<K> keyCodec(OffHeapItemCounter.KeyCodec<K> keyCodec) {
+			this.keyCodec = keyCodec;
+			return this;
+		}
+
+		/**
+		 * Instrumentation for the new counter, for example a {@link CounterMetrics} that tallies its resizes.
+		 * @param listener receives the counter's events, see {@link ItemCounter#setListener(CounterListener)}
+		 * @return this builder
+		 */
+		public Builder<K> listener(CounterListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * Create a new, empty counter.
+		 * @return a counter with the configured backend
+		 * @throws IllegalStateException if the configuration is not supported by the backend
+		 */
+		@SuppressWarnings("unchecked")
+		public ItemCounter<K> build() {
+			if(isCachingStats && backend != Backend.HASH) {
+				throw new IllegalStateException("stats caching is only available with the hash backend");
+			}
+			int n = expectedSize < 0 ? 12 : expectedSize;
+			ItemCounter<K> ic;
+			switch(backend) {
+			case HASH:
+				ic = isCachingStats ? new CachingItemCounter<K>(n, loadFactor) : new ItemCounter<K>(n, loadFactor);
+				break;
+			case CONCURRENT:
+				ic = new ConcurrentItemCounter<K>(n, loadFactor);
+				break;
+			case INCREMENTAL:
+				ic = new IncrementalItemCounter<K>(n, loadFactor, IncrementalItemCounter.DEFAULT_REHASH_STEP);
+				break;
+			case COMPACT:
+				ic = new CompactItemCounter<K>(n, loadFactor);
+				break;
+			case PRIMITIVE:
+				if(keyType == Integer.class) {
+					ic = (ItemCounter<K>)(ItemCounter<?>)new DenseIntCounter(expectedSize < 0 ? 16 : expectedSize);
+				} else if(keyType == String.class) {
+					ic = (ItemCounter<K>)(ItemCounter<?>)new StringItemCounter(n);
+				} else {
+					throw new IllegalStateException("the primitive backend needs Integer or String keys, see keyType()");
+				}
+				break;
+			case OFF_HEAP:
+				OffHeapItemCounter.KeyCodec<K> codec = keyCodec;
+				if(codec == null && keyType == String.class) {
+					codec = (OffHeapItemCounter.KeyCodec<K>)OffHeapItemCounter.STRING_CODEC;
+				}
+				if(codec == null) {
+					throw new IllegalStateException("the off-heap backend needs a key codec, see keyCodec()");
+				}
+				ic = new OffHeapItemCounter<K>(codec, n);
+				break;
+			default:
+				throw new IllegalStateException("unknown backend " + backend);
+			}
+			if(listener != null) {
+				ic.setListener(listener);
+			}
+			return ic;
+		}
+	}
+}
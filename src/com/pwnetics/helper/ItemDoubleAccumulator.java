@@ -35,10 +35,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 
 /**
@@ -63,6 +70,30 @@ public class ItemDoubleAccumulator<K extends Object> {
 	/** (item, value) */
 	protected final Map<K, Double> acc;
 
+	/** Instrumentation; see {@link #setListener(CounterListener)}. */
+	protected CounterListener listener = CounterListener.NONE;
+
+	/** Estimated number of entries at which the backing {@link HashMap} will next resize; only maintained while a listener is set. */
+	private int resizeThreshold;
+
+	/** Load factor of the backing {@link HashMap}, used to infer its resizes. */
+	private float loadFactor = 0.75f;
+
+	/** Estimated table capacity of the backing {@link HashMap}; only maintained while a listener is set. */
+	private long tableCapacity = 16;
+
+	/**
+	 * Distribution of the values, built by {@link #setMaintainingQuantiles(boolean)} and then kept up to date by {@link #valueChanged(Double, double)};
+	 * null unless maintained.
+	 */
+	private CountHistogram histogram;
+
+	/**
+	 * Each item changed since the last {@link #drainChanges()}, mapped to its value before the first of those changes, or to null if it was absent;
+	 * null unless tracking changes.
+	 */
+	private Map<K, Double> changes;
+
 
 	/**  Holds key-value pairs for {@link ItemDoubleAccumulator#sortByValueKey(boolean)}. */
 	public class KeyValuePair {
@@ -134,6 +165,19 @@ public class ItemDoubleAccumulator<K extends Object> {
 	}
 
 
+	/**
+	 * Constructor.
+	 * Sizes the backing map so that it can hold the expected number of distinct items without rehashing.
+	 * @param expectedSize number of distinct items that can be accumulated before the map has to grow
+	 * @param loadFactor load factor of the backing {@link HashMap}
+	 */
+	public ItemDoubleAccumulator(int expectedSize, float loadFactor) {
+		tableCapacity = ItemCounter.initialTableCapacity(expectedSize, loadFactor);
+		this.loadFactor = loadFactor;
+		acc = new HashMap<K, Double>((int)Math.min(tableCapacity, 1 << 30), loadFactor);
+	}
+
+
 	/**
 	 * Constructor.
 	 * Allows use of an already-built map from keys to their accumulation values.
@@ -159,6 +203,7 @@ public class ItemDoubleAccumulator<K extends Object> {
 	 * @return the item's accumulated value or null if the requested item has never been added to this set
 	 */
 	public Double get(K item) {
+		listener.onGet();
 		return acc.get(item);
 	}
 
@@ -169,7 +214,10 @@ public class ItemDoubleAccumulator<K extends Object> {
 	 * @param value the value for that item
 	 */
 	public void set(K item, double value) {
-		this.acc.put(item,value);
+		listener.onSet();
+		Double c = (histogram == null && changes == null) ? null : acc.get(item);
+		put(item, value);
+		valueChanged(item, c, value);
 	}
 
 
@@ -179,18 +227,152 @@ public class ItemDoubleAccumulator<K extends Object> {
 	 * @return the new value of the given item
 	 */
 	public double add(K item, double value) {
+		listener.onAdd();
 		Double c = acc.get(item);
 		if(c == null) {
 			c = value;
+			put(item, c);
 		} else {
+			valueChanged(item, c, c + value);
 			c += value;
+			acc.put(item, c);
+			return c;
 		}
-		acc.put(item, c);
+		valueChanged(item, null, c);
 
 		return c;
 	}
 
 
+	/**
+	 * Must be called by every method that changes an item's value, so that the changes returned by {@link #drainChanges()}
+	 * and the value distribution used by {@link #quantile(double)} stay up to date.
+	 * @param item the item whose value changed
+	 * @param oldValue the item's value before the change, or null if it was absent
+	 * @param newValue the item's value after the change
+	 */
+	protected void valueChanged(K item, Double oldValue, double newValue) {
+		if(changes != null && !changes.containsKey(item)) {
+			changes.put(item, oldValue);
+		}
+		valueChanged(oldValue, newValue);
+	}
+
+
+	/**
+	 * Keeps the value distribution up to date; called by {@link #valueChanged(Object, Double, double)}.
+	 * @param oldValue the item's value before the change, or null if it was absent
+	 * @param newValue the item's value after the change
+	 */
+	protected void valueChanged(Double oldValue, double newValue) {
+		if(histogram != null) {
+			if(oldValue == null) {
+				histogram.add(CountHistogram.sortable(newValue), 1);
+			} else {
+				histogram.move(CountHistogram.sortable(oldValue), CountHistogram.sortable(newValue));
+			}
+		}
+	}
+
+
+	/** Puts a value in the map, reporting the resize that the insertion of a new item is expected to cause, if any. */
+	private void put(K item, Double value) {
+		if(listener != CounterListener.NONE && acc.size() >= resizeThreshold && acc instanceof HashMap<?, ?> && !acc.containsKey(item)) {
+			long start = System.nanoTime();
+			acc.put(item, value);
+			long nanos = System.nanoTime() - start;
+			long capacity = tableCapacity;
+			tableCapacity = capacity * 2;
+			resizeThreshold = (int)(tableCapacity * loadFactor);
+			listener.onResize(capacity, tableCapacity, nanos);
+		} else {
+			acc.put(item, value);
+		}
+	}
+
+
+	/**
+	 * Start or stop recording which items change, so that only the changes need to be sent on, see {@link #drainChanges()} and {@link CounterFlusher}.
+	 * Recording costs a map entry per changed item until the changes are drained.
+	 * @param isTracking true to start recording from now, false to stop and forget the recorded changes
+	 */
+	public void setTrackingChanges(boolean isTracking) {
+		if(!isTracking) {
+			changes = null;
+		} else if(changes == null) {
+			changes = new HashMap<K, Double>();
+		}
+	}
+
+
+	/**
+	 * @return true if changed items are being recorded, see {@link #setTrackingChanges(boolean)}
+	 */
+	public boolean isTrackingChanges() {
+		return changes != null;
+	}
+
+
+	/**
+	 * Get the current value of every item that has changed since tracking started or since the last call, and start recording afresh.
+	 * Takes time proportional to the number of changed items, not to the size of the accumulator.
+	 * Items whose value changed and then changed back are left out.
+	 * @return the changed items with their current values and the change in each value, taking absent items as zero
+	 * @throws IllegalStateException if changes are not being tracked
+	 */
+	public ChangeBatch<K> drainChanges() {
+		if(changes == null) {
+			throw new IllegalStateException("not tracking changes");
+		}
+		ChangeBatch<K> batch = new ChangeBatch<K>(changes.size());
+		for(Entry<K, Double> entry : changes.entrySet()) {
+			Double now = acc.get(entry.getKey());
+			Double old = entry.getValue();
+			if(now == null ? old != null : !now.equals(old)) {
+				double n = (now == null) ? 0.0 : now;
+				batch.add(entry.getKey(), n, n - (old == null ? 0.0 : old));
+			}
+		}
+		changes = new HashMap<K, Double>();
+		return batch;
+	}
+
+
+	/**
+	 * Set the listener that is notified of this accumulator's operations, for instrumentation.
+	 * See {@link CounterMetrics} for a listener that tallies operations and can be published through JMX.
+	 * @param listener receives the events, or null to stop instrumenting this accumulator
+	 */
+	public void setListener(CounterListener listener) {
+		this.listener = (listener == null) ? CounterListener.NONE : listener;
+		tableCapacity = tableCapacity(acc.size());
+		resizeThreshold = (int)(tableCapacity * loadFactor);
+		this.listener.attach(this);
+	}
+
+
+	/**
+	 * Estimate the number of bytes held by this accumulator, not counting the memory of the keys themselves.
+	 * Assumes a 64-bit JVM with compressed object pointers.
+	 * @return the estimated retained size in bytes
+	 */
+	public long estimatedRetainedBytes() {
+		int n = acc.size();
+		// Table of 4-byte references, plus a 32-byte map entry and a 16-byte Double per item
+		return 16 + 4 * tableCapacity(n) + 48L * n;
+	}
+
+
+	/** Estimate the table capacity of the backing {@link HashMap} once it holds the given number of entries; tables only grow. */
+	private long tableCapacity(int size) {
+		long capacity = tableCapacity;
+		while(capacity * loadFactor < size) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+
 	/**
 	 * Add the items and accumulated values from another {@link ItemDoubleAccumulator}.
 	 * @param a another {@link ItemDoubleAccumulator}
@@ -199,8 +381,252 @@ public class ItemDoubleAccumulator<K extends Object> {
 		if(this == a) {
 			throw new IllegalArgumentException();
 		}
-		for(K k : a.getItems()) {
-			add(k, a.get(k));
+		for(Entry<K, Double> entry : a.acc.entrySet()) {
+			add(entry.getKey(), entry.getValue());
+		}
+	}
+
+
+	/**
+	 * Get the dot product of this and another accumulator, treating each as a sparse vector indexed by item.
+	 * Iterates over the accumulator with fewer items and looks each one up in the other.
+	 * @param a another accumulator
+	 * @return the sum over shared items of the product of their values
+	 */
+	public double dot(ItemDoubleAccumulator<K> a) {
+		Map<K, Double> small = acc;
+		Map<K, Double> large = a.acc;
+		if(small.size() > large.size()) {
+			small = a.acc;
+			large = acc;
+		}
+		double dot = 0.0;
+		for(Entry<K, Double> entry : small.entrySet()) {
+			Double v = large.get(entry.getKey());
+			if(v != null) {
+				dot += entry.getValue() * v;
+			}
+		}
+		return dot;
+	}
+
+
+	/**
+	 * Get the cosine similarity of this and another accumulator, treating each as a sparse vector indexed by item.
+	 * @param a another accumulator
+	 * @return the dot product divided by the product of the Euclidean norms, or zero if either norm is zero
+	 */
+	public double cosine(ItemDoubleAccumulator<K> a) {
+		return cosine(dot(a), l2Norm(), a.l2Norm());
+	}
+
+
+	private static double cosine(double dot, double norm, double otherNorm) {
+		return norm == 0.0 || otherNorm == 0.0 ? 0.0 : dot / (norm * otherNorm);
+	}
+
+
+	/**
+	 * @return the sum of the absolute values of all items, zero if empty
+	 */
+	public double l1Norm() {
+		double norm = 0.0;
+		for(Double v : acc.values()) {
+			norm += Math.abs(v);
+		}
+		return norm;
+	}
+
+
+	/**
+	 * @return the Euclidean length of the values of all items, zero if empty
+	 */
+	public double l2Norm() {
+		double sumSquares = 0.0;
+		for(Double v : acc.values()) {
+			sumSquares += v * v;
+		}
+		return Math.sqrt(sumSquares);
+	}
+
+
+	/**
+	 * Add a multiple of another accumulator to this one, as in the BLAS "axpy" operation: this = alpha * a + this.
+	 * Items of the other accumulator that are missing from this one are added.
+	 * @param alpha multiplier of the other accumulator's values
+	 * @param a another accumulator
+	 */
+	public void axpy(double alpha, ItemDoubleAccumulator<K> a) {
+		if(this == a) {
+			scale(1.0 + alpha);
+			return;
+		}
+		for(Entry<K, Double> entry : a.acc.entrySet()) {
+			add(entry.getKey(), alpha * entry.getValue());
+		}
+	}
+
+
+	/**
+	 * Multiply the value of every item by a constant.
+	 * Items whose value becomes zero are kept.
+	 * @param alpha multiplier
+	 */
+	public void scale(double alpha) {
+		// Setting the value of a present item does not change the map's structure, so the iteration stays valid
+		for(Entry<K, Double> entry : acc.entrySet()) {
+			set(entry.getKey(), alpha * entry.getValue());
+		}
+	}
+
+
+	/**
+	 * Replace the value of every item with the result of a function of that value, for example a log transform, in a single pass.
+	 * @param transform computes each item's new value from its current value; must not modify this accumulator
+	 */
+	public void replaceAll(ValueTransform transform) {
+		// Setting the value of a present item does not change the map's structure, so the iteration stays valid
+		for(Entry<K, Double> entry : acc.entrySet()) {
+			set(entry.getKey(), transform.apply(entry.getValue()));
+		}
+	}
+
+
+	/**
+	 * Compute the dot product of a query with many accumulators, splitting the accumulators between threads.
+	 * The threads come from a shared pool of daemon threads that is created on first use and reused by later calls.
+	 * None of the accumulators may be modified until this returns.
+	 * @param query the query accumulator
+	 * @param others the accumulators to compare the query against
+	 * @param threads number of threads to use, or one to compute in the calling thread
+	 * @return the dot product of the query with each of the others, in order
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public static <K> double[] dot(ItemDoubleAccumulator<K> query, List<? extends ItemDoubleAccumulator<K>> others, int threads) throws InterruptedException {
+		return compareAll(query, others, null, threads, false);
+	}
+
+
+	/**
+	 * Compute the dot product of a query with many accumulators, splitting the accumulators into tasks run by the given executor.
+	 * None of the accumulators may be modified until this returns.
+	 * @param query the query accumulator
+	 * @param others the accumulators to compare the query against
+	 * @param executor runs the tasks; it is not shut down
+	 * @param tasks number of tasks to split the accumulators into, or one to compute in the calling thread
+	 * @return the dot product of the query with each of the others, in order
+	 * @throws InterruptedException if interrupted while waiting for the tasks
+	 */
+	public static <K> double[] dot(ItemDoubleAccumulator<K> query, List<? extends ItemDoubleAccumulator<K>> others, ExecutorService executor, int tasks) throws InterruptedException {
+		if(executor == null) {
+			throw new IllegalArgumentException("executor must not be null");
+		}
+		return compareAll(query, others, executor, tasks, false);
+	}
+
+
+	/**
+	 * Compute the cosine similarity of a query with many accumulators, splitting the accumulators between threads.
+	 * The query's norm is computed once.
+	 * The threads come from a shared pool of daemon threads that is created on first use and reused by later calls.
+	 * None of the accumulators may be modified until this returns.
+	 * @param query the query accumulator
+	 * @param others the accumulators to compare the query against
+	 * @param threads number of threads to use, or one to compute in the calling thread
+	 * @return the cosine similarity of the query with each of the others, in order
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public static <K> double[] cosine(ItemDoubleAccumulator<K> query, List<? extends ItemDoubleAccumulator<K>> others, int threads) throws InterruptedException {
+		return compareAll(query, others, null, threads, true);
+	}
+
+
+	/**
+	 * Compute the cosine similarity of a query with many accumulators, splitting the accumulators into tasks run by the given executor.
+	 * The query's norm is computed once.
+	 * None of the accumulators may be modified until this returns.
+	 * @param query the query accumulator
+	 * @param others the accumulators to compare the query against
+	 * @param executor runs the tasks; it is not shut down
+	 * @param tasks number of tasks to split the accumulators into, or one to compute in the calling thread
+	 * @return the cosine similarity of the query with each of the others, in order
+	 * @throws InterruptedException if interrupted while waiting for the tasks
+	 */
+	public static <K> double[] cosine(ItemDoubleAccumulator<K> query, List<? extends ItemDoubleAccumulator<K>> others, ExecutorService executor, int tasks) throws InterruptedException {
+		if(executor == null) {
+			throw new IllegalArgumentException("executor must not be null");
+		}
+		return compareAll(query, others, executor, tasks, true);
+	}
+
+
+	/** Holds the pool used by the bulk comparisons when the caller supplies none; the class is loaded, creating the pool, on first use. */
+	private static final class ComparePool {
+		static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ItemDoubleAccumulator");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+
+	/** @param executor runs the tasks, or null for the shared pool */
+	private static <K> double[] compareAll(final ItemDoubleAccumulator<K> query, final List<? extends ItemDoubleAccumulator<K>> others, ExecutorService executor, int tasks, final boolean isCosine) throws InterruptedException {
+		if(tasks < 1) {
+			throw new IllegalArgumentException("tasks must be positive");
+		}
+		final double[] result = new double[others.size()];
+		final double queryNorm = isCosine ? query.l2Norm() : 0.0;
+		int nTasks = Math.min(tasks, others.size());
+		if(nTasks <= 1) {
+			compareRange(query, queryNorm, others, 0, result.length, isCosine, result);
+			return result;
+		}
+
+		if(executor == null) {
+			executor = ComparePool.EXECUTOR;
+		}
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		try {
+			for(int i = 0; i < nTasks; i++) {
+				final int from = (int)((long)result.length * i / nTasks);
+				final int to = (int)((long)result.length * (i + 1) / nTasks);
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						compareRange(query, queryNorm, others, from, to, isCosine, result);
+						return null;
+					}
+				}));
+			}
+			for(Future<Void> f : futures) {
+				try {
+					f.get();
+				} catch(ExecutionException e) {
+					if(e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException)e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} finally {
+			// Stops the remaining tasks if a task failed or the caller was interrupted; the executor itself is left running
+			for(Future<Void> f : futures) {
+				f.cancel(true);
+			}
+		}
+		return result;
+	}
+
+
+	private static <K> void compareRange(ItemDoubleAccumulator<K> query, double queryNorm, List<? extends ItemDoubleAccumulator<K>> others, int from, int to, boolean isCosine, double[] result) {
+		for(int i = from; i < to; i++) {
+			ItemDoubleAccumulator<K> other = others.get(i);
+			double dot = query.dot(other);
+			result[i] = isCosine ? cosine(dot, queryNorm, other.l2Norm()) : dot;
 		}
 	}
 
@@ -258,19 +684,13 @@ public class ItemDoubleAccumulator<K extends Object> {
 		if(acc.isEmpty()) {
 			return new KeyValuePair(null,null);
 		}
-		KeyValuePair pair = null;
-		ValueKeyAscendingComparator vc = new ValueKeyAscendingComparator();
+		Entry<K, Double> min = null;
 		for(Entry<K, Double> entry : acc.entrySet()) {
-			KeyValuePair entryPair = new KeyValuePair(entry);
-			if(pair == null) {
-				pair = entryPair;
-			} else {
-				if(vc.compare(pair, entryPair) > 0) {
-					pair = entryPair;
-				}
+			if(min == null || compareValueKey(min, entry) > 0) {
+				min = entry;
 			}
 		}
-		return pair;
+		return new KeyValuePair(min);
 	}
 
 
@@ -284,19 +704,109 @@ public class ItemDoubleAccumulator<K extends Object> {
 		if(acc.isEmpty()) {
 			return new KeyValuePair(null,null);
 		}
-		KeyValuePair pair = null;
-		ValueKeyDescendingComparator vc = new ValueKeyDescendingComparator();
+		Entry<K, Double> max = null;
 		for(Entry<K, Double> entry : acc.entrySet()) {
-			KeyValuePair entryPair = new KeyValuePair(entry);
-			if(pair == null) {
-				pair = entryPair;
-			} else {
-				if(vc.compare(pair, entryPair) > 0) {
-					pair = entryPair;
-				}
+			if(max == null || compareValueKey(entry, max) > 0) {
+				max = entry;
 			}
 		}
-		return pair;
+		return new KeyValuePair(max);
+	}
+
+
+	/**
+	 * Compares entries the same way as {@link ValueKeyAscendingComparator} without wrapping them in {@link KeyValuePair}s.
+	 */
+	private int compareValueKey(Entry<K, Double> a, Entry<K, Double> b) {
+		int c = a.getValue().compareTo(b.getValue());
+		if(c == 0 && a.getKey() instanceof Comparable<?>) {
+			@SuppressWarnings("unchecked")
+			Comparable<K> x = (Comparable<K>)a.getKey();
+			return x.compareTo(b.getKey());
+		}
+		return c;
+	}
+
+
+	/**
+	 * Calls the visitor once for every item and its accumulated value, in no particular order.
+	 * Unlike iterating over {@link #getItems()} and calling {@link #get(Object)}, this makes a single pass over the backing storage and does not allocate per item.
+	 * The accumulator must not be modified by the visitor.
+	 * @param visitor receives each item and its value
+	 */
+	public void forEach(ItemValueVisitor<? super K> visitor) {
+		for(Entry<K, Double> entry : acc.entrySet()) {
+			visitor.visit(entry.getKey(), entry.getValue());
+		}
+	}
+
+
+	/**
+	 * Get a cursor over the items and values in this accumulator, in no particular order.
+	 * The same cursor object is advanced over every item, so a full scan allocates nothing per item.
+	 * The accumulator must not be modified while the cursor is in use.
+	 * @return a cursor positioned before the first item
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+
+	/**
+	 * Reusable, mutable position in an item accumulator.
+	 * Call {@link #next()} before reading the first item:
+	 * <pre>
+	 * ItemDoubleAccumulator&lt;String&gt;.Cursor c = accumulator.cursor();
+	 * while(c.next()) {
+	 *     use(c.key(), c.doubleValue());
+	 * }
+	 * </pre>
+	 * @author romanows
+	 */
+	public class Cursor {
+		private Iterator<Entry<K, Double>> iterator;
+		private Entry<K, Double> entry;
+
+		protected Cursor() {
+		}
+
+		/**
+		 * Advance to the next item.
+		 * @return true if the cursor now points at an item, false if there are no more items
+		 */
+		public boolean next() {
+			if(iterator == null) {
+				iterator = acc.entrySet().iterator();
+			}
+			if(iterator.hasNext()) {
+				entry = iterator.next();
+				return true;
+			}
+			entry = null;
+			return false;
+		}
+
+		/**
+		 * @return the current item
+		 * @throws IllegalStateException if the cursor does not point at an item
+		 */
+		public K key() {
+			if(entry == null) {
+				throw new IllegalStateException("cursor does not point at an item");
+			}
+			return entry.getKey();
+		}
+
+		/**
+		 * @return the accumulated value of the current item
+		 * @throws IllegalStateException if the cursor does not point at an item
+		 */
+		public double doubleValue() {
+			if(entry == null) {
+				throw new IllegalStateException("cursor does not point at an item");
+			}
+			return entry.getValue();
+		}
 	}
 
 
@@ -363,6 +873,98 @@ public class ItemDoubleAccumulator<K extends Object> {
 	}
 
 
+	/**
+	 * Get a quantile of the item values in this collection, interpolating linearly between the two nearest values.
+	 * For example, 0.5 gives the median and 1.0 gives the largest value.
+	 *
+	 * <p>Each call walks all item values to build their distribution, unless the distribution is being maintained
+	 * (see {@link #setMaintainingQuantiles(boolean)}), in which case the quantile is found in O(log d) time, where d is the number of distinct values.
+	 * </p>
+	 *
+	 * @param q the quantile, from 0.0 to 1.0 inclusive
+	 * @return the quantile of all item values, or null if empty.
+	 */
+	public Double quantile(double q) {
+		if(!(q >= 0.0 && q <= 1.0)) {
+			throw new IllegalArgumentException("quantile must be between 0 and 1");
+		}
+		if(acc.isEmpty()) {
+			return null;
+		}
+		CountHistogram histogram = this.histogram != null ? this.histogram : buildHistogram();
+		double position = (histogram.total() - 1) * q;
+		long lower = (long)position;
+		double value = CountHistogram.fromSortable(histogram.select(lower));
+		if(position > lower) {
+			value += (position - lower) * (CountHistogram.fromSortable(histogram.select(lower + 1)) - value);
+		}
+		return value;
+	}
+
+
+	private CountHistogram buildHistogram() {
+		CountHistogram h = new CountHistogram();
+		for(Double n : acc.values()) {
+			h.add(CountHistogram.sortable(n), 1);
+		}
+		return h;
+	}
+
+
+	/**
+	 * Choose whether this accumulator keeps the distribution of its values up to date as values change.
+	 * While maintained, every {@link #add(Object, double)} and {@link #set(Object, double)} moves one value within the distribution,
+	 * which costs O(log d) where d is the number of distinct values, and {@link #quantile(double)} takes O(log d) rather than O(N) time.
+	 * This is worthwhile when quantiles are needed often.
+	 *
+	 * <p>Only changes made through this object's methods are tracked.
+	 * </p>
+	 *
+	 * @param isMaintaining if true, builds the distribution now and maintains it from then on; if false, discards it
+	 */
+	public void setMaintainingQuantiles(boolean isMaintaining) {
+		if(!isMaintaining) {
+			histogram = null;
+		} else if(histogram == null) {
+			histogram = buildHistogram();
+		}
+	}
+
+
+	/**
+	 * @return true if the distribution of values is being kept up to date, see {@link #setMaintainingQuantiles(boolean)}
+	 */
+	public boolean isMaintainingQuantiles() {
+		return histogram != null;
+	}
+
+
+	/**
+	 * Get the median of all item values in this collection; see {@link #quantile(double)}.
+	 * @return the median of all item values, or null if empty.
+	 */
+	public Double median() {
+		return quantile(0.5);
+	}
+
+
+	/**
+	 * Get several percentiles of the item values in this collection; see {@link #quantile(double)}.
+	 * @param percents the percentiles, each from 0.0 to 100.0 inclusive
+	 * @return the corresponding percentiles of all item values, or null if empty.
+	 */
+	public double[] percentiles(double... percents) {
+		if(acc.isEmpty()) {
+			return null;
+		}
+		double[] result = new double[percents.length];
+		for(int i = 0; i < percents.length; i++) {
+			result[i] = quantile(percents[i] / 100.0);
+		}
+		return result;
+	}
+
+
 	/**
 	 * Returns a representation of the item-to-accumulated-value map with the keys sorted by their value, and then sorted by keys if the keys implement {@link Comparable}.
 	 *
@@ -389,6 +991,33 @@ public class ItemDoubleAccumulator<K extends Object> {
 	}
 
 
+	/**
+	 * Returns the same sequence as {@link #sortByValueKey(boolean)}, but sorts lazily, only as far as the caller iterates.
+	 * Getting the first k pairs costs O(N + k log N) rather than the O(N log N) of a full sort, which makes this the better choice for "top k" queries.
+	 *
+	 * <p>Each call to the iterable's iterator() takes a snapshot of the item values, so it is not affected by later changes to this accumulator.
+	 * </p>
+	 *
+	 * @param isAscending if true, will iterate in ascending value; if false, will iterate in descending value
+	 * @return an iterable over key-value pairs in sorted order
+	 */
+	public Iterable<KeyValuePair> sortedView(final boolean isAscending) {
+		return new Iterable<KeyValuePair>() {
+			@Override
+			public Iterator<KeyValuePair> iterator() {
+				@SuppressWarnings("unchecked")
+				KeyValuePair[] pairs = (KeyValuePair[])new ItemDoubleAccumulator<?>.KeyValuePair[acc.size()];
+				int i = 0;
+				for(Entry<K, Double> entry : acc.entrySet()) {
+					pairs[i++] = new KeyValuePair(entry);
+				}
+				Comparator<KeyValuePair> vc = isAscending ? new ValueKeyAscendingComparator() : new ValueKeyDescendingComparator();
+				return new LazySortedIterator<KeyValuePair>(pairs, vc);
+			}
+		};
+	}
+
+
 	/**
 	 * Get the number of distinct items that have been added to this accumulator.
 	 * Includes items with zero values.
@@ -434,10 +1063,10 @@ public class ItemDoubleAccumulator<K extends Object> {
 	 */
 	public String toCSV(String columnDelimiter, String rowDelimiter) {
 		StringBuilder sb = new StringBuilder();
-		for(K k : getItems()) {
-			sb.append(k);
+		for(Entry<K, Double> entry : acc.entrySet()) {
+			sb.append(entry.getKey());
 			sb.append(columnDelimiter);
-			sb.append(acc.get(k));
+			sb.append(entry.getValue().doubleValue());
 			sb.append(rowDelimiter);
 		}
 		return sb.toString();
@@ -462,15 +1091,54 @@ public class ItemDoubleAccumulator<K extends Object> {
 	 * @throws IOException
 	 */
 	public void writeCSV(Writer writer, String columnDelimiter, String rowDelimiter) throws IOException {
-		for(K k : getItems()) {
-			writer.write(k.toString());
+		for(Entry<K, Double> entry : acc.entrySet()) {
+			writer.write(String.valueOf(entry.getKey()));
 			writer.write(columnDelimiter);
-			writer.write(acc.get(k).toString());
+			writer.write(entry.getValue().toString());
 			writer.write(rowDelimiter);
 		}
 	}
 
 
+	/**
+	 * Get a sampler that draws items with probability proportional to their values.
+	 * @return a snapshot sampler over the current values
+	 * @throws IllegalStateException if the accumulator holds no positive value
+	 * @see #sampler(double)
+	 */
+	public ItemSampler<K> sampler() {
+		return sampler(1.0);
+	}
+
+
+	/**
+	 * Get a sampler that draws items with probability proportional to their values raised to a power, in constant time per draw.
+	 * A power of 0.75 is the usual choice for negative sampling; a power of zero draws items uniformly.
+	 * The sampler is a snapshot, see {@link ItemSampler}.
+	 * @param power non-negative exponent applied to every value
+	 * @return a snapshot sampler over the current values
+	 * @throws IllegalArgumentException if a value is negative or not a number
+	 * @throws IllegalStateException if the accumulator holds no positive value
+	 */
+	public ItemSampler<K> sampler(final double power) {
+		if(!(power >= 0.0) || Double.isInfinite(power)) {
+			throw new IllegalArgumentException("power must be non-negative and finite");
+		}
+		final Object[] items = new Object[size()];
+		final double[] weights = new double[items.length];
+		final int[] n = new int[1];
+		forEach(new ItemValueVisitor<K>() {
+			@Override
+			public void visit(K item, double value) {
+				items[n[0]] = item;
+				weights[n[0]] = power == 1.0 ? value : Math.pow(value, power);
+				n[0]++;
+			}
+		});
+		return new ItemSampler<K>(items, weights, n[0]);
+	}
+
+
 	/**
 	 * Get a view of this as an unmodifiable object.
 	 * Methods {@link #add(ItemDoubleAccumulator)}, {@link #add(Object, double)}, and {@link #set(Object, double)} will throw {@link UnsupportedOperationException} if called.
@@ -488,8 +1156,20 @@ public class ItemDoubleAccumulator<K extends Object> {
 	 */
 	protected class UnmodifiableItemDoubleAccumulator extends ItemDoubleAccumulator<K> {
 
+		/** The wrapped accumulator, whose value distribution is current; null if the values were copied. */
+		private final ItemDoubleAccumulator<K> accumulator;
+
 		public UnmodifiableItemDoubleAccumulator(ItemDoubleAccumulator<K> acc, boolean isCopying) {
 			super(acc.acc, isCopying);
+			this.accumulator = isCopying ? null : acc;
+		}
+
+		@Override
+		public Double quantile(double q) {
+			if(accumulator != null) {
+				return accumulator.quantile(q);
+			}
+			return super.quantile(q);
 		}
 
 		@Override
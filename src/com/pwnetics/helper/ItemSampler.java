@@ -0,0 +1,192 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.Random;
+
+
+/**
+ * Draws items at random with probability proportional to their counts or values, optionally raised to a power, in constant
+ * time per draw.
+ *
+ * <p>Built by {@link ItemCounter#sampler(double)} or {@link ItemDoubleAccumulator#sampler(double)} with Vose's alias method:
+ * every item gets an equal-width column holding part of its own weight and part of one other item's, so a draw needs only
+ * one uniform column index and one uniform coin flip.
+ * Raising counts to a power below one, such as the 0.75 used for word2vec negative sampling, flattens the distribution
+ * toward rare items.
+ * </p>
+ *
+ * <p>The sampler is a snapshot; later changes to the counter are not reflected, so build a new sampler after changing it.
+ * Sampling does not modify the sampler, which may be shared between threads that each use their own {@link Random}.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of item being sampled
+ */
+public class ItemSampler<K> {
+
+	private final Object[] items;
+	private final double[] probability;
+	private final int[] alias;
+	private final double totalWeight;
+
+
+	/**
+	 * Constructor; takes ownership of the arrays.
+	 * @param items the items, of which the first size are used
+	 * @param weights non-negative weight of each item, of which the first size are used
+	 * @param size number of items
+	 * @throws IllegalArgumentException if a weight is negative or not finite
+	 * @throws IllegalStateException if there is no item with a positive weight
+	 */
+	ItemSampler(Object[] items, double[] weights, int size) {
+		double total = 0.0;
+		for(int i = 0; i < size; i++) {
+			if(!(weights[i] >= 0.0) || Double.isInfinite(weights[i])) {
+				throw new IllegalArgumentException("cannot sample with weight " + weights[i] + " for item " + items[i]);
+			}
+			total += weights[i];
+		}
+		if(!(total > 0.0)) {
+			throw new IllegalStateException("no item has a positive weight");
+		}
+
+		this.items = size == items.length ? items : copyOf(items, size);
+		this.probability = new double[size];
+		this.alias = new int[size];
+		this.totalWeight = total;
+
+		// Scale the weights so that the average column is exactly full, then pair underfull columns with overfull ones
+		int[] small = new int[size];
+		int[] large = new int[size];
+		int nSmall = 0;
+		int nLarge = 0;
+		double scale = size / total;
+		for(int i = 0; i < size; i++) {
+			probability[i] = weights[i] * scale;
+			if(probability[i] < 1.0) {
+				small[nSmall++] = i;
+			} else {
+				large[nLarge++] = i;
+			}
+		}
+		while(nSmall > 0 && nLarge > 0) {
+			int s = small[--nSmall];
+			int l = large[--nLarge];
+			alias[s] = l;
+			probability[l] = (probability[l] + probability[s]) - 1.0;
+			if(probability[l] < 1.0) {
+				small[nSmall++] = l;
+			} else {
+				large[nLarge++] = l;
+			}
+		}
+		// Whatever is left over is full up to rounding error
+		while(nLarge > 0) {
+			probability[large[--nLarge]] = 1.0;
+		}
+		while(nSmall > 0) {
+			probability[small[--nSmall]] = 1.0;
+		}
+	}
+
+
+	private static Object[] copyOf(Object[] a, int size) {
+		Object[] copy = new Object[size];
+		System.arraycopy(a, 0, copy, 0, size);
+		return copy;
+	}
+
+
+	/**
+	 * Get the number of items that can be sampled, including any with zero weight, which are never drawn.
+	 * @return number of items
+	 */
+	public int size() {
+		return items.length;
+	}
+
+
+	/** @return the sum of all item weights, after raising to the power */
+	public double totalWeight() {
+		return totalWeight;
+	}
+
+
+	/**
+	 * Get an item by the index returned from {@link #sampleIndex(Random)} or {@link #sample(Random, int, long[])}.
+	 * @param index an index in [0, size())
+	 * @return the item at that index
+	 */
+	@SuppressWarnings("unchecked")
+	public K item(int index) {
+		return (K)items[index];
+	}
+
+
+	/**
+	 * Draw an item.
+	 * @param random source of randomness
+	 * @return an item drawn with probability proportional to its weight
+	 */
+	public K sample(Random random) {
+		return item(sampleIndex(random));
+	}
+
+
+	/**
+	 * Draw the index of an item, which avoids looking up the item when callers keep their own per-index data.
+	 * @param random source of randomness
+	 * @return index of an item drawn with probability proportional to its weight
+	 */
+	public int sampleIndex(Random random) {
+		int column = random.nextInt(probability.length);
+		return random.nextDouble() < probability[column] ? column : alias[column];
+	}
+
+
+	/**
+	 * Draw many item indexes at once, for example the negative samples of a training batch.
+	 * @param random source of randomness
+	 * @param n number of draws
+	 * @param out receives the drawn indexes in its first n elements; see {@link #item(int)}
+	 */
+	public void sample(Random random, int n, long[] out) {
+		if(n > out.length) {
+			throw new IllegalArgumentException("output array holds fewer than " + n + " samples");
+		}
+		int columns = probability.length;
+		for(int i = 0; i < n; i++) {
+			int column = random.nextInt(columns);
+			out[i] = random.nextDouble() < probability[column] ? column : alias[column];
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Iterates over an array in sorted order, sorting only as far as the caller reads.
+ *
+ * <p>The array is turned into a binary heap in O(N) time when the iterator is created, and each element is then removed from the heap in O(log N) time.
+ * Reading the first k elements therefore costs O(N + k log N), and reading all of them costs O(N log N), the same as sorting up front.
+ * The given array is reordered in place.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <T> the type of element
+ */
+class LazySortedIterator<T> implements Iterator<T> {
+
+	private final T[] heap;
+	private final Comparator<? super T> comparator;
+	private int size;
+
+
+	/**
+	 * Constructor.
+	 * @param elements elements to iterate over; reordered in place
+	 * @param comparator order in which to return the elements
+	 */
+	LazySortedIterator(T[] elements, Comparator<? super T> comparator) {
+		this.heap = elements;
+		this.comparator = comparator;
+		this.size = elements.length;
+		for(int i = (size >>> 1) - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+
+	@Override
+	public boolean hasNext() {
+		return size > 0;
+	}
+
+
+	@Override
+	public T next() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		T first = heap[0];
+		size--;
+		heap[0] = heap[size];
+		heap[size] = null;
+		if(size > 1) {
+			siftDown(0);
+		}
+		return first;
+	}
+
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	private void siftDown(int i) {
+		T x = heap[i];
+		int half = size >>> 1;
+		while(i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if(right < size && comparator.compare(heap[right], heap[child]) < 0) {
+				child = right;
+			}
+			if(comparator.compare(x, heap[child]) <= 0) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = x;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Minimal perfect hash function over a fixed set of keys, mapping each key to a distinct index from zero to n-1.
+ *
+ * <p>Built in the style of BBHash (Limasset et al., 2017): each level is a bit array about twice as long as the number of keys still unplaced.
+ * A key whose position at a level is not shared with any other unplaced key is placed there; the rest move on to the next level with a different hash seed.
+ * A key's index is the number of placed bits before its own, found with a per-word rank table.
+ * Keys whose {@link Object#hashCode()} collides with another key's at every level are indexed by a small fallback map.
+ * </p>
+ *
+ * <p>The function takes about 3 to 4 bits per key and does not store the keys, so keys outside the original set get an arbitrary index (or -1);
+ * callers must verify the key stored at the returned index.
+ * </p>
+ *
+ * @author romanows
+ */
+class MinimalPerfectHash {
+
+	private static final int MAX_LEVELS = 24;
+	private static final double GAMMA = 2.0;
+
+	/** All levels' bit arrays, concatenated. */
+	private final long[] bits;
+
+	/** ranks[i] is the number of set bits in bits[0..i). */
+	private final int[] ranks;
+
+	/** Word offset of each level in {@link #bits}, with one extra entry marking the end. */
+	private final int[] levelOffsets;
+
+	private final Map<Object, Integer> fallback;
+	private final int size;
+
+
+	/**
+	 * Build a minimal perfect hash over the given keys.
+	 * @param keys distinct keys (by {@link Object#equals(Object)}); may include one null
+	 */
+	MinimalPerfectHash(Object[] keys) {
+		size = keys.length;
+		long[][] levels = new long[MAX_LEVELS][];
+		Object[] remaining = keys;
+		int level = 0;
+		while(remaining.length > 0 && level < MAX_LEVELS) {
+			int words = Math.max(1, (int)Math.ceil(GAMMA * remaining.length / 64.0));
+			long bitCount = words * 64L;
+			long[] seen = new long[words];
+			long[] collided = new long[words];
+			for(Object key : remaining) {
+				long p = position(key, level, bitCount);
+				int w = (int)(p >>> 6);
+				long mask = 1L << p;
+				if((seen[w] & mask) != 0) {
+					collided[w] |= mask;
+				} else {
+					seen[w] |= mask;
+				}
+			}
+			int unplaced = 0;
+			for(Object key : remaining) {
+				long p = position(key, level, bitCount);
+				if((collided[(int)(p >>> 6)] & (1L << p)) != 0) {
+					unplaced++;
+				}
+			}
+			Object[] next = new Object[unplaced];
+			int j = 0;
+			for(Object key : remaining) {
+				long p = position(key, level, bitCount);
+				if((collided[(int)(p >>> 6)] & (1L << p)) != 0) {
+					next[j++] = key;
+				}
+			}
+			for(int w = 0; w < words; w++) {
+				seen[w] &= ~collided[w];
+			}
+			levels[level++] = seen;
+			remaining = next;
+		}
+
+		levelOffsets = new int[level + 1];
+		int totalWords = 0;
+		for(int i = 0; i < level; i++) {
+			levelOffsets[i] = totalWords;
+			totalWords += levels[i].length;
+		}
+		levelOffsets[level] = totalWords;
+		bits = new long[totalWords];
+		for(int i = 0; i < level; i++) {
+			System.arraycopy(levels[i], 0, bits, levelOffsets[i], levels[i].length);
+		}
+		ranks = new int[totalWords];
+		int rank = 0;
+		for(int w = 0; w < totalWords; w++) {
+			ranks[w] = rank;
+			rank += Long.bitCount(bits[w]);
+		}
+
+		if(remaining.length > 0) {
+			fallback = new HashMap<Object, Integer>();
+			for(Object key : remaining) {
+				fallback.put(key, rank++);
+			}
+		} else {
+			fallback = null;
+		}
+	}
+
+
+	/** @return the number of keys */
+	int size() {
+		return size;
+	}
+
+
+	/** @return the approximate number of bytes held by this function, excluding any fallback keys */
+	long estimatedBytes() {
+		return 8L * bits.length + 4L * ranks.length + 4L * levelOffsets.length;
+	}
+
+
+	/**
+	 * Get the index of a key.
+	 * @param key a key
+	 * @return the key's index if it was one of the original keys; otherwise an arbitrary index or -1
+	 */
+	int index(Object key) {
+		int levels = levelOffsets.length - 1;
+		for(int level = 0; level < levels; level++) {
+			int offset = levelOffsets[level];
+			long bitCount = (levelOffsets[level + 1] - offset) * 64L;
+			long p = position(key, level, bitCount);
+			int w = offset + (int)(p >>> 6);
+			long mask = 1L << p;
+			if((bits[w] & mask) != 0) {
+				return ranks[w] + Long.bitCount(bits[w] & (mask - 1));
+			}
+		}
+		if(fallback != null) {
+			Integer i = fallback.get(key);
+			if(i != null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	/** Position of a key in a level's bit array, from the key's hash code remixed with the level as the seed. */
+	private static long position(Object key, int level, long bitCount) {
+		long h = (key == null ? 0 : key.hashCode()) + (level + 1) * 0x9e3779b97f4a7c15L;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return ((h >>> 32) * bitCount) >>> 32;
+	}
+}
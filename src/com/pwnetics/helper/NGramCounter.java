@@ -0,0 +1,680 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Counts n-grams of int ids, such as the word ids from {@link StringItemCounter#id(CharSequence)}, without creating a key object per n-gram.
+ *
+ * <p>The ids of an n-gram are packed into a single long, first id in the highest bits, and the packed keys and their counts are held in parallel
+ * primitive arrays of an open-addressing table with linear probing.
+ * Bigrams take 32 bits per id, which allows any non-negative int; trigrams take 21 bits per id and 4-grams 16 bits per id, which limits the ids to
+ * below 2,097,152 and 65,536.
+ * {@link #incrementAll(int[], int, int)} counts every n-gram of a sequence of ids, packing each one from the previous with a shift.
+ * The inherited methods see the packed keys as {@link Long} items; {@link #pack(int, int)} and {@link #component(long, int)} convert between the two.
+ * </p>
+ *
+ * <p>Because the first id is in the highest bits, the n-grams that share a prefix are adjacent in the sorted order of the packed keys.
+ * {@link #conditional(int...)} and {@link #topNext(int[], int)} find them by binary search in a sorted copy of the keys, which is built by the first such query
+ * after new n-grams are counted.
+ * {@link #marginal(int)} sums the counts over all ids but one.
+ * </p>
+ *
+ * <p>The map returned by {@link #getMap()} does not support removal through its iterators.
+ * </p>
+ *
+ * @author romanows
+ */
+public class NGramCounter extends ItemCounter<Long> {
+
+	/** Number of ids in each n-gram. */
+	private final int order;
+
+	/** Number of bits of a packed key taken by each id. */
+	private final int bits;
+
+	/** Exclusive upper bound on ids. */
+	private final long idLimit;
+
+	/** Open-addressing table handed to {@link ItemCounter} as its map so the inherited methods see the same counts. */
+	private final Table table;
+
+
+	/**
+	 * Constructor.
+	 * @param order number of ids in each n-gram, from 2 to 4
+	 */
+	public NGramCounter(int order) {
+		this(order, 12);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param order number of ids in each n-gram, from 2 to 4
+	 * @param expectedSize number of distinct n-grams that can be counted before the table has to grow
+	 */
+	public NGramCounter(int order, int expectedSize) {
+		this(order, new Table(expectedSize));
+	}
+
+
+	private NGramCounter(int order, Table table) {
+		super(table, false);
+		if(order < 2 || order > 4) {
+			throw new IllegalArgumentException("order must be from 2 to 4");
+		}
+		this.order = order;
+		this.table = table;
+		bits = 64 / order;
+		idLimit = Math.min(1L << bits, 1L << 31);
+	}
+
+
+	/** @return the number of ids in each n-gram */
+	public int order() {
+		return order;
+	}
+
+
+	/**
+	 * Pack the ids of a bigram into a key.
+	 * @return the packed key
+	 * @throws IllegalArgumentException if this is not a bigram counter or an id is negative
+	 */
+	public long pack(int a, int b) {
+		checkOrder(2);
+		return (id(a) << bits) | id(b);
+	}
+
+
+	/**
+	 * Pack the ids of a trigram into a key.
+	 * @return the packed key
+	 * @throws IllegalArgumentException if this is not a trigram counter or an id is out of range
+	 */
+	public long pack(int a, int b, int c) {
+		checkOrder(3);
+		return (((id(a) << bits) | id(b)) << bits) | id(c);
+	}
+
+
+	/**
+	 * Pack the n-gram that starts at the given offset into a key.
+	 * @param ids a sequence of ids
+	 * @param offset index of the first id of the n-gram
+	 * @return the packed key
+	 * @throws IllegalArgumentException if an id is out of range
+	 */
+	public long pack(int[] ids, int offset) {
+		if(offset < 0 || offset + order > ids.length) {
+			throw new IndexOutOfBoundsException("no n-gram at offset " + offset);
+		}
+		long key = 0L;
+		for(int i = offset; i < offset + order; i++) {
+			key = (key << bits) | id(ids[i]);
+		}
+		return key;
+	}
+
+
+	/**
+	 * Get one of the ids of a packed key.
+	 * @param key a packed key
+	 * @param position position of the id in the n-gram, from zero to one less than the order
+	 * @return the id
+	 */
+	public int component(long key, int position) {
+		if(position < 0 || position >= order) {
+			throw new IndexOutOfBoundsException("position must be from 0 to " + (order - 1));
+		}
+		return (int)((key >>> (bits * (order - 1 - position))) & ((1L << bits) - 1));
+	}
+
+
+	/** @return the count of the bigram */
+	public int get(int a, int b) {
+		return getPacked(pack(a, b));
+	}
+
+
+	/** @return the count of the trigram */
+	public int get(int a, int b, int c) {
+		return getPacked(pack(a, b, c));
+	}
+
+
+	/**
+	 * Increment the count of a bigram.
+	 * @return the new count of the bigram
+	 */
+	public int increment(int a, int b) {
+		return incrementPacked(pack(a, b));
+	}
+
+
+	/**
+	 * Increment the count of a trigram.
+	 * @return the new count of the trigram
+	 */
+	public int increment(int a, int b, int c) {
+		return incrementPacked(pack(a, b, c));
+	}
+
+
+	/**
+	 * Increment the count of the n-gram that starts at the given offset.
+	 * @param ids a sequence of ids
+	 * @param offset index of the first id of the n-gram
+	 * @return the new count of the n-gram
+	 */
+	public int increment(int[] ids, int offset) {
+		return incrementPacked(pack(ids, offset));
+	}
+
+
+	/**
+	 * Increment the count of every n-gram of a sequence of ids, such as the words of a sentence.
+	 * @param ids array holding the sequence
+	 * @param offset index of the first id of the sequence
+	 * @param length number of ids in the sequence
+	 * @return the number of n-grams counted, zero if the sequence is shorter than the order
+	 */
+	public int incrementAll(int[] ids, int offset, int length) {
+		if(offset < 0 || length < 0 || offset + length > ids.length) {
+			throw new IndexOutOfBoundsException("sequence is outside of the array");
+		}
+		if(length < order) {
+			return 0;
+		}
+		long mask = bits * order == 64 ? -1L : (1L << (bits * order)) - 1;
+		long key = pack(ids, offset);
+		incrementPacked(key);
+		for(int i = offset + order; i < offset + length; i++) {
+			key = ((key << bits) | id(ids[i])) & mask;
+			incrementPacked(key);
+		}
+		return length - order + 1;
+	}
+
+
+	@Override
+	public Integer get(Long item) {
+		return getPacked(item);
+	}
+
+
+	@Override
+	public void set(Long item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		checkKey(item);
+		listener.onSet();
+		long key = item;
+		int slot = table.find(key);
+		int c = slot < 0 ? 0 : table.counts[slot];
+		if(count == 0) {
+			if(slot >= 0) {
+				table.removeAt(slot);
+			}
+		} else if(slot < 0) {
+			insert(~slot, key, count);
+		} else {
+			table.counts[slot] = count;
+		}
+		changed(key, c, count);
+	}
+
+
+	/** The table does not support removal through its iterator. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(Long item) {
+		checkKey(item);
+		return incrementPacked(item);
+	}
+
+
+	private int getPacked(long key) {
+		listener.onGet();
+		int slot = table.find(key);
+		return slot < 0 ? 0 : table.counts[slot];
+	}
+
+
+	private int incrementPacked(long key) {
+		listener.onIncrement();
+		int slot = table.find(key);
+		int c;
+		if(slot < 0) {
+			c = 0;
+			insert(~slot, key, 1);
+		} else {
+			c = table.counts[slot];
+			table.counts[slot] = incrementedCount(c);
+		}
+		changed(key, c, c + 1);
+		return c + 1;
+	}
+
+
+	private void insert(int slot, long key, int count) {
+		table.insert(slot, key, count);
+		if(table.size > table.threshold) {
+			resize(table.keys.length << 1);
+		}
+	}
+
+
+	private void resize(int capacity) {
+		long start = System.nanoTime();
+		int fromCapacity = table.keys.length;
+		table.rehash(capacity);
+		listener.onResize(fromCapacity, capacity, System.nanoTime() - start);
+	}
+
+
+	/** Boxes the key only when change tracking or the rank index needs it. */
+	private void changed(long key, int oldCount, int newCount) {
+		if(isTrackingChanges() || isMaintainingRanks()) {
+			countChanged(Long.valueOf(key), oldCount, newCount);
+		} else {
+			countChanged(oldCount, newCount);
+		}
+	}
+
+
+	/**
+	 * Sum the counts of the n-grams by the id at one position, for example the unigram counts of the first words of the bigrams.
+	 * The returned counter is indexed directly by id, so it takes memory proportional to the largest id.
+	 * @param position position of the id, from zero to one less than the order
+	 * @return a new counter from each id to the total count of the n-grams with that id at the position
+	 * @throws ArithmeticException if a total would overflow an int
+	 */
+	public DenseIntCounter marginal(int position) {
+		component(0L, position);
+		DenseIntCounter marginal = new DenseIntCounter();
+		final long[] keys = table.keys;
+		final int[] counts = table.counts;
+		for(int slot = 0; slot < keys.length; slot++) {
+			if(counts[slot] != 0) {
+				int id = component(keys[slot], position);
+				long sum = (long)marginal.get(id) + counts[slot];
+				if(sum > Integer.MAX_VALUE) {
+					throw new ArithmeticException("count overflow");
+				}
+				marginal.set(id, (int)sum);
+			}
+		}
+		return marginal;
+	}
+
+
+	/**
+	 * Count the ids that follow a prefix, for example the words that follow a given word in the bigrams.
+	 * Summed over any positions after the following one, so that for trigrams a prefix of one id gives the counts of the second ids.
+	 * Takes O(log n + m) time, for n distinct n-grams and m of them with the prefix, once the sorted keys are built.
+	 * @param prefix the first ids of the n-grams, fewer than the order
+	 * @return a new counter from each id that follows the prefix to the total count of the n-grams with the prefix and that id
+	 * @throws ArithmeticException if a total would overflow an int
+	 */
+	public ItemCounter<Integer> conditional(int... prefix) {
+		if(prefix.length < 1 || prefix.length >= order) {
+			throw new IllegalArgumentException("prefix must have from 1 to " + (order - 1) + " ids");
+		}
+		long lo = 0L;
+		for(int id : prefix) {
+			lo = (lo << bits) | id(id);
+		}
+		int suffixBits = bits * (order - prefix.length);
+		lo <<= suffixBits;
+		long hi = lo | ((1L << suffixBits) - 1);
+
+		ItemCounter<Integer> next = new ItemCounter<Integer>();
+		long[] sorted = table.sortedKeys();
+		int i = Arrays.binarySearch(sorted, lo);
+		for(i = i < 0 ? ~i : i; i < sorted.length && sorted[i] <= hi; i++) {
+			int slot = table.find(sorted[i]);
+			if(slot >= 0) {
+				int id = component(sorted[i], prefix.length);
+				long sum = (long)next.get(id) + table.counts[slot];
+				if(sum > Integer.MAX_VALUE) {
+					throw new ArithmeticException("count overflow");
+				}
+				next.set(id, (int)sum);
+			}
+		}
+		return next;
+	}
+
+
+	/**
+	 * Get the k ids that most often follow a prefix; see {@link #conditional(int...)}.
+	 * @param prefix the first ids of the n-grams, fewer than the order
+	 * @param k number of ids to return
+	 * @return the ids and their counts, in descending order of count and then of id
+	 */
+	public List<ItemCounter<Integer>.KeyValuePair> topNext(int[] prefix, int k) {
+		ItemCounter<Integer> next = conditional(prefix);
+		next.retainTop(k);
+		return next.sortByValueKey(false);
+	}
+
+
+	@Override
+	public long sum() {
+		final int[] counts = table.counts;
+		long sum = 0L;
+		for(int slot = 0; slot < counts.length; slot++) {
+			sum += counts[slot];
+		}
+		return sum;
+	}
+
+
+	@Override
+	public int size() {
+		return table.size;
+	}
+
+
+	@Override
+	public void forEach(ItemCountVisitor<? super Long> visitor) {
+		final long[] keys = table.keys;
+		final int[] counts = table.counts;
+		for(int slot = 0; slot < keys.length; slot++) {
+			if(counts[slot] != 0) {
+				visitor.visit(keys[slot], counts[slot]);
+			}
+		}
+	}
+
+
+	/** Rehashes into the smallest table that holds the n-grams, and drops the sorted keys. */
+	@Override
+	public void trimToSize() {
+		table.sorted = null;
+		int capacity = Table.capacityFor(table.size);
+		if(capacity != table.keys.length) {
+			resize(capacity);
+		}
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		return 64 + 12L * table.keys.length + (table.sorted == null ? 0 : 16 + 8L * table.sorted.length);
+	}
+
+
+	private void checkOrder(int n) {
+		if(order != n) {
+			throw new IllegalArgumentException("counter is for n-grams of order " + order);
+		}
+	}
+
+
+	private long id(int id) {
+		if(id < 0 || id >= idLimit) {
+			throw new IllegalArgumentException("id out of range: " + id);
+		}
+		return id;
+	}
+
+
+	private void checkKey(long key) {
+		boolean isValid = bits * order == 64 || key >>> (bits * order) == 0;
+		for(int position = 0; position < order; position++) {
+			isValid &= component(key, position) < idLimit && component(key, position) >= 0;
+		}
+		if(!isValid) {
+			throw new IllegalArgumentException("not a packed n-gram: " + key);
+		}
+	}
+
+
+	/**
+	 * Packed keys and their counts in an open-addressing table with linear probing; a zero count marks an empty slot.
+	 * Removal shifts later keys of the same probe run back into the hole, so no tombstones are needed.
+	 */
+	private static final class Table extends AbstractMap<Long, Integer> {
+		private static final float LOAD_FACTOR = 0.6f;
+
+		private long[] keys;
+		private int[] counts;
+		private int shift;
+		private int size;
+		private int threshold;
+
+		/** Occupied keys in ascending order, or null if keys have been inserted since it was built; may still hold removed keys. */
+		private long[] sorted;
+
+		Table(int expectedSize) {
+			allocate(capacityFor(expectedSize));
+		}
+
+		static int capacityFor(int size) {
+			return Math.max(16, (int)Math.min(initialTableCapacity(size, LOAD_FACTOR), 1 << 30));
+		}
+
+		private void allocate(int capacity) {
+			keys = new long[capacity];
+			counts = new int[capacity];
+			shift = 64 - Integer.numberOfTrailingZeros(capacity);
+			threshold = (int)(capacity * LOAD_FACTOR);
+		}
+
+		private int home(long key) {
+			// Fibonacci hashing spreads keys that differ only in their low id across the table
+			return (int)((key * 0x9e3779b97f4a7c15L) >>> shift);
+		}
+
+		/** @return the slot of the key, or the one's complement of the empty slot where it would be inserted */
+		int find(long key) {
+			int mask = keys.length - 1;
+			for(int slot = home(key); ; slot = (slot + 1) & mask) {
+				if(counts[slot] == 0) {
+					return ~slot;
+				}
+				if(keys[slot] == key) {
+					return slot;
+				}
+			}
+		}
+
+		void insert(int slot, long key, int count) {
+			keys[slot] = key;
+			counts[slot] = count;
+			size++;
+			sorted = null;
+		}
+
+		void removeAt(int slot) {
+			int mask = keys.length - 1;
+			int hole = slot;
+			for(int i = (slot + 1) & mask; counts[i] != 0; i = (i + 1) & mask) {
+				int home = home(keys[i]);
+				if(((i - home) & mask) >= ((i - hole) & mask)) {
+					keys[hole] = keys[i];
+					counts[hole] = counts[i];
+					hole = i;
+				}
+			}
+			counts[hole] = 0;
+			size--;
+		}
+
+		void rehash(int capacity) {
+			long[] oldKeys = keys;
+			int[] oldCounts = counts;
+			allocate(capacity);
+			for(int slot = 0; slot < oldKeys.length; slot++) {
+				if(oldCounts[slot] != 0) {
+					int s = ~find(oldKeys[slot]);
+					keys[s] = oldKeys[slot];
+					counts[s] = oldCounts[slot];
+				}
+			}
+		}
+
+		long[] sortedKeys() {
+			if(sorted == null) {
+				long[] s = new long[size];
+				int n = 0;
+				for(int slot = 0; slot < keys.length; slot++) {
+					if(counts[slot] != 0) {
+						s[n++] = keys[slot];
+					}
+				}
+				Arrays.sort(s);
+				sorted = s;
+			}
+			return sorted;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			if(!(key instanceof Long)) {
+				return null;
+			}
+			int slot = find((Long)key);
+			return slot < 0 ? null : counts[slot];
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Integer put(Long key, Integer value) {
+			if(value <= 0) {
+				throw new IllegalArgumentException("count must be positive");
+			}
+			int slot = find(key);
+			if(slot >= 0) {
+				int c = counts[slot];
+				counts[slot] = value;
+				return c;
+			}
+			insert(~slot, key, value);
+			if(size > threshold) {
+				rehash(keys.length << 1);
+			}
+			return null;
+		}
+
+		@Override
+		public Integer remove(Object key) {
+			if(!(key instanceof Long)) {
+				return null;
+			}
+			int slot = find((Long)key);
+			if(slot < 0) {
+				return null;
+			}
+			int c = counts[slot];
+			removeAt(slot);
+			return c;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			Arrays.fill(counts, 0);
+			size = 0;
+			sorted = null;
+		}
+
+		@Override
+		public Set<Entry<Long, Integer>> entrySet() {
+			return new AbstractSet<Entry<Long, Integer>>() {
+				@Override
+				public Iterator<Entry<Long, Integer>> iterator() {
+					return new TableIterator();
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		private class TableIterator implements Iterator<Entry<Long, Integer>> {
+			private int next = advance(0);
+
+			private int advance(int slot) {
+				while(slot < counts.length && counts[slot] == 0) {
+					slot++;
+				}
+				return slot;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < counts.length;
+			}
+
+			@Override
+			public Entry<Long, Integer> next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Entry<Long, Integer> entry = new SimpleImmutableEntry<Long, Integer>(keys[next], counts[next]);
+				next = advance(next + 1);
+				return entry;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+}
@@ -0,0 +1,773 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * An {@link ItemCounter} that keeps its keys and counts outside of the Java heap, for counters with so many distinct items that an on-heap map
+ * would put a multi-gigabyte object graph in front of the garbage collector.
+ *
+ * <p>Keys are serialized to bytes with a {@link KeyCodec} and appended to an arena of direct {@link ByteBuffer} pages.
+ * Counts live in an open-addressed (linear probing) index, also in direct buffers, where each slot holds the key's hash as a fingerprint,
+ * the count, and the arena address of the key bytes.
+ * A lookup only decodes or compares key bytes when the fingerprint matches.
+ * </p>
+ *
+ * <p>Every {@link #get(Object)}, {@link #set(Object, int)}, and {@link #increment(Object)} serializes its key, so the per-operation cost is
+ * higher than that of {@link ItemCounter}; the payoff is the near-constant heap footprint.
+ * Methods that return collections of keys, such as {@link #getMap()} and {@link #sortByValueKey(boolean)}, decode keys back onto the heap.
+ * </p>
+ *
+ * <p>Call {@link #close()} to release the off-heap memory as soon as the counter is no longer needed.
+ * Using the counter, or any view obtained from it, after it has been closed throws an {@link IllegalStateException}.
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class OffHeapItemCounter<K> extends ItemCounter<K> implements Closeable {
+
+	/**
+	 * Converts keys to and from the bytes stored off-heap.
+	 * Equal keys must encode to equal bytes.
+	 *
+	 * @param <K> the type of key
+	 */
+	public interface KeyCodec<K> {
+		/** @return the serialized form of the key */
+		byte[] encode(K key);
+
+		/** @return the key deserialized from the given bytes */
+		K decode(byte[] bytes);
+	}
+
+
+	/** Encodes strings as UTF-8. */
+	public static final KeyCodec<String> STRING_CODEC = new KeyCodec<String>() {
+		private final Charset utf8 = Charset.forName("UTF-8");
+
+		@Override
+		public byte[] encode(String key) {
+			return key.getBytes(utf8);
+		}
+
+		@Override
+		public String decode(byte[] bytes) {
+			return new String(bytes, utf8);
+		}
+	};
+
+
+	private final Table<K> table;
+
+
+	/**
+	 * Factory method for counting strings, which are stored as UTF-8.
+	 * @param expectedSize number of distinct items that can be counted before the index has to grow
+	 * @return a new, empty off-heap counter
+	 */
+	public static OffHeapItemCounter<String> forStrings(int expectedSize) {
+		return new OffHeapItemCounter<String>(STRING_CODEC, expectedSize);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param codec serializes keys to and from the off-heap arena
+	 * @param expectedSize number of distinct items that can be counted before the index has to grow
+	 */
+	public OffHeapItemCounter(KeyCodec<K> codec, int expectedSize) {
+		this(new Table<K>(codec, expectedSize));
+	}
+
+
+	private OffHeapItemCounter(Table<K> table) {
+		super(table, false);
+		this.table = table;
+	}
+
+
+	@Override
+	public Integer get(K item) {
+		listener.onGet();
+		return table.count(table.codec.encode(item));
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		checkRankable(item);
+		countChanged(item, table.set(table.codec.encode(item), count), count);
+	}
+
+
+	/** The table does not support removal through its iterator. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(K item) {
+		listener.onIncrement();
+		checkRankable(item);
+		int c = table.add(table.codec.encode(item), 1);
+		countChanged(item, c - 1, c);
+		return c;
+	}
+
+
+	@Override
+	public long sum() {
+		return table.sumCounts();
+	}
+
+
+	@Override
+	public double variance() {
+		int n = table.size();
+		if(n < 2) {
+			return 0;
+		}
+		return table.sumSquaredDeviations(mean()) / (n - 1);
+	}
+
+
+	@Override
+	public double variancePopulation() {
+		int n = table.size();
+		if(n < 2) {
+			return 0;
+		}
+		return table.sumSquaredDeviations(mean()) / n;
+	}
+
+
+	@Override
+	public String toCSV(String columnDelimiter, String rowDelimiter) {
+		StringBuilder sb = new StringBuilder();
+		for(Map.Entry<K, Integer> entry : table.entrySet()) {
+			sb.append(entry.getKey());
+			sb.append(columnDelimiter);
+			sb.append(entry.getValue());
+			sb.append(rowDelimiter);
+		}
+		return sb.toString();
+	}
+
+
+	@Override
+	public void writeCSV(Writer writer, String columnDelimiter, String rowDelimiter) throws IOException {
+		for(Map.Entry<K, Integer> entry : table.entrySet()) {
+			writer.write(entry.getKey().toString());
+			writer.write(columnDelimiter);
+			writer.write(entry.getValue().toString());
+			writer.write(rowDelimiter);
+		}
+	}
+
+
+	@Override
+	public void setListener(CounterListener listener) {
+		super.setListener(listener);
+		table.listener = this.listener;
+	}
+
+
+	/**
+	 * Shrinks the off-heap index to fit the current keys and compacts the key arena, releasing the bytes of deleted keys.
+	 */
+	@Override
+	public void trimToSize() {
+		long start = System.nanoTime();
+		int fromCapacity = table.trim();
+		if(table.capacity != fromCapacity) {
+			listener.onResize(fromCapacity, table.capacity, System.nanoTime() - start);
+		}
+	}
+
+
+	/**
+	 * Includes the off-heap memory, see {@link #offHeapBytes()}.
+	 */
+	@Override
+	public long estimatedRetainedBytes() {
+		return table.offHeapBytes();
+	}
+
+
+	/**
+	 * Get the number of bytes currently allocated outside of the Java heap for the index and key arena.
+	 * @return off-heap bytes held by this counter
+	 */
+	public long offHeapBytes() {
+		return table.offHeapBytes();
+	}
+
+
+	/**
+	 * Releases the off-heap memory held by this counter.
+	 * Subsequent use of this counter throws an {@link IllegalStateException}.
+	 * Calling this more than once has no further effect.
+	 */
+	@Override
+	public void close() {
+		table.close();
+	}
+
+
+	/**
+	 * Open-addressed hash table over direct byte buffers, exposed as a map so the inherited {@link ItemCounter} methods work unchanged.
+	 * Zero counts are never stored, so an empty slot is one with a zero count.
+	 */
+	private static class Table<K> extends AbstractMap<K, Integer> {
+		/* Slot layout: int hash, int count, long key address. */
+		private static final int SLOT_BYTES = 16;
+		private static final int HASH_OFFSET = 0;
+		private static final int COUNT_OFFSET = 4;
+		private static final int ADDRESS_OFFSET = 8;
+
+		/** Index pages hold 2^20 slots (16MB), so the index can exceed the 2GB limit of a single buffer. */
+		private static final int SLOTS_PER_PAGE_BITS = 20;
+		private static final int SLOTS_PER_PAGE = 1 << SLOTS_PER_PAGE_BITS;
+
+		/** Arena pages start small and double up to this size. */
+		private static final int ARENA_PAGE_BYTES = 1 << 24;
+		private static final int FIRST_ARENA_PAGE_BYTES = 1 << 16;
+		private static final double MAX_LOAD = 0.7;
+
+		private final KeyCodec<K> codec;
+		private CounterListener listener = CounterListener.NONE;
+
+		private ByteBuffer[] index;
+		private int capacity;
+		private int size;
+
+		/** Key records are an int length followed by the key bytes; an address is (page << 32) | position. */
+		private ByteBuffer[] arena;
+		private int arenaPages;
+
+		/** Bytes of key records appended to the arena since it was last compacted, and how many of those belong to deleted keys. */
+		private long arenaBytes;
+		private long deadBytes;
+
+		private boolean isClosed;
+
+		Table(KeyCodec<K> codec, int expectedSize) {
+			if(expectedSize < 0) {
+				throw new IllegalArgumentException("expected size must be non-negative");
+			}
+			this.codec = codec;
+			int c = 16;
+			while(c * MAX_LOAD < expectedSize) {
+				c <<= 1;
+			}
+			capacity = c;
+			index = allocateIndex(capacity);
+			arena = new ByteBuffer[4];
+			arenaPages = 0;
+		}
+
+		private static ByteBuffer[] allocateIndex(int capacity) {
+			int pageSlots = Math.min(capacity, SLOTS_PER_PAGE);
+			ByteBuffer[] pages = new ByteBuffer[capacity / pageSlots];
+			for(int i = 0; i < pages.length; i++) {
+				pages[i] = ByteBuffer.allocateDirect(pageSlots * SLOT_BYTES);
+			}
+			return pages;
+		}
+
+		private static ByteBuffer page(ByteBuffer[] pages, int slot) {
+			return pages[slot >>> SLOTS_PER_PAGE_BITS];
+		}
+
+		private static int offset(int slot) {
+			return (slot & (SLOTS_PER_PAGE - 1)) * SLOT_BYTES;
+		}
+
+		/** Murmur-style hash of the key bytes, also stored in the slot as a fingerprint. */
+		private static int hash(byte[] key) {
+			int h = 0x9747b28c ^ key.length;
+			for(int i = 0; i < key.length; i++) {
+				h ^= key[i] & 0xff;
+				h *= 0x5bd1e995;
+				h ^= h >>> 15;
+			}
+			h ^= h >>> 16;
+			h *= 0x85ebca6b;
+			h ^= h >>> 13;
+			h *= 0xc2b2ae35;
+			h ^= h >>> 16;
+			return h;
+		}
+
+		private void checkOpen() {
+			if(isClosed) {
+				throw new IllegalStateException("counter has been closed");
+			}
+		}
+
+		private long append(byte[] key) {
+			int recordBytes = 4 + key.length;
+			ByteBuffer current = arenaPages == 0 ? null : arena[arenaPages - 1];
+			if(current == null || current.remaining() < recordBytes) {
+				if(arenaPages == arena.length) {
+					ByteBuffer[] newArena = new ByteBuffer[arena.length * 2];
+					System.arraycopy(arena, 0, newArena, 0, arenaPages);
+					arena = newArena;
+				}
+				int pageBytes = current == null ? FIRST_ARENA_PAGE_BYTES : Math.min(ARENA_PAGE_BYTES, current.capacity() * 2);
+				current = ByteBuffer.allocateDirect(Math.max(pageBytes, recordBytes));
+				arena[arenaPages++] = current;
+			}
+			long address = ((long)(arenaPages - 1) << 32) | current.position();
+			current.putInt(key.length);
+			current.put(key);
+			arenaBytes += recordBytes;
+			return address;
+		}
+
+		private byte[] keyAt(long address) {
+			ByteBuffer page = arena[(int)(address >>> 32)];
+			int position = (int)address;
+			byte[] key = new byte[page.getInt(position)];
+			for(int i = 0; i < key.length; i++) {
+				key[i] = page.get(position + 4 + i);
+			}
+			return key;
+		}
+
+		private boolean keyEquals(long address, byte[] key) {
+			ByteBuffer page = arena[(int)(address >>> 32)];
+			int position = (int)address;
+			if(page.getInt(position) != key.length) {
+				return false;
+			}
+			for(int i = 0; i < key.length; i++) {
+				if(page.get(position + 4 + i) != key[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** @return the slot holding the key, or the empty slot where it would be inserted */
+		private int find(byte[] key, int h) {
+			int mask = capacity - 1;
+			int slot = h & mask;
+			while(true) {
+				ByteBuffer page = page(index, slot);
+				int o = offset(slot);
+				if(page.getInt(o + COUNT_OFFSET) == 0) {
+					return slot;
+				}
+				if(page.getInt(o + HASH_OFFSET) == h && keyEquals(page.getLong(o + ADDRESS_OFFSET), key)) {
+					return slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+
+		private int countAt(int slot) {
+			return page(index, slot).getInt(offset(slot) + COUNT_OFFSET);
+		}
+
+		int count(byte[] key) {
+			checkOpen();
+			return countAt(find(key, hash(key)));
+		}
+
+		int add(byte[] key, int delta) {
+			checkOpen();
+			int h = hash(key);
+			int slot = find(key, h);
+			ByteBuffer page = page(index, slot);
+			int o = offset(slot);
+			int c = page.getInt(o + COUNT_OFFSET);
+			if(c > Integer.MAX_VALUE - delta) {
+				throw new ArithmeticException("count overflow");
+			}
+			if(c == 0) {
+				if(size + 1 > capacity * MAX_LOAD) {
+					long start = System.nanoTime();
+					grow();
+					listener.onResize(capacity / 2, capacity, System.nanoTime() - start);
+					slot = find(key, h);
+					page = page(index, slot);
+					o = offset(slot);
+				}
+				page.putInt(o + HASH_OFFSET, h);
+				page.putLong(o + ADDRESS_OFFSET, append(key));
+				size++;
+			}
+			c += delta;
+			page.putInt(o + COUNT_OFFSET, c);
+			return c;
+		}
+
+		/** @return the previous count */
+		int set(byte[] key, int count) {
+			checkOpen();
+			int h = hash(key);
+			int slot = find(key, h);
+			int c = countAt(slot);
+			if(count == 0) {
+				if(c != 0) {
+					delete(slot);
+				}
+			} else if(c == 0) {
+				add(key, count);
+			} else {
+				page(index, slot).putInt(offset(slot) + COUNT_OFFSET, count);
+			}
+			if(deadBytes > FIRST_ARENA_PAGE_BYTES && deadBytes * 2 > arenaBytes) {
+				// Mostly deleted keys; without this, deletes and inserts at a steady size would grow the arena forever.
+				// The index keeps its capacity, so this is not reported as a resize.
+				rehash(capacity);
+			}
+			return c;
+		}
+
+		/**
+		 * Empties a slot with backward-shift deletion, so probe sequences stay intact without tombstones.
+		 * The key bytes stay in the arena until it is next compacted, which {@link #set(byte[], int)} does once they are half of it.
+		 */
+		private void delete(int slot) {
+			long address = page(index, slot).getLong(offset(slot) + ADDRESS_OFFSET);
+			deadBytes += 4 + arena[(int)(address >>> 32)].getInt((int)address);
+			int mask = capacity - 1;
+			int hole = slot;
+			int j = slot;
+			while(true) {
+				j = (j + 1) & mask;
+				ByteBuffer jPage = page(index, j);
+				int jo = offset(j);
+				if(jPage.getInt(jo + COUNT_OFFSET) == 0) {
+					break;
+				}
+				int home = jPage.getInt(jo + HASH_OFFSET) & mask;
+				boolean isMovable = (j > hole) ? (home <= hole || home > j) : (home <= hole && home > j);
+				if(isMovable) {
+					ByteBuffer holePage = page(index, hole);
+					int ho = offset(hole);
+					holePage.putInt(ho + HASH_OFFSET, jPage.getInt(jo + HASH_OFFSET));
+					holePage.putInt(ho + COUNT_OFFSET, jPage.getInt(jo + COUNT_OFFSET));
+					holePage.putLong(ho + ADDRESS_OFFSET, jPage.getLong(jo + ADDRESS_OFFSET));
+					hole = j;
+				}
+			}
+			page(index, hole).putInt(offset(hole) + COUNT_OFFSET, 0);
+			size--;
+		}
+
+		/** Doubles the index and compacts the arena. */
+		private void grow() {
+			if(capacity >= (1 << 30)) {
+				throw new IllegalStateException("counter is full");
+			}
+			rehash(capacity << 1);
+		}
+
+		/**
+		 * Shrinks the index to the smallest capacity that holds the keys and compacts the arena.
+		 * @return the previous capacity
+		 */
+		int trim() {
+			checkOpen();
+			int oldCapacity = capacity;
+			int c = 16;
+			while(c * MAX_LOAD < size) {
+				c <<= 1;
+			}
+			if(c != capacity || deadBytes > 0) {
+				rehash(c);
+			}
+			return oldCapacity;
+		}
+
+		/** Rebuilds the index with the given capacity and copies the live keys into a new arena, dropping the bytes of deleted keys. */
+		private void rehash(int newCapacity) {
+			ByteBuffer[] oldIndex = index;
+			ByteBuffer[] oldArena = arena;
+			int oldArenaPages = arenaPages;
+			int oldCapacity = capacity;
+
+			capacity = newCapacity;
+			index = allocateIndex(capacity);
+			arena = new ByteBuffer[Math.max(4, oldArenaPages)];
+			arenaPages = 0;
+			arenaBytes = 0;
+			deadBytes = 0;
+			int mask = capacity - 1;
+			for(int slot = 0; slot < oldCapacity; slot++) {
+				ByteBuffer oldPage = page(oldIndex, slot);
+				int oo = offset(slot);
+				int c = oldPage.getInt(oo + COUNT_OFFSET);
+				if(c == 0) {
+					continue;
+				}
+				int h = oldPage.getInt(oo + HASH_OFFSET);
+				ByteBuffer keyPage = oldArena[(int)(oldPage.getLong(oo + ADDRESS_OFFSET) >>> 32)];
+				int keyPosition = (int)oldPage.getLong(oo + ADDRESS_OFFSET);
+				byte[] key = new byte[keyPage.getInt(keyPosition)];
+				for(int i = 0; i < key.length; i++) {
+					key[i] = keyPage.get(keyPosition + 4 + i);
+				}
+
+				int newSlot = h & mask;
+				while(countAt(newSlot) != 0) {
+					newSlot = (newSlot + 1) & mask;
+				}
+				ByteBuffer newPage = page(index, newSlot);
+				int no = offset(newSlot);
+				newPage.putInt(no + HASH_OFFSET, h);
+				newPage.putInt(no + COUNT_OFFSET, c);
+				newPage.putLong(no + ADDRESS_OFFSET, append(key));
+			}
+			free(oldIndex, oldIndex.length);
+			free(oldArena, oldArenaPages);
+		}
+
+		long sumCounts() {
+			checkOpen();
+			long sum = 0L;
+			for(int slot = 0; slot < capacity; slot++) {
+				sum += countAt(slot);
+			}
+			return sum;
+		}
+
+		double sumSquaredDeviations(double mean) {
+			checkOpen();
+			double var = 0.0;
+			for(int slot = 0; slot < capacity; slot++) {
+				int c = countAt(slot);
+				if(c != 0) {
+					double foo = mean - c;
+					var += foo * foo;
+				}
+			}
+			return var;
+		}
+
+		long offHeapBytes() {
+			if(isClosed) {
+				return 0L;
+			}
+			long bytes = (long)capacity * SLOT_BYTES;
+			for(int i = 0; i < arenaPages; i++) {
+				bytes += arena[i].capacity();
+			}
+			return bytes;
+		}
+
+		void close() {
+			if(!isClosed) {
+				isClosed = true;
+				free(index, index.length);
+				free(arena, arenaPages);
+				index = null;
+				arena = null;
+				size = 0;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private byte[] encode(Object key) {
+			try {
+				return codec.encode((K)key);
+			} catch(ClassCastException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public Integer get(Object key) {
+			byte[] bytes = encode(key);
+			if(bytes == null) {
+				return null;
+			}
+			int c = count(bytes);
+			return c == 0 ? null : c;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Integer put(K key, Integer value) {
+			if(value < 0) {
+				throw new IllegalArgumentException("count must be non-negative");
+			}
+			int c = set(codec.encode(key), value);
+			return c == 0 ? null : c;
+		}
+
+		@Override
+		public Integer remove(Object key) {
+			byte[] bytes = encode(key);
+			if(bytes == null) {
+				return null;
+			}
+			int c = set(bytes, 0);
+			return c == 0 ? null : c;
+		}
+
+		@Override
+		public int size() {
+			checkOpen();
+			return size;
+		}
+
+		@Override
+		public Set<Entry<K, Integer>> entrySet() {
+			return new AbstractSet<Entry<K,Integer>>() {
+				@Override
+				public Iterator<Entry<K, Integer>> iterator() {
+					return new SlotIterator();
+				}
+
+				@Override
+				public int size() {
+					return Table.this.size();
+				}
+			};
+		}
+
+		/** Visits the occupied slots in index order; the table must not be modified during iteration. */
+		private class SlotIterator implements Iterator<Entry<K, Integer>> {
+			private int next = advance(0);
+
+			private int advance(int slot) {
+				checkOpen();
+				while(slot < capacity && countAt(slot) == 0) {
+					slot++;
+				}
+				return slot;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < capacity;
+			}
+
+			@Override
+			public Entry<K, Integer> next() {
+				if(next >= capacity) {
+					throw new NoSuchElementException();
+				}
+				checkOpen();
+				int slot = next;
+				ByteBuffer page = page(index, slot);
+				int o = offset(slot);
+				K key = codec.decode(keyAt(page.getLong(o + ADDRESS_OFFSET)));
+				Integer c = page.getInt(o + COUNT_OFFSET);
+				next = advance(slot + 1);
+				return new SimpleImmutableEntry<K, Integer>(key, c);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+
+
+	/*
+	 * Direct buffers are normally released only when they are garbage collected.
+	 * Where the JVM allows it, their cleaner is invoked to release the memory immediately; otherwise the garbage collector will eventually do it.
+	 */
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+		} catch(Exception e) {
+			unsafe = null;
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private static void free(ByteBuffer[] buffers, int n) {
+		for(int i = 0; i < n; i++) {
+			free(buffers[i]);
+			buffers[i] = null;
+		}
+	}
+
+	private static void free(ByteBuffer buffer) {
+		try {
+			if(INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} else {
+				Method cleaner = buffer.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				Object c = cleaner.invoke(buffer);
+				if(c != null) {
+					c.getClass().getMethod("clean").invoke(c);
+				}
+			}
+		} catch(Exception e) {
+			// Leave it to the garbage collector
+		}
+	}
+}
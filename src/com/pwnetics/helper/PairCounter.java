@@ -0,0 +1,238 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Counts pairs of objects, such as (word, next word) or (feature, label), without creating a pair object per occurrence.
+ *
+ * <p>Each distinct first and second object is given a dense int id the first time it is counted, and the pairs of ids are counted by a bigram
+ * {@link NGramCounter}; counting a pair whose objects have been seen before allocates nothing.
+ * The two kinds of object have separate ids, so the same object can have one id as a first and another as a second.
+ * The id counter is available from {@link #getPairCounts()}, for counting pairs of ids directly and for its summary statistics.
+ * </p>
+ *
+ * <p>An object keeps its id even after the counts of all of its pairs are set to zero.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <A> the type of the first object of each pair
+ * @param <B> the type of the second object of each pair
+ */
+public class PairCounter<A, B> {
+
+	private final NGramCounter pairs;
+	private final Map<A, Integer> firstIds = new HashMap<A, Integer>();
+	private final List<A> firsts = new ArrayList<A>();
+	private final Map<B, Integer> secondIds = new HashMap<B, Integer>();
+	private final List<B> seconds = new ArrayList<B>();
+
+
+	/**
+	 * Constructor.
+	 */
+	public PairCounter() {
+		this(12);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param expectedSize number of distinct pairs that can be counted before the table has to grow
+	 */
+	public PairCounter(int expectedSize) {
+		pairs = new NGramCounter(2, expectedSize);
+	}
+
+
+	/**
+	 * Get the count of a pair.
+	 * @return the pair's count
+	 */
+	public int get(A first, B second) {
+		Integer a = firstIds.get(first);
+		Integer b = secondIds.get(second);
+		return a == null || b == null ? 0 : pairs.get(a, b);
+	}
+
+
+	/**
+	 * Set the count of a pair.
+	 * @param count non-negative count
+	 */
+	public void set(A first, B second, int count) {
+		pairs.set(pairs.pack(firstId(first), secondId(second)), count);
+	}
+
+
+	/**
+	 * Increment the count of a pair.
+	 * @return the new count of the pair
+	 */
+	public int increment(A first, B second) {
+		return pairs.increment(firstId(first), secondId(second));
+	}
+
+
+	/** @return the number of distinct pairs with a non-zero count */
+	public int size() {
+		return pairs.size();
+	}
+
+
+	/** @return the sum of the counts of all pairs */
+	public long sum() {
+		return pairs.sum();
+	}
+
+
+	/**
+	 * Sum the counts of the pairs by their first object.
+	 * @return a new counter from each first object to the total count of its pairs
+	 */
+	public ItemCounter<A> firstMarginal() {
+		return objects(pairs.marginal(0), firsts);
+	}
+
+
+	/**
+	 * Sum the counts of the pairs by their second object.
+	 * @return a new counter from each second object to the total count of its pairs
+	 */
+	public ItemCounter<B> secondMarginal() {
+		return objects(pairs.marginal(1), seconds);
+	}
+
+
+	/**
+	 * Count the second objects that are paired with a first object.
+	 * @return a new counter from each second object to the count of its pair with the given first object; empty if the first object has not been counted
+	 */
+	public ItemCounter<B> conditional(A first) {
+		Integer a = firstIds.get(first);
+		if(a == null) {
+			return new ItemCounter<B>();
+		}
+		return objects(pairs.conditional(a), seconds);
+	}
+
+
+	/**
+	 * Get the k second objects most often paired with a first object.
+	 * @return the second objects and their counts, in descending order of count
+	 */
+	public List<ItemCounter<B>.KeyValuePair> topSeconds(A first, int k) {
+		ItemCounter<B> next = conditional(first);
+		next.retainTop(k);
+		return next.sortByValueKey(false);
+	}
+
+
+	/**
+	 * Get the counter of pairs of ids, whose items are the pairs packed by {@link NGramCounter#pack(int, int)}.
+	 * @return the underlying counter, not a copy
+	 */
+	public NGramCounter getPairCounts() {
+		return pairs;
+	}
+
+
+	/**
+	 * @param first a first object
+	 * @return the id of the first object, or -1 if it has not been counted
+	 */
+	public int firstIdOf(A first) {
+		Integer a = firstIds.get(first);
+		return a == null ? -1 : a;
+	}
+
+
+	/**
+	 * @param second a second object
+	 * @return the id of the second object, or -1 if it has not been counted
+	 */
+	public int secondIdOf(B second) {
+		Integer b = secondIds.get(second);
+		return b == null ? -1 : b;
+	}
+
+
+	/** @return the first object with the given id */
+	public A first(int id) {
+		return firsts.get(id);
+	}
+
+
+	/** @return the second object with the given id */
+	public B second(int id) {
+		return seconds.get(id);
+	}
+
+
+	private int firstId(A first) {
+		Integer a = firstIds.get(first);
+		if(a == null) {
+			a = firsts.size();
+			firstIds.put(first, a);
+			firsts.add(first);
+		}
+		return a;
+	}
+
+
+	private int secondId(B second) {
+		Integer b = secondIds.get(second);
+		if(b == null) {
+			b = seconds.size();
+			secondIds.put(second, b);
+			seconds.add(second);
+		}
+		return b;
+	}
+
+
+	/** Translate a counter of ids into a counter of the objects with those ids. */
+	private static <T> ItemCounter<T> objects(ItemCounter<Integer> ids, final List<T> objects) {
+		final ItemCounter<T> counter = new ItemCounter<T>(ids.size(), 0.75f);
+		ids.forEach(new ItemCountVisitor<Integer>() {
+			@Override
+			public void visit(Integer id, int count) {
+				counter.set(objects.get(id), count);
+			}
+		});
+		return counter;
+	}
+}
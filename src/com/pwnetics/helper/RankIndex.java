@@ -0,0 +1,257 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+
+
+package com.pwnetics.helper;
+
+
+/**
+ * The items of a counter in descending order of count, answering "what position is this item at" and "which item is at this position"
+ * queries; used by {@link ItemCounter#rank(Object)} and {@link ItemCounter#itemAtRank(int)}.
+ *
+ * <p>Items are ordered as by {@link ItemCounter#sortByValueKey(boolean)} with isAscending false: by descending count, then by descending key.
+ * Implemented as a treap where each node holds one item and the size of its subtree, so updates and queries take expected O(log n) time.
+ * Unlike {@link CountHistogram}, every item has its own node, so ties between equal counts need {@link Comparable} items.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of item being ranked
+ */
+class RankIndex<K> {
+
+	private static class Node {
+		final Object key;
+		final long value;
+		final int priority;
+		int size;
+		Node left;
+		Node right;
+
+		Node(Object key, long value, int priority) {
+			this.key = key;
+			this.value = value;
+			this.priority = priority;
+			this.size = 1;
+		}
+	}
+
+
+	private Node root;
+	private int seed = 0x2545f491;
+
+
+	/** @return the number of items */
+	int size() {
+		return size(root);
+	}
+
+
+	/**
+	 * Add an item.
+	 * @throws UnsupportedOperationException if the item is not {@link Comparable}
+	 */
+	void add(K item, long value) {
+		if(!(item instanceof Comparable<?>)) {
+			throw new UnsupportedOperationException("ranking needs Comparable items, not " + item);
+		}
+		root = add(root, new Node(item, value, nextPriority()));
+	}
+
+
+	/**
+	 * Remove an item.
+	 * @param value the value the item was added with
+	 * @throws IllegalStateException if the item is not present with that value
+	 */
+	void remove(K item, long value) {
+		root = remove(root, item, value);
+	}
+
+
+	/**
+	 * Get the position of an item.
+	 * @param value the item's current value
+	 * @return the number of items ahead of the item
+	 */
+	int rank(K item, long value) {
+		int r = 0;
+		Node n = root;
+		while(n != null) {
+			int c = compare(item, value, n);
+			if(c < 0) {
+				n = n.left;
+			} else {
+				r += size(n.left);
+				if(c == 0) {
+					return r;
+				}
+				r += 1;
+				n = n.right;
+			}
+		}
+		throw new IllegalStateException("item is not indexed: " + item);
+	}
+
+
+	/**
+	 * Get the item at the given position.
+	 * @param rank zero-based position, less than {@link #size()}
+	 * @return the item at that position
+	 */
+	@SuppressWarnings("unchecked")
+	K select(int rank) {
+		if(rank < 0 || rank >= size()) {
+			throw new IndexOutOfBoundsException("rank " + rank + " of " + size());
+		}
+		Node n = root;
+		while(true) {
+			int leftSize = size(n.left);
+			if(rank < leftSize) {
+				n = n.left;
+			} else if(rank == leftSize) {
+				return (K)n.key;
+			} else {
+				rank -= leftSize + 1;
+				n = n.right;
+			}
+		}
+	}
+
+
+	/** Compares an item to a node in index order: larger values first, then larger keys first. */
+	@SuppressWarnings("unchecked")
+	private static int compare(Object key, long value, Node n) {
+		if(value != n.value) {
+			return value > n.value ? -1 : 1;
+		}
+		return ((Comparable<Object>)n.key).compareTo(key);
+	}
+
+
+	private int nextPriority() {
+		// xorshift; deterministic so behavior is reproducible
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	}
+
+
+	private static int size(Node n) {
+		return n == null ? 0 : n.size;
+	}
+
+
+	private static void update(Node n) {
+		n.size = size(n.left) + 1 + size(n.right);
+	}
+
+
+	private static Node add(Node n, Node added) {
+		if(n == null) {
+			return added;
+		}
+		int c = compare(added.key, added.value, n);
+		if(c == 0) {
+			throw new IllegalStateException("item is already indexed: " + added.key);
+		}
+		if(c < 0) {
+			n.left = add(n.left, added);
+			update(n);
+			if(n.left.priority > n.priority) {
+				return rotateRight(n);
+			}
+		} else {
+			n.right = add(n.right, added);
+			update(n);
+			if(n.right.priority > n.priority) {
+				return rotateLeft(n);
+			}
+		}
+		return n;
+	}
+
+
+	private static Node remove(Node n, Object key, long value) {
+		if(n == null) {
+			throw new IllegalStateException("item is not indexed: " + key);
+		}
+		int c = compare(key, value, n);
+		if(c < 0) {
+			n.left = remove(n.left, key, value);
+		} else if(c > 0) {
+			n.right = remove(n.right, key, value);
+		} else {
+			return merge(n.left, n.right);
+		}
+		update(n);
+		return n;
+	}
+
+
+	private static Node rotateRight(Node n) {
+		Node l = n.left;
+		n.left = l.right;
+		update(n);
+		l.right = n;
+		update(l);
+		return l;
+	}
+
+
+	private static Node rotateLeft(Node n) {
+		Node r = n.right;
+		n.right = r.left;
+		update(n);
+		r.left = n;
+		update(r);
+		return r;
+	}
+
+
+	private static Node merge(Node a, Node b) {
+		if(a == null) {
+			return b;
+		}
+		if(b == null) {
+			return a;
+		}
+		if(a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			update(a);
+			return a;
+		} else {
+			b.left = merge(a, b.left);
+			update(b);
+			return b;
+		}
+	}
+}
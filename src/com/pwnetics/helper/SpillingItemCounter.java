@@ -0,0 +1,533 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+
+/**
+ * Counts items in bounded memory by spilling partial counts to disk, for jobs whose number of distinct items exceeds the heap.
+ *
+ * <p>Items are counted in an in-memory {@link ItemCounter} until it holds the configured number of distinct items.
+ * Its counts are then sorted by serialized key and written to a temporary "run" file, and counting starts over with an empty counter.
+ * The final counts are produced by a streaming k-way merge of all runs and the in-memory remainder, which needs only one buffered
+ * record per run in memory.
+ * When there are more runs than can be merged at once, the oldest runs are first merged into a single larger run.
+ * </p>
+ *
+ * <p>Keys are serialized with an {@link OffHeapItemCounter.KeyCodec} and ordered by their unsigned serialized bytes, which for
+ * {@link OffHeapItemCounter#STRING_CODEC} is the same as the ordering of the strings' code points.
+ * Merged counts are {@code long}, so totals beyond {@link Integer#MAX_VALUE} are not lost.
+ * </p>
+ *
+ * <p>Call {@link #close()} to delete the run files. This class is not thread-safe.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class SpillingItemCounter<K> implements Closeable {
+
+	/** The maximum number of runs read at the same time by a merge. */
+	protected static final int MAX_MERGE_WIDTH = 64;
+
+	private final OffHeapItemCounter.KeyCodec<K> codec;
+	private final int maxItemsInMemory;
+	private final File spillDirectory;
+
+	private ItemCounter<K> inMemory;
+
+	/** Run files, oldest first. */
+	private final LinkedList<File> runs;
+	private boolean isClosed;
+
+
+	/**
+	 * Receives the merged counts in key order.
+	 * @param <K> the type of object being counted
+	 */
+	public interface CountVisitor<K> {
+		void visit(K item, long count) throws IOException;
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param codec serializes keys for the run files
+	 * @param maxItemsInMemory number of distinct items held in memory before spilling to disk
+	 * @param spillDirectory directory for the temporary run files, or null for the system default
+	 */
+	public SpillingItemCounter(OffHeapItemCounter.KeyCodec<K> codec, int maxItemsInMemory, File spillDirectory) {
+		if(maxItemsInMemory < 1) {
+			throw new IllegalArgumentException("maxItemsInMemory must be positive");
+		}
+		this.codec = codec;
+		this.maxItemsInMemory = maxItemsInMemory;
+		this.spillDirectory = spillDirectory;
+		this.inMemory = new ItemCounter<K>();
+		this.runs = new LinkedList<File>();
+	}
+
+
+	/**
+	 * Increment the count on an item.
+	 * @param item item whose count to increment
+	 * @throws IOException if the partial counts had to be spilled and could not be written
+	 */
+	public void increment(K item) throws IOException {
+		checkOpen();
+		try {
+			inMemory.increment(item);
+		} catch(ArithmeticException e) {
+			// The in-memory count is full; the runs hold long counts
+			spill();
+			inMemory.increment(item);
+		}
+		if(inMemory.size() >= maxItemsInMemory) {
+			spill();
+		}
+	}
+
+
+	/**
+	 * Add to the count of an item.
+	 * @param item item whose count to increase
+	 * @param count non-negative amount to add
+	 * @throws IOException if the partial counts had to be spilled and could not be written
+	 */
+	public void add(K item, int count) throws IOException {
+		checkOpen();
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		if(count > 0) {
+			long c = (long)inMemory.get(item) + count;
+			if(c > Integer.MAX_VALUE) {
+				// The in-memory count would overflow; the runs hold long counts
+				spill();
+				c = count;
+			}
+			inMemory.set(item, (int)c);
+			if(inMemory.size() >= maxItemsInMemory) {
+				spill();
+			}
+		}
+	}
+
+
+	/**
+	 * Get the number of run files currently on disk.
+	 * @return number of spilled runs
+	 */
+	public int runCount() {
+		return runs.size();
+	}
+
+
+	/**
+	 * Merge all partial counts and pass each item with its total count to the visitor, in serialized key order.
+	 * Each item is visited exactly once. Counting can continue afterward.
+	 * @param visitor receives the merged counts
+	 * @throws IOException if a run file could not be read
+	 */
+	public void merge(CountVisitor<K> visitor) throws IOException {
+		checkOpen();
+		while(runs.size() + 1 > MAX_MERGE_WIDTH) {
+			compactOldestRuns();
+		}
+
+		List<Source> sources = new ArrayList<Source>();
+		try {
+			for(File run : runs) {
+				sources.add(new RunSource(run));
+			}
+			sources.add(new MemorySource(sortedRecords()));
+			mergeSources(sources, visitor);
+		} finally {
+			for(Source source : sources) {
+				source.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Write the merged counts in a CSV (tab-separated) format, sorted by serialized key.
+	 * Constructed as "key.toString()\tcount\n".
+	 * Does not close the writer.
+	 * @throws IOException
+	 */
+	public void writeCSV(Writer writer) throws IOException {
+		writeCSV(writer,"\t","\n");
+	}
+
+
+	/**
+	 * Write the merged counts in a CSV-like format, sorted by serialized key.
+	 * Constructed as key.toString() + columnDelimiter + count + rowDelimiter.
+	 * Does not close the writer.
+	 * @throws IOException
+	 */
+	public void writeCSV(final Writer writer, final String columnDelimiter, final String rowDelimiter) throws IOException {
+		merge(new CountVisitor<K>() {
+			@Override
+			public void visit(K item, long count) throws IOException {
+				writer.write(item.toString());
+				writer.write(columnDelimiter);
+				writer.write(Long.toString(count));
+				writer.write(rowDelimiter);
+			}
+		});
+	}
+
+
+	/**
+	 * Merge all partial counts into an ordinary in-memory {@link ItemCounter}.
+	 * Only useful when the final number of distinct items fits in memory, for example after counting many duplicates.
+	 * @return a new item counter holding the merged counts
+	 * @throws IOException if a run file could not be read
+	 * @throws IllegalStateException if a merged count does not fit in an int
+	 */
+	public ItemCounter<K> toItemCounter() throws IOException {
+		final ItemCounter<K> ic = new ItemCounter<K>();
+		merge(new CountVisitor<K>() {
+			@Override
+			public void visit(K item, long count) {
+				if(count > Integer.MAX_VALUE) {
+					throw new IllegalStateException("count of " + item + " overflows an int");
+				}
+				ic.set(item, (int)count);
+			}
+		});
+		return ic;
+	}
+
+
+	/**
+	 * Deletes the run files and discards the in-memory counts.
+	 * Subsequent use of this counter throws an {@link IllegalStateException}.
+	 */
+	@Override
+	public void close() {
+		if(!isClosed) {
+			isClosed = true;
+			for(File run : runs) {
+				run.delete();
+			}
+			runs.clear();
+			inMemory = null;
+		}
+	}
+
+
+	private void checkOpen() {
+		if(isClosed) {
+			throw new IllegalStateException("counter has been closed");
+		}
+	}
+
+
+	/** Sorts and writes the in-memory counts as a new run, then starts a fresh in-memory counter. */
+	protected void spill() throws IOException {
+		List<Record> records = sortedRecords();
+		File run = File.createTempFile("itemcounter", ".run", spillDirectory);
+		boolean isWritten = false;
+		try {
+			RunWriter writer = new RunWriter(run);
+			try {
+				for(Record r : records) {
+					writer.write(r.key, r.count);
+				}
+			} finally {
+				writer.close();
+			}
+			isWritten = true;
+		} finally {
+			if(!isWritten) {
+				run.delete();
+			}
+		}
+		runs.add(run);
+		inMemory = new ItemCounter<K>();
+	}
+
+
+	/**
+	 * Replaces the oldest runs with a single run holding their merged counts.
+	 * The runs are taken off the list only once the merged run has been written, so a failure leaves the list as it was and deletes the partial run.
+	 */
+	private void compactOldestRuns() throws IOException {
+		List<File> oldest = new ArrayList<File>();
+		for(File run : runs) {
+			if(oldest.size() >= MAX_MERGE_WIDTH) {
+				break;
+			}
+			oldest.add(run);
+		}
+		File merged = File.createTempFile("itemcounter", ".run", spillDirectory);
+		boolean isWritten = false;
+		try {
+			List<Source> sources = new ArrayList<Source>();
+			final RunWriter writer = new RunWriter(merged);
+			try {
+				for(File run : oldest) {
+					sources.add(new RunSource(run));
+				}
+				mergeRecords(sources, new RecordVisitor() {
+					@Override
+					public void visit(byte[] key, long count) throws IOException {
+						writer.write(key, count);
+					}
+				});
+			} finally {
+				try {
+					writer.close();
+				} finally {
+					for(Source source : sources) {
+						source.close();
+					}
+				}
+			}
+			isWritten = true;
+		} finally {
+			if(!isWritten) {
+				merged.delete();
+			}
+		}
+		for(int i = 0; i < oldest.size(); i++) {
+			runs.removeFirst();
+		}
+		runs.addFirst(merged);
+		for(File run : oldest) {
+			run.delete();
+		}
+	}
+
+
+	private List<Record> sortedRecords() {
+		List<Record> records = new ArrayList<Record>(inMemory.size());
+		for(Entry<K, Integer> entry : inMemory.count.entrySet()) {
+			records.add(new Record(codec.encode(entry.getKey()), entry.getValue()));
+		}
+		Collections.sort(records, new Comparator<Record>() {
+			@Override
+			public int compare(Record a, Record b) {
+				return compareKeys(a.key, b.key);
+			}
+		});
+		return records;
+	}
+
+
+	private void mergeSources(List<Source> sources, final CountVisitor<K> visitor) throws IOException {
+		mergeRecords(sources, new RecordVisitor() {
+			@Override
+			public void visit(byte[] key, long count) throws IOException {
+				visitor.visit(codec.decode(key), count);
+			}
+		});
+	}
+
+
+	/** k-way merge that sums the counts of equal keys. */
+	private static void mergeRecords(List<Source> sources, RecordVisitor visitor) throws IOException {
+		PriorityQueue<Source> heap = new PriorityQueue<Source>(Math.max(1, sources.size()), new Comparator<Source>() {
+			@Override
+			public int compare(Source a, Source b) {
+				return compareKeys(a.key, b.key);
+			}
+		});
+		for(Source source : sources) {
+			if(source.advance()) {
+				heap.add(source);
+			}
+		}
+		while(!heap.isEmpty()) {
+			Source source = heap.poll();
+			byte[] key = source.key;
+			long count = source.count;
+			if(source.advance()) {
+				heap.add(source);
+			}
+			while(!heap.isEmpty() && compareKeys(heap.peek().key, key) == 0) {
+				source = heap.poll();
+				count += source.count;
+				if(source.advance()) {
+					heap.add(source);
+				}
+			}
+			visitor.visit(key, count);
+		}
+	}
+
+
+	/** Lexicographic comparison of unsigned bytes. */
+	protected static int compareKeys(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for(int i = 0; i < n; i++) {
+			int c = (a[i] & 0xff) - (b[i] & 0xff);
+			if(c != 0) {
+				return c;
+			}
+		}
+		return a.length - b.length;
+	}
+
+
+	private interface RecordVisitor {
+		void visit(byte[] key, long count) throws IOException;
+	}
+
+
+	private static class Record {
+		final byte[] key;
+		final long count;
+
+		Record(byte[] key, long count) {
+			this.key = key;
+			this.count = count;
+		}
+	}
+
+
+	/** A sorted stream of records; key and count hold the current record after a successful {@link #advance()}. */
+	private static abstract class Source {
+		byte[] key;
+		long count;
+
+		abstract boolean advance() throws IOException;
+
+		void close() throws IOException {
+			// Nothing to release by default
+		}
+	}
+
+
+	private static class MemorySource extends Source {
+		private final Iterator<Record> records;
+
+		MemorySource(List<Record> records) {
+			this.records = records.iterator();
+		}
+
+		@Override
+		boolean advance() {
+			if(!records.hasNext()) {
+				return false;
+			}
+			Record r = records.next();
+			key = r.key;
+			count = r.count;
+			return true;
+		}
+	}
+
+
+	/*
+	 * Run file format: a long record count, then for each record an int key length, the key bytes, and a long count.
+	 * Records are sorted by key and keys are unique within a run.
+	 */
+
+	private static class RunSource extends Source {
+		private final DataInputStream in;
+		private long remaining;
+
+		RunSource(File run) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+			remaining = in.readLong();
+		}
+
+		@Override
+		boolean advance() throws IOException {
+			if(remaining == 0) {
+				return false;
+			}
+			remaining--;
+			key = new byte[in.readInt()];
+			in.readFully(key);
+			count = in.readLong();
+			return true;
+		}
+
+		@Override
+		void close() throws IOException {
+			in.close();
+		}
+	}
+
+
+	private static class RunWriter {
+		private final File run;
+		private final DataOutputStream out;
+		private long records;
+
+		RunWriter(File run) throws IOException {
+			this.run = run;
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16));
+			out.writeLong(0L);  // Placeholder for the record count
+		}
+
+		void write(byte[] key, long count) throws IOException {
+			out.writeInt(key.length);
+			out.write(key);
+			out.writeLong(count);
+			records++;
+		}
+
+		void close() throws IOException {
+			out.close();
+			RandomAccessFile raf = new RandomAccessFile(run, "rw");
+			try {
+				raf.writeLong(records);
+			} finally {
+				raf.close();
+			}
+		}
+	}
+}
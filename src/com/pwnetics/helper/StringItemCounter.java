@@ -0,0 +1,823 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * An {@link ItemCounter} specialized for string keys, such as words, that avoids creating and retaining a {@link String} per occurrence.
+ *
+ * <p>Keys can be counted straight from a {@link CharSequence}, a slice of a {@code char[]}, or a slice of UTF-8 encoded bytes.
+ * Lookups hash and compare the characters in place, so counting a key that has been seen before allocates nothing.
+ * The characters of each distinct key are copied once into a shared character arena and the key is given a dense int id;
+ * counts, hashes, and arena offsets are held in parallel primitive arrays indexed by id.
+ * </p>
+ *
+ * <p>A key keeps its id, and its characters stay in the arena, even after its count is set to zero, until {@link #trimToSize()} drops such keys.
+ * Trimming, which {@link #removeIf(ItemCountPredicate)} does after removing items, renumbers the remaining ids in their existing order.
+ * Methods that return keys as objects, such as {@link #getMap()} and {@link #sortByValueKey(boolean)}, create their strings on demand,
+ * whereas {@link #writeCSV(Writer, String, String)} writes straight from the arena.
+ * </p>
+ *
+ * @author romanows
+ */
+public class StringItemCounter extends ItemCounter<String> {
+
+	private final Dictionary dict;
+
+	/** Reused to decode UTF-8 keys. */
+	private char[] scratch = new char[64];
+
+
+	/**
+	 * Constructor.
+	 */
+	public StringItemCounter() {
+		this(16);
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param expectedSize number of distinct keys that can be counted before the tables have to grow
+	 */
+	public StringItemCounter(int expectedSize) {
+		this(new Dictionary(expectedSize));
+	}
+
+
+	private StringItemCounter(Dictionary dict) {
+		super(dict, false);
+		this.dict = dict;
+	}
+
+
+	@Override
+	public Integer get(String item) {
+		return get((CharSequence)item);
+	}
+
+
+	/**
+	 * Get the count of an item.
+	 * @param item the characters of the item
+	 * @return the item's count
+	 */
+	public int get(CharSequence item) {
+		listener.onGet();
+		int id = dict.find(item);
+		return id < 0 ? 0 : dict.counts[id];
+	}
+
+
+	/**
+	 * Get the count of an item.
+	 * @param chars array holding the characters of the item
+	 * @param offset index of the item's first character
+	 * @param length number of characters in the item
+	 * @return the item's count
+	 */
+	public int get(char[] chars, int offset, int length) {
+		listener.onGet();
+		int id = dict.find(chars, offset, length);
+		return id < 0 ? 0 : dict.counts[id];
+	}
+
+
+	@Override
+	public void set(String item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		int id = count == 0 ? dict.find(item) : dict.add(item);
+		if(id >= 0) {
+			int c = dict.counts[id];
+			dict.setCount(id, count);
+			countChanged(item, c, count);
+		}
+	}
+
+
+	@Override
+	public int increment(String item) {
+		return increment((CharSequence)item);
+	}
+
+
+	/**
+	 * Increment the count on an item.
+	 * The characters are only copied if the item has not been seen before.
+	 * @param item the characters of the item
+	 * @return the new count of the given item
+	 */
+	public int increment(CharSequence item) {
+		return incrementById(dict.add(item));
+	}
+
+
+	/**
+	 * Increment the count on an item.
+	 * The characters are only copied if the item has not been seen before.
+	 * @param chars array holding the characters of the item
+	 * @param offset index of the item's first character
+	 * @param length number of characters in the item
+	 * @return the new count of the given item
+	 */
+	public int increment(char[] chars, int offset, int length) {
+		return incrementById(dict.add(chars, offset, length));
+	}
+
+
+	/**
+	 * Increment the count on an item given as UTF-8 encoded bytes.
+	 * Malformed sequences are decoded as U+FFFD.
+	 * The characters are only copied if the item has not been seen before.
+	 * @param utf8 array holding the encoded item
+	 * @param offset index of the item's first byte
+	 * @param length number of bytes in the item
+	 * @return the new count of the given item
+	 */
+	public int incrementUtf8(byte[] utf8, int offset, int length) {
+		int n = decodeUtf8(utf8, offset, length);
+		return incrementById(dict.add(scratch, 0, n));
+	}
+
+
+	/**
+	 * Get the id of an item.
+	 * Ids are dense, starting at zero, and assigned in the order items are first counted.
+	 * They change only when {@link #trimToSize()} drops zeroed items and renumbers the rest.
+	 * @param item the characters of the item
+	 * @return the item's id, or -1 if the item has never been counted
+	 */
+	public int id(CharSequence item) {
+		return dict.find(item);
+	}
+
+
+	/**
+	 * Get the item with the given id.
+	 * @param id an id returned by {@link #id(CharSequence)}
+	 * @return a new string holding the item's characters
+	 */
+	public String item(int id) {
+		checkId(id);
+		return dict.key(id);
+	}
+
+
+	/**
+	 * Get the count of the item with the given id.
+	 * @param id an id returned by {@link #id(CharSequence)}
+	 * @return the item's count
+	 */
+	public int getById(int id) {
+		listener.onGet();
+		checkId(id);
+		return dict.counts[id];
+	}
+
+
+	/**
+	 * Increment the count of the item with the given id.
+	 * @param id an id returned by {@link #id(CharSequence)}
+	 * @return the new count of the item
+	 */
+	public int incrementById(int id) {
+		listener.onIncrement();
+		checkId(id);
+		int c = incrementedCount(dict.counts[id]);
+		dict.setCount(id, c);
+		if(isTrackingChanges() || isMaintainingRanks()) {
+			countChanged(dict.key(id), c - 1, c);
+		} else {
+			countChanged(c - 1, c);
+		}
+		return c;
+	}
+
+
+	/**
+	 * Get the number of ids that have been assigned, which includes items whose count has been set to zero since the last {@link #trimToSize()}.
+	 * @return one more than the largest id
+	 */
+	public int idCount() {
+		return dict.ids;
+	}
+
+
+	private void checkId(int id) {
+		if(id < 0 || id >= dict.ids) {
+			throw new IllegalArgumentException("unknown id: " + id);
+		}
+	}
+
+
+	@Override
+	public void setListener(CounterListener listener) {
+		super.setListener(listener);
+		dict.listener = this.listener;
+	}
+
+
+	/**
+	 * Visits items in id order.
+	 * Each item is materialized as a new string; use {@link #cursor()} with {@link IdCursor#id()} to avoid that.
+	 */
+	@Override
+	public void forEach(ItemCountVisitor<? super String> visitor) {
+		for(int i = 0; i < dict.ids; i++) {
+			int c = dict.counts[i];
+			if(c != 0) {
+				visitor.visit(dict.key(i), c);
+			}
+		}
+	}
+
+
+	@Override
+	public IdCursor cursor() {
+		return new IdCursor();
+	}
+
+
+	/**
+	 * Zeroes the removed counts in a single pass over the ids, then trims the dictionary, which renumbers the remaining ids.
+	 */
+	@Override
+	public int removeIf(ItemCountPredicate<? super String> predicate) {
+		int removed = 0;
+		for(int i = 0; i < dict.ids; i++) {
+			int c = dict.counts[i];
+			if(c != 0) {
+				String item = dict.key(i);
+				if(predicate.test(item, c)) {
+					dict.setCount(i, 0);
+					countChanged(item, c, 0);
+					removed++;
+				}
+			}
+		}
+		if(removed > 0) {
+			trimToSize();
+		}
+		return removed;
+	}
+
+
+	/**
+	 * Drops items whose count is zero from the dictionary, compacts the character arena, and shrinks the per-id arrays and the index.
+	 * The remaining items are renumbered in their existing order, so ids obtained before the call are no longer valid.
+	 */
+	@Override
+	public void trimToSize() {
+		long start = System.nanoTime();
+		int fromCapacity = dict.table.length;
+		dict.compact();
+		if(dict.table.length != fromCapacity) {
+			listener.onResize(fromCapacity, dict.table.length, System.nanoTime() - start);
+		}
+	}
+
+
+	/**
+	 * Cursor that walks the items in id order.
+	 * The item string is only built when {@link #key()} is called, so scans that only need the id or count allocate nothing.
+	 * @author romanows
+	 */
+	public class IdCursor extends Cursor {
+		private int id = -1;
+
+		protected IdCursor() {
+		}
+
+		@Override
+		public boolean next() {
+			final int[] counts = dict.counts;
+			final int n = dict.ids;
+			if(id < n) {
+				id++;
+			}
+			while(id < n && counts[id] == 0) {
+				id++;
+			}
+			return id < n;
+		}
+
+		/** @return the id of the current item, see {@link StringItemCounter#id(CharSequence)} */
+		public int id() {
+			check();
+			return id;
+		}
+
+		@Override
+		public String key() {
+			check();
+			return dict.key(id);
+		}
+
+		@Override
+		public int intValue() {
+			check();
+			return dict.counts[id];
+		}
+
+		private void check() {
+			if(id < 0 || id >= dict.ids) {
+				throw new IllegalStateException("cursor does not point at an item");
+			}
+		}
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		return 16 + 2L * (dict.chars.length + scratch.length) + 16L * dict.counts.length + 4L * dict.table.length;
+	}
+
+
+	@Override
+	public long sum() {
+		final int[] counts = dict.counts;
+		final int n = dict.ids;
+		long sum = 0L;
+		for(int i = 0; i < n; i++) {
+			sum += counts[i];
+		}
+		return sum;
+	}
+
+
+	@Override
+	public double variance() {
+		if(dict.size < 2) {
+			return 0;
+		}
+		return sumSquaredDeviations() / (dict.size - 1);
+	}
+
+
+	@Override
+	public double variancePopulation() {
+		if(dict.size < 2) {
+			return 0;
+		}
+		return sumSquaredDeviations() / dict.size;
+	}
+
+
+	private double sumSquaredDeviations() {
+		double mean = mean();
+		double var = 0.0;
+		for(int i = 0; i < dict.ids; i++) {
+			int c = dict.counts[i];
+			if(c != 0) {
+				double foo = mean - c;
+				var += foo * foo;
+			}
+		}
+		return var;
+	}
+
+
+	@Override
+	public void writeCSV(Writer writer, String columnDelimiter, String rowDelimiter) throws IOException {
+		for(int i = 0; i < dict.ids; i++) {
+			int c = dict.counts[i];
+			if(c != 0) {
+				writer.write(dict.chars, dict.starts[i], dict.lengths[i]);
+				writer.write(columnDelimiter);
+				writer.write(Integer.toString(c));
+				writer.write(rowDelimiter);
+			}
+		}
+	}
+
+
+	/** Decodes UTF-8 into the scratch buffer, growing it if needed. @return the number of chars decoded */
+	private int decodeUtf8(byte[] utf8, int offset, int length) {
+		if(scratch.length < length) {
+			scratch = new char[Math.max(length, scratch.length * 2)];
+		}
+		int n = 0;
+		int end = offset + length;
+		int i = offset;
+		while(i < end) {
+			int b = utf8[i++] & 0xff;
+			int cp;
+			int extra;
+			if(b < 0x80) {
+				scratch[n++] = (char)b;
+				continue;
+			} else if(b >= 0xc2 && b < 0xe0) {
+				cp = b & 0x1f;
+				extra = 1;
+			} else if(b >= 0xe0 && b < 0xf0) {
+				cp = b & 0x0f;
+				extra = 2;
+			} else if(b >= 0xf0 && b < 0xf5) {
+				cp = b & 0x07;
+				extra = 3;
+			} else {
+				scratch[n++] = '\uFFFD';
+				continue;
+			}
+			int j = 0;
+			while(j < extra && i + j < end && (utf8[i + j] & 0xc0) == 0x80) {
+				cp = (cp << 6) | (utf8[i + j] & 0x3f);
+				j++;
+			}
+			i += j;
+			if(j < extra || (extra == 2 && (cp < 0x800 || (cp >= 0xd800 && cp < 0xe000))) || (extra == 3 && (cp < 0x10000 || cp > 0x10ffff))) {
+				scratch[n++] = '\uFFFD';
+			} else if(cp >= 0x10000) {
+				scratch[n++] = (char)(0xd800 + ((cp - 0x10000) >>> 10));
+				scratch[n++] = (char)(0xdc00 + (cp & 0x3ff));
+			} else {
+				scratch[n++] = (char)cp;
+			}
+		}
+		return n;
+	}
+
+
+	/**
+	 * Key dictionary exposed as a map so the inherited {@link ItemCounter} methods work unchanged.
+	 * Keys with a zero count stay in the dictionary but are hidden from the map.
+	 */
+	private static class Dictionary extends AbstractMap<String, Integer> {
+		private CounterListener listener = CounterListener.NONE;
+
+		private char[] chars;
+		private int charsUsed;
+
+		/* Indexed by id */
+		private int[] starts;
+		private int[] lengths;
+		private int[] hashes;
+		private int[] counts;
+		private int ids;
+
+		/** Number of keys with a non-zero count. */
+		private int size;
+
+		/** Open-addressed index holding id + 1, or zero for an empty slot. */
+		private int[] table;
+
+		Dictionary(int expectedSize) {
+			if(expectedSize < 0) {
+				throw new IllegalArgumentException("expected size must be non-negative");
+			}
+			int n = Math.max(expectedSize, 4);
+			chars = new char[n * 8];
+			starts = new int[n];
+			lengths = new int[n];
+			hashes = new int[n];
+			counts = new int[n];
+			int c = 8;
+			while(c * 3 / 4 < n) {
+				c <<= 1;
+			}
+			table = new int[c];
+		}
+
+		private static int mix(int h) {
+			h ^= h >>> 16;
+			h *= 0x85ebca6b;
+			h ^= h >>> 13;
+			return h;
+		}
+
+		private static int hash(CharSequence s) {
+			int h = 0;
+			for(int i = 0; i < s.length(); i++) {
+				h = 31 * h + s.charAt(i);
+			}
+			return mix(h);
+		}
+
+		private static int hash(char[] s, int offset, int length) {
+			int h = 0;
+			for(int i = offset; i < offset + length; i++) {
+				h = 31 * h + s[i];
+			}
+			return mix(h);
+		}
+
+		private boolean equals(int id, CharSequence s) {
+			if(lengths[id] != s.length()) {
+				return false;
+			}
+			int start = starts[id];
+			for(int i = 0; i < s.length(); i++) {
+				if(chars[start + i] != s.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean equals(int id, char[] s, int offset, int length) {
+			if(lengths[id] != length) {
+				return false;
+			}
+			int start = starts[id];
+			for(int i = 0; i < length; i++) {
+				if(chars[start + i] != s[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** @return the slot holding the key's id, or the empty slot where it would go */
+		private int slot(CharSequence s, int h) {
+			int mask = table.length - 1;
+			int slot = h & mask;
+			int e;
+			while((e = table[slot]) != 0 && !(hashes[e - 1] == h && equals(e - 1, s))) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private int slot(char[] s, int offset, int length, int h) {
+			int mask = table.length - 1;
+			int slot = h & mask;
+			int e;
+			while((e = table[slot]) != 0 && !(hashes[e - 1] == h && equals(e - 1, s, offset, length))) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		int find(CharSequence s) {
+			return table[slot(s, hash(s))] - 1;
+		}
+
+		int find(char[] s, int offset, int length) {
+			if(offset < 0 || length < 0 || offset + length > s.length) {
+				throw new IndexOutOfBoundsException();
+			}
+			return table[slot(s, offset, length, hash(s, offset, length))] - 1;
+		}
+
+		/** @return the key's id, assigning a new one if needed */
+		int add(CharSequence s) {
+			int h = hash(s);
+			int slot = slot(s, h);
+			if(table[slot] != 0) {
+				return table[slot] - 1;
+			}
+			int id = newId(h, s.length());
+			for(int i = 0; i < s.length(); i++) {
+				chars[charsUsed++] = s.charAt(i);
+			}
+			return insert(slot, id);
+		}
+
+		int add(char[] s, int offset, int length) {
+			if(offset < 0 || length < 0 || offset + length > s.length) {
+				throw new IndexOutOfBoundsException();
+			}
+			int h = hash(s, offset, length);
+			int slot = slot(s, offset, length, h);
+			if(table[slot] != 0) {
+				return table[slot] - 1;
+			}
+			int id = newId(h, length);
+			System.arraycopy(s, offset, chars, charsUsed, length);
+			charsUsed += length;
+			return insert(slot, id);
+		}
+
+		/** Reserves an id and arena space for a key of the given length; the caller copies the characters. */
+		private int newId(int h, int length) {
+			if(ids == counts.length) {
+				int n = ids + (ids >> 1) + 1;
+				starts = Arrays.copyOf(starts, n);
+				lengths = Arrays.copyOf(lengths, n);
+				hashes = Arrays.copyOf(hashes, n);
+				counts = Arrays.copyOf(counts, n);
+			}
+			if(charsUsed + length > chars.length) {
+				chars = Arrays.copyOf(chars, Math.max(charsUsed + length, chars.length + (chars.length >> 1)));
+			}
+			int id = ids++;
+			starts[id] = charsUsed;
+			lengths[id] = length;
+			hashes[id] = h;
+			// compact() can leave stale counts past the last id
+			counts[id] = 0;
+			return id;
+		}
+
+		private int insert(int slot, int id) {
+			table[slot] = id + 1;
+			if(ids > table.length * 3 / 4) {
+				long start = System.nanoTime();
+				rehash();
+				listener.onResize(table.length / 2, table.length, System.nanoTime() - start);
+			}
+			return id;
+		}
+
+		private void rehash() {
+			rehash(table.length * 2);
+		}
+
+		private void rehash(int capacity) {
+			int[] newTable = new int[capacity];
+			int mask = newTable.length - 1;
+			for(int id = 0; id < ids; id++) {
+				int slot = hashes[id] & mask;
+				while(newTable[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				newTable[slot] = id + 1;
+			}
+			table = newTable;
+		}
+
+		/** Drops keys with a zero count, renumbering the rest in order, and right-sizes the arena, the per-id arrays, and the index. */
+		void compact() {
+			int liveChars = 0;
+			for(int id = 0; id < ids; id++) {
+				if(counts[id] != 0) {
+					liveChars += lengths[id];
+				}
+			}
+			char[] newChars = new char[Math.max(liveChars, 8)];
+			int used = 0;
+			int n = 0;
+			for(int id = 0; id < ids; id++) {
+				if(counts[id] != 0) {
+					System.arraycopy(chars, starts[id], newChars, used, lengths[id]);
+					starts[n] = used;
+					lengths[n] = lengths[id];
+					hashes[n] = hashes[id];
+					counts[n] = counts[id];
+					used += lengths[id];
+					n++;
+				}
+			}
+			chars = newChars;
+			charsUsed = used;
+			ids = n;
+			int length = Math.max(n, 4);
+			starts = Arrays.copyOf(starts, length);
+			lengths = Arrays.copyOf(lengths, length);
+			hashes = Arrays.copyOf(hashes, length);
+			counts = Arrays.copyOf(counts, length);
+			int c = 8;
+			while(c * 3 / 4 < n) {
+				c <<= 1;
+			}
+			rehash(c);
+		}
+
+		void setCount(int id, int count) {
+			int c = counts[id];
+			if(c == 0 && count != 0) {
+				size++;
+			} else if(c != 0 && count == 0) {
+				size--;
+			}
+			counts[id] = count;
+		}
+
+		String key(int id) {
+			return new String(chars, starts[id], lengths[id]);
+		}
+
+		@Override
+		public Integer get(Object key) {
+			if(!(key instanceof CharSequence)) {
+				return null;
+			}
+			int id = find((CharSequence)key);
+			if(id < 0 || counts[id] == 0) {
+				return null;
+			}
+			return counts[id];
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Integer put(String key, Integer value) {
+			if(value < 0) {
+				throw new IllegalArgumentException("count must be non-negative");
+			}
+			int id = add(key);
+			int c = counts[id];
+			setCount(id, value);
+			return c == 0 ? null : c;
+		}
+
+		@Override
+		public Integer remove(Object key) {
+			Integer c = get(key);
+			if(c != null) {
+				setCount(find((CharSequence)key), 0);
+			}
+			return c;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Set<Entry<String, Integer>> entrySet() {
+			return new AbstractSet<Entry<String,Integer>>() {
+				@Override
+				public Iterator<Entry<String, Integer>> iterator() {
+					return new IdIterator();
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		/** Visits the keys with non-zero counts in id order. */
+		private class IdIterator implements Iterator<Entry<String, Integer>> {
+			private int next = advance(0);
+			private int last = -1;
+
+			private int advance(int id) {
+				while(id < ids && counts[id] == 0) {
+					id++;
+				}
+				return id;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < ids;
+			}
+
+			@Override
+			public Entry<String, Integer> next() {
+				if(next >= ids) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = advance(next + 1);
+				return new SimpleImmutableEntry<String, Integer>(key(last), counts[last]);
+			}
+
+			@Override
+			public void remove() {
+				if(last < 0) {
+					throw new IllegalStateException();
+				}
+				setCount(last, 0);
+				last = -1;
+			}
+		}
+	}
+}
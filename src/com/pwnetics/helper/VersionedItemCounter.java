@@ -0,0 +1,602 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * An {@link ItemCounter} for one writer thread and many reader threads, where readers work from consistent point-in-time snapshots.
+ *
+ * <p>Counts are kept in a persistent hash array mapped trie (HAMT).
+ * {@link #snapshot()} takes O(1) time: it just starts a new epoch and hands out the current root.
+ * Trie nodes remember the epoch in which they were created; the writer updates nodes of the current epoch in place,
+ * and copies the path from the root to anything older before changing it, so existing snapshots never see a change.
+ * The first update to a region of the trie after a snapshot copies a handful of small nodes; later updates to that region run at full speed.
+ * </p>
+ *
+ * <p>The counter itself must only be used by the writer thread.
+ * To share counts, the writer calls {@link #publish()} now and then, and readers call {@link #published()} to get the latest snapshot.
+ * Snapshots are immutable and safe to use from any thread.
+ * Compared with {@link CachingItemCounter#build(ItemCounter, boolean)}, this neither shares a changing map with readers nor copies the whole map for every snapshot.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of object being counted
+ */
+public class VersionedItemCounter<K> extends ItemCounter<K> {
+
+	private final Head head;
+	private volatile Snapshot<K> published;
+
+
+	/**
+	 * Constructor.
+	 */
+	public VersionedItemCounter() {
+		this(new Head());
+	}
+
+
+	private VersionedItemCounter(Head head) {
+		super(new TrieMap<K>(head), false);
+		this.head = head;
+		// Not the writer's root, which is updated in place until the first snapshot
+		this.published = new Snapshot<K>(new BitmapNode(0, new Object[0], 0L), 0, 0L, 0L);
+	}
+
+
+	@Override
+	public Integer get(K item) {
+		listener.onGet();
+		Leaf leaf = find(head.root, hash(item), item);
+		return leaf == null ? 0 : leaf.count;
+	}
+
+
+	@Override
+	public void set(K item, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("count must be non-negative");
+		}
+		listener.onSet();
+		checkRankable(item);
+		int h = hash(item);
+		Leaf leaf = find(head.root, h, item);
+		int c = leaf == null ? 0 : leaf.count;
+		if(count == 0) {
+			if(leaf != null) {
+				head.remove(h, item);
+			}
+		} else if(leaf != null && leaf.epoch == head.epoch) {
+			leaf.count = count;
+		} else {
+			head.put(h, item, count, leaf == null);
+		}
+		head.sum += count - c;
+		countChanged(item, c, count);
+	}
+
+
+	/** Removals go through {@link #set(Object, int)} so that they copy shared trie nodes rather than changing a snapshot. */
+	@Override
+	protected boolean isRemovingThroughSet() {
+		return true;
+	}
+
+
+	@Override
+	public int increment(K item) {
+		listener.onIncrement();
+		checkRankable(item);
+		int h = hash(item);
+		Leaf leaf = find(head.root, h, item);
+		int c;
+		if(leaf != null && leaf.epoch == head.epoch) {
+			c = leaf.count = incrementedCount(leaf.count);
+		} else {
+			c = incrementedCount(leaf == null ? 0 : leaf.count);
+			head.put(h, item, c, leaf == null);
+		}
+		head.sum++;
+		countChanged(item, c - 1, c);
+		return c;
+	}
+
+
+	@Override
+	public long sum() {
+		return head.sum;
+	}
+
+
+	@Override
+	public int size() {
+		return head.size;
+	}
+
+
+	/**
+	 * Take an immutable, point-in-time snapshot of the counts in O(1) time.
+	 * Must be called from the writer thread.
+	 * @return a snapshot that later changes to this counter do not affect
+	 */
+	public Snapshot<K> snapshot() {
+		Snapshot<K> s = new Snapshot<K>(head.root, head.size, head.sum, head.epoch);
+		head.epoch++;
+		return s;
+	}
+
+
+	/**
+	 * Take a snapshot and make it the one returned by {@link #published()}.
+	 * Must be called from the writer thread.
+	 * @return the published snapshot
+	 */
+	public Snapshot<K> publish() {
+		Snapshot<K> s = snapshot();
+		published = s;
+		return s;
+	}
+
+
+	/**
+	 * Get the most recently published snapshot; safe to call from any thread.
+	 * @return the latest snapshot passed to {@link #publish()}, or an empty snapshot if nothing has been published
+	 */
+	public Snapshot<K> published() {
+		return published;
+	}
+
+
+	@Override
+	public long estimatedRetainedBytes() {
+		// Roughly a 32-byte leaf and a share of a trie node per item
+		return 64 + 44L * head.size;
+	}
+
+
+	/**
+	 * An immutable, point-in-time view of a {@link VersionedItemCounter}.
+	 * Methods {@link #increment(Object)} and {@link #set(Object, int)} throw {@link UnsupportedOperationException}.
+	 * Quantile, rank, and range queries are computed from the trie on each call; turning on {@link #setMaintainingCountOfCounts(boolean)}
+	 * or {@link #setMaintainingRanks(boolean)} would give a snapshot state shared between threads, so both throw.
+	 *
+	 * @param <K> the type of object being counted
+	 */
+	public static class Snapshot<K> extends ItemCounter<K> {
+		private final Object root;
+		private final int size;
+		private final long sum;
+		private final long version;
+
+		private Snapshot(Object root, int size, long sum, long version) {
+			super(new TrieMap<K>(root, size), false);
+			this.root = root;
+			this.size = size;
+			this.sum = sum;
+			this.version = version;
+		}
+
+		/**
+		 * Get the version of this snapshot; snapshots taken later from the same counter have larger versions.
+		 * @return the epoch in which this snapshot was taken
+		 */
+		public long version() {
+			return version;
+		}
+
+		@Override
+		public Integer get(K item) {
+			Leaf leaf = find(root, hash(item), item);
+			return leaf == null ? 0 : leaf.count;
+		}
+
+		@Override
+		public void set(K item, int count) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected boolean isRemovingThroughSet() {
+			return true;
+		}
+
+		@Override
+		public int increment(K item) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long sum() {
+			return sum;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void setMaintainingCountOfCounts(boolean isMaintaining) {
+			if(isMaintaining) {
+				throw new UnsupportedOperationException();
+			}
+		}
+
+		@Override
+		public void setMaintainingRanks(boolean isMaintaining) {
+			if(isMaintaining) {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+
+
+	/*
+	 * Trie structure.
+	 * A child slot holds a Leaf, a BitmapNode, or a CollisionNode (for different keys with identical hashes).
+	 * The root is always a BitmapNode.
+	 */
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+
+	private static final class Leaf {
+		final Object key;
+		final int hash;
+		final long epoch;
+		int count;
+
+		Leaf(Object key, int hash, int count, long epoch) {
+			this.key = key;
+			this.hash = hash;
+			this.count = count;
+			this.epoch = epoch;
+		}
+
+		boolean matches(int h, Object k) {
+			return hash == h && (key == k || (key != null && key.equals(k)));
+		}
+	}
+
+
+	private static final class BitmapNode {
+		final long epoch;
+		int bitmap;
+		Object[] slots;
+
+		BitmapNode(int bitmap, Object[] slots, long epoch) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+			this.epoch = epoch;
+		}
+	}
+
+
+	private static final class CollisionNode {
+		final int hash;
+		final Leaf[] leaves;
+
+		CollisionNode(int hash, Leaf[] leaves) {
+			this.hash = hash;
+			this.leaves = leaves;
+		}
+	}
+
+
+	private static int hash(Object key) {
+		int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+
+	private static Leaf find(Object node, int h, Object key) {
+		int shift = 0;
+		while(true) {
+			if(node instanceof BitmapNode) {
+				BitmapNode n = (BitmapNode)node;
+				int bit = 1 << ((h >>> shift) & MASK);
+				if((n.bitmap & bit) == 0) {
+					return null;
+				}
+				node = n.slots[Integer.bitCount(n.bitmap & (bit - 1))];
+				shift += BITS;
+			} else if(node instanceof Leaf) {
+				Leaf leaf = (Leaf)node;
+				return leaf.matches(h, key) ? leaf : null;
+			} else {
+				for(Leaf leaf : ((CollisionNode)node).leaves) {
+					if(leaf.matches(h, key)) {
+						return leaf;
+					}
+				}
+				return null;
+			}
+		}
+	}
+
+
+	/** The writer's mutable state; also exposed as a map for the inherited methods. */
+	private static final class Head {
+		Object root;
+		int size;
+		long sum;
+		long epoch = 1;
+
+		Head() {
+			root = new BitmapNode(0, new Object[0], epoch);
+		}
+
+		private BitmapNode editable(BitmapNode n) {
+			return n.epoch == epoch ? n : new BitmapNode(n.bitmap, n.slots.clone(), epoch);
+		}
+
+		void put(int h, Object key, int count, boolean isNew) {
+			root = put((BitmapNode)root, 0, h, key, count);
+			if(isNew) {
+				size++;
+			}
+		}
+
+		private BitmapNode put(BitmapNode n, int shift, int h, Object key, int count) {
+			int bit = 1 << ((h >>> shift) & MASK);
+			int i = Integer.bitCount(n.bitmap & (bit - 1));
+			if((n.bitmap & bit) == 0) {
+				BitmapNode e = editable(n);
+				Object[] slots = new Object[n.slots.length + 1];
+				System.arraycopy(n.slots, 0, slots, 0, i);
+				slots[i] = new Leaf(key, h, count, epoch);
+				System.arraycopy(n.slots, i, slots, i + 1, n.slots.length - i);
+				e.slots = slots;
+				e.bitmap |= bit;
+				return e;
+			}
+			Object child = n.slots[i];
+			Object newChild;
+			if(child instanceof BitmapNode) {
+				newChild = put((BitmapNode)child, shift + BITS, h, key, count);
+			} else if(child instanceof Leaf) {
+				Leaf leaf = (Leaf)child;
+				Leaf newLeaf = new Leaf(key, h, count, epoch);
+				if(leaf.matches(h, key)) {
+					newChild = newLeaf;
+				} else if(leaf.hash == h) {
+					newChild = new CollisionNode(h, new Leaf[] {leaf, newLeaf});
+				} else {
+					newChild = split(shift + BITS, leaf, newLeaf);
+				}
+			} else {
+				CollisionNode cn = (CollisionNode)child;
+				Leaf[] leaves = cn.leaves;
+				int j = 0;
+				while(j < leaves.length && !leaves[j].matches(h, key)) {
+					j++;
+				}
+				Leaf[] newLeaves = new Leaf[j < leaves.length ? leaves.length : leaves.length + 1];
+				System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+				newLeaves[j] = new Leaf(key, h, count, epoch);
+				newChild = new CollisionNode(h, newLeaves);
+			}
+			if(newChild == child) {
+				return n;
+			}
+			BitmapNode e = editable(n);
+			e.slots[i] = newChild;
+			return e;
+		}
+
+		/** Node holding two leaves with different hashes that agree on all bits below the shift. */
+		private BitmapNode split(int shift, Leaf a, Leaf b) {
+			int ia = (a.hash >>> shift) & MASK;
+			int ib = (b.hash >>> shift) & MASK;
+			if(ia == ib) {
+				return new BitmapNode(1 << ia, new Object[] {split(shift + BITS, a, b)}, epoch);
+			}
+			Object[] slots = ia < ib ? new Object[] {a, b} : new Object[] {b, a};
+			return new BitmapNode((1 << ia) | (1 << ib), slots, epoch);
+		}
+
+		void remove(int h, Object key) {
+			root = remove((BitmapNode)root, 0, h, key);
+			if(root == null) {
+				root = new BitmapNode(0, new Object[0], epoch);
+			}
+			size--;
+		}
+
+		/** @return the replacement for n: n itself, a copy, a single remaining leaf, or null if n became empty; the caller must know the key is present */
+		private Object remove(BitmapNode n, int shift, int h, Object key) {
+			int bit = 1 << ((h >>> shift) & MASK);
+			int i = Integer.bitCount(n.bitmap & (bit - 1));
+			Object child = n.slots[i];
+			Object newChild;
+			if(child instanceof BitmapNode) {
+				newChild = remove((BitmapNode)child, shift + BITS, h, key);
+			} else if(child instanceof Leaf) {
+				newChild = null;
+			} else {
+				Leaf[] leaves = ((CollisionNode)child).leaves;
+				if(leaves.length == 2) {
+					newChild = leaves[0].matches(h, key) ? leaves[1] : leaves[0];
+				} else {
+					Leaf[] newLeaves = new Leaf[leaves.length - 1];
+					int k = 0;
+					for(Leaf leaf : leaves) {
+						if(!leaf.matches(h, key)) {
+							newLeaves[k++] = leaf;
+						}
+					}
+					newChild = new CollisionNode(h, newLeaves);
+				}
+			}
+
+			if(newChild == null) {
+				if(n.slots.length == 1 && shift > 0) {
+					return null;
+				}
+				if(n.slots.length == 2 && shift > 0 && n.slots[1 - i] instanceof Leaf) {
+					return n.slots[1 - i];
+				}
+				BitmapNode e = editable(n);
+				Object[] slots = new Object[n.slots.length - 1];
+				System.arraycopy(n.slots, 0, slots, 0, i);
+				System.arraycopy(n.slots, i + 1, slots, i, n.slots.length - i - 1);
+				e.slots = slots;
+				e.bitmap &= ~bit;
+				return e;
+			}
+			if(newChild instanceof Leaf && n.slots.length == 1 && shift > 0) {
+				return newChild;
+			}
+			BitmapNode e = editable(n);
+			e.slots[i] = newChild;
+			return e;
+		}
+	}
+
+
+	/** Read-only map over a trie: either a fixed snapshot root or the writer's current root. */
+	private static final class TrieMap<K> extends AbstractMap<K, Integer> {
+		private final Head head;
+		private final Object root;
+		private final int size;
+
+		TrieMap(Head head) {
+			this.head = head;
+			this.root = null;
+			this.size = 0;
+		}
+
+		TrieMap(Object root, int size) {
+			this.head = null;
+			this.root = root;
+			this.size = size;
+		}
+
+		private Object root() {
+			return head == null ? root : head.root;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			Leaf leaf = find(root(), hash(key), key);
+			return leaf == null ? null : leaf.count;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return find(root(), hash(key), key) != null;
+		}
+
+		@Override
+		public int size() {
+			return head == null ? size : head.size;
+		}
+
+		@Override
+		public Set<Entry<K, Integer>> entrySet() {
+			return new AbstractSet<Entry<K,Integer>>() {
+				@Override
+				public Iterator<Entry<K, Integer>> iterator() {
+					return new TrieIterator<K>(root());
+				}
+
+				@Override
+				public int size() {
+					return TrieMap.this.size();
+				}
+			};
+		}
+	}
+
+
+	/** Depth-first walk over the leaves of a trie. */
+	private static final class TrieIterator<K> implements Iterator<Entry<K, Integer>> {
+		/* Node and position at each level; the trie is at most 7 levels deep, plus a collision node */
+		private final Object[][] nodes = new Object[9][];
+		private final int[] positions = new int[9];
+		private int depth;
+		private Leaf next;
+
+		TrieIterator(Object root) {
+			nodes[0] = ((BitmapNode)root).slots;
+			depth = 0;
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while(depth >= 0) {
+				Object[] slots = nodes[depth];
+				if(positions[depth] >= slots.length) {
+					depth--;
+					continue;
+				}
+				Object o = slots[positions[depth]++];
+				if(o instanceof Leaf) {
+					next = (Leaf)o;
+					return;
+				}
+				depth++;
+				nodes[depth] = (o instanceof BitmapNode) ? ((BitmapNode)o).slots : ((CollisionNode)o).leaves;
+				positions[depth] = 0;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public Entry<K, Integer> next() {
+			if(next == null) {
+				throw new NoSuchElementException();
+			}
+			Leaf leaf = next;
+			advance();
+			return new AbstractMap.SimpleImmutableEntry<K, Integer>((K)leaf.key, leaf.count);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
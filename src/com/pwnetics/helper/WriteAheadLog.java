@@ -0,0 +1,566 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+
+/**
+ * A write-ahead log with compact snapshots, used by {@link DurableItemCounter} and {@link DurableItemDoubleAccumulator} to
+ * survive process crashes.
+ *
+ * <p>A log directory holds a snapshot file and a log file.
+ * Each mutation is appended to an in-memory buffer as a small binary record (operation, serialized key, value).
+ * Buffered records are group-committed: they are written to the log's {@link FileChannel} as a single frame, prefixed with
+ * its length and CRC-32, when the buffer fills, when the commit interval has elapsed, or when {@link #commit()} is called.
+ * A frame that was only partly written before a crash fails its checksum and is discarded on recovery, along with anything
+ * after it.
+ * </p>
+ *
+ * <p>The {@link SyncPolicy} decides whether a commit also forces the log to the storage device.
+ * With {@link SyncPolicy#NONE} committed records survive a crash of the JVM but not of the operating system.
+ * </p>
+ *
+ * <p>A snapshot writes every item and its value to a temporary file, syncs it and renames it over the previous snapshot,
+ * after which the log is truncated.
+ * Each log starts with a generation number and each snapshot records the generation it covers, so a crash between the
+ * rename and the truncation does not replay records that are already part of the snapshot.
+ * </p>
+ *
+ * <p>This class is not thread-safe.
+ * </p>
+ *
+ * @author romanows
+ *
+ * @param <K> the type of key being logged
+ */
+public class WriteAheadLog<K> implements Closeable {
+
+	/** Whether commits force the log to the storage device. */
+	public enum SyncPolicy {
+		/** Leave flushing to the operating system; committed records survive a JVM crash but not a power failure. */
+		NONE,
+		/** Force the log to the storage device on every commit. */
+		COMMIT
+	}
+
+
+	/** Receives the snapshot entries and log records during recovery. */
+	interface Replay<K> {
+		void replay(byte op, K key, double value);
+	}
+
+
+	static final String LOG_FILE = "counter.wal";
+	static final String SNAPSHOT_FILE = "counter.snapshot";
+	static final String SNAPSHOT_TEMP_FILE = "counter.snapshot.tmp";
+
+	static final byte OP_INCREMENT = 1;
+	static final byte OP_SET = 2;
+	static final byte OP_ADD = 3;
+	static final byte OP_SET_DOUBLE = 4;
+
+	private static final int LOG_MAGIC = 0x49434c47;
+	private static final int SNAPSHOT_MAGIC = 0x49435350;
+	private static final int LOG_HEADER_BYTES = 12;
+	private static final int FRAME_HEADER_BYTES = 8;
+
+	/** Default size of the group commit buffer, in bytes. */
+	public static final int DEFAULT_GROUP_BYTES = 64 * 1024;
+
+	private static final int KEY_CACHE_SIZE = 4096;
+
+	private final File directory;
+	private final OffHeapItemCounter.KeyCodec<K> codec;
+	private final SyncPolicy syncPolicy;
+	private final boolean isDouble;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long generation;
+	private long logBytes;
+
+	private ByteBuffer pending;
+	private final CRC32 crc;
+	private long commitIntervalNanos;
+	private long firstPendingNanos;
+	private long snapshotThresholdBytes;
+
+	private int snapshotEntries;
+	private boolean isClosed;
+
+	/** Direct-mapped cache of recently encoded keys, since frequent items are logged over and over. */
+	private final Object[] cachedKeys;
+	private final byte[][] cachedBytes;
+
+
+	/**
+	 * Constructor; does not open the log until {@link #recover(Replay)}.
+	 * @param directory directory holding the log and snapshot, created if it does not exist
+	 * @param codec serializes keys
+	 * @param syncPolicy whether commits force the log to the storage device
+	 * @param isDouble whether values are doubles rather than int counts
+	 */
+	WriteAheadLog(File directory, OffHeapItemCounter.KeyCodec<K> codec, SyncPolicy syncPolicy, boolean isDouble) throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("could not create log directory " + directory);
+		}
+		this.directory = directory;
+		this.codec = codec;
+		this.syncPolicy = syncPolicy;
+		this.isDouble = isDouble;
+		this.pending = ByteBuffer.allocate(DEFAULT_GROUP_BYTES);
+		this.crc = new CRC32();
+		this.cachedKeys = new Object[KEY_CACHE_SIZE];
+		this.cachedBytes = new byte[KEY_CACHE_SIZE][];
+		this.snapshotEntries = readSnapshotSize();
+	}
+
+
+	/**
+	 * Get the number of entries in the most recent snapshot, used to pre-size the table recovery replays into.
+	 * @return number of snapshot entries, zero if there is no snapshot
+	 */
+	int snapshotSize() {
+		return snapshotEntries;
+	}
+
+
+	/**
+	 * Commit buffered records once they have waited this long, checked when a record is appended.
+	 * @param millis maximum time a record waits for its group commit, or zero to commit only when the buffer fills
+	 */
+	public void setCommitIntervalMillis(long millis) {
+		if(millis < 0) {
+			throw new IllegalArgumentException("millis must be non-negative");
+		}
+		commitIntervalNanos = millis * 1000000L;
+	}
+
+
+	/**
+	 * Take a snapshot automatically once the log grows beyond this size.
+	 * @param bytes log size that triggers a snapshot, or zero to snapshot only when asked
+	 */
+	public void setSnapshotThresholdBytes(long bytes) {
+		if(bytes < 0) {
+			throw new IllegalArgumentException("bytes must be non-negative");
+		}
+		snapshotThresholdBytes = bytes;
+	}
+
+
+	/** @return the policy deciding whether commits force the log to the storage device */
+	public SyncPolicy getSyncPolicy() {
+		return syncPolicy;
+	}
+
+
+	/** @return the number of committed bytes in the current log */
+	public long getLogBytes() {
+		return logBytes;
+	}
+
+
+	/** @return the generation of the current log, incremented by every snapshot */
+	public long getGeneration() {
+		return generation;
+	}
+
+
+	/** @return true if the log has grown beyond the snapshot threshold */
+	boolean isSnapshotDue() {
+		return snapshotThresholdBytes > 0 && logBytes >= snapshotThresholdBytes;
+	}
+
+
+	/**
+	 * Append a record to the group commit buffer, committing if the buffer is full or the commit interval has elapsed.
+	 * @param op one of the OP_ constants
+	 * @param key the item
+	 * @param value the value, ignored by {@link #OP_INCREMENT}
+	 */
+	void append(byte op, K key, double value) throws IOException {
+		checkOpen();
+		byte[] bytes = encode(key);
+		int size = 5 + bytes.length + valueBytes(op);
+		if(pending.remaining() < size) {
+			commit();
+			if(pending.capacity() < size) {
+				pending = ByteBuffer.allocate(size);
+			}
+		}
+		if(pending.position() == 0) {
+			firstPendingNanos = commitIntervalNanos > 0 ? System.nanoTime() : 0L;
+		}
+		pending.put(op);
+		pending.putInt(bytes.length);
+		pending.put(bytes);
+		if(op == OP_SET) {
+			pending.putInt((int)value);
+		} else if(op != OP_INCREMENT) {
+			pending.putDouble(value);
+		}
+		if(commitIntervalNanos > 0 && System.nanoTime() - firstPendingNanos >= commitIntervalNanos) {
+			commit();
+		}
+	}
+
+
+	/**
+	 * Write the buffered records to the log as one frame and, depending on the sync policy, force them to the device.
+	 * @throws IOException if the log could not be written
+	 */
+	public void commit() throws IOException {
+		checkOpen();
+		if(pending.position() == 0) {
+			return;
+		}
+		pending.flip();
+		crc.reset();
+		crc.update(pending.array(), 0, pending.limit());
+		ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+		header.putInt(pending.limit());
+		header.putInt((int)crc.getValue());
+		header.flip();
+		int frameBytes = FRAME_HEADER_BYTES + pending.limit();
+		while(header.hasRemaining() || pending.hasRemaining()) {
+			channel.write(new ByteBuffer[] {header, pending});
+		}
+		pending.clear();
+		logBytes += frameBytes;
+		if(syncPolicy == SyncPolicy.COMMIT) {
+			channel.force(false);
+		}
+	}
+
+
+	/**
+	 * Replace the snapshot with the given entries and start a new, empty log generation.
+	 * The entries must reflect every record appended so far.
+	 * @param entries every item and its value
+	 * @throws IOException if the snapshot or log could not be written
+	 */
+	void snapshot(Collection<? extends Entry<K, ? extends Number>> entries) throws IOException {
+		commit();
+		File temp = new File(directory, SNAPSHOT_TEMP_FILE);
+		FileOutputStream fos = new FileOutputStream(temp);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16));
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeBoolean(isDouble);
+			out.writeLong(generation);
+			out.writeInt(entries.size());
+			for(Entry<K, ? extends Number> e : entries) {
+				byte[] bytes = codec.encode(e.getKey());
+				out.writeInt(bytes.length);
+				out.write(bytes);
+				if(isDouble) {
+					out.writeDouble(e.getValue().doubleValue());
+				} else {
+					out.writeInt(e.getValue().intValue());
+				}
+			}
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.flush();
+			fos.getFD().sync();
+		} finally {
+			fos.close();
+		}
+
+		File snapshot = new File(directory, SNAPSHOT_FILE);
+		if(snapshot.exists() && !snapshot.delete()) {
+			throw new IOException("could not replace snapshot " + snapshot);
+		}
+		if(!temp.renameTo(snapshot)) {
+			throw new IOException("could not rename snapshot " + temp);
+		}
+		snapshotEntries = entries.size();
+		startGeneration(generation + 1);
+	}
+
+
+	/**
+	 * Load the snapshot and replay the log into the given target, then open the log for appending.
+	 * A torn or corrupt frame at the end of the log is discarded.
+	 * @param target receives the recovered entries and records
+	 * @throws IOException if the snapshot is unreadable or was written for the other value type
+	 */
+	void recover(Replay<K> target) throws IOException {
+		long covered = loadSnapshot(target);
+
+		file = new RandomAccessFile(new File(directory, LOG_FILE), "rw");
+		channel = file.getChannel();
+		long logGeneration = -1L;
+		if(channel.size() >= LOG_HEADER_BYTES) {
+			ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+			readFully(header, 0L);
+			header.flip();
+			if(header.getInt() == LOG_MAGIC) {
+				logGeneration = header.getLong();
+			}
+		}
+
+		if(logGeneration <= covered) {
+			// Missing, unreadable or already part of the snapshot
+			startGeneration(covered + 1);
+			return;
+		}
+
+		generation = logGeneration;
+		long position = LOG_HEADER_BYTES;
+		long size = channel.size();
+		ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+		while(position + FRAME_HEADER_BYTES <= size) {
+			header.clear();
+			readFully(header, position);
+			header.flip();
+			int length = header.getInt();
+			int checksum = header.getInt();
+			if(length <= 0 || position + FRAME_HEADER_BYTES + length > size) {
+				break;
+			}
+			ByteBuffer frame = ByteBuffer.allocate(length);
+			readFully(frame, position + FRAME_HEADER_BYTES);
+			crc.reset();
+			crc.update(frame.array(), 0, length);
+			if((int)crc.getValue() != checksum) {
+				break;
+			}
+			frame.flip();
+			replayFrame(frame, target);
+			position += FRAME_HEADER_BYTES + length;
+		}
+		channel.truncate(position);
+		channel.position(position);
+		logBytes = position - LOG_HEADER_BYTES;
+	}
+
+
+	/**
+	 * Commit buffered records, force the log to the device and close it.
+	 * @throws IOException if the log could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if(!isClosed && channel != null) {
+			try {
+				commit();
+				channel.force(true);
+			} finally {
+				isClosed = true;
+				file.close();
+			}
+		}
+	}
+
+
+	private void checkOpen() {
+		if(isClosed || channel == null) {
+			throw new IllegalStateException("log is not open");
+		}
+	}
+
+
+	private byte[] encode(K key) {
+		int h = key.hashCode();
+		int slot = (h ^ (h >>> 16)) & (KEY_CACHE_SIZE - 1);
+		Object cached = cachedKeys[slot];
+		if(cached == key || (cached != null && cached.equals(key))) {
+			return cachedBytes[slot];
+		}
+		byte[] bytes = codec.encode(key);
+		cachedKeys[slot] = key;
+		cachedBytes[slot] = bytes;
+		return bytes;
+	}
+
+
+	private static int valueBytes(byte op) {
+		switch(op) {
+		case OP_INCREMENT:
+			return 0;
+		case OP_SET:
+			return 4;
+		default:
+			return 8;
+		}
+	}
+
+
+	/** Truncates the log and writes the header of a new generation. */
+	private void startGeneration(long newGeneration) throws IOException {
+		generation = newGeneration;
+		channel.truncate(0L);
+		ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+		header.putInt(LOG_MAGIC);
+		header.putLong(generation);
+		header.flip();
+		channel.position(0L);
+		while(header.hasRemaining()) {
+			channel.write(header);
+		}
+		channel.force(true);
+		logBytes = 0L;
+	}
+
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+
+
+	private void replayFrame(ByteBuffer frame, Replay<K> target) throws IOException {
+		while(frame.hasRemaining()) {
+			byte op = frame.get();
+			if(op < OP_INCREMENT || op > OP_SET_DOUBLE) {
+				throw new IOException("unknown log record type " + op);
+			}
+			byte[] bytes = new byte[frame.getInt()];
+			frame.get(bytes);
+			double value;
+			if(op == OP_INCREMENT) {
+				value = 1.0;
+			} else if(op == OP_SET) {
+				value = frame.getInt();
+			} else {
+				value = frame.getDouble();
+			}
+			target.replay(op, codec.decode(bytes), value);
+		}
+	}
+
+
+	/**
+	 * Picks the snapshot to recover from.
+	 * A complete temporary snapshot is only used when the real one is missing, which happens if a crash interrupted the
+	 * rename.
+	 */
+	private File snapshotFile() throws IOException {
+		File snapshot = new File(directory, SNAPSHOT_FILE);
+		if(snapshot.exists()) {
+			return snapshot;
+		}
+		File temp = new File(directory, SNAPSHOT_TEMP_FILE);
+		if(temp.exists() && isCompleteSnapshot(temp)) {
+			return temp;
+		}
+		return null;
+	}
+
+
+	private static boolean isCompleteSnapshot(File f) throws IOException {
+		if(f.length() < 4) {
+			return false;
+		}
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		try {
+			raf.seek(f.length() - 4);
+			return raf.readInt() == SNAPSHOT_MAGIC;
+		} finally {
+			raf.close();
+		}
+	}
+
+
+	private int readSnapshotSize() throws IOException {
+		File f = snapshotFile();
+		if(f == null) {
+			return 0;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			readSnapshotHeader(in);
+			in.readLong();
+			return in.readInt();
+		} finally {
+			in.close();
+		}
+	}
+
+
+	private void readSnapshotHeader(DataInputStream in) throws IOException {
+		if(in.readInt() != SNAPSHOT_MAGIC) {
+			throw new IOException("not a counter snapshot");
+		}
+		if(in.readBoolean() != isDouble) {
+			throw new IOException(isDouble ? "snapshot holds int counts, not double values" : "snapshot holds double values, not int counts");
+		}
+	}
+
+
+	/** @return the log generation covered by the snapshot, -1 if there is none */
+	private long loadSnapshot(Replay<K> target) throws IOException {
+		File f = snapshotFile();
+		if(f == null) {
+			return -1L;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1 << 16));
+		try {
+			readSnapshotHeader(in);
+			long covered = in.readLong();
+			int n = in.readInt();
+			for(int i = 0; i < n; i++) {
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				if(isDouble) {
+					target.replay(OP_SET_DOUBLE, codec.decode(bytes), in.readDouble());
+				} else {
+					target.replay(OP_SET, codec.decode(bytes), in.readInt());
+				}
+			}
+			if(in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException("snapshot is truncated");
+			}
+			return covered;
+		} finally {
+			in.close();
+		}
+	}
+}
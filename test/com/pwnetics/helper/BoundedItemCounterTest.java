@@ -0,0 +1,163 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BoundedItemCounterTest {
+
+	@Test
+	public void testLru() {
+		BoundedItemCounter<String> ic = new BoundedItemCounter<String>(3, BoundedItemCounter.Eviction.LRU);
+		final List<String> evicted = new ArrayList<String>();
+		ic.setEvictionListener(new BoundedItemCounter.EvictionListener<String>() {
+			@Override
+			public void evicted(String item, int count) {
+				evicted.add(item + count);
+			}
+		});
+		ic.increment("a");
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("c");
+		ic.increment("a");
+		ic.increment("d");  // b is least recent
+		assertTrue(ic.size() == 3);
+		assertTrue(ic.get("b") == 0);
+		ic.increment("e");  // then c
+		assertTrue(evicted.size() == 2);
+		assertTrue(evicted.get(0).equals("b1"));
+		assertTrue(evicted.get(1).equals("c1"));
+		assertTrue(ic.get("a") == 3);
+		assertTrue(ic.evictedItems() == 2);
+		assertTrue(ic.evictedMass() == 2);
+		assertTrue(ic.sum() + ic.evictedMass() == 7);
+	}
+
+	@Test
+	public void testLfu() {
+		BoundedItemCounter<String> ic = new BoundedItemCounter<String>(3, BoundedItemCounter.Eviction.LFU);
+		ic.set("a", 5);
+		ic.increment("b");
+		ic.increment("b");
+		ic.increment("c");
+		ic.increment("d");  // c has the smallest count; the new item is kept
+		assertTrue(ic.get("c") == 0);
+		assertTrue(ic.get("d") == 1);
+		ic.increment("d");
+		ic.increment("d");
+		ic.increment("d");  // d: 4
+		ic.increment("e");  // b has the smallest count
+		assertTrue(ic.get("b") == 0);
+		assertTrue(ic.get("a") == 5 && ic.get("d") == 4 && ic.get("e") == 1);
+		ic.set("a", 1);
+		ic.set("e", 9);
+		ic.increment("f");  // a
+		assertTrue(ic.get("a") == 0);
+		ic.set("f", 0);
+		assertTrue(ic.size() == 2);
+		assertTrue(ic.evictedMass() == 1 + 2 + 1);
+		assertTrue(ic.sum() == 13);
+	}
+
+	@Test
+	public void testLfuRandom() {
+		BoundedItemCounter<Integer> ic = new BoundedItemCounter<Integer>(50, BoundedItemCounter.Eviction.LFU);
+		final int[] min = new int[1];
+		final ItemCounter<Integer> snapshot = new ItemCounter<Integer>();
+		Random random = new Random(3);
+		for(int i = 0; i < 20000; i++) {
+			int k = (int)Math.abs(random.nextGaussian() * 60);
+			if(!ic.getItems().contains(k) && ic.size() == 50) {
+				min[0] = ic.min().getValue();
+				long mass = ic.evictedMass();
+				ic.increment(k);
+				assertTrue(ic.evictedMass() - mass == min[0]);
+			} else {
+				ic.increment(k);
+			}
+			snapshot.increment(k);
+		}
+		assertTrue(ic.size() == 50);
+		assertTrue(ic.sum() + ic.evictedMass() == 20000);
+	}
+
+	@Test
+	public void testTinyLfu() {
+		assertTrue(scanSurvivors(BoundedItemCounter.Eviction.TINY_LFU) == 50);
+		// With only LRU, the scan flushes frequent items that were not counted recently
+		assertTrue(scanSurvivors(BoundedItemCounter.Eviction.LRU) < 50);
+	}
+
+	/** Counts 50 frequent items, then scans one-off items while still counting the frequent ones now and then. @return the number of frequent items kept */
+	private int scanSurvivors(BoundedItemCounter.Eviction eviction) {
+		BoundedItemCounter<Integer> ic = new BoundedItemCounter<Integer>(100, eviction);
+		for(int round = 0; round < 20; round++) {
+			for(int k = 0; k < 50; k++) {
+				ic.increment(k);
+			}
+		}
+		int n = 20 * 50;
+		for(int k = 1000; k < 31000; k++) {
+			ic.increment(k);
+			n++;
+			if(k % 3 == 0) {
+				ic.increment(k % 50);
+				n++;
+			}
+		}
+		assertTrue(ic.size() == 100);
+		assertTrue(ic.sum() + ic.evictedMass() == n);
+		int kept = 0;
+		for(int k = 0; k < 50; k++) {
+			if(ic.get(k) > 0) {
+				kept++;
+			}
+		}
+		return kept;
+	}
+
+	@Test
+	public void testBadCapacity() {
+		try {
+			new BoundedItemCounter<String>(0, BoundedItemCounter.Eviction.LRU);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BufferedItemCounterTest {
+
+	private static void countFromThreads(final BufferedItemCounter<Integer> bic, int nThreads, final int nIncrements) throws InterruptedException {
+		Thread[] threads = new Thread[nThreads];
+		for(int t = 0; t < nThreads; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for(int i = 0; i < nIncrements; i++) {
+						bic.increment(i % 100);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	@Test
+	public void testConcurrentShared() throws InterruptedException {
+		BufferedItemCounter<Integer> bic = new BufferedItemCounter<Integer>(new ConcurrentItemCounter<Integer>(), 16, 10000);
+		countFromThreads(bic, 4, 50000);
+		bic.flush();
+		assertTrue(bic.shared().size() == 100);
+		assertTrue(bic.shared().sum() == 4 * 50000);
+		assertTrue(bic.get(7) == 4 * 50000 / 100);
+		bic.close();
+	}
+
+	@Test
+	public void testLockedShared() throws InterruptedException {
+		BufferedItemCounter<Integer> bic = new BufferedItemCounter<Integer>(new ItemCounter<Integer>(), 1000, 10000);
+		countFromThreads(bic, 3, 20000);
+		bic.close();
+		assertTrue(bic.shared().sum() == 3 * 20000);
+	}
+
+	@Test
+	public void testLag() throws InterruptedException {
+		BufferedItemCounter<String> bic = new BufferedItemCounter<String>(new ConcurrentItemCounter<String>(), 100, 20);
+		bic.increment("a");
+		bic.add("a", 2);
+		assertTrue(bic.shared().get("a") == 0);  // still buffered
+		assertTrue(bic.get("a") == 3);  // reading flushes this thread's buffer
+		bic.increment("b");
+		long deadline = System.currentTimeMillis() + 5000;
+		while(bic.shared().get("b") == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(bic.shared().get("b") == 1);  // flushed by the timer
+		bic.close();
+	}
+
+	@Test
+	public void testDropsBuffers() throws InterruptedException {
+		BufferedItemCounter<Integer> bic = new BufferedItemCounter<Integer>(new ConcurrentItemCounter<Integer>(), 16, 100000);
+		for(int t = 0; t < 50; t++) {
+			countFromThreads(bic, 2, 10);
+		}
+		assertTrue(bic.bufferCount() <= 100);
+		bic.flush();
+		assertTrue(bic.bufferCount() == 0);
+		assertTrue(bic.shared().get(3) == 100);
+
+		bic.increment(3);
+		assertTrue(bic.bufferCount() == 1);
+		bic.release();
+		assertTrue(bic.bufferCount() == 0 && bic.shared().get(3) == 101);
+		bic.increment(3);
+		assertTrue(bic.bufferCount() == 1 && bic.get(3) == 102);
+		bic.close();
+	}
+}
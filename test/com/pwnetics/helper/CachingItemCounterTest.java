@@ -221,4 +221,40 @@ public class CachingItemCounterTest {
 			// pass
 		}
 	}
+
+	@Test
+	public void testUnmodifiableRankQueries() {
+		CachingItemCounter<String> ic = new CachingItemCounter<String>();
+		ic.setMaintainingRanks(true);
+		ic.set("a", 3);
+		ic.set("b", 1);
+		ic.set("c", 2);
+		ItemCounter<String> uc = ic.asUnmodifiable();
+		assertTrue(uc.rank("a") == 0 && uc.rank("b") == 2);
+		assertTrue(uc.itemAtRank(1).equals("c"));
+		assertTrue(uc.countItemsInRange(2, 3) == 2);
+
+		// The view answers from the wrapped counter, which holds the maintained index
+		CachingItemCounter<String> wrapped = new CachingItemCounter<String>() {
+			@Override
+			public int rank(String item) {
+				return 42;
+			}
+
+			@Override
+			public String itemAtRank(int rank) {
+				return "wrapped";
+			}
+
+			@Override
+			public int countItemsInRange(int lo, int hi) {
+				return 43;
+			}
+		};
+		wrapped.increment("a");
+		uc = wrapped.asUnmodifiable();
+		assertTrue(uc.rank("a") == 42);
+		assertTrue(uc.itemAtRank(0).equals("wrapped"));
+		assertTrue(uc.countItemsInRange(0, 5) == 43);
+	}
 }
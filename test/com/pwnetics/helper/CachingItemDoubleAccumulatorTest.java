@@ -203,6 +203,22 @@ public class CachingItemDoubleAccumulatorTest {
 		assertEquals(expected, ic.variance(), expected * 1e-9);  // epsilon is relative to magnitude of expected value; arbitrarily chosen amount
 	}
 
+	@Test
+	public void testQuantileOfSharedMap() {
+		ItemDoubleAccumulator<Integer> ic = new ItemDoubleAccumulator<Integer>();
+		for(int i = 1; i <= 3; i++) {
+			ic.set(i, i);
+		}
+		CachingItemDoubleAccumulator<Integer> cic = CachingItemDoubleAccumulator.build(ic, false);
+		assertTrue(cic.median() == 2.0);
+		for(int i = 4; i <= 99; i++) {
+			ic.set(i, i);
+		}
+		assertTrue(ic.median() == 50.0);
+		assertTrue(cic.median() == 50.0);  // quantiles are not cached, so they follow the shared map
+		assertTrue(!cic.isMaintainingQuantiles());
+	}
+
 	@Test
 	public void testAsUnmodifiable() {
 		// Just copied from the ItemDoubleAccumulatorTest; we're not concerned with the mutability issues, here.
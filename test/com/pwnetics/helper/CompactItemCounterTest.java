@@ -0,0 +1,150 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompactItemCounterTest {
+
+	@Test
+	public void testCounts() {
+		CompactItemCounter<String> ic = new CompactItemCounter<String>();
+		for(String word : "foo bar bat baz foo foo baz qux bar foo".split("\\s+")) {
+			ic.increment(word);
+		}
+		assertTrue(ic.size() == 5);
+		assertTrue(ic.get("foo") == 4);
+		assertTrue(ic.get("missing") == 0);
+		assertTrue(ic.sum() == 10);
+		assertTrue(ic.max().getKey().equals("foo"));
+		assertTrue(ic.bitsPerCount() == 8.0);
+
+		ic.set("foo", 0);
+		assertTrue(ic.size() == 4 && ic.get("foo") == 0);
+		ic.set(null, 3);
+		assertTrue(ic.get(null) == 3 && ic.getMap().containsKey(null));
+		assertTrue(ic.sortByValueKey(false).get(0).getValue() == 3);
+	}
+
+	@Test
+	public void testWidening() {
+		CompactItemCounter<Integer> ic = new CompactItemCounter<Integer>();
+		for(int i = 0; i < 1000; i++) {
+			ic.increment(i);
+		}
+		ic.set(7, 255);
+		assertTrue(ic.bitsPerCount() == 8.0);
+		ic.increment(7);
+		assertTrue(ic.get(7) == 256);
+		assertTrue(ic.bitsPerCount() > 8.0);
+		ic.set(8, 70000);
+		ic.add(9, 5000000000L);
+		assertTrue(ic.getLong(9) == 5000000001L);
+		assertTrue(ic.get(9) == Integer.MAX_VALUE);
+		assertTrue(ic.get(8) == 70000 && ic.get(7) == 256 && ic.get(6) == 1);
+		assertTrue(ic.sum() == 5000000001L + 70000 + 256 + 997);
+
+		// Rehashing narrows the segments that no longer need their width
+		ic.set(9, 0);
+		ic.set(8, 0);
+		ic.set(7, 0);
+		double wide = ic.bitsPerCount();
+		ic.trimToSize();
+		assertTrue(ic.bitsPerCount() == 8.0 && wide > 8.0);
+		assertTrue(ic.size() == 997 && ic.sum() == 997);
+
+		ic.set(1, 1);
+		ic.add(1, Long.MAX_VALUE - 1);
+		try {
+			ic.increment(1);
+			fail();
+		} catch(ArithmeticException e) {
+			// expected
+		}
+		assertTrue(ic.getLong(1) == Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Random random = new Random(1);
+		CompactItemCounter<Integer> ic = new CompactItemCounter<Integer>(4, 0.75f);
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for(int i = 0; i < 200000; i++) {
+			int item = random.nextInt(5000);
+			int op = random.nextInt(20);
+			if(op == 0) {
+				ic.set(item, 0);
+				expected.remove(item);
+			} else if(op == 1) {
+				int c = random.nextInt(100000);
+				ic.set(item, c);
+				if(c == 0) {
+					expected.remove(item);
+				} else {
+					expected.put(item, c);
+				}
+			} else {
+				Integer c = expected.get(item);
+				expected.put(item, c == null ? 1 : c + 1);
+				assertTrue(ic.increment(item) == expected.get(item));
+			}
+		}
+		assertTrue(ic.getMap().equals(expected));
+		assertTrue(ic.size() == expected.size());
+	}
+
+	@Test
+	public void testMemory() {
+		CompactItemCounter<Integer> compact = new CompactItemCounter<Integer>(100000, 0.75f);
+		ItemCounter<Integer> hash = new ItemCounter<Integer>(100000, 0.75f);
+		for(int i = 0; i < 100000; i++) {
+			for(int j = i % 4; j >= 0; j--) {
+				compact.increment(i);
+				hash.increment(i);
+			}
+		}
+		assertTrue(compact.getMap().equals(hash.getMap()));
+		assertTrue(compact.estimatedRetainedBytes() * 4 < hash.estimatedRetainedBytes());
+	}
+
+	@Test
+	public void testBuilder() {
+		ItemCounter<String> ic = ItemCounter.<String>builder().backend(ItemCounter.Backend.COMPACT).expectedSize(10).build();
+		assertTrue(ic instanceof CompactItemCounter<?>);
+	}
+}
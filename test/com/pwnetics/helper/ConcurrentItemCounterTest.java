@@ -0,0 +1,92 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class ConcurrentItemCounterTest {
+
+	@Test
+	public void testBasic() {
+		ConcurrentItemCounter<String> ic = new ConcurrentItemCounter<String>();
+		assertTrue(ic.increment("a") == 1);
+		assertTrue(ic.increment("a") == 2);
+		assertTrue(ic.add("b", 5) == 5);
+		assertTrue(ic.add("b", -5) == 0);
+		assertTrue(!ic.getItems().contains("b"));
+		ic.set("c", 3);
+		assertTrue(ic.sum() == 5);
+		assertTrue(ic.max().getKey().equals("c"));
+		assertEquals(2.5, ic.median(), 1e-12);
+		try {
+			ic.add("a", -3);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			ic.setMaintainingCountOfCounts(true);
+			fail();
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws InterruptedException {
+		final ConcurrentItemCounter<Integer> ic = new ConcurrentItemCounter<Integer>();
+		final int nThreads = 4;
+		final int nIncrements = 20000;
+		Thread[] threads = new Thread[nThreads];
+		for(int t = 0; t < nThreads; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for(int i = 0; i < nIncrements; i++) {
+						ic.increment(i % 10);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(ic.size() == 10);
+		assertTrue(ic.sum() == (long)nThreads * nIncrements);
+		for(int i = 0; i < 10; i++) {
+			assertTrue(ic.get(i) == nThreads * nIncrements / 10);
+		}
+	}
+}
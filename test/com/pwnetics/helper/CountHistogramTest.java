@@ -0,0 +1,101 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CountHistogramTest {
+
+	@Test
+	public void testAgainstSortedList() {
+		Random random = new Random(42);
+		CountHistogram h = new CountHistogram();
+		List<Long> values = new ArrayList<Long>();
+		for(int i = 0; i < 5000; i++) {
+			if(values.isEmpty() || random.nextInt(3) > 0) {
+				long v = random.nextInt(200) - 50;
+				h.add(v, 1);
+				values.add(v);
+			} else {
+				long v = values.remove(random.nextInt(values.size()));
+				h.add(v, -1);
+			}
+		}
+		Collections.sort(values);
+		assertTrue(h.total() == values.size());
+		for(int i = 0; i < values.size(); i++) {
+			assertTrue(h.select(i) == values.get(i));
+		}
+		assertTrue(h.countLessThan(0) == values.indexOf(h.select(h.countLessThan(0))));
+		assertTrue(h.itemsWithValue(1000) == 0);
+		assertTrue(h.distinctValues() <= 200);
+	}
+
+	@Test
+	public void testRemoveMissing() {
+		CountHistogram h = new CountHistogram();
+		h.add(3, 2);
+		h.move(3, 4);
+		assertTrue(h.itemsWithValue(3) == 1);
+		assertTrue(h.itemsWithValue(4) == 1);
+		try {
+			h.add(5, -1);
+			fail("removing a missing value should throw an exception");
+		} catch(IllegalStateException e) {
+			// pass
+		}
+		try {
+			h.add(3, -2);
+			fail("removing too many items should throw an exception");
+		} catch(IllegalStateException e) {
+			// pass
+		}
+		assertTrue(h.total() == 2);
+	}
+
+	@Test
+	public void testSortable() {
+		double[] ds = {Double.NEGATIVE_INFINITY, -3.5, -0.0, 0.0, 1e-300, 2.0, Double.POSITIVE_INFINITY};
+		for(int i = 0; i < ds.length; i++) {
+			assertTrue(Double.compare(CountHistogram.fromSortable(CountHistogram.sortable(ds[i])), ds[i]) == 0);
+			if(i > 0) {
+				assertTrue(CountHistogram.sortable(ds[i - 1]) < CountHistogram.sortable(ds[i]));
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class CounterFlusherTest {
+
+	@Test
+	public void testDrainChanges() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("old");
+		try {
+			ic.drainChanges();
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+		ic.setTrackingChanges(true);
+		ic.increment("a");
+		ic.increment("a");
+		ic.increment("b");
+		ic.set("b", 0);  // changed back, left out
+		ic.set("old", 0);
+		ChangeBatch<String> batch = ic.drainChanges();
+		assertTrue(batch.size() == 2);
+		for(int i = 0; i < batch.size(); i++) {
+			if(batch.item(i).equals("a")) {
+				assertEquals(2.0, batch.value(i), 0);
+				assertEquals(2.0, batch.delta(i), 0);
+			} else {
+				assertTrue(batch.item(i).equals("old"));
+				assertEquals(0.0, batch.value(i), 0);
+				assertEquals(-1.0, batch.delta(i), 0);
+			}
+		}
+		assertTrue(ic.drainChanges().size() == 0);
+		ic.increment("a");
+		batch = ic.drainChanges();
+		assertTrue(batch.size() == 1);
+		assertEquals(3.0, batch.value(0), 0);
+		assertEquals(1.0, batch.delta(0), 0);
+
+		DenseIntCounter dic = new DenseIntCounter();
+		dic.setTrackingChanges(true);
+		dic.increment(5);
+		dic.increment(5);
+		assertTrue(dic.drainChanges().size() == 1);
+
+		StringItemCounter sic = new StringItemCounter();
+		sic.setTrackingChanges(true);
+		sic.increment(new StringBuilder("x"));
+		assertTrue(sic.drainChanges().item(0).equals("x"));
+
+		ItemDoubleAccumulator<String> ida = new ItemDoubleAccumulator<String>();
+		ida.setTrackingChanges(true);
+		ida.add("a", 1.5);
+		ida.add("a", 1.0);
+		ida.set("b", 2.0);
+		ChangeBatch<String> dbatch = ida.drainChanges();
+		assertTrue(dbatch.size() == 2);
+		ida.add("b", -1.0);
+		dbatch = ida.drainChanges();
+		assertTrue(dbatch.size() == 1);
+		assertEquals(1.0, dbatch.value(0), 0);
+		assertEquals(-1.0, dbatch.delta(0), 0);
+	}
+
+	@Test
+	public void testInMemorySink() throws IOException {
+		InMemoryCounterSink<Integer> sink = new InMemoryCounterSink<Integer>();
+		CounterFlusher<Integer> flusher = new CounterFlusher<Integer>(sink, 2);
+		ItemCounter<Integer> ic = new ItemCounter<Integer>();
+		ic.setTrackingChanges(true);
+		for(int round = 0; round < 10; round++) {
+			for(int i = 0; i < 100; i++) {
+				ic.increment((i * round) % 37);
+			}
+			flusher.flush(ic);
+		}
+		assertTrue(flusher.flush(ic) == 0);
+		flusher.sync();
+		assertTrue(sink.changes() <= 10 * 37);
+		assertTrue(flusher.itemsWritten() == sink.changes());
+		for(Integer k : ic.getItems()) {
+			assertEquals((double)ic.get(k), sink.get(k), 0);
+		}
+		assertTrue(sink.getValues().size() == ic.size());
+		flusher.close();
+	}
+
+	@Test
+	public void testFileSink() throws IOException {
+		File file = File.createTempFile("counterflusher", ".tsv");
+		file.deleteOnExit();
+		FileCounterSink<String> sink = new FileCounterSink<String>(file);
+		CounterFlusher<String> flusher = new CounterFlusher<String>(sink, 4);
+		ItemDoubleAccumulator<String> ida = new ItemDoubleAccumulator<String>();
+		ida.setTrackingChanges(true);
+		ida.add("a", 2.0);
+		ida.add("b", 0.5);
+		flusher.flush(ida);
+		ida.add("a", 1.0);
+		flusher.flush(ida);
+		flusher.close();
+		sink.close();
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+			lines.add(line);
+		}
+		reader.close();
+		assertTrue(lines.size() == 3);
+		assertTrue(lines.contains("a\t2\t2"));
+		assertTrue(lines.contains("b\t0.5\t0.5"));
+		assertTrue(lines.get(2).equals("a\t3\t1"));
+	}
+
+	@Test
+	public void testBackpressureAndFailure() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		CounterSink<String> sink = new CounterSink<String>() {
+			@Override
+			public void write(ChangeBatch<String> batch) throws IOException {
+				try {
+					release.await();
+				} catch(InterruptedException e) {
+					throw new IOException(e.getMessage());
+				}
+				throw new IOException("disk full");
+			}
+		};
+		CounterFlusher<String> flusher = new CounterFlusher<String>(sink, 1);
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.setTrackingChanges(true);
+		ic.increment("a");
+		assertTrue(flusher.flush(ic) == 1);  // taken by the writer, which blocks in the sink
+		while(flusher.queuedBatches() > 0) {
+			Thread.sleep(1);
+		}
+		ic.increment("b");
+		assertTrue(flusher.tryFlush(ic) == 1);  // fills the queue
+		ic.increment("c");
+		assertTrue(flusher.tryFlush(ic) == -1);
+		assertTrue(ic.drainChanges().size() == 1);  // c is still recorded
+		release.countDown();
+		try {
+			flusher.sync();
+			fail();
+		} catch(IOException e) {
+			assertTrue(e.getMessage().contains("disk full"));
+		}
+		try {
+			flusher.close();
+			fail();
+		} catch(IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class CounterMetricsTest {
+
+	@Test
+	public void testItemCounter() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		CounterMetrics metrics = new CounterMetrics();
+		ic.setListener(metrics);
+		ic.increment("a");
+		ic.increment("a");
+		ic.set("b", 2);
+		ic.get("a");
+		assertTrue(metrics.getIncrements() == 2);
+		assertTrue(metrics.getSets() == 1);
+		assertTrue(metrics.getGets() == 1);
+		assertTrue(metrics.getResizes() == 0);
+
+		for(int i = 0; i < 100; i++) {
+			ic.increment("item" + i);
+		}
+		assertTrue(metrics.getResizes() == 4);  // 16 -> 32 -> 64 -> 128 -> 256 slots
+		assertTrue(metrics.getResizeNanos() >= metrics.getMaxResizeNanos());
+		assertTrue(metrics.getEstimatedRetainedBytes() == ic.estimatedRetainedBytes());
+		assertTrue(metrics.getEstimatedRetainedBytes() > 102 * 48);
+
+		metrics.reset();
+		assertTrue(metrics.getIncrements() == 0);
+
+		ic.setListener(null);
+		ic.increment("a");
+		assertTrue(metrics.getIncrements() == 0);
+	}
+
+	@Test
+	public void testItemDoubleAccumulator() {
+		ItemDoubleAccumulator<String> a = new ItemDoubleAccumulator<String>();
+		CounterMetrics metrics = new CounterMetrics();
+		a.setListener(metrics);
+		a.add("a", 1.0);
+		a.set("b", 2.0);
+		a.get("b");
+		for(int i = 0; i < 20; i++) {
+			a.add("item" + i, i);
+		}
+		assertTrue(metrics.getAdds() == 21);
+		assertTrue(metrics.getSets() == 1);
+		assertTrue(metrics.getGets() == 1);
+		assertTrue(metrics.getResizes() == 1);
+		assertTrue(metrics.getEstimatedRetainedBytes() == a.estimatedRetainedBytes());
+	}
+
+	@Test
+	public void testCacheHitRate() {
+		CachingItemCounter<String> cic = new CachingItemCounter<String>();
+		CounterMetrics metrics = new CounterMetrics();
+		cic.setListener(metrics);
+		cic.increment("a");
+		cic.sum();
+		cic.sum();
+		cic.sum();
+		cic.increment("a");
+		cic.sum();
+		assertTrue(metrics.getCacheMisses() == 2);
+		assertTrue(metrics.getCacheHits() == 2);
+		assertTrue(metrics.getCacheHitRate() == 0.5);
+	}
+
+	@Test
+	public void testSpecializedCounters() {
+		CounterMetrics metrics = new CounterMetrics();
+		DenseIntCounter dic = new DenseIntCounter(4);
+		dic.setListener(metrics);
+		dic.increment(100);
+		dic.get(100);
+		assertTrue(metrics.getIncrements() == 1);
+		assertTrue(metrics.getGets() == 1);
+		assertTrue(metrics.getResizes() == 1);
+
+		metrics = new CounterMetrics();
+		StringItemCounter sic = new StringItemCounter(4);
+		sic.setListener(metrics);
+		for(int i = 0; i < 100; i++) {
+			sic.increment("item" + i);
+		}
+		assertTrue(metrics.getIncrements() == 100);
+		assertTrue(metrics.getResizes() > 0);
+		assertTrue(metrics.getEstimatedRetainedBytes() > 0);
+
+		metrics = new CounterMetrics();
+		OffHeapItemCounter<String> ohic = OffHeapItemCounter.forStrings(4);
+		ohic.setListener(metrics);
+		for(int i = 0; i < 100; i++) {
+			ohic.increment("item" + i);
+		}
+		assertTrue(metrics.getIncrements() == 100);
+		assertTrue(metrics.getResizes() > 0);
+		assertTrue(metrics.getEstimatedRetainedBytes() == ohic.offHeapBytes());
+		ohic.close();
+	}
+
+	@Test
+	public void testMBean() throws JMException {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		CounterMetrics metrics = new CounterMetrics();
+		ic.setListener(metrics);
+		ObjectName name = metrics.register("CounterMetricsTest");
+		try {
+			ic.increment("a");
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertTrue(((Long)server.getAttribute(name, "Increments")) == 1L);
+		} finally {
+			metrics.unregister();
+		}
+		assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+}
@@ -0,0 +1,147 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CountingPipelineTest {
+
+	private static File write(String text) throws IOException {
+		File file = File.createTempFile("countingpipeline", ".txt");
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		writer.write(text);
+		writer.close();
+		return file;
+	}
+
+	@Test
+	public void testCount() throws IOException {
+		Random random = new Random(11);
+		String[] words = {"foo", "Bar", "bat", "baz", "caf\u00e9", "\u65e5\u672c"};
+		StringBuilder a = new StringBuilder();
+		StringBuilder b = new StringBuilder();
+		ItemCounter<String> expected = new ItemCounter<String>();
+		for(int line = 0; line < 2000; line++) {
+			StringBuilder sb = line % 2 == 0 ? a : b;
+			int n = line == 100 ? 500 : random.nextInt(8);  // one line longer than a chunk
+			for(int i = 0; i < n; i++) {
+				String w = words[random.nextInt(words.length)];
+				sb.append(w).append(i % 3 == 0 ? "\t" : "  ");
+				expected.increment(w.toLowerCase());
+			}
+			sb.append(line % 5 == 0 ? "\r\n" : "\n");
+		}
+		a.append("last foo");  // no final newline
+		expected.increment("last");
+		expected.increment("foo");
+
+		File fa = write(a.toString());
+		File fb = write(b.toString());
+		CountingPipeline pipeline = new CountingPipeline();
+		pipeline.setThreads(3);
+		pipeline.setChunkSize(100);
+		pipeline.setNormalizer(CountingPipeline.LOWER_CASE);
+		ItemCounter<String> counted = pipeline.count(fa, fb);
+		assertTrue(counted.getMap().equals(expected.getMap()));
+		assertTrue(pipeline.getBytesRead() == fa.length() + fb.length());
+		assertTrue(pipeline.getTokens() == expected.sum());
+		assertTrue(pipeline.getMegabytesPerSecond() > 0);
+
+		ItemCounter<String> into = new ItemCounter<String>();
+		into.set("foo", 1);
+		pipeline.setThreads(1);
+		pipeline.count(into, fa, fb);
+		assertTrue(into.get("foo") == expected.get("foo") + 1);
+
+		// Merging past an int count throws rather than wrapping, unless the counter holds long counts
+		into.set("foo", Integer.MAX_VALUE - 1);
+		try {
+			pipeline.count(into, fa, fb);
+			fail("overflowing count should throw an exception");
+		} catch(ArithmeticException e) {
+			// pass
+		}
+		CompactItemCounter<String> compact = new CompactItemCounter<String>();
+		compact.set("foo", Integer.MAX_VALUE - 1);
+		pipeline.count(compact, fa, fb);
+		assertTrue(compact.getLong("foo") == Integer.MAX_VALUE - 1L + expected.get("foo"));
+
+		ItemDoubleAccumulator<String> acc = new ItemDoubleAccumulator<String>();
+		pipeline.count(acc, fa, fb);
+		assertEquals(expected.get("bat"), acc.get("bat"), 0);
+	}
+
+	@Test
+	public void testCustomTokenizer() throws IOException {
+		File f = write("a,b,,c\nb,c\n\n");
+		CountingPipeline pipeline = new CountingPipeline();
+		pipeline.setTokenizer(new CountingPipeline.Tokenizer() {
+			@Override
+			public void tokenize(String line, List<String> tokens) {
+				for(String t : line.split(",")) {
+					tokens.add(t);
+				}
+			}
+		});
+		pipeline.setNormalizer(new CountingPipeline.Normalizer() {
+			@Override
+			public String normalize(String token) {
+				return token.isEmpty() || token.equals("a") ? null : token;
+			}
+		});
+		ItemCounter<String> counted = pipeline.count(f);
+		assertTrue(counted.size() == 2);
+		assertTrue(counted.get("b") == 2 && counted.get("c") == 2);
+		assertTrue(pipeline.getTokens() == 4);
+	}
+
+	@Test
+	public void testMissingFile() {
+		try {
+			new CountingPipeline().count(new File("/nonexistent/countingpipeline.txt"));
+			fail();
+		} catch(IOException e) {
+			// expected
+		}
+	}
+}
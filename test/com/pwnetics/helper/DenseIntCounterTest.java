@@ -0,0 +1,198 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class DenseIntCounterTest {
+
+	@Test
+	public void testSetIncrement() {
+		DenseIntCounter ic = new DenseIntCounter(2);
+		assertTrue(ic.get(0) == 0);
+		assertTrue(ic.get(-1) == 0);
+		assertTrue(ic.get(1000) == 0);
+		assertTrue(ic.increment(0) == 1);
+		assertTrue(ic.increment(0) == 2);
+		assertTrue(ic.increment(100) == 1);  // grows the backing array
+		assertTrue(ic.get(100) == 1);
+		assertTrue(ic.size() == 2);
+		assertTrue(ic.range() == 101);
+		ic.set(100, 42);
+		assertTrue(ic.increment(100) == 43);
+		ic.set(100, 0);
+		assertTrue(ic.get(100) == 0);
+		assertTrue(ic.size() == 1);
+		ic.set(5000, 0);
+		assertTrue(ic.size() == 1);
+
+		try {
+			ic.increment(-1);
+			fail("negative keys should throw an exception");
+		} catch(IllegalArgumentException e) {
+			// pass
+		}
+		try {
+			ic.set(-1, 1);
+			fail("negative keys should throw an exception");
+		} catch(IllegalArgumentException e) {
+			// pass
+		}
+	}
+
+	@Test
+	public void testStatistics() {
+		DenseIntCounter ic = new DenseIntCounter();
+		assertTrue(ic.sum() == 0);
+		assertTrue(ic.mean() == 0.0);
+		assertTrue(ic.variance() == 0.0);
+		assertTrue(ic.min().getKey() == null);
+		assertTrue(ic.max().getKey() == null);
+
+		ic.increment(1);
+		ic.increment(2);
+		ic.increment(3);
+		ic.increment(1);
+		assertTrue(ic.sum() == 4);
+		assertTrue(ic.mean() == 4.0 / 3.0);
+		assertEquals(1.0 / 3.0, ic.variance(), 1e-12);
+		assertEquals(2.0 / 9.0, ic.variancePopulation(), 1e-12);
+
+		// Large counts that are close together
+		DenseIntCounter clustered = new DenseIntCounter();
+		for(int i = 0; i < 1000; i++) {
+			clustered.set(i * 3, Integer.MAX_VALUE - i);
+		}
+		assertEquals(1000.0 * 1001.0 / 12.0, clustered.variance(), 1e-6);
+
+		assertTrue(ic.min().getKey() == 2);
+		assertTrue(ic.min().getValue() == 1);
+		assertTrue(ic.max().getKey() == 1);
+		assertTrue(ic.max().getValue() == 2);
+
+		ic.set(1, Integer.MAX_VALUE);
+		ic.set(2, Integer.MAX_VALUE);
+		assertTrue(ic.sum() == Integer.MAX_VALUE * 2L + 1);
+		assertTrue(ic.max().getKey() == 2);
+	}
+
+	@Test
+	public void testInheritedViews() {
+		DenseIntCounter ic = new DenseIntCounter();
+		ic.increment(3);
+		ic.increment(7);
+		ic.increment(3);
+		ic.increment(5);
+		assertTrue(ic.getItems().size() == 3);
+		assertTrue(ic.getMap().get(3) == 2);
+		assertTrue(ic.getMap().get(4) == null);
+		assertTrue(ic.toCSV().equals("3\t2\n5\t1\n7\t1\n"));
+
+		List<ItemCounter<Integer>.KeyValuePair> descendingList = ic.sortByValueKey(false);
+		assertTrue(descendingList.get(0).getKey() == 3);
+		assertTrue(descendingList.get(1).getKey() == 7);
+		assertTrue(descendingList.get(2).getKey() == 5);
+
+		ItemCounter<Integer> uc = ic.asUnmodifiable();
+		assertTrue(uc.get(3) == 2);
+		try {
+			uc.increment(3);
+			fail("unmodifiable ItemCounter should throw an exception");
+		} catch(UnsupportedOperationException e) {
+			// pass
+		}
+
+		CachingItemCounter<Integer> cic = CachingItemCounter.build(ic, false);
+		cic.increment(5);
+		assertTrue(ic.get(5) == 2);
+		assertTrue(cic.sum() == 5);
+	}
+
+	@Test
+	public void testCountOfCounts() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("a");
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("c");
+		ItemCounter<Integer> coc = ic.countOfCounts();
+		assertTrue(coc instanceof DenseIntCounter);
+		assertTrue(coc.get(1) == 2);
+		assertTrue(coc.get(2) == 1);
+		assertTrue(coc.get(3) == 0);
+		assertTrue(coc.size() == 2);
+
+		ic.set("a", Integer.MAX_VALUE);
+		coc = ic.countOfCounts();
+		assertTrue(!(coc instanceof DenseIntCounter));
+		assertTrue(coc.get(1) == 2);
+		assertTrue(coc.get(Integer.MAX_VALUE) == 1);
+	}
+
+	@Test
+	public void testForEachAndCursor() {
+		DenseIntCounter dic = new DenseIntCounter(4);
+		dic.increment(1);
+		dic.increment(9);
+		dic.increment(9);
+		dic.set(1, 0);
+		dic.increment(3);
+		final int[] seen = new int[10];
+		dic.forEach(new ItemCountVisitor<Integer>() {
+			@Override
+			public void visit(Integer item, int count) {
+				seen[item] = count;
+			}
+		});
+		assertTrue(seen[1] == 0);
+		assertTrue(seen[3] == 1);
+		assertTrue(seen[9] == 2);
+
+		ItemCounter<Integer>.Cursor c = dic.cursor();
+		assertTrue(c.next());
+		assertTrue(c.key() == 3 && c.intValue() == 1);
+		assertTrue(c.next());
+		assertTrue(c.key() == 9 && c.intValue() == 2);
+		assertTrue(!c.next());
+		assertTrue(!c.next());
+		try {
+			c.intValue();
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+	}
+}
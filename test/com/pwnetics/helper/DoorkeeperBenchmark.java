@@ -0,0 +1,119 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Compares the memory and accuracy of {@link DoorkeeperItemCounter} with a plain {@link ItemCounter} on a Zipf-distributed stream, which like natural
+ * text is mostly items that occur once or twice.
+ * Not a unit test; run with, for example, {@code java -Xmx4g com.pwnetics.helper.DoorkeeperBenchmark 20000000 10000000}
+ * for twenty million occurrences drawn from ten million possible items.
+ * For each threshold it prints the number of table entries, the estimated retained bytes of the table and the doorkeeper, the time taken,
+ * the number of items promoted although they occurred fewer times than the threshold, and the mean and largest overcount of the counted items.
+ * Items that reached the threshold are checked to be counted.
+ *
+ * @author romanows
+ */
+public class DoorkeeperBenchmark {
+
+	private static final int[] THRESHOLDS = {2, 3, 5};
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int v = args.length > 1 ? Integer.parseInt(args[1]) : 5000000;
+		double exponent = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+		Integer[] stream = zipf(n, v, exponent, new Random(1));
+
+		ItemCounter<Integer> exact = new ItemCounter<Integer>();
+		long start = System.nanoTime();
+		for(Integer item : stream) {
+			exact.increment(item);
+		}
+		long nanos = System.nanoTime() - start;
+		System.out.println(String.format("%-12s %9d entries %8.1f MB  %7.1f ms", "exact", exact.size(), exact.estimatedRetainedBytes() / 1e6, nanos / 1e6));
+
+		for(int threshold : THRESHOLDS) {
+			DoorkeeperItemCounter<Integer> ic = new DoorkeeperItemCounter<Integer>(threshold, exact.size(), FALSE_POSITIVE_RATE);
+			System.gc();
+			start = System.nanoTime();
+			for(Integer item : stream) {
+				ic.increment(item);
+			}
+			nanos = System.nanoTime() - start;
+			report(threshold, ic, exact, nanos);
+		}
+	}
+
+	private static void report(int threshold, DoorkeeperItemCounter<Integer> ic, ItemCounter<Integer> exact, long nanos) {
+		long early = 0;
+		long error = 0;
+		int maxError = 0;
+		for(Integer item : ic.getItems()) {
+			int c = exact.get(item);
+			if(c < threshold) {
+				early++;
+			}
+			int e = ic.get(item) - c;
+			if(e < 0) {
+				throw new IllegalStateException("undercounted " + item);
+			}
+			error += e;
+			maxError = Math.max(maxError, e);
+		}
+		for(Integer item : exact.getItems()) {
+			if(exact.get(item) >= threshold && ic.get(item) == 0) {
+				throw new IllegalStateException("missed " + item);
+			}
+		}
+		System.out.println(String.format("%-12s %9d entries %8.1f MB  %7.1f ms  doorkeeper %6.1f MB  fp %.4f  early %d  overcount mean %.4f max %d",
+				"threshold " + threshold, ic.size(), ic.estimatedRetainedBytes() / 1e6, nanos / 1e6, ic.getDoorkeeperBytes() / 1e6,
+				ic.getDoorkeeperFalsePositiveRate(), early, ic.size() == 0 ? 0.0 : (double)error / ic.size(), maxError));
+	}
+
+	/** Draw items from 0 to v-1, where item i has probability proportional to 1 / (i+1)^exponent. */
+	private static Integer[] zipf(int n, int v, double exponent, Random random) {
+		double[] cdf = new double[v];
+		double sum = 0;
+		for(int i = 0; i < v; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cdf[i] = sum;
+		}
+		Integer[] stream = new Integer[n];
+		for(int i = 0; i < n; i++) {
+			int j = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+			stream[i] = j < 0 ? Math.min(v - 1, -j - 1) : j;
+		}
+		return stream;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DoorkeeperItemCounterTest {
+
+	@Test
+	public void testPromotion() {
+		DoorkeeperItemCounter<String> ic = new DoorkeeperItemCounter<String>(2, 1000, 0.001);
+		assertTrue(ic.increment("foo") == 0);
+		assertTrue(ic.get("foo") == 0 && ic.size() == 0);
+		assertTrue(ic.increment("foo") == 2);
+		assertTrue(ic.increment("foo") == 3);
+		assertTrue(ic.get("foo") == 3 && ic.size() == 1 && ic.sum() == 3);
+		assertTrue(ic.increment("bar") == 0);
+		assertTrue(ic.getHeldIncrements() == 1);
+
+		ic.set("baz", 1);
+		assertTrue(ic.get("baz") == 1);
+		assertTrue(ic.increment("baz") == 2);
+
+		ic = new DoorkeeperItemCounter<String>(5, 1000, 0.001);
+		for(int i = 1; i < 5; i++) {
+			assertTrue(ic.increment("foo") == 0);
+		}
+		assertTrue(ic.increment("foo") == 5);
+		assertTrue(ic.get("foo") == 5);
+
+		ic.set("foo", 0);
+		assertTrue(ic.increment("foo") == 5);
+		ic.set("foo", 0);
+		ic.clearDoorkeeper();
+		assertTrue(ic.increment("foo") == 0);
+		assertTrue(ic.getHeldIncrements() == 1);
+	}
+
+	@Test
+	public void testAccuracy() {
+		int n = 20000;
+		double target = 0.01;
+		DoorkeeperItemCounter<Integer> ic = new DoorkeeperItemCounter<Integer>(2, 2 * n, target);
+		ItemCounter<Integer> exact = new ItemCounter<Integer>();
+		ItemCounter<Integer> all = new ItemCounter<Integer>();
+		for(int i = 0; i < n; i++) {
+			// Even items twice, odd items once
+			ic.increment(2 * i);
+			ic.increment(2 * i + 1);
+			ic.increment(2 * i);
+			exact.increment(2 * i);
+			exact.increment(2 * i);
+			all.increment(2 * i);
+			all.increment(2 * i + 1);
+		}
+		for(Integer item : exact.getItems()) {
+			assertTrue(ic.get(item) >= 2);
+		}
+		// Singletons are promoted only by false positives
+		int falsePositives = ic.size() - exact.size();
+		assertTrue(falsePositives >= 0 && falsePositives < 3 * target * n);
+		assertTrue(ic.getDoorkeeperFalsePositiveRate() < 3 * target);
+		// About 10 bits per distinct item at 1%
+		assertTrue(ic.getDoorkeeperBytes() < 2 * 2 * n);
+		assertTrue(ic.estimatedRetainedBytes() < 0.6 * all.estimatedRetainedBytes());
+	}
+
+	@Test
+	public void testWideCounters() {
+		CountingBloomFilter filter = new CountingBloomFilter(100, 0.01, 200);
+		assertTrue(filter.bitsPerCounter() == 8 && filter.maxCount() == 255);
+		for(int i = 0; i < 300; i++) {
+			assertTrue(filter.add("foo", 200) == Math.min(i, 200));
+		}
+		assertTrue(filter.estimate("foo") == 200);
+		assertTrue(filter.estimate("bar") == 0);
+		assertTrue(new CountingBloomFilter(100, 0.01, 1).bitsPerCounter() == 1);
+		assertTrue(new CountingBloomFilter(100, 0.01, 3).bitsPerCounter() == 2);
+		assertTrue(new CountingBloomFilter(100, 0.01, 4).bitsPerCounter() == 4);
+	}
+}
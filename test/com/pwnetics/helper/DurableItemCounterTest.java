@@ -0,0 +1,198 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DurableItemCounterTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("durable", "");
+		dir.delete();
+		assertTrue(dir.mkdir());
+	}
+
+	@After
+	public void tearDown() {
+		for(File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private static void copy(File from, File to) throws IOException {
+		InputStream in = new FileInputStream(from);
+		OutputStream out = new FileOutputStream(to);
+		try {
+			byte[] buf = new byte[4096];
+			int n;
+			while((n = in.read(buf)) > 0) {
+				out.write(buf, 0, n);
+			}
+		} finally {
+			in.close();
+			out.close();
+		}
+	}
+
+	@Test
+	public void testRecover() throws IOException {
+		DurableItemCounter<String> ic = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.COMMIT);
+		for(String word : "foo bar bat baz foo foo baz qux bar foo".split("\\s+")) {
+			ic.increment(word);
+		}
+		ic.set("qux", 0);
+		ic.set("zap", 7);
+		ic.close();
+
+		DurableItemCounter<String> recovered = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.COMMIT);
+		assertTrue(recovered.getMap().equals(ic.getMap()));
+		recovered.increment("foo");
+		recovered.close();
+
+		recovered = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.COMMIT);
+		assertTrue(recovered.get("foo") == 5);
+		assertTrue(recovered.get("qux") == 0);
+		recovered.close();
+	}
+
+	@Test
+	public void testUncommittedAndTornRecords() throws IOException {
+		DurableItemCounter<String> ic = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		ic.increment("foo");
+		ic.increment("bar");
+		ic.commit();
+		ic.increment("lost");
+
+		// Simulate a crash in the middle of writing a frame
+		RandomAccessFile raf = new RandomAccessFile(new File(dir, WriteAheadLog.LOG_FILE), "rw");
+		raf.seek(raf.length());
+		raf.writeInt(1000);
+		raf.writeInt(12345);
+		raf.write(new byte[10]);
+		raf.close();
+
+		DurableItemCounter<String> recovered = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		assertTrue(recovered.size() == 2);
+		assertTrue(recovered.get("foo") == 1);
+		assertTrue(recovered.get("lost") == 0);
+
+		// The torn frame was truncated, so new records are appended after the last good one
+		recovered.increment("baz");
+		recovered.close();
+		recovered = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		assertTrue(recovered.size() == 3);
+		recovered.close();
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		DurableItemCounter<String> ic = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		for(int i = 0; i < 1000; i++) {
+			ic.increment("item" + (i % 37));
+		}
+		ic.commit();
+		long before = ic.getLog().getLogBytes();
+		File oldLog = new File(dir, "old.wal");
+		copy(new File(dir, WriteAheadLog.LOG_FILE), oldLog);
+
+		ic.snapshot();
+		assertTrue(ic.getLog().getLogBytes() == 0 && before > 0);
+		ic.increment("item0");
+		ic.close();
+
+		DurableItemCounter<String> recovered = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		assertTrue(recovered.getMap().equals(ic.getMap()));
+		recovered.close();
+
+		// A crash after the snapshot was renamed but before the log was truncated must not replay the old log
+		copy(oldLog, new File(dir, WriteAheadLog.LOG_FILE));
+		oldLog.delete();
+		recovered = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		assertTrue(recovered.sum() == 1000);
+		recovered.close();
+	}
+
+	@Test
+	public void testSnapshotThreshold() throws IOException {
+		DurableItemCounter<String> ic = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		ic.getLog().setSnapshotThresholdBytes(4096);
+		for(int i = 0; i < 10000; i++) {
+			ic.increment("item" + (i % 100));
+		}
+		assertTrue(ic.getLog().getGeneration() > 0);
+		assertTrue(ic.getLog().getLogBytes() < 4096);
+		ic.close();
+
+		DurableItemCounter<String> recovered = DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.NONE);
+		assertTrue(recovered.getMap().equals(ic.getMap()));
+		assertTrue(recovered.sum() == 10000);
+		recovered.close();
+	}
+
+	@Test
+	public void testAccumulator() throws IOException {
+		DurableItemDoubleAccumulator<String> ida = DurableItemDoubleAccumulator.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.COMMIT);
+		ida.add("foo", 0.1);
+		ida.add("foo", 0.2);
+		ida.set("bar", -3.5);
+		ida.snapshot();
+		ida.add("bar", 1.25);
+		ida.close();
+
+		DurableItemDoubleAccumulator<String> recovered = DurableItemDoubleAccumulator.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.COMMIT);
+		assertTrue(recovered.get("foo") == 0.1 + 0.2);
+		assertTrue(recovered.get("bar") == -2.25);
+		recovered.close();
+
+		try {
+			DurableItemCounter.open(dir, OffHeapItemCounter.STRING_CODEC, WriteAheadLog.SyncPolicy.COMMIT);
+			assertTrue(false);
+		} catch(IOException e) {
+			// Expected; the snapshot holds double values
+		}
+	}
+}
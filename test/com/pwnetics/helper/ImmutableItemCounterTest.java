@@ -0,0 +1,160 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ImmutableItemCounterTest {
+
+	@Test
+	public void testFreeze() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("a");
+		ic.increment("c");
+		ic.set("Aa", 5);
+		ic.set("BB", 4);  // same hash code as "Aa"
+
+		ImmutableItemCounter<String> fc = ic.freeze();
+		ic.increment("a");
+		assertTrue(fc.get("a") == 2);
+		assertTrue(fc.get("b") == 1);
+		assertTrue(fc.get("Aa") == 5);
+		assertTrue(fc.get("BB") == 4);
+		assertTrue(fc.get("z") == 0);
+		assertTrue(fc.size() == 5);
+		assertTrue(fc.getMap().get("c") == 1);
+		assertTrue(fc.getItems().contains("BB"));
+
+		assertTrue(fc.sum() == 13);
+		assertTrue(fc.mean() == 13 / 5.0);
+		assertTrue(fc.min().getKey().equals("b"));
+		assertTrue(fc.max().getKey().equals("Aa"));
+		assertTrue(fc.freeze() == fc);
+
+		List<ItemCounter<String>.KeyValuePair> descendingList = fc.sortByValueKey(false);
+		assertTrue(descendingList.get(0).getKey().equals("Aa"));
+		assertTrue(descendingList.get(1).getKey().equals("BB"));
+		assertTrue(descendingList.get(2).getKey().equals("a"));
+		assertTrue(descendingList.get(3).getKey().equals("c"));
+		assertTrue(descendingList.get(4).getKey().equals("b"));
+		assertTrue(fc.sortByValueKey(true).get(0).getKey().equals("b"));
+		assertTrue(fc.sortByValueKey(false) == descendingList);
+	}
+
+	@Test
+	public void testStatisticsMatchItemCounter() {
+		ItemCounter<Integer> ic = new ItemCounter<Integer>();
+		for(int i = 0; i < 1000; i++) {
+			ic.set(i, 1 + (i * 31) % 17);
+		}
+		ImmutableItemCounter<Integer> fc = ic.freeze();
+		assertTrue(fc.sum() == ic.sum());
+		assertTrue(fc.mean() == ic.mean());
+		assertEquals(ic.variance(), fc.variance(), 1e-9);
+		assertEquals(ic.variancePopulation(), fc.variancePopulation(), 1e-9);
+		assertTrue(fc.median() == ic.median());
+		for(double q = 0.0; q <= 1.0; q += 0.05) {
+			assertTrue(fc.quantile(q) == ic.quantile(q));
+		}
+		assertTrue(fc.countItemsInRange(3, 9) == ic.countItemsInRange(3, 9));
+		assertTrue(fc.countItemsInRange(0, 100) == 1000 && fc.countItemsInRange(9, 3) == 0);
+		assertTrue(!fc.isMaintainingCountOfCounts() && !fc.isMaintainingRanks());
+		for(int i = -10; i < 1010; i++) {
+			assertTrue(fc.get(i).equals(ic.get(i)));
+		}
+	}
+
+	@Test
+	public void testImmutable() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("a");
+		ImmutableItemCounter<String> fc = ic.freeze();
+		try {
+			fc.increment("a");
+			fail("immutable ItemCounter should throw an exception");
+		} catch(UnsupportedOperationException e) {
+			// pass
+		}
+		try {
+			fc.set("a", 5);
+			fail("immutable ItemCounter should throw an exception");
+		} catch(UnsupportedOperationException e) {
+			// pass
+		}
+
+		try {
+			fc.setMaintainingRanks(true);
+			fail("immutable ItemCounter should throw an exception");
+		} catch(UnsupportedOperationException e) {
+			// pass
+		}
+
+		ImmutableItemCounter<String> empty = new ItemCounter<String>().freeze();
+		assertTrue(empty.size() == 0);
+		assertTrue(empty.get("a") == 0);
+		assertTrue(empty.min().getKey() == null);
+		assertTrue(empty.max().getValue() == 0);
+		assertTrue(empty.quantile(0.5) == 0);
+	}
+
+	@Test
+	public void testForEachAndCursor() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("b");
+		final ImmutableItemCounter<String> frozen = ic.freeze();
+		final int[] n = new int[1];
+		frozen.forEach(new ItemCountVisitor<String>() {
+			@Override
+			public void visit(String item, int count) {
+				assertTrue(frozen.get(item) == count);
+				n[0]++;
+			}
+		});
+		assertTrue(n[0] == 2);
+
+		ItemCounter<String>.Cursor c = frozen.cursor();
+		int sum = 0;
+		while(c.next()) {
+			assertTrue(ic.get(c.key()) == c.intValue());
+			sum += c.intValue();
+		}
+		assertTrue(sum == 3);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import java.util.Arrays;
+
+
+/**
+ * Compares the latency distribution of {@link ItemCounter#increment(Object)} for the {@link java.util.HashMap} backend and {@link IncrementalItemCounter}.
+ * Not a unit test; run with, for example, {@code java -Xmx4g com.pwnetics.helper.IncrementLatencyBenchmark 20000000}.
+ * Each run inserts the given number of distinct items into an unsized counter, timing every increment, and prints the latency percentiles in microseconds
+ * and the number of increments slower than 1 and 10 milliseconds.
+ * A resize happens only about once per doubling, so it shows up in the slowest few increments rather than in the lower percentiles;
+ * run with GC logging to tell resize stalls from collector pauses.
+ *
+ * @author romanows
+ */
+public class IncrementLatencyBenchmark {
+
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		long[] nanos = new long[n];
+		Integer[] keys = new Integer[n];
+		for(int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		for(int round = 0; round < rounds; round++) {
+			report("hash", run(new ItemCounter<Integer>(), keys, nanos), nanos);
+			report("incremental", run(new IncrementalItemCounter<Integer>(), keys, nanos), nanos);
+		}
+	}
+
+	private static long run(ItemCounter<Integer> ic, Integer[] keys, long[] nanos) {
+		System.gc();
+		long total = System.nanoTime();
+		for(int i = 0; i < keys.length; i++) {
+			long start = System.nanoTime();
+			ic.increment(keys[i]);
+			nanos[i] = System.nanoTime() - start;
+		}
+		return System.nanoTime() - total;
+	}
+
+	private static void report(String name, long totalNanos, long[] nanos) {
+		Arrays.sort(nanos);
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-12s total %7.1f ms", name, totalNanos / 1e6));
+		for(double p : PERCENTILES) {
+			int i = (int)Math.min(nanos.length - 1, Math.ceil(p / 100 * nanos.length) - 1);
+			sb.append(String.format("  p%s %.1f us", p == (int)p ? Integer.toString((int)p) : Double.toString(p), nanos[Math.max(0, i)] / 1e3));
+		}
+		sb.append(String.format("  >1ms %d  >10ms %d", countAbove(nanos, 1000000), countAbove(nanos, 10000000)));
+		System.out.println(sb);
+	}
+
+	/** @return the number of sorted latencies greater than the limit */
+	private static int countAbove(long[] sortedNanos, long limit) {
+		int i = Arrays.binarySearch(sortedNanos, limit + 1);
+		if(i < 0) {
+			i = -i - 1;
+		} else {
+			while(i > 0 && sortedNanos[i - 1] > limit) {
+				i--;
+			}
+		}
+		return sortedNanos.length - i;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IncrementalItemCounterTest {
+
+	@Test
+	public void testAgainstHashMap() {
+		IncrementalItemCounter<Integer> ic = new IncrementalItemCounter<Integer>(0, 0.75f, 1);
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		Random random = new Random(7);
+		boolean wasResizing = false;
+		for(int i = 0; i < 50000; i++) {
+			int k = random.nextInt(5000);
+			if(random.nextInt(10) == 0) {
+				int c = random.nextInt(3);
+				ic.set(k, c);
+				if(c == 0) {
+					expected.remove(k);
+				} else {
+					expected.put(k, c);
+				}
+			} else {
+				Integer c = expected.get(k);
+				expected.put(k, c == null ? 1 : c + 1);
+				assertTrue(ic.increment(k) == expected.get(k));
+			}
+			if(ic.isResizing()) {
+				wasResizing = true;
+				assertTrue(ic.getMap().equals(expected));
+			}
+		}
+		assertTrue(wasResizing);
+		assertTrue(ic.size() == expected.size());
+		assertTrue(ic.getMap().equals(expected));
+		for(int k = 0; k < 5000; k++) {
+			Integer c = expected.get(k);
+			assertTrue(ic.get(k) == (c == null ? 0 : c));
+		}
+	}
+
+	@Test
+	public void testResizeIsIncremental() {
+		CounterMetrics metrics = new CounterMetrics();
+		IncrementalItemCounter<String> ic = new IncrementalItemCounter<String>(0, 1.0f, 2);
+		ic.setListener(metrics);
+		for(int i = 0; i < 4; i++) {
+			ic.increment("k" + i);
+		}
+		assertTrue(!ic.isResizing());
+		ic.increment("k4");
+		assertTrue(ic.isResizing());
+		assertTrue(metrics.getResizes() == 1);
+		ic.increment("k0");
+		ic.increment("k0");
+		assertTrue(!ic.isResizing());
+		assertTrue(ic.get("k0") == 3);
+		assertTrue(ic.sum() == 7);
+
+		// Lookups do not move buckets, so they can be made while iterating
+		for(int i = 5; i < 9; i++) {
+			ic.increment("k" + i);
+		}
+		assertTrue(ic.isResizing());
+		ItemCounter<String>.Cursor c = ic.cursor();
+		int n = 0;
+		while(c.next()) {
+			assertTrue(ic.get(c.key()) == c.intValue());
+			n++;
+		}
+		assertTrue(n == 9);
+		assertTrue(ic.isResizing());
+	}
+
+	@Test
+	public void testBadArguments() {
+		try {
+			new IncrementalItemCounter<String>(10, 0.75f, 0);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+		assertTrue(ItemCounter.<String>builder().backend(ItemCounter.Backend.INCREMENTAL).build() instanceof IncrementalItemCounter<?>);
+	}
+
+	@Test
+	public void testRemoveIfShrinks() {
+		final long[] lastResize = new long[2];
+		IncrementalItemCounter<Integer> ic = new IncrementalItemCounter<Integer>();
+		ic.setListener(new CounterListener() {
+			@Override
+			public void onResize(long fromCapacity, long toCapacity, long nanos) {
+				lastResize[0] = fromCapacity;
+				lastResize[1] = toCapacity;
+			}
+		});
+		for(int i = 0; i < 10000; i++) {
+			ic.increment(i);
+		}
+		assertTrue(ic.removeIf(new ItemCountPredicate<Integer>() {
+			@Override
+			public boolean test(Integer item, int count) {
+				return item >= 10;
+			}
+		}) == 9990);
+		assertTrue(ic.size() == 10);
+		assertTrue(lastResize[1] < lastResize[0] && lastResize[1] <= 16);
+		for(int i = 0; i < 10; i++) {
+			assertTrue(ic.get(i) == 1);
+		}
+		assertTrue(ic.get(10) == 0);
+		assertTrue(ic.getMap().size() == 10);
+	}
+}
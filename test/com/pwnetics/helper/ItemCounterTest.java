@@ -32,7 +32,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.StringWriter;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -272,4 +275,379 @@ public class ItemCounterTest {
 			// pass
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testQuantile() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		assertTrue(ic.median() == 0.0);
+		ic.set("a", 1);
+		ic.set("b", 3);
+		ic.set("c", 5);
+		ic.set("d", 9);
+		assertTrue(ic.quantile(0.0) == 1.0);
+		assertTrue(ic.quantile(1.0) == 9.0);
+		assertTrue(ic.median() == 4.0);
+		assertTrue(ic.quantile(1.0 / 3.0) == 3.0);
+
+		// The distribution is now maintained incrementally
+		ic.increment("a");
+		ic.increment("a");
+		assertTrue(ic.median() == 4.0);
+		ic.set("d", 0);
+		assertTrue(ic.median() == 3.0);
+		assertTrue(ic.quantile(1.0) == 5.0);
+		ic.increment("e");
+		double[] p = ic.percentiles(0.0, 25.0, 100.0);
+		assertTrue(p[0] == 1.0);
+		assertTrue(p[1] == 2.5);
+		assertTrue(p[2] == 5.0);
+
+		ItemCounter<String> uc = ic.asUnmodifiable();
+		ic.set("e", 100);
+		assertTrue(uc.quantile(1.0) == 100.0);
+		// Queries do not start maintaining the count distribution
+		assertTrue(!ic.isMaintainingCountOfCounts());
+		ic.setMaintainingCountOfCounts(true);
+		assertTrue(ic.quantile(1.0) == 100.0 && ic.percentiles(100.0)[0] == 100.0);
+
+		try {
+			ic.quantile(1.5);
+			fail("quantiles outside of [0,1] should throw an exception");
+		} catch(IllegalArgumentException e) {
+			// pass
+		}
+	}
+
+	@Test
+	public void testMaintainedCountOfCounts() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("a");
+		ic.increment("a");
+		ic.increment("b");
+		assertTrue(!ic.isMaintainingCountOfCounts());
+		ic.setMaintainingCountOfCounts(true);
+		assertTrue(ic.isMaintainingCountOfCounts());
+
+		ItemCounter<Integer> coc = ic.countOfCounts();
+		assertTrue(coc.get(1) == 1);
+		assertTrue(coc.get(2) == 1);
+		// A copy, as without maintenance
+		coc.increment(1);
+		assertTrue(coc.get(1) == 2 && ic.countOfCounts().get(1) == 1);
+
+		ic.increment("b");
+		ic.increment("c");
+		ic.set("d", 7);
+		ic.set("a", 0);
+		coc = ic.countOfCounts();
+		assertTrue(coc.size() == 3);
+		assertTrue(coc.get(1) == 1);
+		assertTrue(coc.get(2) == 1);
+		assertTrue(coc.get(7) == 1);
+		
+		ic.setMaintainingCountOfCounts(false);
+		coc = ic.countOfCounts();
+		coc.increment(1);
+		assertTrue(coc.get(1) == 2);
+	}
+
+	@Test
+	public void testSortedView() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("a");
+		ic.increment("c");
+		Iterator<ItemCounter<String>.KeyValuePair> descending = ic.sortedView(false).iterator();
+		ic.increment("b");  // the iterator works from a snapshot
+		ic.increment("b");
+		assertTrue(descending.next().getKey().equals("a"));
+		assertTrue(descending.next().getKey().equals("c"));
+		assertTrue(descending.next().getKey().equals("b"));
+		assertTrue(!descending.hasNext());
+
+		int i = 0;
+		List<ItemCounter<String>.KeyValuePair> ascendingList = ic.sortByValueKey(true);
+		for(ItemCounter<String>.KeyValuePair pair : ic.sortedView(true)) {
+			assertTrue(pair.getKey().equals(ascendingList.get(i++).getKey()));
+		}
+		assertTrue(i == 3);
+	}
+
+	@Test
+	public void testForEachAndCursor() throws Exception {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("a");
+		final int[] total = new int[2];
+		ic.forEach(new ItemCountVisitor<Object>() {
+			@Override
+			public void visit(Object item, int count) {
+				total[0]++;
+				total[1] += count;
+			}
+		});
+		assertTrue(total[0] == 2);
+		assertTrue(total[1] == 3);
+
+		ItemCounter<String>.Cursor c = ic.cursor();
+		int n = 0;
+		while(c.next()) {
+			assertTrue(c.intValue() == ic.get(c.key()));
+			n++;
+		}
+		assertTrue(n == 2);
+		assertTrue(!c.next());
+		try {
+			c.key();
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+
+		StringWriter sw = new StringWriter();
+		ic.writeCSV(sw);
+		assertTrue(sw.toString().equals(ic.toCSV()));
+		assertTrue(sw.toString().contains("a\t2\n"));
+		assertTrue(sw.toString().contains("b\t1\n"));
+	}
+
+	@Test
+	public void testBuilder() {
+		CounterMetrics metrics = new CounterMetrics();
+		ItemCounter<Integer> ic = ItemCounter.<Integer>builder().expectedSize(1000).listener(metrics).build();
+		for(int i = 0; i < 1000; i++) {
+			ic.increment(i);
+		}
+		assertTrue(ic.size() == 1000);
+		assertTrue(metrics.getResizes() == 0);
+		ic.increment(1000);
+		ic.increment(1001);  // 2048 * 0.5 = 1024 would still fit; default load factor gives 1536
+		assertTrue(metrics.getResizes() == 0);
+
+		metrics = new CounterMetrics();
+		ic = ItemCounter.<Integer>builder().expectedSize(10).loadFactor(0.5f).listener(metrics).build();
+		for(int i = 0; i < 100; i++) {
+			ic.increment(i);
+		}
+		assertTrue(metrics.getResizes() == 3);  // 32 -> 64 -> 128 -> 256
+
+		assertTrue(ItemCounter.<String>builder().cachingStats(true).build() instanceof CachingItemCounter<?>);
+		assertTrue(ItemCounter.<String>builder().backend(ItemCounter.Backend.CONCURRENT).build() instanceof ConcurrentItemCounter<?>);
+		assertTrue(ItemCounter.<Integer>builder().backend(ItemCounter.Backend.PRIMITIVE).keyType(Integer.class).build() instanceof DenseIntCounter);
+		ItemCounter<String> sic = ItemCounter.<String>builder().backend(ItemCounter.Backend.PRIMITIVE).keyType(String.class).build();
+		assertTrue(sic instanceof StringItemCounter);
+		sic.increment("a");
+		assertTrue(sic.get("a") == 1);
+		ItemCounter<String> ohic = ItemCounter.<String>builder().backend(ItemCounter.Backend.OFF_HEAP).keyType(String.class).expectedSize(100).build();
+		assertTrue(ohic instanceof OffHeapItemCounter<?>);
+		((OffHeapItemCounter<String>)ohic).close();
+
+		try {
+			ItemCounter.<Object>builder().backend(ItemCounter.Backend.PRIMITIVE).build();
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+		try {
+			ItemCounter.<String>builder().backend(ItemCounter.Backend.CONCURRENT).cachingStats(true).build();
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+		try {
+			ItemCounter.<String>builder().loadFactor(0);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRank() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		for(String word : "foo bar bat baz foo foo baz qux bar foo".split("\\s+")) {
+			ic.increment(word);
+		}
+		// foo:4, baz:2, bar:2, qux:1, bat:1 in descending order of count, then key
+		assertTrue(ic.rank("foo") == 0);
+		assertTrue(ic.rank("baz") == 1);
+		assertTrue(ic.rank("bar") == 2);
+		assertTrue(ic.rank("bat") == 4);
+		assertTrue(ic.rank("missing") == -1);
+		assertTrue(ic.itemAtRank(3).equals("qux"));
+		assertTrue(!ic.isMaintainingRanks());
+		assertTrue(ic.countItemsInRange(2, 4) == 3);
+		assertTrue(ic.countItemsInRange(1, 1) == 2);
+		assertTrue(ic.countItemsInRange(5, 100) == 0);
+		assertTrue(!ic.isMaintainingCountOfCounts());
+		try {
+			ic.itemAtRank(5);
+			fail();
+		} catch(IndexOutOfBoundsException e) {
+			// expected
+		}
+		ic.setMaintainingRanks(true);
+		assertTrue(ic.rank("baz") == 1 && ic.itemAtRank(3).equals("qux"));
+
+		ic.set("bat", 3);
+		ic.set("foo", 0);
+		assertTrue(ic.rank("bat") == 0);
+		assertTrue(ic.rank("foo") == -1);
+		assertTrue(ic.itemAtRank(3).equals("qux"));
+		assertTrue(ic.countItemsInRange(2, 4) == 3);
+		try {
+			ic.itemAtRank(4);
+			fail();
+		} catch(IndexOutOfBoundsException e) {
+			// expected
+		}
+
+		// Random updates agree with a full sort
+		Random random = new Random(1);
+		StringItemCounter sic = new StringItemCounter();
+		sic.setMaintainingRanks(true);
+		for(int i = 0; i < 5000; i++) {
+			String item = "item" + random.nextInt(200);
+			if(random.nextInt(10) == 0) {
+				sic.set(item, random.nextInt(5));
+			} else if(sic.id(item) >= 0) {
+				sic.incrementById(sic.id(item));
+			} else {
+				sic.increment(item);
+			}
+		}
+		List<ItemCounter<String>.KeyValuePair> sorted = sic.sortByValueKey(false);
+		for(int i = 0; i < sorted.size(); i++) {
+			assertTrue(sic.itemAtRank(i).equals(sorted.get(i).getKey()));
+			assertTrue(sic.rank(sorted.get(i).getKey()) == i);
+		}
+		assertTrue(sic.freeze().rank(sorted.get(7).getKey()) == 7);
+
+		// An item the index cannot hold is rejected before its count changes
+		ItemCounter<Object> oc = new ItemCounter<Object>();
+		oc.increment("a");
+		oc.setMaintainingRanks(true);
+		Object item = new Object();
+		try {
+			oc.increment(item);
+			fail();
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+		assertTrue(oc.size() == 1 && oc.get(item) == 0 && oc.rank("a") == 0);
+	}
+
+	@Test
+	public void testRemoveIfAndRetainTop() {
+		List<ItemCounter<Integer>> counters = new java.util.ArrayList<ItemCounter<Integer>>();
+		counters.add(new ItemCounter<Integer>());
+		counters.add(new CachingItemCounter<Integer>());
+		counters.add(new DenseIntCounter());
+		counters.add(new IncrementalItemCounter<Integer>());
+		counters.add(new BoundedItemCounter<Integer>(1000, BoundedItemCounter.Eviction.LRU));
+		for(ItemCounter<Integer> ic : counters) {
+			ic.setMaintainingCountOfCounts(true);
+			for(int i = 0; i < 500; i++) {
+				ic.set(i, i % 10 + 1);
+			}
+			int removed = ic.removeIf(new ItemCountPredicate<Integer>() {
+				@Override
+				public boolean test(Integer item, int count) {
+					return count < 3;
+				}
+			});
+			assertTrue(removed == 100);
+			assertTrue(ic.size() == 400);
+			assertTrue(ic.get(10) == 0 && ic.get(12) == 3);
+			assertTrue(ic.countOfCounts().get(1) == 0 && ic.countOfCounts().get(3) == 50);
+
+			// 50 items each have counts 10, 9, ...; the top 120 keep two full count values and the 20 largest keys with count 8
+			assertTrue(ic.retainTop(120) == 280);
+			assertTrue(ic.size() == 120);
+			assertTrue(ic.get(499) == 10 && ic.get(498) == 9);
+			assertTrue(ic.get(497) == 8 && ic.get(307) == 8 && ic.get(297) == 0);
+			assertTrue(ic.retainTop(500) == 0);
+			assertTrue(ic.retainTop(0) == 120);
+			assertTrue(ic.size() == 0);
+		}
+
+		DenseIntCounter dic = new DenseIntCounter();
+		dic.set(5, 1);
+		dic.set(100000, 1);
+		dic.removeIf(new ItemCountPredicate<Integer>() {
+			@Override
+			public boolean test(Integer item, int count) {
+				return item > 10;
+			}
+		});
+		assertTrue(dic.estimatedRetainedBytes() < 1000);
+		dic.increment(7);
+		assertTrue(dic.get(7) == 1 && dic.get(5) == 1);
+
+		ItemCounter<Integer> ic = new ItemCounter<Integer>();
+		ic.increment(1);
+		try {
+			ic.asUnmodifiable().retainTop(0);
+			fail();
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRemovingThroughSet() {
+		final List<Integer> sets = new java.util.ArrayList<Integer>();
+		ItemCounter<Integer> ic = new ItemCounter<Integer>() {
+			@Override
+			public void set(Integer item, int count) {
+				sets.add(item);
+				super.set(item, count);
+			}
+
+			@Override
+			protected boolean isRemovingThroughSet() {
+				return true;
+			}
+		};
+		ic.increment(1);
+		ic.increment(2);
+		assertTrue(ic.isRemovingThroughSet());
+		assertTrue(!new ItemCounter<Integer>().isRemovingThroughSet());
+		assertTrue(!new DoorkeeperItemCounter<Integer>(2, 100, 0.01).isRemovingThroughSet());
+		assertTrue(new CachingItemCounter<Integer>().isRemovingThroughSet());
+		assertTrue(new CompactItemCounter<Integer>().isRemovingThroughSet());
+		assertTrue(new ItemCounter<Integer>().asUnmodifiable().isRemovingThroughSet());
+		ic.removeIf(new ItemCountPredicate<Integer>() {
+			@Override
+			public boolean test(Integer item, int count) {
+				return item == 2;
+			}
+		});
+		assertTrue(sets.size() == 1 && sets.get(0) == 2 && ic.size() == 1);
+	}
+
+	@Test
+	public void testOverflow() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.set("a", Integer.MAX_VALUE);
+		try {
+			ic.increment("a");
+			fail();
+		} catch(ArithmeticException e) {
+			// expected
+		}
+		assertTrue(ic.get("a") == Integer.MAX_VALUE);
+
+		DenseIntCounter dic = new DenseIntCounter();
+		dic.set(3, Integer.MAX_VALUE);
+		try {
+			dic.increment(3);
+			fail();
+		} catch(ArithmeticException e) {
+			// expected
+		}
+		assertTrue(dic.get(3) == Integer.MAX_VALUE);
+	}
+}
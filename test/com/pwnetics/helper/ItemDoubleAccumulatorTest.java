@@ -32,7 +32,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
@@ -281,4 +286,177 @@ public class ItemDoubleAccumulatorTest {
 			// pass
 		}
 	}
+
+	@Test
+	public void testQuantile() {
+		ItemDoubleAccumulator<String> ic = new ItemDoubleAccumulator<String>();
+		assertTrue(ic.median() == null);
+		assertTrue(ic.percentiles(50.0) == null);
+		ic.set("a", -1.5);
+		ic.set("b", 0.0);
+		ic.set("c", 2.5);
+		assertTrue(ic.quantile(0.0) == -1.5);
+		assertTrue(ic.median() == 0.0);
+		assertTrue(ic.quantile(0.75) == 1.25);
+
+		ic.add("b", 10.0);
+		assertTrue(ic.median() == 2.5);
+		assertTrue(ic.quantile(1.0) == 10.0);
+		ic.set("a", 3.0);
+		assertTrue(ic.quantile(0.0) == 2.5);
+		assertTrue(ic.percentiles(50.0)[0] == 3.0);
+		assertTrue(!ic.isMaintainingQuantiles());
+
+		ic.setMaintainingQuantiles(true);
+		assertTrue(ic.isMaintainingQuantiles());
+		assertTrue(ic.median() == 3.0);
+		ic.add("c", 20.0);
+		ic.set("d", -4.0);
+		assertTrue(ic.quantile(0.0) == -4.0 && ic.quantile(1.0) == 22.5);
+		assertTrue(ic.median() == 6.5);
+		ic.setMaintainingQuantiles(false);
+		assertTrue(!ic.isMaintainingQuantiles() && ic.median() == 6.5);
+	}
+
+	@Test
+	public void testSortedView() {
+		ItemDoubleAccumulator<String> ic = new ItemDoubleAccumulator<String>();
+		ic.add("a", 2.5);
+		ic.add("b", -1.0);
+		ic.add("c", 0.5);
+		Iterator<ItemDoubleAccumulator<String>.KeyValuePair> descending = ic.sortedView(false).iterator();
+		assertTrue(descending.next().getKey().equals("a"));
+		assertTrue(descending.next().getKey().equals("c"));
+		assertTrue(descending.next().getKey().equals("b"));
+		assertTrue(!descending.hasNext());
+		assertTrue(ic.sortedView(true).iterator().next().getValue() == -1.0);
+	}
+
+	@Test
+	public void testForEachAndCursor() throws Exception {
+		ItemDoubleAccumulator<String> ida = new ItemDoubleAccumulator<String>();
+		ida.add("a", 1.5);
+		ida.add("b", -2.0);
+		final double[] total = new double[1];
+		ida.forEach(new ItemValueVisitor<String>() {
+			@Override
+			public void visit(String item, double value) {
+				total[0] += value;
+			}
+		});
+		assertEquals(-0.5, total[0], 1e-12);
+
+		ItemDoubleAccumulator<String>.Cursor c = ida.cursor();
+		int n = 0;
+		while(c.next()) {
+			assertEquals(ida.get(c.key()), c.doubleValue(), 0);
+			n++;
+		}
+		assertTrue(n == 2);
+
+		ItemDoubleAccumulator<String> sum = new ItemDoubleAccumulator<String>();
+		sum.add("a", 1.0);
+		sum.add(ida);
+		assertEquals(2.5, sum.get("a"), 0);
+		assertEquals(-2.0, sum.get("b"), 0);
+
+		StringWriter sw = new StringWriter();
+		ida.writeCSV(sw);
+		assertTrue(sw.toString().equals(ida.toCSV()));
+		assertTrue(sw.toString().contains("b\t-2.0\n"));
+	}
+
+	@Test
+	public void testVectorOperations() throws InterruptedException {
+		ItemDoubleAccumulator<String> x = new ItemDoubleAccumulator<String>();
+		x.set("a", 1.0);
+		x.set("b", -2.0);
+		x.set("c", 2.0);
+		ItemDoubleAccumulator<String> y = new ItemDoubleAccumulator<String>();
+		y.set("b", 3.0);
+		y.set("d", 4.0);
+
+		assertTrue(x.dot(y) == -6.0);
+		assertTrue(y.dot(x) == -6.0);
+		assertTrue(x.l1Norm() == 5.0);
+		assertTrue(x.l2Norm() == 3.0);
+		assertTrue(y.l2Norm() == 5.0);
+		assertTrue(x.cosine(y) == -6.0 / 15.0);
+		assertTrue(x.cosine(new ItemDoubleAccumulator<String>()) == 0.0);
+
+		x.axpy(2.0, y);
+		assertTrue(x.get("a") == 1.0);
+		assertTrue(x.get("b") == 4.0);
+		assertTrue(x.get("d") == 8.0);
+		assertTrue(x.size() == 4);
+
+		y.scale(0.5);
+		assertTrue(y.get("b") == 1.5 && y.get("d") == 2.0);
+		y.axpy(1.0, y);
+		assertTrue(y.get("b") == 3.0 && y.get("d") == 4.0);
+
+		try {
+			x.asUnmodifiable().scale(2.0);
+			fail();
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBulkCosine() throws InterruptedException {
+		ItemDoubleAccumulator<Integer> query = new ItemDoubleAccumulator<Integer>();
+		for(int i = 0; i < 50; i++) {
+			query.set(i, i % 7);
+		}
+		List<ItemDoubleAccumulator<Integer>> docs = new ArrayList<ItemDoubleAccumulator<Integer>>();
+		for(int d = 0; d < 101; d++) {
+			ItemDoubleAccumulator<Integer> doc = new ItemDoubleAccumulator<Integer>();
+			for(int i = d % 10; i < 100; i += 1 + d % 5) {
+				doc.add(i, d - 50);
+			}
+			docs.add(doc);
+		}
+		double[] cosines = ItemDoubleAccumulator.cosine(query, docs, 4);
+		double[] dots = ItemDoubleAccumulator.dot(query, docs, 3);
+		double[] serial = ItemDoubleAccumulator.cosine(query, docs, 1);
+		assertTrue(cosines.length == docs.size());
+		for(int d = 0; d < docs.size(); d++) {
+			assertTrue(cosines[d] == query.cosine(docs.get(d)));
+			assertTrue(serial[d] == cosines[d]);
+			assertTrue(dots[d] == query.dot(docs.get(d)));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for(int repeat = 0; repeat < 3; repeat++) {
+				double[] pooledCosines = ItemDoubleAccumulator.cosine(query, docs, executor, 5);
+				double[] pooledDots = ItemDoubleAccumulator.dot(query, docs, executor, 5);
+				for(int d = 0; d < docs.size(); d++) {
+					assertTrue(pooledCosines[d] == cosines[d]);
+					assertTrue(pooledDots[d] == dots[d]);
+				}
+			}
+			assertTrue(!executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReplaceAll() {
+		ItemDoubleAccumulator<String> ida = new ItemDoubleAccumulator<String>();
+		ida.set("a", 1.0);
+		ida.set("b", Math.E);
+		ida.replaceAll(new ValueTransform() {
+			@Override
+			public double apply(double value) {
+				return Math.log(value);
+			}
+		});
+		assertTrue(ida.get("a") == 0.0);
+		assertTrue(ida.get("b") == 1.0);
+		assertTrue(ida.size() == 2);
+		assertTrue(ida.quantile(1.0) == 1.0);
+	}
 }
@@ -0,0 +1,127 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ItemSamplerTest {
+
+	@Test
+	public void testProportionalToCounts() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.set("a", 1);
+		ic.set("b", 2);
+		ic.set("c", 7);
+		ItemSampler<String> sampler = ic.sampler();
+		assertTrue(sampler.size() == 3);
+		assertTrue(sampler.totalWeight() == 10.0);
+
+		Random random = new Random(1);
+		ItemCounter<String> drawn = new ItemCounter<String>();
+		for(int i = 0; i < 100000; i++) {
+			drawn.increment(sampler.sample(random));
+		}
+		assertTrue(Math.abs(drawn.get("a") - 10000) < 600);
+		assertTrue(Math.abs(drawn.get("b") - 20000) < 600);
+		assertTrue(Math.abs(drawn.get("c") - 70000) < 600);
+	}
+
+	@Test
+	public void testPowerAndBatch() {
+		ItemCounter<String> ic = new ItemCounter<String>();
+		ic.set("a", 1);
+		ic.set("b", 16);
+		ItemSampler<String> sampler = ic.sampler(0.5);
+		assertTrue(sampler.totalWeight() == 5.0);
+
+		long[] out = new long[50000];
+		sampler.sample(new Random(2), out.length, out);
+		int b = 0;
+		for(long index : out) {
+			if(sampler.item((int)index).equals("b")) {
+				b++;
+			}
+		}
+		assertTrue(Math.abs(b - 40000) < 500);
+
+		sampler = ic.sampler(0.0);
+		assertTrue(sampler.totalWeight() == 2.0);
+	}
+
+	@Test
+	public void testAccumulator() {
+		ItemDoubleAccumulator<String> ida = new ItemDoubleAccumulator<String>();
+		ida.set("zero", 0.0);
+		ida.set("one", 0.25);
+		ItemSampler<String> sampler = ida.sampler();
+		Random random = new Random(3);
+		for(int i = 0; i < 1000; i++) {
+			assertTrue(sampler.sample(random).equals("one"));
+		}
+
+		ida.set("negative", -1.0);
+		try {
+			ida.sampler();
+			assertTrue(false);
+		} catch(IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		try {
+			new ItemCounter<String>().sampler();
+			assertTrue(false);
+		} catch(IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testBackends() {
+		StringItemCounter sic = new StringItemCounter();
+		DenseIntCounter dic = new DenseIntCounter();
+		for(int i = 0; i < 100; i++) {
+			sic.increment("item" + i % 10);
+			dic.increment(i % 10);
+		}
+		Random random = new Random(4);
+		for(int i = 0; i < 100; i++) {
+			assertTrue(sic.get(sic.sampler(0.75).sample(random)) == 10);
+			assertTrue(dic.get(dic.sampler().sample(random)) == 10);
+		}
+	}
+}
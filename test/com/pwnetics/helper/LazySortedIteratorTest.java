@@ -0,0 +1,69 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LazySortedIteratorTest {
+
+	@Test
+	public void testMatchesSort() {
+		Random random = new Random(11);
+		for(int n : new int[] {0, 1, 2, 3, 10, 1000}) {
+			Integer[] values = new Integer[n];
+			for(int i = 0; i < n; i++) {
+				values[i] = random.nextInt(100);
+			}
+			Integer[] expected = values.clone();
+			Arrays.sort(expected, Collections.reverseOrder());
+
+			LazySortedIterator<Integer> it = new LazySortedIterator<Integer>(values, Collections.reverseOrder());
+			for(int i = 0; i < n; i++) {
+				assertTrue(it.hasNext());
+				assertTrue(it.next().equals(expected[i]));
+			}
+			assertTrue(!it.hasNext());
+			try {
+				it.next();
+				fail("exhausted iterator should throw an exception");
+			} catch(NoSuchElementException e) {
+				// pass
+			}
+		}
+	}
+}
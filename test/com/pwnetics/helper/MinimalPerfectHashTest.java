@@ -0,0 +1,71 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MinimalPerfectHashTest {
+
+	@Test
+	public void testIndexIsMinimalAndPerfect() {
+		for(int n : new int[] {0, 1, 2, 63, 64, 1000, 20000}) {
+			Object[] keys = new Object[n];
+			for(int i = 0; i < n; i++) {
+				keys[i] = "key" + i;
+			}
+			MinimalPerfectHash h = new MinimalPerfectHash(keys);
+			assertTrue(h.size() == n);
+			boolean[] isUsed = new boolean[n];
+			for(Object key : keys) {
+				int i = h.index(key);
+				assertTrue(i >= 0 && i < n);
+				assertTrue(!isUsed[i]);
+				isUsed[i] = true;
+			}
+			assertTrue(h.estimatedBytes() < 8L * n + 64);
+		}
+	}
+
+	@Test
+	public void testCollidingHashCodes() {
+		// "Aa" and "BB" have the same hash code, so they can only be told apart by the fallback
+		Object[] keys = {"Aa", "BB", null, "C"};
+		MinimalPerfectHash h = new MinimalPerfectHash(keys);
+		boolean[] isUsed = new boolean[keys.length];
+		for(Object key : keys) {
+			int i = h.index(key);
+			assertTrue(i >= 0 && i < keys.length);
+			assertTrue(!isUsed[i]);
+			isUsed[i] = true;
+		}
+	}
+}
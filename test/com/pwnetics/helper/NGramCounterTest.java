@@ -0,0 +1,144 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NGramCounterTest {
+
+	@Test
+	public void testBigrams() {
+		NGramCounter ic = new NGramCounter(2);
+		int[] ids = {0, 1, 2, 0, 1, 3, 0, 1};
+		assertTrue(ic.incrementAll(ids, 0, ids.length) == 7);
+		assertTrue(ic.get(0, 1) == 3);
+		assertTrue(ic.get(1, 2) == 1 && ic.get(1, 3) == 1 && ic.get(2, 0) == 1 && ic.get(3, 0) == 1);
+		assertTrue(ic.get(1, 0) == 0);
+		assertTrue(ic.size() == 5 && ic.sum() == 7);
+		assertTrue(ic.increment(Integer.MAX_VALUE, 0) == 1);
+		assertTrue(ic.get(Integer.MAX_VALUE, 0) == 1);
+
+		long key = ic.pack(1, 3);
+		assertTrue(ic.component(key, 0) == 1 && ic.component(key, 1) == 3);
+		assertTrue(ic.get(key) == 1);
+		assertTrue(ic.getMap().get(key) == 1);
+		assertTrue(ic.max().getKey() == ic.pack(0, 1));
+		ic.set(key, 0);
+		assertTrue(ic.get(1, 3) == 0 && ic.size() == 5);
+		ic.set(key, 4);
+		assertTrue(ic.get(1, 3) == 4);
+
+		try {
+			ic.increment(-1, 0);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			ic.increment(1, 2, 3);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			ic.set(-1L, 1);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testMarginalAndConditional() {
+		NGramCounter ic = new NGramCounter(3);
+		int[] ids = {5, 6, 7, 5, 6, 8, 5, 6, 7, 5, 9, 7};
+		ic.incrementAll(ids, 0, ids.length);
+		assertTrue(ic.get(5, 6, 7) == 2 && ic.get(5, 6, 8) == 1 && ic.get(6, 7, 5) == 2);
+
+		DenseIntCounter first = ic.marginal(0);
+		assertTrue(first.get(5) == 4 && first.get(6) == 3 && first.get(7) == 2 && first.get(8) == 1);
+		assertTrue(first.sum() == ic.sum());
+
+		ItemCounter<Integer> next = ic.conditional(5, 6);
+		assertTrue(next.size() == 2 && next.get(7) == 2 && next.get(8) == 1);
+		next = ic.conditional(5);
+		assertTrue(next.size() == 2 && next.get(6) == 3 && next.get(9) == 1);
+		assertTrue(ic.conditional(9, 9).size() == 0);
+
+		List<ItemCounter<Integer>.KeyValuePair> top = ic.topNext(new int[] {5, 6}, 1);
+		assertTrue(top.size() == 1 && top.get(0).getKey() == 7 && top.get(0).getValue() == 2);
+
+		// Counting a new trigram after a query rebuilds the sorted keys
+		ic.increment(5, 6, 0);
+		assertTrue(ic.conditional(5, 6).size() == 3);
+		ic.set(ic.pack(5, 6, 7), 0);
+		assertTrue(ic.conditional(5, 6).size() == 2);
+	}
+
+	@Test
+	public void testAgainstItemCounter() {
+		Random random = new Random(3);
+		NGramCounter ic = new NGramCounter(4);
+		ItemCounter<String> expected = new ItemCounter<String>();
+		int[] ids = new int[50000];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = random.nextInt(6);
+		}
+		ic.incrementAll(ids, 0, ids.length);
+		for(int i = 0; i + 4 <= ids.length; i++) {
+			expected.increment(ids[i] + " " + ids[i + 1] + " " + ids[i + 2] + " " + ids[i + 3]);
+		}
+		assertTrue(ic.size() == expected.size() && ic.sum() == expected.sum());
+		for(int i = 0; i + 4 <= ids.length; i += 97) {
+			long key = ic.pack(ids, i);
+			assertTrue(ic.get(key).equals(expected.get(ids[i] + " " + ids[i + 1] + " " + ids[i + 2] + " " + ids[i + 3])));
+		}
+
+		// Removing most n-grams shifts the rest back; they must all still be found
+		ic.removeIf(new ItemCountPredicate<Long>() {
+			@Override
+			public boolean test(Long item, int count) {
+				return item % 3 != 0;
+			}
+		});
+		ic.trimToSize();
+		for(int i = 0; i + 4 <= ids.length; i += 7) {
+			long key = ic.pack(ids, i);
+			assertTrue(ic.get(key) == (key % 3 != 0 ? 0 : expected.get(ids[i] + " " + ids[i + 1] + " " + ids[i + 2] + " " + ids[i + 3])));
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OffHeapItemCounterTest {
+
+	@Test
+	public void testSetIncrement() {
+		OffHeapItemCounter<String> ic = OffHeapItemCounter.forStrings(0);
+		assertTrue(ic.get("a") == 0);
+		assertTrue(ic.increment("a") == 1);
+		assertTrue(ic.increment("a") == 2);
+		ic.set("a", 42);
+		assertTrue(ic.increment("a") == 43);
+		ic.set("b", 11);
+		assertTrue(ic.get("b") == 11);
+		assertTrue(ic.size() == 2);
+		ic.set("a", 0);
+		assertTrue(ic.get("a") == 0);
+		assertTrue(ic.get("b") == 11);
+		assertTrue(ic.size() == 1);
+		ic.set("c", 0);
+		assertTrue(ic.size() == 1);
+		ic.close();
+	}
+
+	@Test
+	public void testGrowAndDelete() {
+		OffHeapItemCounter<String> ic = OffHeapItemCounter.forStrings(4);
+		for(int i = 0; i < 10000; i++) {
+			ic.increment("item" + i);
+			if(i % 3 == 0) {
+				ic.increment("item" + i);
+			}
+		}
+		assertTrue(ic.size() == 10000);
+		assertTrue(ic.sum() == 10000 + 3334);
+		for(int i = 0; i < 10000; i += 2) {
+			ic.set("item" + i, 0);
+		}
+		assertTrue(ic.size() == 5000);
+		for(int i = 0; i < 10000; i++) {
+			int expected = (i % 2 == 0) ? 0 : (i % 3 == 0 ? 2 : 1);
+			assertTrue(ic.get("item" + i) == expected);
+		}
+		assertTrue(ic.getItems().size() == 5000);
+		long before = ic.offHeapBytes();
+		ic.trimToSize();
+		assertTrue(ic.offHeapBytes() > 0 && ic.offHeapBytes() < before);
+		assertTrue(ic.get("item1") == 1 && ic.get("item3") == 2 && ic.size() == 5000);
+		ic.close();
+		assertTrue(ic.offHeapBytes() == 0);
+	}
+
+	@Test
+	public void testSteadyChurnReclaimsArena() {
+		OffHeapItemCounter<String> ic = OffHeapItemCounter.forStrings(1000);
+		for(int i = 0; i < 1000; i++) {
+			ic.increment("item" + i);
+		}
+		CounterMetrics metrics = new CounterMetrics();
+		ic.setListener(metrics);
+		// Delete and insert at a steady size, which never grows the index
+		long peak = 0;
+		for(int i = 1000; i < 200000; i++) {
+			ic.set("item" + (i - 1000), 0);
+			ic.increment("item" + i);
+			peak = Math.max(peak, ic.offHeapBytes());
+		}
+		assertTrue(ic.size() == 1000);
+		assertTrue(peak < 1 << 20);
+		assertTrue(ic.get("item199999") == 1 && ic.get("item198999") == 0);
+		assertTrue(metrics.getResizes() == 0);  // compacting the arena is not a resize
+		ic.close();
+	}
+
+	@Test
+	public void testStatisticsAndSort() {
+		OffHeapItemCounter<String> ic = OffHeapItemCounter.forStrings(16);
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("a");
+		ic.increment("c");
+		assertTrue(ic.mean() == 4.0 / 3.0);
+		assertEquals(1.0 / 3.0, ic.variance(), 1e-12);
+		assertEquals(2.0 / 9.0, ic.variancePopulation(), 1e-12);
+		assertTrue(ic.max().getKey().equals("a"));
+		assertTrue(ic.min().getKey().equals("b"));
+
+		List<ItemCounter<String>.KeyValuePair> descendingList = ic.sortByValueKey(false);
+		assertTrue(descendingList.get(0).getKey().equals("a"));
+		assertTrue(descendingList.get(1).getKey().equals("c"));
+		assertTrue(descendingList.get(2).getKey().equals("b"));
+		ic.close();
+	}
+
+	@Test
+	public void testWriteCSV() throws IOException {
+		OffHeapItemCounter<String> ic = OffHeapItemCounter.forStrings(16);
+		ic.set("\u00e9t\u00e9", 12);
+		StringWriter writer = new StringWriter();
+		ic.writeCSV(writer);
+		assertTrue(writer.toString().equals("\u00e9t\u00e9\t12\n"));
+		assertTrue(ic.toCSV().equals("\u00e9t\u00e9\t12\n"));
+		ic.close();
+	}
+
+	@Test
+	public void testClose() {
+		OffHeapItemCounter<String> ic = OffHeapItemCounter.forStrings(16);
+		ic.increment("a");
+		ic.close();
+		ic.close();
+		try {
+			ic.increment("a");
+			fail("closed counter should throw an exception");
+		} catch(IllegalStateException e) {
+			// pass
+		}
+		try {
+			ic.size();
+			fail("closed counter should throw an exception");
+		} catch(IllegalStateException e) {
+			// pass
+		}
+	}
+}
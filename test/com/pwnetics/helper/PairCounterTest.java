@@ -0,0 +1,70 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class PairCounterTest {
+
+	@Test
+	public void testCounts() {
+		PairCounter<String, String> pc = new PairCounter<String, String>();
+		String[] words = "the cat sat on the mat and the cat ran".split("\\s+");
+		for(int i = 0; i + 1 < words.length; i++) {
+			pc.increment(words[i], words[i + 1]);
+		}
+		assertTrue(pc.get("the", "cat") == 2 && pc.get("the", "mat") == 1);
+		assertTrue(pc.get("cat", "the") == 0 && pc.get("dog", "cat") == 0);
+		assertTrue(pc.size() == 8 && pc.sum() == 9);
+
+		ItemCounter<String> firsts = pc.firstMarginal();
+		assertTrue(firsts.get("the") == 3 && firsts.get("cat") == 2 && firsts.get("ran") == 0);
+		ItemCounter<String> seconds = pc.secondMarginal();
+		assertTrue(seconds.get("cat") == 2 && seconds.get("the") == 2);
+
+		ItemCounter<String> afterThe = pc.conditional("the");
+		assertTrue(afterThe.size() == 2 && afterThe.get("cat") == 2 && afterThe.get("mat") == 1);
+		assertTrue(pc.conditional("dog").size() == 0);
+		List<ItemCounter<String>.KeyValuePair> top = pc.topSeconds("the", 1);
+		assertTrue(top.size() == 1 && top.get(0).getKey().equals("cat"));
+
+		pc.set("the", "cat", 0);
+		assertTrue(pc.get("the", "cat") == 0 && pc.size() == 7);
+		assertTrue(pc.firstIdOf("the") >= 0 && pc.first(pc.firstIdOf("the")).equals("the"));
+		assertTrue(pc.secondIdOf("sat") >= 0 && pc.second(pc.secondIdOf("sat")).equals("sat"));
+		assertTrue(pc.firstIdOf("dog") == -1);
+		assertTrue(pc.getPairCounts().get(pc.firstIdOf("the"), pc.secondIdOf("mat")) == 1);
+	}
+}
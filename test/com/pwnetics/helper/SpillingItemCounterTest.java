@@ -0,0 +1,139 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class SpillingItemCounterTest {
+
+	@Test
+	public void testSpillAndMerge() throws IOException {
+		SpillingItemCounter<String> sic = new SpillingItemCounter<String>(OffHeapItemCounter.STRING_CODEC, 3, null);
+		String words = "foo bar bat baz foo foo baz qux bar foo";
+		for(String word : words.split("\\s+")) {
+			sic.increment(word);
+		}
+		assertTrue(sic.runCount() > 0);
+
+		StringWriter writer = new StringWriter();
+		sic.writeCSV(writer);
+		assertTrue(writer.toString().equals("bar\t2\nbat\t1\nbaz\t2\nfoo\t4\nqux\t1\n"));
+
+		ItemCounter<String> ic = sic.toItemCounter();
+		assertTrue(ic.size() == 5);
+		assertTrue(ic.get("foo") == 4);
+		assertTrue(ic.sum() == 10);
+
+		sic.add("foo", 10);
+		assertTrue(sic.toItemCounter().get("foo") == 14);
+		sic.close();
+	}
+
+	@Test
+	public void testManyRuns() throws IOException {
+		SpillingItemCounter<String> sic = new SpillingItemCounter<String>(OffHeapItemCounter.STRING_CODEC, 2, null);
+		ItemCounter<String> expected = new ItemCounter<String>();
+		for(int i = 0; i < 1000; i++) {
+			String item = "item" + (i * 7919 % 101);
+			sic.increment(item);
+			expected.increment(item);
+		}
+		assertTrue(sic.runCount() > SpillingItemCounter.MAX_MERGE_WIDTH);
+		ItemCounter<String> ic = sic.toItemCounter();
+		assertTrue(ic.getMap().equals(expected.getMap()));
+		assertTrue(sic.runCount() <= SpillingItemCounter.MAX_MERGE_WIDTH);
+		sic.close();
+	}
+
+	@Test
+	public void testFailedCompactionKeepsRuns() throws IOException {
+		File dir = File.createTempFile("itemcounter", "");
+		assertTrue(dir.delete() && dir.mkdir());
+		SpillingItemCounter<String> sic = new SpillingItemCounter<String>(OffHeapItemCounter.STRING_CODEC, 1, dir);
+		for(int i = 0; i < SpillingItemCounter.MAX_MERGE_WIDTH + 1; i++) {
+			sic.increment("item" + i);
+		}
+		int runs = sic.runCount();
+		File[] files = dir.listFiles();
+		assertTrue(files.length == runs);
+		for(File file : files) {
+			assertTrue(file.delete());
+		}
+		try {
+			sic.toItemCounter();
+			fail("missing run should throw an exception");
+		} catch(IOException e) {
+			// pass
+		}
+		assertTrue(sic.runCount() == runs);
+		// The partly merged run was deleted
+		assertTrue(dir.listFiles().length == 0);
+		sic.close();
+		assertTrue(dir.delete());
+	}
+
+	@Test
+	public void testLongCounts() throws IOException {
+		SpillingItemCounter<String> sic = new SpillingItemCounter<String>(OffHeapItemCounter.STRING_CODEC, 10, null);
+		sic.add("foo", Integer.MAX_VALUE);
+		sic.add("foo", 5);
+		sic.increment("foo");
+		final long[] total = new long[1];
+		sic.merge(new SpillingItemCounter.CountVisitor<String>() {
+			@Override
+			public void visit(String item, long count) {
+				total[0] = count;
+			}
+		});
+		assertTrue(total[0] == Integer.MAX_VALUE + 6L);
+		sic.close();
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		SpillingItemCounter<String> sic = new SpillingItemCounter<String>(OffHeapItemCounter.STRING_CODEC, 1, null);
+		sic.increment("a");
+		sic.close();
+		assertTrue(sic.runCount() == 0);
+		try {
+			sic.increment("a");
+			fail("closed counter should throw an exception");
+		} catch(IllegalStateException e) {
+			// pass
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StringItemCounterTest {
+
+	@Test
+	public void testSetIncrement() {
+		StringItemCounter ic = new StringItemCounter(0);
+		assertTrue(ic.get("a") == 0);
+		assertTrue(ic.increment("a") == 1);
+		assertTrue(ic.increment(new StringBuilder("a")) == 2);
+		assertTrue(ic.increment("xay".toCharArray(), 1, 1) == 3);
+		ic.set("a", 42);
+		assertTrue(ic.increment("a") == 43);
+		ic.set("b", 11);
+		assertTrue(ic.get("b") == 11);
+		assertTrue(ic.get(new StringBuilder("b")) == 11);
+		assertTrue(ic.get("abc".toCharArray(), 1, 1) == 11);
+		assertTrue(ic.size() == 2);
+		ic.set("a", 0);
+		assertTrue(ic.get("a") == 0);
+		assertTrue(ic.size() == 1);
+		ic.set("c", 0);
+		assertTrue(ic.size() == 1);
+		assertTrue(ic.idCount() == 2);
+	}
+
+	@Test
+	public void testGrowth() {
+		StringItemCounter ic = new StringItemCounter(1);
+		for(int i = 0; i < 5000; i++) {
+			ic.increment("item" + i);
+			ic.increment("item" + (i / 2));
+		}
+		assertTrue(ic.size() == 5000);
+		assertTrue(ic.sum() == 10000);
+		assertTrue(ic.get("item0") == 3);
+		assertTrue(ic.get("item4999") == 1);
+		assertTrue(ic.get("item1000") == 3);
+	}
+
+	@Test
+	public void testIds() {
+		StringItemCounter ic = new StringItemCounter();
+		ic.increment("foo");
+		ic.increment("bar");
+		assertTrue(ic.id("foo") == 0);
+		assertTrue(ic.id("bar") == 1);
+		assertTrue(ic.id("baz") == -1);
+		assertTrue(ic.item(1).equals("bar"));
+		assertTrue(ic.incrementById(1) == 2);
+		assertTrue(ic.getById(1) == 2);
+		assertTrue(ic.get("bar") == 2);
+	}
+
+	@Test
+	public void testUtf8() throws Exception {
+		StringItemCounter ic = new StringItemCounter();
+		String s = "caf\u00e9 \u4e16 \ud83d\ude00";
+		byte[] utf8 = s.getBytes("UTF-8");
+		ic.incrementUtf8(utf8, 0, utf8.length);
+		assertTrue(ic.get(s) == 1);
+		ic.incrementUtf8(new byte[] {'a', (byte)0xff, 'b'}, 0, 3);
+		assertTrue(ic.get("a\ufffdb") == 1);
+	}
+
+	@Test
+	public void testStatisticsAndViews() throws IOException {
+		StringItemCounter ic = new StringItemCounter();
+		ic.increment("a");
+		ic.increment("b");
+		ic.increment("a");
+		ic.increment("c");
+		assertTrue(ic.sum() == 4);
+		assertTrue(ic.mean() == 4.0 / 3.0);
+		assertEquals(1.0 / 3.0, ic.variance(), 1e-12);
+		assertEquals(2.0 / 9.0, ic.variancePopulation(), 1e-12);
+		assertTrue(ic.max().getKey().equals("a"));
+		assertTrue(ic.getMap().get("a") == 2);
+
+		List<ItemCounter<String>.KeyValuePair> descendingList = ic.sortByValueKey(false);
+		assertTrue(descendingList.get(0).getKey().equals("a"));
+		assertTrue(descendingList.get(1).getKey().equals("c"));
+		assertTrue(descendingList.get(2).getKey().equals("b"));
+
+		StringWriter writer = new StringWriter();
+		ic.writeCSV(writer);
+		assertTrue(writer.toString().equals("a\t2\nb\t1\nc\t1\n"));
+		assertTrue(ic.toCSV().equals("a\t2\nb\t1\nc\t1\n"));
+	}
+
+	@Test
+	public void testCursor() {
+		StringItemCounter sic = new StringItemCounter();
+		sic.increment("x");
+		sic.increment("y");
+		sic.increment("y");
+		sic.set("x", 0);
+		sic.increment("z");
+		StringItemCounter.IdCursor c = sic.cursor();
+		assertTrue(c.next());
+		assertTrue(c.key().equals("y") && c.intValue() == 2 && c.id() == sic.id("y"));
+		assertTrue(c.next());
+		assertTrue(c.key().equals("z") && c.intValue() == 1);
+		assertTrue(!c.next());
+
+		final StringBuilder sb = new StringBuilder();
+		sic.forEach(new ItemCountVisitor<String>() {
+			@Override
+			public void visit(String item, int count) {
+				sb.append(item).append(count);
+			}
+		});
+		assertTrue(sb.toString().equals("y2z1"));
+	}
+
+	@Test
+	public void testRemoveIfCompacts() {
+		StringItemCounter ic = new StringItemCounter();
+		for(int i = 0; i < 10000; i++) {
+			ic.set("item" + i, i % 100 + 1);
+		}
+		long before = ic.estimatedRetainedBytes();
+		int id = ic.id("item5099");
+		int removed = ic.removeIf(new ItemCountPredicate<String>() {
+			@Override
+			public boolean test(String item, int count) {
+				return count < 100;
+			}
+		});
+		assertTrue(removed == 9900);
+		assertTrue(ic.size() == 100 && ic.idCount() == 100);
+		assertTrue(ic.estimatedRetainedBytes() < before / 20);
+		assertTrue(ic.id("item5099") == 50 && id != 50);
+		assertTrue(ic.item(0).equals("item99") && ic.getById(0) == 100);
+		assertTrue(ic.id("item0") == -1 && ic.get("item0") == 0);
+
+		ic.increment("new");
+		assertTrue(ic.id("new") == 100 && ic.get("item9999") == 100);
+		assertTrue(ic.sum() == 100 * 100 + 1);
+
+		ic.set("new", 0);
+		ic.trimToSize();
+		assertTrue(ic.idCount() == 100 && ic.id("new") == -1);
+		for(int i = 0; i < 1000; i++) {
+			ic.increment("more" + i);
+		}
+		assertTrue(ic.size() == 1100 && ic.get("more999") == 1 && ic.get("item199") == 100);
+	}
+
+	@Test
+	public void testCompactToFewItems() {
+		StringItemCounter ic = new StringItemCounter();
+		ic.setMaintainingRanks(true);
+		ic.set("k0", 2);
+		ic.set("k1", 3);
+		ic.set("k2", 4);
+		ic.set("k3", 5);
+		assertTrue(ic.removeIf(new ItemCountPredicate<String>() {
+			@Override
+			public boolean test(String item, int count) {
+				return count < 5;
+			}
+		}) == 3);
+		assertTrue(ic.idCount() == 1 && ic.id("k3") == 0);
+
+		// New keys reuse the slots past the surviving id
+		assertTrue(ic.increment("k4") == 1);
+		assertTrue(ic.increment("k5") == 1);
+		assertTrue(ic.increment("k6") == 1);
+		assertTrue(ic.size() == 4 && ic.sum() == 8);
+		assertTrue(ic.countOfCounts().get(1) == 3);
+		assertTrue(ic.rank("k3") == 0 && ic.rank("k4") == 3);
+		assertTrue(ic.increment("k4") == 2 && ic.rank("k4") == 1);
+	}
+}
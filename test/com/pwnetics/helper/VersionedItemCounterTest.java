@@ -0,0 +1,173 @@
+/*
+Copyright 2026 Brian Romanowski. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are
+permitted provided that the following conditions are met:
+
+   1. Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+
+   2. Redistributions in binary form must reproduce the above copyright notice, this list
+      of conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY BRIAN ROMANOWSKI ``AS IS'' AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL BRIAN ROMANOWSKI OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+The views and conclusions contained in the software and documentation are those of the
+authors.
+*/
+
+
+
+package com.pwnetics.helper;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VersionedItemCounterTest {
+
+	@Test
+	public void testSetIncrement() {
+		VersionedItemCounter<String> ic = new VersionedItemCounter<String>();
+		assertTrue(ic.get("a") == 0);
+		assertTrue(ic.increment("a") == 1);
+		assertTrue(ic.increment("a") == 2);
+		ic.set("a", 42);
+		assertTrue(ic.increment("a") == 43);
+		ic.set("b", 11);
+		assertTrue(ic.size() == 2);
+		assertTrue(ic.sum() == 54);
+		ic.set("a", 0);
+		assertTrue(ic.get("a") == 0);
+		assertTrue(ic.size() == 1);
+		assertTrue(ic.sum() == 11);
+		ic.set("c", 0);
+		assertTrue(ic.size() == 1);
+
+		ic.increment("a");
+		ic.increment("b");
+		List<ItemCounter<String>.KeyValuePair> descendingList = ic.sortByValueKey(false);
+		assertTrue(descendingList.get(0).getKey().equals("b"));
+		assertTrue(descendingList.get(1).getKey().equals("a"));
+	}
+
+	@Test
+	public void testSnapshotsAreIsolated() {
+		VersionedItemCounter<String> ic = new VersionedItemCounter<String>();
+		ic.increment("a");
+		ic.set("Aa", 3);
+		VersionedItemCounter.Snapshot<String> s1 = ic.snapshot();
+		ic.increment("a");
+		ic.set("BB", 4);  // same hash code as "Aa"
+		ic.set("Aa", 0);
+		VersionedItemCounter.Snapshot<String> s2 = ic.snapshot();
+		ic.increment("a");
+
+		assertTrue(s1.get("a") == 1);
+		assertTrue(s1.get("Aa") == 3);
+		assertTrue(s1.get("BB") == 0);
+		assertTrue(s1.size() == 2);
+		assertTrue(s1.sum() == 4);
+		assertTrue(s2.get("a") == 2);
+		assertTrue(s2.get("Aa") == 0);
+		assertTrue(s2.get("BB") == 4);
+		assertTrue(s2.getMap().size() == 2);
+		assertTrue(s2.version() > s1.version());
+		assertTrue(ic.get("a") == 3);
+
+		try {
+			s1.increment("a");
+			fail("snapshots should throw an exception");
+		} catch(UnsupportedOperationException e) {
+			// pass
+		}
+
+		// Queries leave no state behind in a snapshot
+		assertTrue(s2.quantile(1.0) == 4.0 && s2.rank("a") == 1 && s2.itemAtRank(0).equals("BB") && s2.countItemsInRange(2, 4) == 2);
+		assertTrue(!s2.isMaintainingCountOfCounts() && !s2.isMaintainingRanks());
+		try {
+			s2.setMaintainingCountOfCounts(true);
+			fail("snapshots should throw an exception");
+		} catch(UnsupportedOperationException e) {
+			// pass
+		}
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Random random = new Random(7);
+		VersionedItemCounter<Integer> ic = new VersionedItemCounter<Integer>();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		VersionedItemCounter.Snapshot<Integer> snapshot = null;
+		Map<Integer, Integer> expectedSnapshot = null;
+		for(int i = 0; i < 20000; i++) {
+			int k = random.nextInt(3000);
+			if(random.nextInt(5) == 0) {
+				ic.set(k, 0);
+				expected.remove(k);
+			} else {
+				ic.increment(k);
+				Integer c = expected.get(k);
+				expected.put(k, c == null ? 1 : c + 1);
+			}
+			if(i % 5000 == 0) {
+				snapshot = ic.publish();
+				expectedSnapshot = new HashMap<Integer, Integer>(expected);
+			}
+		}
+		assertTrue(ic.getMap().equals(expected));
+		assertTrue(ic.size() == expected.size());
+		assertTrue(snapshot.getMap().equals(expectedSnapshot));
+		assertTrue(ic.published() == snapshot);
+		long sum = 0;
+		for(Integer c : expected.values()) {
+			sum += c;
+		}
+		assertTrue(ic.sum() == sum);
+	}
+
+	@Test
+	public void testConcurrentReaders() throws InterruptedException {
+		final VersionedItemCounter<Integer> ic = new VersionedItemCounter<Integer>();
+		final boolean[] isConsistent = {true};
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				for(int i = 0; i < 2000; i++) {
+					VersionedItemCounter.Snapshot<Integer> s = ic.published();
+					long sum = 0;
+					for(Integer c : s.getMap().values()) {
+						sum += c;
+					}
+					if(sum != s.sum()) {
+						isConsistent[0] = false;
+					}
+				}
+			}
+		};
+		reader.start();
+		for(int i = 0; i < 100000; i++) {
+			ic.increment(i % 1000);
+			if(i % 100 == 0) {
+				ic.publish();
+			}
+		}
+		reader.join();
+		assertTrue(isConsistent[0]);
+	}
+}